@@ -40,6 +40,8 @@ import android.opengl.GLSurfaceView;
 import android.os.Bundle;
 import android.util.Log;
 
+import com.openglesbook.common.ESOnDemandRenderer;
+
 /**
  * Activity class for example program that detects OpenGL ES 3.0.
  **/
@@ -58,7 +60,10 @@ public class MultiTexture extends Activity
          // Tell the surface view we want to create an OpenGL ES 3.0-compatible
          // context, and set an OpenGL ES 3.0-compatible renderer.
          mGLSurfaceView.setEGLContextClientVersion ( CONTEXT_CLIENT_VERSION );
-         mGLSurfaceView.setRenderer ( new MultiTextureRenderer ( this ) );
+         // The scene is static, so it is only drawn when the surface is created or resized,
+         // or when a texture finished loading
+         MultiTextureRenderer renderer = new MultiTextureRenderer ( this );
+         renderer.setScheduler ( ESOnDemandRenderer.attach ( mGLSurfaceView, renderer ) );
       }
       else
       {
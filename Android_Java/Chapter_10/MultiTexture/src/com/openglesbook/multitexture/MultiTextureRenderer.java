@@ -38,24 +38,22 @@
 
 package com.openglesbook.multitexture;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
-
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
+import com.openglesbook.common.ESBufferCache;
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
+import com.openglesbook.common.ESRenderScheduler;
 import com.openglesbook.common.ESShader;
+import com.openglesbook.common.ESTextureLoader;
+import com.openglesbook.common.ESVertexArrayCache;
+import com.openglesbook.common.ESVertexSource;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.content.res.AssetManager;
 import android.opengl.GLES30;
 import android.opengl.GLSurfaceView;
-import android.opengl.GLUtils;
 
 
 public class MultiTextureRenderer implements GLSurfaceView.Renderer
@@ -66,51 +64,37 @@ public class MultiTextureRenderer implements GLSurfaceView.Renderer
    //
    public MultiTextureRenderer ( Context context )
    {
-      mContext = context;
-      mVertices = ByteBuffer.allocateDirect ( mVerticesData.length * 4 )
-                  .order ( ByteOrder.nativeOrder() ).asFloatBuffer();
-      mVertices.put ( mVerticesData ).position ( 0 );
-      mIndices = ByteBuffer.allocateDirect ( mIndicesData.length * 2 )
-                 .order ( ByteOrder.nativeOrder() ).asShortBuffer();
-      mIndices.put ( mIndicesData ).position ( 0 );
+      this ( context, ESGLES30.INSTANCE, context.getAssets() );
    }
 
    ///
-   //  Load texture from asset
+   // Constructor with the GL calls issued through gl, e.g. an ESGLRecorder, and the
+   // images loaded from assets; with null assets the placeholders are drawn
    //
-   private int loadTextureFromAsset ( String fileName )
+   public MultiTextureRenderer ( Context context, ESGL gl, AssetManager assets )
    {
-      int[] textureId = new int[1];
-      Bitmap bitmap = null;
-      InputStream is = null;
-
-      try
-      {
-         is = mContext.getAssets().open ( fileName );
-      }
-      catch ( IOException ioe )
-      {
-         is = null;
-      }
+      mContext = context;
+      mGL = gl;
+      mTextures = new ESTextureLoader ( gl, assets, null, ESTextureLoader.DEFAULT_THREADS );
+      mBuffers = new ESBufferCache ( gl, null );
+      mVertexArrays = new ESVertexArrayCache ( gl );
+      mVertices = ESVertexSource.vertices ( mVerticesData );
+      mIndices = ESVertexSource.indices ( mIndicesData );
+   }
 
-      if ( is == null )
+   ///
+   // Draw again whenever a texture is ready to upload; the view only draws on demand
+   //
+   public void setScheduler ( final ESRenderScheduler scheduler )
+   {
+      mScheduler = scheduler;
+      mTextures.setOnDecodedListener ( new Runnable()
       {
-         return 0;
-      }
-
-      bitmap = BitmapFactory.decodeStream ( is );
-
-      GLES30.glGenTextures ( 1, textureId, 0 );
-      GLES30.glBindTexture ( GLES30.GL_TEXTURE_2D, textureId[0] );
-
-      GLUtils.texImage2D ( GLES30.GL_TEXTURE_2D, 0, bitmap, 0 );
-
-      GLES30.glTexParameteri ( GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_LINEAR );
-      GLES30.glTexParameteri ( GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_LINEAR );
-      GLES30.glTexParameteri ( GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_S, GLES30.GL_CLAMP_TO_EDGE );
-      GLES30.glTexParameteri ( GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_T, GLES30.GL_CLAMP_TO_EDGE );
-
-      return textureId[0];
+         public void run()
+         {
+            scheduler.invalidate();
+         }
+      } );
    }
 
    ///
@@ -119,19 +103,24 @@ public class MultiTextureRenderer implements GLSurfaceView.Renderer
    public void onSurfaceCreated ( GL10 glUnused, EGLConfig config )
    {
       // Load shaders from 'assets' and get a linked program object
-      mProgramObject = ESShader.loadProgramFromAsset ( mContext,
+      mProgramObject = ESShader.loadProgramFromAsset ( mGL, mContext,
                                                        "shaders/vertexShader.vert",
                                                        "shaders/fragmentShader.frag" );
 
       // Get the sampler locations
-      mBaseMapLoc = GLES30.glGetUniformLocation ( mProgramObject, "s_baseMap" );
-      mLightMapLoc = GLES30.glGetUniformLocation ( mProgramObject, "s_lightMap" );
+      mBaseMapLoc = mGL.glGetUniformLocation ( mProgramObject, "s_baseMap" );
+      mLightMapLoc = mGL.glGetUniformLocation ( mProgramObject, "s_lightMap" );
+
+      // Buffers, VAOs and textures of a previous context are gone
+      mBuffers.reset();
+      mVertexArrays.reset();
+      mTextures.reset();
 
-      // Load the texture images from 'assets'
-      mBaseMapTexId = loadTextureFromAsset ( "textures/basemap.png" );
-      mLightMapTexId = loadTextureFromAsset ( "textures/lightmap.png" );
+      // Start loading the texture images from 'assets', they are decoded in the background
+      mBaseMapTex = mTextures.load ( "textures/basemap.ktx" );
+      mLightMapTex = mTextures.load ( "textures/lightmap.ktx" );
 
-      GLES30.glClearColor ( 1.0f, 1.0f, 1.0f, 0.0f );
+      mGL.glClearColor ( 1.0f, 1.0f, 1.0f, 0.0f );
    }
 
    // /
@@ -139,46 +128,43 @@ public class MultiTextureRenderer implements GLSurfaceView.Renderer
    //
    public void onDrawFrame ( GL10 glUnused )
    {
+      // Upload the textures decoded since the last frame; draw again if the budget left some
+      // behind, images still decoding request a frame when they are done
+      mTextures.processUploads();
+      if ( mTextures.hasQueuedUploads() && mScheduler != null )
+      {
+         mScheduler.invalidate();
+      }
+
       // Set the view-port
-      GLES30.glViewport ( 0, 0, mWidth, mHeight );
+      mGL.glViewport ( 0, 0, mWidth, mHeight );
 
       // Clear the color buffer
-      GLES30.glClear ( GLES30.GL_COLOR_BUFFER_BIT );
+      mGL.glClear ( GLES30.GL_COLOR_BUFFER_BIT );
 
       // Use the program object
-      GLES30.glUseProgram ( mProgramObject );
-
-      // Load the vertex position
-      mVertices.position ( 0 );
-      GLES30.glVertexAttribPointer ( 0, 3, GLES30.GL_FLOAT,
-                                     false,
-                                     5 * 4, mVertices );
-      // Load the texture coordinate
-      mVertices.position ( 3 );
-      GLES30.glVertexAttribPointer ( 1, 2, GLES30.GL_FLOAT,
-                                     false,
-                                     5 * 4,
-                                     mVertices );
-
-      GLES30.glEnableVertexAttribArray ( 0 );
-      GLES30.glEnableVertexAttribArray ( 1 );
+      mGL.glUseProgram ( mProgramObject );
 
+      // Bind the vertex position and texture coordinate pointers
+      mVertexArrays.bind ( mVertexLayout, mBuffers.get ( mVertices ), mBuffers.get ( mIndices ) );
 
       // Bind the base map
-      GLES30.glActiveTexture ( GLES30.GL_TEXTURE0 );
-      GLES30.glBindTexture ( GLES30.GL_TEXTURE_2D, mBaseMapTexId );
+      mGL.glActiveTexture ( GLES30.GL_TEXTURE0 );
+      mGL.glBindTexture ( GLES30.GL_TEXTURE_2D, mBaseMapTex.getId() );
 
       // Set the base map sampler to texture unit to 0
-      GLES30.glUniform1i ( mBaseMapLoc, 0 );
+      mGL.glUniform1i ( mBaseMapLoc, 0 );
 
       // Bind the light map
-      GLES30.glActiveTexture ( GLES30.GL_TEXTURE1 );
-      GLES30.glBindTexture ( GLES30.GL_TEXTURE_2D, mLightMapTexId );
+      mGL.glActiveTexture ( GLES30.GL_TEXTURE1 );
+      mGL.glBindTexture ( GLES30.GL_TEXTURE_2D, mLightMapTex.getId() );
 
       // Set the light map sampler to texture unit 1
-      GLES30.glUniform1i ( mLightMapLoc, 1 );
+      mGL.glUniform1i ( mLightMapLoc, 1 );
+
+      mGL.glDrawElements ( GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, 0 );
 
-      GLES30.glDrawElements ( GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices );
+      mGL.glBindVertexArray ( 0 );
    }
 
    ///
@@ -198,16 +184,29 @@ public class MultiTextureRenderer implements GLSurfaceView.Renderer
    private int mBaseMapLoc;
    private int mLightMapLoc;
 
-   // Texture handle
-   private int mBaseMapTexId;
-   private int mLightMapTexId;
+   // Texture handles, placeholders until the images are uploaded
+   private ESTextureLoader.Texture mBaseMapTex;
+   private ESTextureLoader.Texture mLightMapTex;
+   private final ESTextureLoader mTextures;
+   private volatile ESRenderScheduler mScheduler;
 
    // Additional member variables
    private int mWidth;
    private int mHeight;
-   private FloatBuffer mVertices;
-   private ShortBuffer mIndices;
    private Context mContext;
+   // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+   private final ESGL mGL;
+
+   // Quad vertices and indices, uploaded to buffer objects on the first draw
+   private final ESVertexSource mVertices;
+   private final ESVertexSource mIndices;
+   private final ESBufferCache mBuffers;
+
+   // Position (x,y,z) and texture coordinate (s,t) interleaved in mVertices
+   private final ESVertexArrayCache.Descriptor mVertexLayout = new ESVertexArrayCache.Descriptor()
+      .attribute ( 0, 3, GLES30.GL_FLOAT, false, 5 * 4, 0, 0 )
+      .attribute ( 1, 2, GLES30.GL_FLOAT, false, 5 * 4, 3 * 4, 0 );
+   private final ESVertexArrayCache mVertexArrays;
 
    private final float[] mVerticesData =
    {
@@ -38,24 +38,24 @@
 
 package com.openglesbook.particlesystem;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-
+import com.openglesbook.common.ESBufferCache;
+import com.openglesbook.common.ESFrameProfiler;
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
+import com.openglesbook.common.ESGLState;
+import com.openglesbook.common.ESResolutionController;
+import com.openglesbook.common.ESResolutionScaler;
 import com.openglesbook.common.ESShader;
+import com.openglesbook.common.ESTextureLoader;
+import com.openglesbook.common.ESVertexSource;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.content.res.AssetManager;
 import android.opengl.GLES30;
 import android.opengl.GLSurfaceView;
-import android.opengl.GLUtils;
-import android.os.SystemClock;
 
 public class ParticleSystemRenderer implements GLSurfaceView.Renderer
 {
@@ -64,8 +64,22 @@ public class ParticleSystemRenderer implements GLSurfaceView.Renderer
    // Constructor
    //
    public ParticleSystemRenderer ( Context context )
+   {
+      this ( context, ESGLES30.INSTANCE, context.getAssets() );
+   }
+
+   ///
+   // Constructor with the GL calls issued through gl, e.g. an ESGLRecorder, and the
+   // image loaded from assets; with null assets the placeholder is drawn
+   //
+   public ParticleSystemRenderer ( Context context, ESGL gl, AssetManager assets )
    {
       mContext = context;
+      mGL = gl;
+      mState = new ESGLState ( gl );
+      mBuffers = new ESBufferCache ( gl, mState );
+      mScaler = new ESResolutionScaler ( gl, new ESResolutionController ( 16666667L ), false );
+      mTextures = new ESTextureLoader ( gl, assets, mState, ESTextureLoader.DEFAULT_THREADS );
 
       // Fill in particle data array
       for ( int i = 0; i < ( NUM_PARTICLES * PARTICLE_SIZE ); i += PARTICLE_SIZE )
@@ -84,47 +98,7 @@ public class ParticleSystemRenderer implements GLSurfaceView.Renderer
          mParticleData[i + 6] = ( ( float ) ( ( int ) ( Math.random() * 10000 ) % 10000 ) / 40000.0f ) - 0.125f;
       }
 
-      mParticles = ByteBuffer.allocateDirect ( mParticleData.length * 4 )
-                   .order ( ByteOrder.nativeOrder() ).asFloatBuffer();
-      mParticles.put ( mParticleData ).position ( 0 );
-   }
-
-   ///
-   //  Load texture from asset
-   //
-   private int loadTextureFromAsset ( String fileName )
-   {
-      int[] textureId = new int[1];
-      Bitmap bitmap = null;
-      InputStream is = null;
-
-      try
-      {
-         is = mContext.getAssets().open ( fileName );
-      }
-      catch ( IOException ioe )
-      {
-         is = null;
-      }
-
-      if ( is == null )
-      {
-         return 0;
-      }
-
-      bitmap = BitmapFactory.decodeStream ( is );
-
-      GLES30.glGenTextures ( 1, textureId, 0 );
-      GLES30.glBindTexture ( GLES30.GL_TEXTURE_2D, textureId[0] );
-
-      GLUtils.texImage2D ( GLES30.GL_TEXTURE_2D, 0, bitmap, 0 );
-
-      GLES30.glTexParameteri ( GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_LINEAR );
-      GLES30.glTexParameteri ( GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_LINEAR );
-      GLES30.glTexParameteri ( GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_S, GLES30.GL_CLAMP_TO_EDGE );
-      GLES30.glTexParameteri ( GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_T, GLES30.GL_CLAMP_TO_EDGE );
-
-      return textureId[0];
+      mParticles = ESVertexSource.vertices ( mParticleData );
    }
 
    ///
@@ -132,58 +106,28 @@ public class ParticleSystemRenderer implements GLSurfaceView.Renderer
    //
    public void onSurfaceCreated ( GL10 glUnused, EGLConfig config )
    {
-      String vShaderStr =
-         "#version 300 es                                      \n" +
-         "uniform float u_time;                                \n" +
-         "uniform vec3 u_centerPosition;                       \n" +
-         "layout(location = 0) in float a_lifetime;            \n" +
-         "layout(location = 1) in vec3 a_startPosition;        \n" +
-         "layout(location = 2) in vec3 a_endPosition;          \n" +
-         "out float v_lifetime;                                \n" +
-         "void main()                                          \n" +
-         "{                                                    \n" +
-         "  if ( u_time <= a_lifetime )                        \n" +
-         "  {                                                  \n" +
-         "    gl_Position.xyz = a_startPosition +              \n" +
-         "                      (u_time * a_endPosition);      \n" +
-         "    gl_Position.xyz += u_centerPosition;             \n" +
-         "    gl_Position.w = 1.0;                             \n" +
-         "  }                                                  \n" +
-         "  else                                               \n" +
-         "     gl_Position = vec4( -1000, -1000, 0, 0 );       \n" +
-         "  v_lifetime = 1.0 - ( u_time / a_lifetime );        \n" +
-         "  v_lifetime = clamp ( v_lifetime, 0.0, 1.0 );       \n" +
-         "  gl_PointSize = ( v_lifetime * v_lifetime ) * 40.0; \n" +
-         "}                                                    \n";
-
-      String fShaderStr =
-         "#version 300 es                                      \n" +
-         "precision mediump float;                             \n" +
-         "uniform vec4 u_color;                                \n" +
-         "in float v_lifetime;                                 \n" +
-         "layout(location = 0) out vec4 fragColor;             \n" +
-         "uniform sampler2D s_texture;                         \n" +
-         "void main()                                          \n" +
-         "{                                                    \n" +
-         "  vec4 texColor;                                     \n" +
-         "  texColor = texture( s_texture, gl_PointCoord );    \n" +
-         "  fragColor = vec4( u_color ) * texColor;            \n" +
-         "  fragColor.a *= v_lifetime;                         \n" +
-         "}                                                    \n";
-
-      // Load the shaders and get a linked program object
-      mProgramObject = ESShader.loadProgram ( vShaderStr, fShaderStr );
+      // New context, nothing is known about its state and the old buffers are gone
+      mState.invalidate();
+      mBuffers.reset();
+      mScaler.reset();
+      mTextures.reset();
+
+      // Load the shaders from "assets" and get a linked program object
+      mProgramObject = ESShader.loadProgramFromAsset ( mGL, mContext,
+                       "shaders/vertexShader.vert",
+                       "shaders/fragmentShader.frag" );
 
       // Get the uniform locations
-      mTimeLoc = GLES30.glGetUniformLocation ( mProgramObject, "u_time" );
-      mCenterPositionLoc = GLES30.glGetUniformLocation ( mProgramObject, "u_centerPosition" );
-      mColorLoc = GLES30.glGetUniformLocation ( mProgramObject, "u_color" );
-      mSamplerLoc = GLES30.glGetUniformLocation ( mProgramObject, "s_texture" );
+      mTimeLoc = mGL.glGetUniformLocation ( mProgramObject, "u_time" );
+      mCenterPositionLoc = mGL.glGetUniformLocation ( mProgramObject, "u_centerPosition" );
+      mPointScaleLoc = mGL.glGetUniformLocation ( mProgramObject, "u_pointScale" );
+      mColorLoc = mGL.glGetUniformLocation ( mProgramObject, "u_color" );
+      mSamplerLoc = mGL.glGetUniformLocation ( mProgramObject, "s_texture" );
 
-      GLES30.glClearColor ( 0.0f, 0.0f, 0.0f, 0.0f );
+      mGL.glClearColor ( 0.0f, 0.0f, 0.0f, 0.0f );
 
-      // Load the texture images from 'assets'
-      mTextureId = loadTextureFromAsset ( "smoke.png" );
+      // Start loading the texture image from 'assets', it is decoded in the background
+      mSmokeTexture = mTextures.load ( "smoke.ktx" );
 
       // Initialize time to cause reset on first update
       mTime = 1.0f;
@@ -193,17 +137,17 @@ public class ParticleSystemRenderer implements GLSurfaceView.Renderer
    {
       if ( mLastTime == 0 )
       {
-         mLastTime = SystemClock.uptimeMillis();
+         mLastTime = System.nanoTime();
       }
 
-      long curTime = SystemClock.uptimeMillis();
+      long curTime = System.nanoTime();
       long elapsedTime = curTime - mLastTime;
-      float deltaTime = elapsedTime / 1000.0f;
+      float deltaTime = elapsedTime / 1000000000.0f;
       mLastTime = curTime;
 
       mTime += deltaTime;
 
-      GLES30.glUseProgram ( mProgramObject );
+      mState.useProgram ( mProgramObject );
 
       if ( mTime >= 1.0f )
       {
@@ -217,7 +161,7 @@ public class ParticleSystemRenderer implements GLSurfaceView.Renderer
          centerPos[1] = ( ( float ) ( ( int ) ( Math.random() * 10000 ) % 10000 ) / 10000.0f ) - 0.5f;
          centerPos[2] = ( ( float ) ( ( int ) ( Math.random() * 10000 ) % 10000 ) / 10000.0f ) - 0.5f;
 
-         GLES30.glUniform3f ( mCenterPositionLoc, centerPos[0], centerPos[1], centerPos[2] );
+         mGL.glUniform3f ( mCenterPositionLoc, centerPos[0], centerPos[1], centerPos[2] );
 
          // Random color
          color[0] = ( ( float ) ( ( int ) ( Math.random() * 1000 ) % 10000 ) / 20000.0f ) + 0.5f;
@@ -225,11 +169,11 @@ public class ParticleSystemRenderer implements GLSurfaceView.Renderer
          color[2] = ( ( float ) ( ( int ) ( Math.random() * 1000 ) % 10000 ) / 20000.0f ) + 0.5f;
          color[3] = 0.5f;
 
-         GLES30.glUniform4f ( mColorLoc, color[0], color[1], color[2], color[3] );
+         mGL.glUniform4f ( mColorLoc, color[0], color[1], color[2], color[3] );
       }
 
       // Load uniform time variable
-      GLES30.glUniform1f ( mTimeLoc, mTime );
+      mGL.glUniform1f ( mTimeLoc, mTime );
    }
 
    ///
@@ -237,53 +181,77 @@ public class ParticleSystemRenderer implements GLSurfaceView.Renderer
    //
    public void onDrawFrame ( GL10 glUnused )
    {
+      mProfiler.beginFrame();
+      mState.beginFrame();
+
+      mProfiler.begin ( ESFrameProfiler.UPDATE );
       update();
+      mProfiler.end ( ESFrameProfiler.UPDATE );
 
-      // Set the viewport
-      GLES30.glViewport ( 0, 0, mWidth, mHeight );
+      mProfiler.begin ( ESFrameProfiler.STATE );
+
+      // Render offscreen at the current scale, the viewport is set to the scaled size
+      mScaler.begin();
 
       // Clear the color buffer
-      GLES30.glClear ( GLES30.GL_COLOR_BUFFER_BIT );
+      mGL.glClear ( GLES30.GL_COLOR_BUFFER_BIT );
 
       // Use the program object
-      GLES30.glUseProgram ( mProgramObject );
+      mState.useProgram ( mProgramObject );
+
+      mProfiler.end ( ESFrameProfiler.STATE );
+
+      // Load the vertex attributes from the particle VBO, uploaded on the first frame
+      mProfiler.begin ( ESFrameProfiler.UPLOAD );
+      mTextures.processUploads();
+      mBuffers.bind ( mParticles );
+      mProfiler.end ( ESFrameProfiler.UPLOAD );
+
+      mProfiler.begin ( ESFrameProfiler.STATE );
 
-      // Load the vertex attributes
       //[0]
-      mParticles.position ( 0 );
-      GLES30.glVertexAttribPointer ( ATTRIBUTE_LIFETIME_LOCATION, 1, GLES30.GL_FLOAT,
+      mGL.glVertexAttribPointer ( ATTRIBUTE_LIFETIME_LOCATION, 1, GLES30.GL_FLOAT,
                                      false, PARTICLE_SIZE * ( 4 ),
-                                     mParticles );
+                                     0 );
 
       //[1]
-      mParticles.position ( 1 );
-      GLES30.glVertexAttribPointer ( ATTRIBUTE_ENDPOSITION_LOCATION, 3, GLES30.GL_FLOAT,
+      mGL.glVertexAttribPointer ( ATTRIBUTE_ENDPOSITION_LOCATION, 3, GLES30.GL_FLOAT,
                                      false, PARTICLE_SIZE * ( 4 ),
-                                     mParticles );
+                                     1 * 4 );
 
       //[4]
-      mParticles.position ( 4 );
-      GLES30.glVertexAttribPointer ( ATTRIBUTE_STARTPOSITION_LOCATION, 3, GLES30.GL_FLOAT,
+      mGL.glVertexAttribPointer ( ATTRIBUTE_STARTPOSITION_LOCATION, 3, GLES30.GL_FLOAT,
                                      false, PARTICLE_SIZE * ( 4 ),
-                                     mParticles );
-
+                                     4 * 4 );
 
-      GLES30.glEnableVertexAttribArray ( ATTRIBUTE_LIFETIME_LOCATION );
-      GLES30.glEnableVertexAttribArray ( ATTRIBUTE_ENDPOSITION_LOCATION );
-      GLES30.glEnableVertexAttribArray ( ATTRIBUTE_STARTPOSITION_LOCATION );
+      mState.enableVertexAttribArray ( ATTRIBUTE_LIFETIME_LOCATION );
+      mState.enableVertexAttribArray ( ATTRIBUTE_ENDPOSITION_LOCATION );
+      mState.enableVertexAttribArray ( ATTRIBUTE_STARTPOSITION_LOCATION );
 
       // Blend particles
-      GLES30.glEnable ( GLES30.GL_BLEND );
-      GLES30.glBlendFunc ( GLES30.GL_SRC_ALPHA, GLES30.GL_ONE );
+      mState.enable ( GLES30.GL_BLEND );
+      mState.blendFunc ( GLES30.GL_SRC_ALPHA, GLES30.GL_ONE );
 
       // Bind the texture
-      GLES30.glActiveTexture ( GLES30.GL_TEXTURE0 );
-      GLES30.glBindTexture ( GLES30.GL_TEXTURE_2D, mTextureId );
+      mState.activeTexture ( GLES30.GL_TEXTURE0 );
+      mState.bindTexture ( GLES30.GL_TEXTURE_2D, mSmokeTexture.getId() );
 
       // Set the sampler texture unit to 0
-      GLES30.glUniform1i ( mSamplerLoc, 0 );
+      mGL.glUniform1i ( mSamplerLoc, 0 );
 
-      GLES30.glDrawArrays ( GLES30.GL_POINTS, 0, NUM_PARTICLES );
+      // gl_PointSize is in framebuffer pixels: shrink the points with the render target
+      mGL.glUniform1f ( mPointScaleLoc, mScaler.getScale() );
+
+      mProfiler.end ( ESFrameProfiler.STATE );
+
+      mProfiler.begin ( ESFrameProfiler.DRAW );
+      mGL.glDrawArrays ( GLES30.GL_POINTS, 0, NUM_PARTICLES );
+
+      // Upscale to the window
+      mScaler.end();
+      mProfiler.end ( ESFrameProfiler.DRAW );
+
+      mProfiler.endFrame();
    }
 
    ///
@@ -293,6 +261,7 @@ public class ParticleSystemRenderer implements GLSurfaceView.Renderer
    {
       mWidth = width;
       mHeight = height;
+      mScaler.resize ( width, height );
    }
 
    // Handle to a program object
@@ -302,10 +271,11 @@ public class ParticleSystemRenderer implements GLSurfaceView.Renderer
    private int mTimeLoc;
    private int mColorLoc;
    private int mCenterPositionLoc;
+   private int mPointScaleLoc;
    private int mSamplerLoc;
 
-   // Texture handle
-   private int mTextureId;
+   // Texture handle, a placeholder until the image is uploaded
+   private ESTextureLoader.Texture mSmokeTexture;
 
    // Current time
    float time;
@@ -325,8 +295,26 @@ public class ParticleSystemRenderer implements GLSurfaceView.Renderer
    // Particle vertex data
    private float [] mParticleData = new float[ NUM_PARTICLES * PARTICLE_SIZE ];
 
-   private FloatBuffer mParticles;
+   private final ESVertexSource mParticles;
 
    private float mTime;
    private Context mContext;
+
+   // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+   private final ESGL mGL;
+
+   // Decodes textures off the GL thread
+   private final ESTextureLoader mTextures;
+
+   // Drops the redundant binds and state changes issued every frame
+   private final ESGLState mState;
+
+   // Particle buffer object, bound through mState
+   private final ESBufferCache mBuffers;
+
+   // CPU time of each phase of onDrawFrame, summarized to logcat every few seconds
+   private final ESFrameProfiler mProfiler = new ESFrameProfiler ( "ParticleSystem" );
+
+   // Additive blending is fill rate bound: lower the resolution when 60 fps is not met
+   private final ESResolutionScaler mScaler;
 }
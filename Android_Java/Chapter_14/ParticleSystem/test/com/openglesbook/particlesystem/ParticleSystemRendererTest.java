@@ -0,0 +1,125 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ParticleSystemRendererTest
+//
+//    Per-frame GL call budget of ParticleSystemRenderer, measured with an ESGLRecorder.
+//    The renderer gets no assets, so the smoke image load fails and the placeholder
+//    stays bound. A new explosion sets two more uniforms about once a second; they
+//    are left out of the budget.
+//
+
+package com.openglesbook.particlesystem;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.openglesbook.common.ESGLRecorder;
+import com.openglesbook.common.ESShader;
+
+public class ParticleSystemRendererTest
+{
+   // Offscreen target: glBindFramebuffer, glViewport; glClear, glUniform1f (time),
+   // 3 glVertexAttribPointer, glUniform1i, glUniform1f (point scale), glDrawArrays;
+   // upscale: 2 glBindFramebuffer, glBlitFramebuffer. Program, buffer, attribute
+   // arrays, blending and texture are dropped by ESGLState after the first frame.
+   private static final int FRAME_BUDGET = 13;
+
+   // 1000 particles of 7 floats
+   private static final int PARTICLE_BYTES = 1000 * 7 * 4;
+
+   private ESGLRecorder mRecorder;
+   private ParticleSystemRenderer mRenderer;
+
+   @Before
+   public void setUp()
+   {
+      // Unit tests run from the module directory
+      ESShader.enableDevMode ( new File ( "assets" ) );
+      mRecorder = new ESGLRecorder();
+      mRenderer = new ParticleSystemRenderer ( null, mRecorder, null );
+      mRenderer.onSurfaceCreated ( null, null );
+      mRenderer.onSurfaceChanged ( null, 320, 240 );
+   }
+
+   @After
+   public void tearDown()
+   {
+      ESShader.disableDevMode();
+   }
+
+   @Test
+   public void surfaceChangedCreatesTheOffscreenTarget()
+   {
+      assertEquals ( 1, mRecorder.getCallCount ( "glGenFramebuffers" ) );
+      assertEquals ( 1, mRecorder.getCallCount ( "glRenderbufferStorage" ) );
+      assertEquals ( 1, mRecorder.getCallCount ( "glTexImage2D" ) );
+   }
+
+   @Test
+   public void firstFrameUploadsTheParticlesOnce()
+   {
+      mRecorder.beginFrame();
+      mRenderer.onDrawFrame ( null );
+      assertEquals ( 1, mRecorder.getFrameCallCount ( "glBufferData" ) );
+      assertEquals ( 1, mRecorder.getFrameCallCount ( "glUseProgram" ) );
+      assertEquals ( PARTICLE_BYTES, mRecorder.getFrameUploadBytes() );
+   }
+
+   @Test
+   public void steadyFramesStayWithinBudget()
+   {
+      mRecorder.beginFrame();
+      mRenderer.onDrawFrame ( null );
+      for ( int frame = 0; frame < 10; frame++ )
+      {
+         mRecorder.beginFrame();
+         mRenderer.onDrawFrame ( null );
+         int explosion = mRecorder.getFrameCallCount ( "glUniform3f" )
+                         + mRecorder.getFrameCallCount ( "glUniform4f" );
+         assertEquals ( summary(), FRAME_BUDGET, mRecorder.getFrameCallCount() - explosion );
+         assertEquals ( 1, mRecorder.getFrameCallCount ( "glBlitFramebuffer" ) );
+         assertEquals ( 0, mRecorder.getFrameUploadBytes() );
+      }
+   }
+
+   private String summary()
+   {
+      return "frame calls:\n" + mRecorder.summary();
+   }
+}
@@ -39,10 +39,6 @@
 
 package com.openglesbook.hellotriangle;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
@@ -51,16 +47,24 @@ import android.opengl.GLES30;
 import android.opengl.GLSurfaceView;
 import android.util.Log;
 
+import com.openglesbook.common.ESBufferCache;
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShader;
+import com.openglesbook.common.ESVertexSource;
 
 // 可以参考这篇讲解： https://learnopengl-cn.github.io/01%20Getting%20started/04%20Hello%20Triangle/
 public class HelloTriangleRenderer implements GLSurfaceView.Renderer {
     private Context mContext;
+    // GL entry points used for drawing; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
     // Member variables
     private int mProgramObject;
     private int mWidth;
     private int mHeight;
-    private FloatBuffer mVertices;
+    private ESVertexSource mVertices;
+    // Uploads mVertices to a VBO once instead of sending the client array with every draw
+    private final ESBufferCache mBuffers;
     private static String TAG = "HelloTriangleRenderer";
 
     // 我们在OpenGL中指定的所有坐标都是3D坐标（x、y和z）
@@ -77,10 +81,14 @@ public class HelloTriangleRenderer implements GLSurfaceView.Renderer {
     // Constructor
     //
     public HelloTriangleRenderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public HelloTriangleRenderer(Context context, ESGL gl) {
         mContext = context;
-        mVertices = ByteBuffer.allocateDirect(mVerticesData.length * 4)
-                .order(ByteOrder.nativeOrder()).asFloatBuffer();
-        mVertices.put(mVerticesData).position(0);
+        mGL = gl;
+        mBuffers = new ESBufferCache(gl, null);
+        mVertices = ESVertexSource.vertices(mVerticesData);
     }
 
     ///
@@ -89,11 +97,14 @@ public class HelloTriangleRenderer implements GLSurfaceView.Renderer {
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
         // Store the program object
         // 得到的结果就是一个程序对象，我们可以调用glUseProgram函数，用刚创建的程序对象作为它的参数，以激活这个程序对象
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
         // 设置清除颜色
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+
+        // Buffers of a previous context are gone
+        mBuffers.reset();
     }
 
     // /
@@ -104,7 +115,7 @@ public class HelloTriangleRenderer implements GLSurfaceView.Renderer {
         // 通知OpenGL ES 用于绘制的2D渲染表面的原点、宽度和高度。
         // 在OpenGL ES 中，视口(Viewport) 定义所有OpenGL ES 渲染操作最终显示的2D矩形
         // 视口(Viewport) 由原点坐标(x,y)和宽度(width) 、高度(height)定义。
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
         // 清除屏幕
@@ -113,12 +124,12 @@ public class HelloTriangleRenderer implements GLSurfaceView.Renderer {
         // 缓冲区将用glClearColor指定的颜色清除。
         // 这个例子，我们调用了GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f); 因此屏幕清为白色。
         // 清除颜色应该由应用程序在调用颜色缓冲区的glClear之前设置。
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
         // Use the program object
         // 在glUseProgram函数调用之后，每个着色器调用和渲染调用都会使用这个程序对象（也就是之前写的着色器)了。
         // 当我们渲染一个物体时要使用着色器程序 , 将其设置为活动程序。这样就可以开始渲染了
-        GLES30.glUseProgram(mProgramObject);
+        mGL.glUseProgram(mProgramObject);
 
         //  顶点着色器允许我们指定任何以顶点属性为形式的输入。这使其具有很强的灵活性的同时，它还的确意味着我们必须手动指定输入数据的哪一个部分对应顶点着色器的哪一个顶点属性。所以，我们必须在渲染前指定OpenGL该如何解释顶点数据。
         //  我们的顶点缓冲数据会被解析为下面这样子：https://learnopengl-cn.github.io/img/01/04/vertex_attribute_pointer.png
@@ -138,10 +149,12 @@ public class HelloTriangleRenderer implements GLSurfaceView.Renderer {
         //      一旦我们有更多的顶点属性，我们就必须更小心地定义每个顶点属性之间的间隔，
         //      （译注: 这个参数的意思简单说就是从这个属性第二次出现的地方到整个数组0位置之间有多少字节）。
         // 最后一个参数的类型是void*，所以需要我们进行这个奇怪的强制类型转换。它表示位置数据在缓冲中起始位置的偏移量(Offset)。
-        GLES30.glVertexAttribPointer(0, 3, GLES30.GL_FLOAT, false, 0, mVertices);
+        // Bind the VBO holding the vertices (uploaded on the first frame), the offset is 0
+        mBuffers.bind(mVertices);
+        mGL.glVertexAttribPointer(0, 3, GLES30.GL_FLOAT, false, 0, 0);
 
         // 现在我们已经定义了OpenGL该如何解释顶点数据，我们现在应该使用glEnableVertexAttribArray，以顶点属性位置值作为参数，启用顶点属性；顶点属性默认是禁用的。
-        GLES30.glEnableVertexAttribArray(0);
+        mGL.glEnableVertexAttribArray(0);
 
         // glDrawArrays函数第一个参数是我们打算绘制的OpenGL图元的类型。我们希望绘制的是一个三角形，这里传递GL_TRIANGLES给它。
         // 第二个参数指定了顶点数组的起始索引，我们这里填0。
@@ -153,7 +166,7 @@ public class HelloTriangleRenderer implements GLSurfaceView.Renderer {
         //        public static final int GL_TRIANGLES                               = 0x0004;
         //        public static final int GL_TRIANGLE_STRIP                          = 0x0005;
         //        public static final int GL_TRIANGLE_FAN                            = 0x0006;
-        GLES30.glDrawArrays(GLES30.GL_TRIANGLES, 0, 3);
+        mGL.glDrawArrays(GLES30.GL_TRIANGLES, 0, 3);
     }
 
     // /
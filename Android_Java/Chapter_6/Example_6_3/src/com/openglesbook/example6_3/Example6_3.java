@@ -40,6 +40,8 @@ import android.opengl.GLSurfaceView;
 import android.os.Bundle;
 import android.util.Log;
 
+import com.openglesbook.common.ESOnDemandRenderer;
+
 /**
  * Activity class for example program that detects OpenGL ES 3.0.
  **/
@@ -59,7 +61,8 @@ public class Example6_3 extends Activity
          // Tell the surface view we want to create an OpenGL ES 3.0-compatible
          // context, and set an OpenGL ES 3.0-compatible renderer.
          mGLSurfaceView.setEGLContextClientVersion ( CONTEXT_CLIENT_VERSION );
-         mGLSurfaceView.setRenderer ( new Example6_3Renderer ( this ) );
+         // The scene is static, so it is only drawn when the surface is created or resized
+         ESOnDemandRenderer.attach ( mGLSurfaceView, new Example6_3Renderer ( this ) );
       }
       else
       {
@@ -45,6 +45,8 @@ import java.nio.FloatBuffer;
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShader;
 
 import android.content.Context;
@@ -53,6 +55,8 @@ import android.opengl.GLSurfaceView;
 
 public class Example6_3Renderer implements GLSurfaceView.Renderer {
     private Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
     // Handle to a program object
     private int mProgramObject;
 
@@ -72,7 +76,12 @@ public class Example6_3Renderer implements GLSurfaceView.Renderer {
     // Constructor
     //
     public Example6_3Renderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public Example6_3Renderer(Context context, ESGL gl) {
         mContext = context;
+        mGL = gl;
         mVertices = ByteBuffer.allocateDirect(mVerticesData.length * 4)
                 .order(ByteOrder.nativeOrder()).asFloatBuffer();
         mVertices.put(mVerticesData).position(0);
@@ -84,12 +93,12 @@ public class Example6_3Renderer implements GLSurfaceView.Renderer {
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
         // Load the shaders and get a linked program object
         // 得到的结果就是一个程序对象，我们可以调用glUseProgram函数，用刚创建的程序对象作为它的参数，以激活这个程序对象
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
 
         // 设置清除颜色
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
     }
 
     // /
@@ -97,13 +106,13 @@ public class Example6_3Renderer implements GLSurfaceView.Renderer {
     //
     public void onDrawFrame(GL10 glUnused) {
         // Set the viewport
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
         // Use the program object
-        GLES30.glUseProgram(mProgramObject);
+        mGL.glUseProgram(mProgramObject);
 
         // Set the vertex color to red
         // 设置顶点的颜色值
@@ -112,24 +121,24 @@ public class Example6_3Renderer implements GLSurfaceView.Renderer {
         // x，y，z，w：指的不是四维，其中w指的是缩放因子
         // X轴为水平方向，Y轴为垂直方向，X和Y相互垂直
         // Z轴同时垂直于X和Y轴。Z轴的实际意义代表着三维物体的深度
-        GLES30.glVertexAttrib4f(0, 1.0f, 0.0f, 0.0f, 1.0f);
+        mGL.glVertexAttrib4f(0, 1.0f, 0.0f, 0.0f, 1.0f);
 
         // Load the vertex position
         mVertices.position(0);
 
         //  指定通用顶点属性数组
-        GLES30.glVertexAttribPointer(1, 3, GLES30.GL_FLOAT, false, 0, mVertices);
+        mGL.glVertexAttribPointer(1, 3, GLES30.GL_FLOAT, false, 0, mVertices);
 
         // 启用 通用顶点属性数组
-        GLES30.glEnableVertexAttribArray(1);
+        mGL.glEnableVertexAttribArray(1);
 
         // glDrawArrays函数第一个参数是我们打算绘制的OpenGL图元的类型。我们希望绘制的是一个三角形，这里传递GL_TRIANGLES给它。
         // 第二个参数指定了顶点数组的起始索引，我们这里填0。
         // 最后一个参数指定我们打算绘制多少个顶点，这里是3（我们只从我们的数据中渲染一个三角形，它只有3个顶点长）。
-        GLES30.glDrawArrays(GLES30.GL_TRIANGLES, 0, 3);
+        mGL.glDrawArrays(GLES30.GL_TRIANGLES, 0, 3);
 
         // 禁用 通用顶点属性数组
-        GLES30.glDisableVertexAttribArray(1);
+        mGL.glDisableVertexAttribArray(1);
     }
 
     ///
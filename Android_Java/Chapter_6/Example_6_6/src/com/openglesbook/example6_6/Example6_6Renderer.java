@@ -47,7 +47,11 @@ import java.nio.ShortBuffer;
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShader;
+import com.openglesbook.common.ESVertexArrayCache;
+import com.openglesbook.common.ESVertexLayout;
 
 import android.content.Context;
 import android.opengl.GLES30;
@@ -55,6 +59,8 @@ import android.opengl.GLSurfaceView;
 
 public class Example6_6Renderer implements GLSurfaceView.Renderer {
     private Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
     // Handle to a program object
     private int mProgramObject;
 
@@ -94,17 +100,31 @@ public class Example6_6Renderer implements GLSurfaceView.Renderer {
     final int VERTEX_POS_INDX = 0;
     final int VERTEX_COLOR_INDX = 1;
 
-    private int[] vtxStrides =
-            {
-                    VERTEX_POS_SIZE * 4,
-                    VERTEX_COLOR_SIZE * 4
-            };
+    // One attribute per buffer: positions in mVBOIds[0], colors in mVBOIds[1]
+    private final ESVertexLayout mPositionLayout = new ESVertexLayout.Builder()
+            .add(ESVertexLayout.POSITION, VERTEX_POS_INDX, VERTEX_POS_SIZE, GLES30.GL_FLOAT, false)
+            .build();
+    private final ESVertexLayout mColorLayout = new ESVertexLayout.Builder()
+            .add(ESVertexLayout.COLOR, VERTEX_COLOR_INDX, VERTEX_COLOR_SIZE, GLES30.GL_FLOAT, false)
+            .build();
+
+    // Position from buffer slot 0, color from slot 1
+    private final ESVertexArrayCache.Descriptor mVertexLayout = mColorLayout.appendTo(
+            mPositionLayout.appendTo(new ESVertexArrayCache.Descriptor(), 0, 0), 1, 0);
+    private final ESVertexArrayCache mVertexArrays;
+    private final int[] mVertexBufferIds = new int[2];
 
     ///
     // Constructor
     //
     public Example6_6Renderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public Example6_6Renderer(Context context, ESGL gl) {
         mContext = context;
+        mGL = gl;
+        mVertexArrays = new ESVertexArrayCache(gl);
         mVertices = ByteBuffer.allocateDirect(mVerticesData.length * 4)
                 .order(ByteOrder.nativeOrder()).asFloatBuffer();
         mVertices.put(mVerticesData).position(0);
@@ -124,7 +144,7 @@ public class Example6_6Renderer implements GLSurfaceView.Renderer {
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
 
         // Load the shaders and get a linked program object
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
 
@@ -132,7 +152,10 @@ public class Example6_6Renderer implements GLSurfaceView.Renderer {
         mVBOIds[1] = 0;
         mVBOIds[2] = 0;
 
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        // VAOs of a previous context are gone
+        mVertexArrays.reset();
+
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
     }
 
     // /
@@ -140,13 +163,13 @@ public class Example6_6Renderer implements GLSurfaceView.Renderer {
     //
     public void onDrawFrame(GL10 glUnused) {
         // Set the viewport
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
         // Use the program object
-        GLES30.glUseProgram(mProgramObject);
+        mGL.glUseProgram(mProgramObject);
 
         drawPrimitiveWithVBOs();
     }
@@ -160,37 +183,28 @@ public class Example6_6Renderer implements GLSurfaceView.Renderer {
         // mVBOIds[2] - used to store element indices
         if (mVBOIds[0] == 0 && mVBOIds[1] == 0 && mVBOIds[2] == 0) {
             // Only allocate on the first draw
-            GLES30.glGenBuffers(3, mVBOIds, 0);
+            mGL.glGenBuffers(3, mVBOIds, 0);
 
             mVertices.position(0);
-            GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
-            GLES30.glBufferData(GLES30.GL_ARRAY_BUFFER, vtxStrides[0] * numVertices,
+            mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
+            mGL.glBufferData(GLES30.GL_ARRAY_BUFFER, mPositionLayout.getStride() * numVertices,
                     mVertices, GLES30.GL_STATIC_DRAW);
 
             mColors.position(0);
-            GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[1]);
-            GLES30.glBufferData(GLES30.GL_ARRAY_BUFFER, vtxStrides[1] * numVertices,
+            mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[1]);
+            mGL.glBufferData(GLES30.GL_ARRAY_BUFFER, mColorLayout.getStride() * numVertices,
                     mColors, GLES30.GL_STATIC_DRAW);
 
             mIndices.position(0);
-            GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[2]);
-            GLES30.glBufferData(GLES30.GL_ELEMENT_ARRAY_BUFFER, 2 * numIndices,
+            mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[2]);
+            mGL.glBufferData(GLES30.GL_ELEMENT_ARRAY_BUFFER, 2 * numIndices,
                     mIndices, GLES30.GL_STATIC_DRAW);
         }
 
-        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
-
-        GLES30.glEnableVertexAttribArray(VERTEX_POS_INDX);
-        GLES30.glVertexAttribPointer(VERTEX_POS_INDX, VERTEX_POS_SIZE,
-                GLES30.GL_FLOAT, false, vtxStrides[0], 0);
-
-        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[1]);
-
-        GLES30.glEnableVertexAttribArray(VERTEX_COLOR_INDX);
-        GLES30.glVertexAttribPointer(VERTEX_COLOR_INDX, VERTEX_COLOR_SIZE,
-                GLES30.GL_FLOAT, false, vtxStrides[1], 0);
-
-        GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[2]);
+        // The VAO records both attribute pointers and the element buffer
+        mVertexBufferIds[0] = mVBOIds[0];
+        mVertexBufferIds[1] = mVBOIds[1];
+        mVertexArrays.bind(mVertexLayout, mVertexBufferIds, mVBOIds[2]);
 
         //        public static final int GL_POINTS                                  = 0x0000;
         //        public static final int GL_LINES                                   = 0x0001;
@@ -203,14 +217,10 @@ public class Example6_6Renderer implements GLSurfaceView.Renderer {
         //        public static final int GL_UNSIGNED_BYTE                           = 0x1401;
         //        public static final int GL_UNSIGNED_SHORT                          = 0x1403;
         //        public static final int GL_UNSIGNED_INT                            = 0x1405;
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, numIndices,
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, numIndices,
                 GLES30.GL_UNSIGNED_SHORT, 0);
 
-        GLES30.glDisableVertexAttribArray(VERTEX_POS_INDX);
-        GLES30.glDisableVertexAttribArray(VERTEX_COLOR_INDX);
-
-        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
-        GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 0);
+        mGL.glBindVertexArray(0);
     }
 
     ///
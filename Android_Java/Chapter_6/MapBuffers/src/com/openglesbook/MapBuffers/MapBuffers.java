@@ -8,6 +8,8 @@ import android.opengl.GLSurfaceView;
 import android.os.Bundle;
 import android.util.Log;
 
+import com.openglesbook.common.ESOnDemandRenderer;
+
 /**
  * Activity class for example program that detects OpenGL ES 3.0.
  **/
@@ -27,7 +29,8 @@ public class MapBuffers extends Activity
          // Tell the surface view we want to create an OpenGL ES 3.0-compatible
          // context, and set an OpenGL ES 3.0-compatible renderer.
          mGLSurfaceView.setEGLContextClientVersion ( CONTEXT_CLIENT_VERSION );
-         mGLSurfaceView.setRenderer ( new MapBuffersRenderer ( this ) );
+         // The scene is static, so it is only drawn when the surface is created or resized
+         ESOnDemandRenderer.attach ( mGLSurfaceView, new MapBuffersRenderer ( this ) );
       }
       else
       {
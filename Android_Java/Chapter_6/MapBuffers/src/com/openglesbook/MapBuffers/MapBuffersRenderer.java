@@ -44,7 +44,10 @@ import java.nio.ShortBuffer;
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShader;
+import com.openglesbook.common.ESVertexLayout;
 
 import android.content.Context;
 import android.opengl.GLES30;
@@ -52,6 +55,8 @@ import android.opengl.GLSurfaceView;
 
 public class MapBuffersRenderer implements GLSurfaceView.Renderer {
     private Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
     // Handle to a program object
     private int mProgramObject;
 
@@ -89,11 +94,22 @@ public class MapBuffersRenderer implements GLSurfaceView.Renderer {
     final int VERTEX_POS_INDX = 0;
     final int VERTEX_COLOR_INDX = 1;
 
+    // Interleaved (x,y,z) (r,g,b,a); stride and offsets are computed by the layout
+    private final ESVertexLayout mLayout = new ESVertexLayout.Builder()
+            .add(ESVertexLayout.POSITION, VERTEX_POS_INDX, VERTEX_POS_SIZE, GLES30.GL_FLOAT, false)
+            .add(ESVertexLayout.COLOR, VERTEX_COLOR_INDX, VERTEX_COLOR_SIZE, GLES30.GL_FLOAT, false)
+            .build();
+
     ///
     // Constructor
     //
     public MapBuffersRenderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public MapBuffersRenderer(Context context, ESGL gl) {
         mContext = context;
+        mGL = gl;
     }
 
     ///
@@ -101,14 +117,14 @@ public class MapBuffersRenderer implements GLSurfaceView.Renderer {
     //
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
         // Load the shaders and get a linked program object
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
 
         mVBOIds[0] = 0;
         mVBOIds[1] = 0;
 
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
     }
 
     // /
@@ -116,34 +132,33 @@ public class MapBuffersRenderer implements GLSurfaceView.Renderer {
     //
     public void onDrawFrame(GL10 glUnused) {
         // Set the viewport
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
         // Use the program object
-        GLES30.glUseProgram(mProgramObject);
+        mGL.glUseProgram(mProgramObject);
 
         drawPrimitiveWithVBOsMapBuffers();
     }
 
     private void drawPrimitiveWithVBOsMapBuffers() {
-        int offset = 0;
         int numVertices = 3;
         int numIndices = 3;
-        int vtxStride = 4 * (VERTEX_POS_SIZE + VERTEX_COLOR_SIZE);
+        int vtxStride = mLayout.getStride();
 
         // mVBOIds[0] - used to store vertex attribute data
         // mVBOIds[l] - used to store element indices
         if (mVBOIds[0] == 0 && mVBOIds[1] == 0) {
             // Only allocate on the first draw
-            GLES30.glGenBuffers(2, mVBOIds, 0);
+            mGL.glGenBuffers(2, mVBOIds, 0);
 
-            GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
-            GLES30.glBufferData(GLES30.GL_ARRAY_BUFFER, vtxStride * numVertices,
+            mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
+            mGL.glBufferData(GLES30.GL_ARRAY_BUFFER, vtxStride * numVertices,
                     null, GLES30.GL_STATIC_DRAW);
             vtxMappedBuf =
-                    ((ByteBuffer) GLES30.glMapBufferRange(
+                    ((ByteBuffer) mGL.glMapBufferRange(
                             GLES30.GL_ARRAY_BUFFER, 0, vtxStride * numVertices,
                             GLES30.GL_MAP_WRITE_BIT | GLES30.GL_MAP_INVALIDATE_BUFFER_BIT)
                     ).order(ByteOrder.nativeOrder()).asFloatBuffer();
@@ -152,15 +167,15 @@ public class MapBuffersRenderer implements GLSurfaceView.Renderer {
             vtxMappedBuf.put(mVerticesData).position(0);
 
             // Unamp the buffer
-            GLES30.glUnmapBuffer(GLES30.GL_ARRAY_BUFFER);
+            mGL.glUnmapBuffer(GLES30.GL_ARRAY_BUFFER);
 
 
             // Map the index buffer
-            GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
-            GLES30.glBufferData(GLES30.GL_ELEMENT_ARRAY_BUFFER, 2 * numIndices,
+            mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
+            mGL.glBufferData(GLES30.GL_ELEMENT_ARRAY_BUFFER, 2 * numIndices,
                     null, GLES30.GL_STATIC_DRAW);
             idxMappedBuf =
-                    ((ByteBuffer) GLES30.glMapBufferRange(
+                    ((ByteBuffer) mGL.glMapBufferRange(
                             GLES30.GL_ELEMENT_ARRAY_BUFFER, 0, 2 * numIndices,
                             GLES30.GL_MAP_WRITE_BIT | GLES30.GL_MAP_INVALIDATE_BUFFER_BIT)
                     ).order(ByteOrder.nativeOrder()).asShortBuffer();
@@ -169,32 +184,22 @@ public class MapBuffersRenderer implements GLSurfaceView.Renderer {
             idxMappedBuf.put(mIndicesData).position(0);
 
             // Unamp the buffer
-            GLES30.glUnmapBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER);
+            mGL.glUnmapBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER);
         }
 
-        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
-
-        GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
-
-        GLES30.glEnableVertexAttribArray(VERTEX_POS_INDX);
-        GLES30.glEnableVertexAttribArray(VERTEX_COLOR_INDX);
-
-        GLES30.glVertexAttribPointer(VERTEX_POS_INDX, VERTEX_POS_SIZE,
-                GLES30.GL_FLOAT, false, vtxStride, offset);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
 
-        offset += (VERTEX_POS_SIZE * 4);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
 
-        GLES30.glVertexAttribPointer(VERTEX_COLOR_INDX, VERTEX_COLOR_SIZE,
-                GLES30.GL_FLOAT, false, vtxStride, offset);
+        mLayout.enable(mGL, 0);
 
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, numIndices,
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, numIndices,
                 GLES30.GL_UNSIGNED_SHORT, 0);
 
-        GLES30.glDisableVertexAttribArray(VERTEX_POS_INDX);
-        GLES30.glDisableVertexAttribArray(VERTEX_COLOR_INDX);
+        mLayout.disable(mGL);
 
-        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
-        GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 0);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 0);
     }
 
     ///
@@ -0,0 +1,106 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// MapBuffersRendererTest
+//
+//    Per-frame GL call budget of MapBuffersRenderer, measured with an ESGLRecorder.
+//    The buffers are filled once through glMapBufferRange on the first frame.
+//
+
+package com.openglesbook.MapBuffers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.openglesbook.common.ESGLRecorder;
+import com.openglesbook.common.ESShader;
+
+public class MapBuffersRendererTest {
+    // glViewport, glClear, glUseProgram, 2 glBindBuffer, 2 glVertexAttribPointer,
+    // 2 glEnableVertexAttribArray, glDrawElements, 2 glDisableVertexAttribArray,
+    // 2 glBindBuffer(0)
+    private static final int FRAME_BUDGET = 14;
+
+    // 3 vertices of position (3 floats) and color (4 floats), 3 short indices
+    private static final int TRIANGLE_BYTES = 3 * 7 * 4 + 3 * 2;
+
+    private ESGLRecorder mRecorder;
+    private MapBuffersRenderer mRenderer;
+
+    @Before
+    public void setUp() {
+        // Unit tests run from the module directory
+        ESShader.enableDevMode(new File("assets"));
+        mRecorder = new ESGLRecorder();
+        mRenderer = new MapBuffersRenderer(null, mRecorder);
+        mRenderer.onSurfaceCreated(null, null);
+        mRenderer.onSurfaceChanged(null, 320, 240);
+    }
+
+    @After
+    public void tearDown() {
+        ESShader.disableDevMode();
+    }
+
+    @Test
+    public void firstFrameFillsTheBuffersThroughMapping() {
+        mRecorder.beginFrame();
+        mRenderer.onDrawFrame(null);
+        assertEquals(1, mRecorder.getFrameCallCount("glGenBuffers"));
+        assertEquals(2, mRecorder.getFrameCallCount("glMapBufferRange"));
+        assertEquals(2, mRecorder.getFrameCallCount("glUnmapBuffer"));
+        assertEquals(TRIANGLE_BYTES, mRecorder.getFrameUploadBytes());
+    }
+
+    @Test
+    public void steadyFramesStayWithinBudget() {
+        mRecorder.beginFrame();
+        mRenderer.onDrawFrame(null);
+        for (int frame = 0; frame < 10; frame++) {
+            mRecorder.beginFrame();
+            mRenderer.onDrawFrame(null);
+            assertEquals(summary(), FRAME_BUDGET, mRecorder.getFrameCallCount());
+            assertEquals(0, mRecorder.getFrameCallCount("glMapBufferRange"));
+            assertEquals(0, mRecorder.getFrameUploadBytes());
+        }
+    }
+
+    private String summary() {
+        return "frame calls:\n" + mRecorder.summary();
+    }
+}
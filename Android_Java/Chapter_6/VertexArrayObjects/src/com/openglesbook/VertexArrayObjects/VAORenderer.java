@@ -46,7 +46,10 @@ import java.nio.ShortBuffer;
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShader;
+import com.openglesbook.common.ESVertexLayout;
 
 import android.content.Context;
 import android.opengl.GLES30;
@@ -54,6 +57,8 @@ import android.opengl.GLSurfaceView;
 
 public class VAORenderer implements GLSurfaceView.Renderer {
     private Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
     // Handle to a program object
     private int mProgramObject;
 
@@ -94,13 +99,22 @@ public class VAORenderer implements GLSurfaceView.Renderer {
     final int VERTEX_POS_INDX = 0;
     final int VERTEX_COLOR_INDX = 1;
 
-    final int VERTEX_STRIDE = (4 * (VERTEX_POS_SIZE + VERTEX_COLOR_SIZE));
+    // Interleaved (x,y,z) (r,g,b,a); stride and offsets are computed by the layout
+    private final ESVertexLayout mLayout = new ESVertexLayout.Builder()
+            .add(ESVertexLayout.POSITION, VERTEX_POS_INDX, VERTEX_POS_SIZE, GLES30.GL_FLOAT, false)
+            .add(ESVertexLayout.COLOR, VERTEX_COLOR_INDX, VERTEX_COLOR_SIZE, GLES30.GL_FLOAT, false)
+            .build();
 
     ///
     // Constructor
     //
     public VAORenderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public VAORenderer(Context context, ESGL gl) {
         mContext = context;
+        mGL = gl;
         mVertices = ByteBuffer.allocateDirect(mVerticesData.length * 4)
                 .order(ByteOrder.nativeOrder()).asFloatBuffer();
         mVertices.put(mVerticesData).position(0);
@@ -116,50 +130,41 @@ public class VAORenderer implements GLSurfaceView.Renderer {
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
 
         // Load the shaders and get a linked program object
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
 
         // Generate VBO Ids and load the VBOs with data
-        GLES30.glGenBuffers(2, mVBOIds, 0);
+        mGL.glGenBuffers(2, mVBOIds, 0);
 
-        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
 
         mVertices.position(0);
-        GLES30.glBufferData(GLES30.GL_ARRAY_BUFFER, mVerticesData.length * 4,
+        mGL.glBufferData(GLES30.GL_ARRAY_BUFFER, mVerticesData.length * 4,
                 mVertices, GLES30.GL_STATIC_DRAW);
 
-        GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
 
         mIndices.position(0);
-        GLES30.glBufferData(GLES30.GL_ELEMENT_ARRAY_BUFFER, 2 * mIndicesData.length,
+        mGL.glBufferData(GLES30.GL_ELEMENT_ARRAY_BUFFER, 2 * mIndicesData.length,
                 mIndices, GLES30.GL_STATIC_DRAW);
 
         // Generate VAO Id
-        GLES30.glGenVertexArrays(1, mVAOId, 0);
+        mGL.glGenVertexArrays(1, mVAOId, 0);
 
         // Bind the VAO and then setup the vertex
         // attributes
-        GLES30.glBindVertexArray(mVAOId[0]);
-
-        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
-        GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
-
-        GLES30.glEnableVertexAttribArray(VERTEX_POS_INDX);
-        GLES30.glEnableVertexAttribArray(VERTEX_COLOR_INDX);
+        mGL.glBindVertexArray(mVAOId[0]);
 
-        GLES30.glVertexAttribPointer(VERTEX_POS_INDX, VERTEX_POS_SIZE,
-                GLES30.GL_FLOAT, false, VERTEX_STRIDE,
-                0);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
 
-        GLES30.glVertexAttribPointer(VERTEX_COLOR_INDX, VERTEX_COLOR_SIZE,
-                GLES30.GL_FLOAT, false, VERTEX_STRIDE,
-                (VERTEX_POS_SIZE * 4));
+        mLayout.enable(mGL, 0);
 
         // Reset to the default VAO
-        GLES30.glBindVertexArray(0);
+        mGL.glBindVertexArray(0);
 
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
     }
 
     // /
@@ -167,22 +172,22 @@ public class VAORenderer implements GLSurfaceView.Renderer {
     //
     public void onDrawFrame(GL10 glUnused) {
         // Set the viewport
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
         // Use the program object
-        GLES30.glUseProgram(mProgramObject);
+        mGL.glUseProgram(mProgramObject);
 
         // Bind the VAO
-        GLES30.glBindVertexArray(mVAOId[0]);
+        mGL.glBindVertexArray(mVAOId[0]);
 
         // Draw with the VAO settings
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, mIndicesData.length, GLES30.GL_UNSIGNED_SHORT, 0);
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, mIndicesData.length, GLES30.GL_UNSIGNED_SHORT, 0);
 
         // Return to the default VAO
-        GLES30.glBindVertexArray(0);
+        mGL.glBindVertexArray(0);
     }
 
     ///
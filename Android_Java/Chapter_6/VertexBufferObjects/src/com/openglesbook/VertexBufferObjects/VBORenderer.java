@@ -46,7 +46,11 @@ import java.nio.ShortBuffer;
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShader;
+import com.openglesbook.common.ESVertexArrayCache;
+import com.openglesbook.common.ESVertexLayout;
 
 import android.content.Context;
 import android.opengl.GLES30;
@@ -54,6 +58,8 @@ import android.opengl.GLSurfaceView;
 
 public class VBORenderer implements GLSurfaceView.Renderer {
     private Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
     // Handle to a program object
     private int mProgramObject;
 
@@ -93,13 +99,28 @@ public class VBORenderer implements GLSurfaceView.Renderer {
     final int VERTEX_POS_INDX = 0;
     final int VERTEX_COLOR_INDX = 1;
 
-    final int VERTEX_STRIDE = (4 * (VERTEX_POS_SIZE + VERTEX_COLOR_SIZE));
+    // Interleaved (x,y,z) (r,g,b,a); stride and offsets are computed by the layout
+    private final ESVertexLayout mLayout = new ESVertexLayout.Builder()
+            .add(ESVertexLayout.POSITION, VERTEX_POS_INDX, VERTEX_POS_SIZE, GLES30.GL_FLOAT, false)
+            .add(ESVertexLayout.COLOR, VERTEX_COLOR_INDX, VERTEX_COLOR_SIZE, GLES30.GL_FLOAT, false)
+            .build();
+
+    // Attribute layout of mVBOIds[0]; the cache creates its VAO on the first VBO draw
+    private final ESVertexArrayCache.Descriptor mVertexLayout =
+            mLayout.appendTo(new ESVertexArrayCache.Descriptor(), 0, 0);
+    private final ESVertexArrayCache mVertexArrays;
 
     ///
     // Constructor
     //
     public VBORenderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public VBORenderer(Context context, ESGL gl) {
         mContext = context;
+        mGL = gl;
+        mVertexArrays = new ESVertexArrayCache(gl);
         mVertices = ByteBuffer.allocateDirect(mVerticesData.length * 4)
                 .order(ByteOrder.nativeOrder()).asFloatBuffer();
         mVertices.put(mVerticesData).position(0);
@@ -123,14 +144,17 @@ public class VBORenderer implements GLSurfaceView.Renderer {
     //
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
         // Load the shaders and get a linked program object
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
 
         mVBOIds[0] = 0;
         mVBOIds[1] = 0;
 
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        // VAOs of a previous context are gone
+        mVertexArrays.reset();
+
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
     }
 
     // /
@@ -138,13 +162,13 @@ public class VBORenderer implements GLSurfaceView.Renderer {
     //
     public void onDrawFrame(GL10 glUnused) {
         // Set the viewport
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
         // Use the program object
-        GLES30.glUseProgram(mProgramObject);
+        mGL.glUseProgram(mProgramObject);
 
         // without VBOs
         drawPrimitiveWithoutVBOs();
@@ -155,73 +179,50 @@ public class VBORenderer implements GLSurfaceView.Renderer {
 
     private void drawPrimitiveWithoutVBOs() {
         int numIndices = 3;
-        int vtxStride = 4 * (VERTEX_POS_SIZE + VERTEX_COLOR_SIZE);
-
-        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
-        GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 0);
 
-        GLES30.glEnableVertexAttribArray(VERTEX_POS_INDX);
-        GLES30.glEnableVertexAttribArray(VERTEX_COLOR_INDX);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 0);
 
-        mVertices.position(0);
-        GLES30.glVertexAttribPointer(VERTEX_POS_INDX, VERTEX_POS_SIZE,
-                GLES30.GL_FLOAT, false, vtxStride, mVertices);
+        mLayout.enable(mGL, mVertices);
 
-        mVertices.position(VERTEX_POS_SIZE);
-        GLES30.glVertexAttribPointer(VERTEX_COLOR_INDX, VERTEX_COLOR_SIZE,
-                GLES30.GL_FLOAT, false, vtxStride, mVertices);
-
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, numIndices,
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, numIndices,
                 GLES30.GL_UNSIGNED_SHORT, mIndices);
 
-        GLES30.glDisableVertexAttribArray(VERTEX_POS_INDX);
-        GLES30.glDisableVertexAttribArray(VERTEX_COLOR_INDX);
+        mLayout.disable(mGL);
     }
 
     private void drawPrimitiveWithVBOs() {
-        int offset = 0;
         int numVertices = 3;
         int numIndices = 3;
-        int vtxStride = 4 * (VERTEX_POS_SIZE + VERTEX_COLOR_SIZE);
+        int vtxStride = mLayout.getStride();
 
         // mVBOIds[0] - used to store vertex attribute data
         // mVBOIds[l] - used to store element indices
         if (mVBOIds[0] == 0 && mVBOIds[1] == 0) {
             // Only allocate on the first draw
-            GLES30.glGenBuffers(2, mVBOIds, 0);
+            mGL.glGenBuffers(2, mVBOIds, 0);
 
             mVertices1.position(0);
-            GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
-            GLES30.glBufferData(GLES30.GL_ARRAY_BUFFER, vtxStride * numVertices,
+            mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
+            mGL.glBufferData(GLES30.GL_ARRAY_BUFFER, vtxStride * numVertices,
                     mVertices1, GLES30.GL_STATIC_DRAW);
 
             mIndices.position(0);
-            GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
-            GLES30.glBufferData(GLES30.GL_ELEMENT_ARRAY_BUFFER, 2 * numIndices,
+            mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
+            mGL.glBufferData(GLES30.GL_ELEMENT_ARRAY_BUFFER, 2 * numIndices,
                     mIndices, GLES30.GL_STATIC_DRAW);
+            mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
+            mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 0);
         }
 
-        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mVBOIds[0]);
-        GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mVBOIds[1]);
-
-        GLES30.glEnableVertexAttribArray(VERTEX_POS_INDX);
-        GLES30.glEnableVertexAttribArray(VERTEX_COLOR_INDX);
-
-        GLES30.glVertexAttribPointer(VERTEX_POS_INDX, VERTEX_POS_SIZE,
-                GLES30.GL_FLOAT, false, vtxStride, offset);
-        offset += VERTEX_POS_SIZE * 4;
+        // One bind replaces the buffer binds and attribute pointer setup
+        mVertexArrays.bind(mVertexLayout, mVBOIds[0], mVBOIds[1]);
 
-        GLES30.glVertexAttribPointer(VERTEX_COLOR_INDX, VERTEX_COLOR_SIZE,
-                GLES30.GL_FLOAT, false, vtxStride, offset);
-
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, numIndices,
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, numIndices,
                 GLES30.GL_UNSIGNED_SHORT, 0);
 
-        GLES30.glDisableVertexAttribArray(VERTEX_POS_INDX);
-        GLES30.glDisableVertexAttribArray(VERTEX_COLOR_INDX);
-
-        GLES30.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
-        GLES30.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 0);
+        // Back to the default VAO, which drawPrimitiveWithoutVBOs uses with client-side arrays
+        mGL.glBindVertexArray(0);
     }
 
     ///
@@ -0,0 +1,15 @@
+#version 300 es
+uniform mat4 u_viewProjMatrix;
+layout(location = 0) in vec4 a_position;
+layout(location = 1) in vec3 a_normal;
+layout(location = 2) in mat4 a_modelMatrix;
+layout(location = 6) in vec4 a_color;
+out vec4 v_color;
+void main()
+{
+    // Directional light along +z, evaluated per vertex to keep the fragment shader trivial
+    vec3 normal = mat3(a_modelMatrix) * a_normal;
+    float diffuse = max(normalize(normal).z, 0.0) * 0.8 + 0.2;
+    v_color = vec4(a_color.rgb * diffuse, a_color.a);
+    gl_Position = u_viewProjMatrix * (a_modelMatrix * a_position);
+}
@@ -0,0 +1,281 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// Instancing
+//
+//    This example draws a grid of lit, rotating cubes with a single instanced draw call
+//    and steps the number of cubes up to 50000, logging the frame time of every step
+//
+
+package com.openglesbook.instancing;
+
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
+import com.openglesbook.common.ESInstancedMesh;
+import com.openglesbook.common.ESShader;
+import com.openglesbook.common.ESShapes;
+import com.openglesbook.common.ESTransform;
+
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
+
+import android.content.Context;
+import android.opengl.GLES30;
+import android.opengl.GLSurfaceView;
+import android.util.Log;
+
+public class InstancingRenderer implements GLSurfaceView.Renderer {
+    private static final String TAG = "Instancing";
+
+    // Instance counts the stress test steps through, each for STEP_NANOS
+    private static final int[] INSTANCE_STEPS = {1000, 5000, 10000, 25000, 50000};
+    private static final long STEP_NANOS = 3000000000L;
+    private static final int MAX_INSTANCES = 50000;
+
+    // Attribute locations, matching the vertex shader
+    private static final int POSITION_LOC = 0;
+    private static final int NORMAL_LOC = 1;
+    private static final int MODEL_MATRIX_LOC = 2;
+    private static final int COLOR_LOC = 6;
+
+    // Sine table for the per-cube rotation, so filling 50k matrices needs no Math.sin
+    private static final int SIN_TABLE_SIZE = 256;
+    private static final float[] SIN_TABLE = new float[SIN_TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < SIN_TABLE_SIZE; i++) {
+            SIN_TABLE[i] = (float) Math.sin(2.0 * Math.PI * i / SIN_TABLE_SIZE);
+        }
+    }
+
+    private final Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
+    // Handle to a program object
+    private int mProgramObject;
+
+    // Uniform locations
+    private int mViewProjLoc;
+
+    private final ESShapes mCube = new ESShapes();
+    private final ESInstancedMesh mInstances;
+
+    // View-projection matrix and its parts, reused every frame
+    private final ESTransform mPerspective = new ESTransform();
+    private final ESTransform mView = new ESTransform();
+    private final ESTransform mViewProj = new ESTransform();
+
+    // Additional member variables
+    private int mWidth;
+    private int mHeight;
+    private float mAngle;
+
+    // Frame time statistics of the current step
+    private int mStep;
+    private long mStepStart;
+    private long mLastFrame;
+    private int mStepFrames;
+    private long mStepFrameNanos;
+    private long mStepMaxFrameNanos;
+    private long mStepFillNanos;
+
+    ///
+    // Constructor
+    //
+    public InstancingRenderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public InstancingRenderer(Context context, ESGL gl) {
+        mContext = context;
+        mGL = gl;
+        mInstances = new ESInstancedMesh(gl, MAX_INSTANCES);
+    }
+
+    ///
+    // Initialize the shader and program object
+    //
+    public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
+        // Load the shaders and get a linked program object
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
+                "shaders/vertexShader.vert",
+                "shaders/fragmentShader.frag");
+
+        // Get the uniform locations
+        mViewProjLoc = mGL.glGetUniformLocation(mProgramObject, "u_viewProjMatrix");
+
+        // Generate the cube and the instance buffer
+        mCube.genCube(0.5f);
+        mInstances.create(mCube, POSITION_LOC, NORMAL_LOC, MODEL_MATRIX_LOC, COLOR_LOC);
+
+        mStep = 0;
+        mStepStart = 0;
+        mLastFrame = 0;
+        resetStepStats();
+
+        mGL.glEnable(GLES30.GL_DEPTH_TEST);
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+    }
+
+    ///
+    // Write the model matrix and color of every cube straight into the instance array
+    //
+    private void fillInstances(int count) {
+        float[] data = mInstances.getInstanceData();
+        int side = (int) Math.ceil(Math.sqrt(count));
+        float half = (side - 1) * 0.5f;
+        int angleIndex = (int) (mAngle * SIN_TABLE_SIZE / 360.0f);
+
+        for (int i = 0; i < count; i++) {
+            int row = i / side;
+            int column = i - row * side;
+            int a = (angleIndex + i * 7) & (SIN_TABLE_SIZE - 1);
+            float s = SIN_TABLE[a];
+            float c = SIN_TABLE[(a + SIN_TABLE_SIZE / 4) & (SIN_TABLE_SIZE - 1)];
+            int base = i * ESInstancedMesh.INSTANCE_FLOATS;
+
+            // Rotation about y, then translation to the grid cell; column major
+            data[base] = c;
+            data[base + 1] = 0.0f;
+            data[base + 2] = -s;
+            data[base + 3] = 0.0f;
+            data[base + 4] = 0.0f;
+            data[base + 5] = 1.0f;
+            data[base + 6] = 0.0f;
+            data[base + 7] = 0.0f;
+            data[base + 8] = s;
+            data[base + 9] = 0.0f;
+            data[base + 10] = c;
+            data[base + 11] = 0.0f;
+            data[base + 12] = column - half;
+            data[base + 13] = 0.0f;
+            data[base + 14] = row - half;
+            data[base + 15] = 1.0f;
+
+            data[base + 16] = (float) column / side;
+            data[base + 17] = (float) row / side;
+            data[base + 18] = 1.0f - (float) column / side;
+            data[base + 19] = 1.0f;
+        }
+    }
+
+    private void updateViewProj(int count) {
+        float side = (float) Math.ceil(Math.sqrt(count));
+        float aspect = (float) mWidth / (float) mHeight;
+
+        mPerspective.matrixLoadIdentity();
+        mPerspective.perspective(60.0f, aspect, 1.0f, side * 3.0f);
+
+        // Look down at the grid from far enough to see all of it
+        mView.matrixLoadIdentity();
+        mView.translate(0.0f, 0.0f, -side * 1.1f);
+        mView.rotate(45.0f, 1.0f, 0.0f, 0.0f);
+
+        mViewProj.matrixMultiply(mView.get(), mPerspective.get());
+    }
+
+    ///
+    // Draw all cubes with one glDrawElementsInstanced
+    //
+    public void onDrawFrame(GL10 glUnused) {
+        long now = System.nanoTime();
+        if (mStepStart == 0) {
+            mStepStart = now;
+        } else {
+            long frameNanos = now - mLastFrame;
+            mStepFrames++;
+            mStepFrameNanos += frameNanos;
+            mStepMaxFrameNanos = Math.max(mStepMaxFrameNanos, frameNanos);
+            mAngle += frameNanos * 40.0f / 1000000000.0f;
+            if (mAngle >= 360.0f) {
+                mAngle -= 360.0f;
+            }
+        }
+        mLastFrame = now;
+
+        if (now - mStepStart >= STEP_NANOS) {
+            reportStep();
+            mStep = (mStep + 1) % INSTANCE_STEPS.length;
+            mStepStart = now;
+            resetStepStats();
+        }
+
+        int count = INSTANCE_STEPS[mStep];
+        long fillStart = System.nanoTime();
+        fillInstances(count);
+        mInstances.upload(count);
+        mStepFillNanos += System.nanoTime() - fillStart;
+
+        updateViewProj(count);
+
+        // Set the viewport
+        mGL.glViewport(0, 0, mWidth, mHeight);
+
+        // Clear the color and depth buffers
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT | GLES30.GL_DEPTH_BUFFER_BIT);
+
+        // Use the program object
+        mGL.glUseProgram(mProgramObject);
+
+        mGL.glUniformMatrix4fv(mViewProjLoc, 1, false, mViewProj.getAsFloatBuffer());
+
+        mInstances.draw();
+    }
+
+    private void reportStep() {
+        if (mStepFrames == 0) {
+            return;
+        }
+        Log.i(TAG, String.format("%d cubes: %.2f ms/frame avg, %.2f ms max, %.2f ms fill+upload, %d frames",
+                INSTANCE_STEPS[mStep],
+                mStepFrameNanos / 1e6 / mStepFrames,
+                mStepMaxFrameNanos / 1e6,
+                mStepFillNanos / 1e6 / mStepFrames,
+                mStepFrames));
+    }
+
+    private void resetStepStats() {
+        mStepFrames = 0;
+        mStepFrameNanos = 0;
+        mStepMaxFrameNanos = 0;
+        mStepFillNanos = 0;
+    }
+
+    ///
+    // Handle surface changes
+    //
+    public void onSurfaceChanged(GL10 glUnused, int width, int height) {
+        mWidth = width;
+        mHeight = height;
+    }
+}
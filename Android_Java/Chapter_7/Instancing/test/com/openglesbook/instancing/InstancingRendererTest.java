@@ -0,0 +1,104 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// InstancingRendererTest
+//
+//    Per-frame GL call budget of InstancingRenderer, measured with an ESGLRecorder.
+//    The instance count steps up every few seconds; the test stays in the first step,
+//    so every frame streams the transforms of 1000 instances.
+//
+
+package com.openglesbook.instancing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.openglesbook.common.ESGLRecorder;
+import com.openglesbook.common.ESInstancedMesh;
+import com.openglesbook.common.ESShader;
+
+public class InstancingRendererTest {
+    // upload: glBindBuffer, glBufferData (orphan), glBufferSubData, glBindBuffer(0);
+    // glViewport, glClear, glUseProgram, glUniformMatrix4fv, glBindVertexArray,
+    // glDrawElementsInstanced, glBindVertexArray(0)
+    private static final int FRAME_BUDGET = 11;
+
+    // Instances drawn in the first step
+    private static final int FIRST_STEP_INSTANCES = 1000;
+
+    private ESGLRecorder mRecorder;
+    private InstancingRenderer mRenderer;
+
+    @Before
+    public void setUp() {
+        // Unit tests run from the module directory
+        ESShader.enableDevMode(new File("assets"));
+        mRecorder = new ESGLRecorder();
+        mRenderer = new InstancingRenderer(null, mRecorder);
+        mRenderer.onSurfaceCreated(null, null);
+        mRenderer.onSurfaceChanged(null, 320, 240);
+    }
+
+    @After
+    public void tearDown() {
+        ESShader.disableDevMode();
+    }
+
+    @Test
+    public void surfaceCreatedBuildsTheInstancedMesh() {
+        assertEquals(1, mRecorder.getCallCount("glCreateProgram"));
+        assertEquals(1, mRecorder.getCallCount("glGenVertexArrays"));
+        assertEquals(5, mRecorder.getCallCount("glVertexAttribDivisor"));
+    }
+
+    @Test
+    public void everyFrameStreamsOnlyTheDrawnInstances() {
+        for (int frame = 0; frame < 10; frame++) {
+            mRecorder.beginFrame();
+            mRenderer.onDrawFrame(null);
+            assertEquals(summary(), FRAME_BUDGET, mRecorder.getFrameCallCount());
+            assertEquals(1, mRecorder.getFrameCallCount("glDrawElementsInstanced"));
+            assertEquals(FIRST_STEP_INSTANCES * ESInstancedMesh.INSTANCE_FLOATS * 4,
+                    mRecorder.getFrameUploadBytes());
+        }
+    }
+
+    private String summary() {
+        return "frame calls:\n" + mRecorder.summary();
+    }
+}
@@ -1,10 +1,20 @@
 #version 300 es 							
-uniform mat4 u_mvpMatrix;
+// Shared with every program, filled once per frame and once per surface size
+layout(std140) uniform PerFrame
+{
+    float u_time;
+};
+layout(std140) uniform PerView
+{
+    mat4 u_viewProjMatrix;
+};
+uniform mat4 u_modelMatrix;
 layout(location = 0) in vec4 a_position;
 layout(location = 1) in vec4 a_color;
 out vec4 v_color;
 void main()
 {
-    v_color = a_color;
-    gl_Position = u_mvpMatrix * a_position;
+    // Pulse the brightness with the frame time
+    v_color = vec4(a_color.rgb * (0.75 + 0.25 * sin(u_time)), a_color.a);
+    gl_Position = u_viewProjMatrix * u_modelMatrix * a_position;
 }
\ No newline at end of file
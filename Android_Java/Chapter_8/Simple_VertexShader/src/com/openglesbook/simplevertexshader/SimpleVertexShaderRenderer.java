@@ -33,14 +33,22 @@
 // Simple_VertexShader
 //
 //    This is a simple example that draws a rotating cube in perspective
-//    using a vertex shader to transform the object
+//    using a vertex shader to transform the object. The projection and the
+//    frame time come from the shared PerView and PerFrame uniform blocks.
 //
 
 package com.openglesbook.simplevertexshader;
 
+import com.openglesbook.common.ESBufferCache;
+import com.openglesbook.common.ESFrameProfiler;
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShapes;
 import com.openglesbook.common.ESShader;
+import com.openglesbook.common.ESStd140Layout;
 import com.openglesbook.common.ESTransform;
+import com.openglesbook.common.ESUniformBlock;
+import com.openglesbook.common.ESVertexSource;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -48,35 +56,70 @@ import javax.microedition.khronos.opengles.GL10;
 import android.content.Context;
 import android.opengl.GLES30;
 import android.opengl.GLSurfaceView;
-import android.os.SystemClock;
 
 public class SimpleVertexShaderRenderer implements GLSurfaceView.Renderer {
+    private static final float TWO_PI = (float) (2.0 * Math.PI);
+
     private final Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
     // Handle to a program object
     private int mProgramObject;
 
     // Uniform locations
-    private int mMVPLoc;
+    private int mModelLoc;
+
+    // Shared uniform blocks and the offsets of their members
+    private final ESUniformBlock mPerFrame;
+    private final ESUniformBlock mPerView;
+    private final int mTimeOffset;
+    private final int mViewProjOffset;
 
     // Vertex data
     private final ESShapes mCube = new ESShapes();
+    // The cube as buffer objects, uploaded on the first draw
+    private ESVertexSource mCubeVertices;
+    private ESVertexSource mCubeIndices;
+    private final ESBufferCache mBuffers;
 
     // Rotation angle
     private float mAngle;
 
-    // MVP matrix
-    private final ESTransform mMVPMatrix = new ESTransform();
+    // Seconds since the start, wrapped to one period of the pulse
+    private float mTime;
+
+    // Model matrix
+    private final ESTransform mModelMatrix = new ESTransform();
 
     // Additional Member variables
     private int mWidth;
     private int mHeight;
     private long mLastTime = 0;
 
+    // CPU time of each phase of onDrawFrame, summarized to logcat every few seconds
+    private final ESFrameProfiler mProfiler = new ESFrameProfiler("Simple_VertexShader");
+
     ///
     // Constructor
     //
     public SimpleVertexShaderRenderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public SimpleVertexShaderRenderer(Context context, ESGL gl) {
         mContext = context;
+        mGL = gl;
+        mBuffers = new ESBufferCache(gl, null);
+
+        ESStd140Layout perFrame = new ESStd140Layout();
+        mTimeOffset = perFrame.addFloat();
+        mPerFrame = new ESUniformBlock(gl, ESUniformBlock.PER_FRAME_BLOCK,
+                ESUniformBlock.PER_FRAME_BINDING, perFrame);
+
+        ESStd140Layout perView = new ESStd140Layout();
+        mViewProjOffset = perView.addMat4();
+        mPerView = new ESUniformBlock(gl, ESUniformBlock.PER_VIEW_BLOCK,
+                ESUniformBlock.PER_VIEW_BINDING, perView);
     }
 
     ///
@@ -84,37 +127,42 @@ public class SimpleVertexShaderRenderer implements GLSurfaceView.Renderer {
     //
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
         // Load the shaders and get a linked program object
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
 
         // Get the uniform locations
-        // mvp矩阵 用 glGetUniformLocation加载到统一变量中，供着色器使用
-        mMVPLoc = GLES30.glGetUniformLocation(mProgramObject, "u_mvpMatrix");
+        // 模型矩阵 用 glGetUniformLocation加载到统一变量中，供着色器使用
+        mModelLoc = mGL.glGetUniformLocation(mProgramObject, "u_modelMatrix");
+
+        // The program was attached to the shared blocks when it was linked;
+        // their buffers of a previous context are gone
+        mPerFrame.create();
+        mPerView.create();
 
         // Generate the vertex data
         mCube.genCube(1.0f);
+        mCubeVertices = ESVertexSource.vertices(mCube.getVertices());
+        mCubeIndices = ESVertexSource.indices(mCube.getIndices());
+        // Buffers of a previous context are gone
+        mBuffers.reset();
 
         // Starting rotation angle for the cube
         mAngle = 45.0f;
 
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
     }
 
     private void update() {
         if (mLastTime == 0) {
-            mLastTime = SystemClock.uptimeMillis();
+            mLastTime = System.nanoTime();
         }
 
-        long curTime = SystemClock.uptimeMillis();
+        long curTime = System.nanoTime();
         long elapsedTime = curTime - mLastTime;
-        float deltaTime = elapsedTime / 1000.0f;
+        float deltaTime = elapsedTime / 1000000000.0f;
         mLastTime = curTime;
 
-        ESTransform perspective = new ESTransform();
-        ESTransform modelview = new ESTransform();
-        float aspect;
-
         // Compute a rotation angle based on time to rotate the cube
         mAngle += (deltaTime * 40.0f);
 
@@ -122,62 +170,76 @@ public class SimpleVertexShaderRenderer implements GLSurfaceView.Renderer {
             mAngle -= 360.0f;
         }
 
-        // Compute the window aspect ratio
-        aspect = (float) mWidth / (float) mHeight;
+        mTime += deltaTime;
 
-        // Generate a perspective matrix with a 60 degree FOV
-        // and near and far clip planes at 1.0 and 20.0
-        perspective.matrixLoadIdentity();
-        perspective.perspective(60.0f, aspect, 1.0f, 20.0f);
+        if (mTime >= TWO_PI) {
+            mTime -= TWO_PI;
+        }
 
-        // Generate a model view matrix to rotate/translate the cube
-        // 在modelview矩阵中加载一个单位矩阵
-        modelview.matrixLoadIdentity();
+        // Generate a model matrix to rotate/translate the cube
+        // 在model矩阵中加载一个单位矩阵
+        mModelMatrix.matrixLoadIdentity();
 
         // Translate away from the viewer
         // 单位矩阵结合一个平移，使物体远离观看者
-        modelview.translate(0.0f, 0.0f, -2.0f);
+        mModelMatrix.translate(0.0f, 0.0f, -2.0f);
 
         // Rotate the cube
-        // 对modelview矩阵进行一次旋转，使物体饶向量(1.0,0.0,1.0) 以根据时间更新的角度连续旋转物体
-        modelview.rotate(mAngle, 1.0f, 0.0f, 1.0f);
+        // 对model矩阵进行一次旋转，使物体饶向量(1.0,0.0,1.0) 以根据时间更新的角度连续旋转物体
+        mModelMatrix.rotate(mAngle, 1.0f, 0.0f, 1.0f);
 
-        // Compute the final MVP by multiplying the
-        // modevleiw and perspective matrices together
-        // 计算MVP矩阵--- 模型-视图矩阵和投影矩阵的乘积
-        mMVPMatrix.matrixMultiply(modelview.get(), perspective.get());
+        // The frame time is shared by every program that declares PerFrame
+        mPerFrame.setFloat(mTimeOffset, mTime);
     }
 
     ///
     // Draw a triangle using the shader pair created in onSurfaceCreated()
     //
     public void onDrawFrame(GL10 glUnused) {
+        mProfiler.beginFrame();
+
+        mProfiler.begin(ESFrameProfiler.UPDATE);
         update();
+        mProfiler.end(ESFrameProfiler.UPDATE);
 
+        mProfiler.begin(ESFrameProfiler.STATE);
         // Set the viewport
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
         // Use the program object
-        GLES30.glUseProgram(mProgramObject);
-
-        // Load the vertex data
-        GLES30.glVertexAttribPointer(0, 3, GLES30.GL_FLOAT, false,
-                0, mCube.getVertices());
-        GLES30.glEnableVertexAttribArray(0);
+        mGL.glUseProgram(mProgramObject);
 
         // Set the vertex color to red
-        GLES30.glVertexAttrib4f(1, 1.0f, 0.0f, 0.0f, 1.0f);
+        mGL.glVertexAttrib4f(1, 1.0f, 0.0f, 0.0f, 1.0f);
+        mProfiler.end(ESFrameProfiler.STATE);
+
+        // Load the vertex data, the buffers are only uploaded on the first frame
+        mProfiler.begin(ESFrameProfiler.UPLOAD);
+        mBuffers.bind(mCubeVertices);
+        mGL.glVertexAttribPointer(0, 3, GLES30.GL_FLOAT, false, 0, 0);
+        mGL.glEnableVertexAttribArray(0);
+
+        // Load the model matrix
+        mGL.glUniformMatrix4fv(mModelLoc, 1, false,
+                mModelMatrix.getAsFloatBuffer());
+
+        // Send the shared blocks that changed, PerView only after a resize
+        mPerFrame.upload();
+        mPerView.upload();
 
-        // Load the MVP matrix
-        GLES30.glUniformMatrix4fv(mMVPLoc, 1, false,
-                mMVPMatrix.getAsFloatBuffer());
+        mBuffers.bind(mCubeIndices);
+        mProfiler.end(ESFrameProfiler.UPLOAD);
 
         // Draw the cube
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, mCube.getNumIndices(),
-                GLES30.GL_UNSIGNED_SHORT, mCube.getIndices());
+        mProfiler.begin(ESFrameProfiler.DRAW);
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, mCube.getNumIndices(),
+                GLES30.GL_UNSIGNED_SHORT, 0);
+        mProfiler.end(ESFrameProfiler.DRAW);
+
+        mProfiler.endFrame();
     }
 
     ///
@@ -186,5 +248,12 @@ public class SimpleVertexShaderRenderer implements GLSurfaceView.Renderer {
     public void onSurfaceChanged(GL10 glUnused, int width, int height) {
         mWidth = width;
         mHeight = height;
+
+        // Generate a perspective matrix with a 60 degree FOV
+        // and near and far clip planes at 1.0 and 20.0
+        ESTransform perspective = new ESTransform();
+        perspective.matrixLoadIdentity();
+        perspective.perspective(60.0f, (float) width / (float) height, 1.0f, 20.0f);
+        mPerView.setMat4(mViewProjOffset, perspective.get(), 0);
     }
 }
@@ -0,0 +1,138 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// SimpleVertexShaderRendererTest
+//
+//    Per-frame GL call budget of SimpleVertexShaderRenderer, measured with an
+//    ESGLRecorder. The cube and the PerView block are uploaded on the first frame;
+//    later frames only update the model matrix and the PerFrame block.
+//
+
+package com.openglesbook.simplevertexshader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.openglesbook.common.ESGLRecorder;
+import com.openglesbook.common.ESShader;
+
+public class SimpleVertexShaderRendererTest {
+    // glViewport, glClear, glUseProgram, 2 glBindBuffer, glVertexAttribPointer,
+    // glEnableVertexAttribArray, glVertexAttrib4f, glUniformMatrix4fv, glDrawElements,
+    // and glBindBuffer and glBufferSubData for the PerFrame block
+    private static final int FRAME_BUDGET = 12;
+
+    // std140 sizes of PerFrame (one float) and PerView (one mat4)
+    private static final int PER_FRAME_BYTES = 16;
+    private static final int PER_VIEW_BYTES = 64;
+
+    // 24 positions of 3 floats, 36 short indices
+    private static final int CUBE_BYTES = 24 * 3 * 4 + 36 * 2;
+
+    private ESGLRecorder mRecorder;
+    private SimpleVertexShaderRenderer mRenderer;
+
+    @Before
+    public void setUp() {
+        // Unit tests run from the module directory
+        ESShader.enableDevMode(new File("assets"));
+        mRecorder = new ESGLRecorder();
+        mRenderer = new SimpleVertexShaderRenderer(null, mRecorder);
+        mRenderer.onSurfaceCreated(null, null);
+        mRenderer.onSurfaceChanged(null, 320, 240);
+    }
+
+    @After
+    public void tearDown() {
+        ESShader.disableDevMode();
+    }
+
+    @Test
+    public void firstFrameUploadsTheCubeOnce() {
+        mRecorder.beginFrame();
+        mRenderer.onDrawFrame(null);
+        assertEquals(FRAME_BUDGET + 4 + 2, mRecorder.getFrameCallCount());
+        assertEquals(2, mRecorder.getFrameCallCount("glBufferData"));
+        assertEquals(2, mRecorder.getFrameCallCount("glBufferSubData"));
+        assertEquals(CUBE_BYTES + PER_FRAME_BYTES + PER_VIEW_BYTES, mRecorder.getFrameUploadBytes());
+    }
+
+    @Test
+    public void steadyFramesStayWithinBudget() {
+        mRecorder.beginFrame();
+        mRenderer.onDrawFrame(null);
+        for (int frame = 0; frame < 10; frame++) {
+            mRecorder.beginFrame();
+            mRenderer.onDrawFrame(null);
+            assertEquals(summary(), FRAME_BUDGET, mRecorder.getFrameCallCount());
+            assertEquals(1, mRecorder.getFrameCallCount("glUniformMatrix4fv"));
+            assertEquals(PER_FRAME_BYTES, mRecorder.getFrameUploadBytes());
+        }
+    }
+
+    @Test
+    public void resizeUploadsThePerViewBlock() {
+        mRecorder.beginFrame();
+        mRenderer.onDrawFrame(null);
+        mRenderer.onSurfaceChanged(null, 640, 480);
+        mRecorder.beginFrame();
+        mRenderer.onDrawFrame(null);
+        assertEquals(FRAME_BUDGET + 2, mRecorder.getFrameCallCount());
+        assertEquals(PER_FRAME_BYTES + PER_VIEW_BYTES, mRecorder.getFrameUploadBytes());
+    }
+
+    @Test
+    public void programIsAttachedToTheSharedBlocks() {
+        assertEquals(2, mRecorder.getCallCount("glUniformBlockBinding"));
+    }
+
+    @Test
+    public void newContextUploadsAgain() {
+        mRecorder.beginFrame();
+        mRenderer.onDrawFrame(null);
+        mRenderer.onSurfaceCreated(null, null);
+        mRecorder.beginFrame();
+        mRenderer.onDrawFrame(null);
+        assertEquals(2, mRecorder.getFrameCallCount("glBufferData"));
+        assertEquals(CUBE_BYTES + PER_FRAME_BYTES, mRecorder.getFrameUploadBytes());
+    }
+
+    private String summary() {
+        return "frame calls:\n" + mRecorder.summary();
+    }
+}
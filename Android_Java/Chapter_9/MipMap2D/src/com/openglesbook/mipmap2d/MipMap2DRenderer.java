@@ -38,15 +38,16 @@
 
 package com.openglesbook.mipmap2d;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
-
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
+import com.openglesbook.common.ESBufferCache;
+import com.openglesbook.common.ESMipChain;
+import com.openglesbook.common.ESSamplerCache;
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShader;
+import com.openglesbook.common.ESVertexSource;
 
 import android.content.Context;
 import android.opengl.GLES30;
@@ -66,11 +67,18 @@ public class MipMap2DRenderer implements GLSurfaceView.Renderer {
     // Texture handle
     private int mTextureId;
 
+    // Sampler objects for the two quads
+    private ESSamplerCache mSamplers;
+    private int mNearestSampler;
+    private int mTrilinearSampler;
+
     // Additional member variables
     private int mWidth;
     private int mHeight;
-    private FloatBuffer mVertices;
-    private ShortBuffer mIndices;
+    // Quad vertices and indices, uploaded to buffer objects on the first draw
+    private final ESVertexSource mVertices;
+    private final ESVertexSource mIndices;
+    private final ESBufferCache mBuffers;
 
     private final float[] mVerticesData =
             {
@@ -93,63 +101,23 @@ public class MipMap2DRenderer implements GLSurfaceView.Renderer {
             };
 
     private Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
 
     ///
     // Constructor
     //
     public MipMap2DRenderer(Context context) {
-        mContext = context;
-
-        mVertices = ByteBuffer.allocateDirect(mVerticesData.length * 4)
-                .order(ByteOrder.nativeOrder()).asFloatBuffer();
-        mVertices.put(mVerticesData).position(0);
-
-        mIndices = ByteBuffer.allocateDirect(mIndicesData.length * 2)
-                .order(ByteOrder.nativeOrder()).asShortBuffer();
-        mIndices.put(mIndicesData).position(0);
+        this(context, ESGLES30.INSTANCE);
     }
 
-    ///
-    //  From an RGB8 source image, generate the next level mipmap
-    //
-    private byte[] genMipMap2D(byte[] src, int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
-        int x, y;
-        int texelSize = 3;
-
-        byte[] dst = new byte[texelSize * (dstWidth) * (dstHeight)];
-
-        for (y = 0; y < dstHeight; y++) {
-            for (x = 0; x < dstWidth; x++) {
-                int[] srcIndex = new int[4];
-                float r = 0.0f, g = 0.0f, b = 0.0f;
-                int sample;
-
-                // Compute the offsets for 2x2 grid of pixels in previous
-                // image to perform box filter
-                srcIndex[0] = (((y * 2) * srcWidth) + (x * 2)) * texelSize;
-                srcIndex[1] = (((y * 2) * srcWidth) + (x * 2 + 1)) * texelSize;
-                srcIndex[2] = ((((y * 2) + 1) * srcWidth) + (x * 2)) * texelSize;
-                srcIndex[3] = ((((y * 2) + 1) * srcWidth) + (x * 2 + 1)) * texelSize;
-
-                // Sum all pixels
-                for (sample = 0; sample < 4; sample++) {
-                    r += src[srcIndex[sample]];
-                    g += src[srcIndex[sample] + 1];
-                    b += src[srcIndex[sample] + 2];
-                }
-
-                // Average results
-                r /= 4.0;
-                g /= 4.0;
-                b /= 4.0;
+    public MipMap2DRenderer(Context context, ESGL gl) {
+        mContext = context;
+        mGL = gl;
+        mBuffers = new ESBufferCache(gl, null);
 
-                // Store resulting pixels
-                dst[(y * (dstWidth) + x) * texelSize] = (byte) (r);
-                dst[(y * (dstWidth) + x) * texelSize + 1] = (byte) (g);
-                dst[(y * (dstWidth) + x) * texelSize + 2] = (byte) (b);
-            }
-        }
-        return dst;
+        mVertices = ESVertexSource.vertices(mVerticesData);
+        mIndices = ESVertexSource.indices(mIndicesData);
     }
 
     ///
@@ -189,30 +157,32 @@ public class MipMap2DRenderer implements GLSurfaceView.Renderer {
         int[] textureIdArray = new int[1];
         int width = 256,
                 height = 256;
-        int level;
         byte[] pixels;
-        byte[] prevImage;
-        byte[] newImage;
+        ESMipChain mipChain;
 
         pixels = genCheckImage(width, height, 8);
 
+        // Generate every mipmap level below level 0 in one buffer, averaging in linear
+        // intensity so the lower levels keep the brightness of the checkerboard
+        mipChain = new ESMipChain(width, height, 3);
+        mipChain.setBaseLevel(pixels, 0);
+        mipChain.setSrgb(true);
+        mipChain.generate();
+
         // Generate a texture object
         // 生成纹理对象
         // @param n 指定要生成的纹理对象数量
         // @param textures 一个保存n个纹理对象ID的无符号整数数组
-        GLES30.glGenTextures(1, textureIdArray, 0);
+        mGL.glGenTextures(1, textureIdArray, 0);
 
         // Bind the texture object
         // 一旦用glGenTextures生成了纹理对象的ID，应用程序就必须绑定纹理对象进行操作。
         // 绑定纹理对象之后，后续的操作（如glTexImage2D和glTexParameter)将影响绑定的纹理对象
         // @param  target  将纹理对象绑定到GL_TEXTURE_2D、GL_TEXTURE_3D、GL_TEXTURE_2D_ARRAY或者GL_TEXTURE_CUBE_MAP目标
         // @param texture  要绑定的纹理对象句柄
-        GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, textureIdArray[0]);
-
-        // Load mipmap level 0
-        ByteBuffer pixelBuffer = ByteBuffer.allocateDirect(width * height * 3);
-        pixelBuffer.put(pixels).position(0);
+        mGL.glBindTexture(GLES30.GL_TEXTURE_2D, textureIdArray[0]);
 
+        // Load all mipmap levels, each through glTexImage2D
         // 用于加载2D和立方图纹理
         // @param  target  将纹理对象绑定到GL_TEXTURE_2D、GL_TEXTURE_3D、GL_TEXTURE_2D_ARRAY或者GL_TEXTURE_CUBE_MAP目标
         // @param  level 指定要加载的mip级别。第一个级别为0，后续的mip贴图级别递增
@@ -230,52 +200,15 @@ public class MipMap2DRenderer implements GLSurfaceView.Renderer {
                 // GL_DEPTH_COMPONENT、GL_DEPTH_STENCIL
                 // GL_ALPHA
         // @param  type 像素数据的类型
-        GLES30.glTexImage2D(GLES30.GL_TEXTURE_2D, 0, GLES30.GL_RGB, width, height,
-                0, GLES30.GL_RGB, GLES30.GL_UNSIGNED_BYTE, pixelBuffer);
-
-        level = 1;
-        prevImage = pixels;
-
-        while (width > 1 && height > 1) {
-            int newWidth, newHeight;
-            newWidth = width / 2;
-
-            if (newWidth <= 0) {
-                newWidth = 1;
-            }
-
-            newHeight = height / 2;
-
-            if (newHeight <= 0) {
-                newHeight = 1;
-            }
-
-            // Generate the next mipmap level
-            newImage = genMipMap2D(prevImage, width, height, newWidth, newHeight);
-
-            // Load the mipmap level
-            pixelBuffer = ByteBuffer.allocateDirect(newWidth * newHeight * 3);
-            pixelBuffer.put(newImage).position(0);
-            GLES30.glTexImage2D(GLES30.GL_TEXTURE_2D, level, GLES30.GL_RGB,
-                    newWidth, newHeight, 0, GLES30.GL_RGB,
-                    GLES30.GL_UNSIGNED_BYTE, pixelBuffer);
-
-            // Set the previous image for the next iteration
-            prevImage = newImage;
-            level++;
-
-            // Half the width and height
-            width = newWidth;
-            height = newHeight;
-        }
+        mipChain.upload(mGL, GLES30.GL_TEXTURE_2D);
 
         // Set the filtering mode
 
         // GL_NEAREST_MIPMAP_NEAREST 从所选的最近的mip级别中取得单点样本
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_NEAREST_MIPMAP_NEAREST);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_NEAREST_MIPMAP_NEAREST);
 
         // GL_LINEAR 从最靠近纹理坐标的纹理中取得一个双线性样本
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_LINEAR);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_LINEAR);
 
         return textureIdArray[0];
 
@@ -287,20 +220,30 @@ public class MipMap2DRenderer implements GLSurfaceView.Renderer {
     //
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
         // Load the shaders from "assets" and get a linked program object
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
 
         // Get the sampler location
-        mSamplerLoc = GLES30.glGetUniformLocation(mProgramObject, "s_texture");
+        mSamplerLoc = mGL.glGetUniformLocation(mProgramObject, "s_texture");
 
         // Get the offset location
-        mOffsetLoc = GLES30.glGetUniformLocation(mProgramObject, "u_offset");
+        mOffsetLoc = mGL.glGetUniformLocation(mProgramObject, "u_offset");
 
         // Load the texture
         mTextureId = createMipMappedTexture2D();
 
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        // Create the samplers once, the draws only switch between them
+        mSamplers = new ESSamplerCache(mGL);
+        mNearestSampler = mSamplers.get(GLES30.GL_NEAREST, GLES30.GL_LINEAR,
+                GLES30.GL_REPEAT, GLES30.GL_REPEAT);
+        mTrilinearSampler = mSamplers.get(GLES30.GL_LINEAR_MIPMAP_LINEAR, GLES30.GL_LINEAR,
+                GLES30.GL_REPEAT, GLES30.GL_REPEAT);
+
+        // Buffers of a previous context are gone
+        mBuffers.reset();
+
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
     }
 
     ///
@@ -308,45 +251,47 @@ public class MipMap2DRenderer implements GLSurfaceView.Renderer {
     //
     public void onDrawFrame(GL10 glUnused) {
         // Set the viewport
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
         // Use the program object
-        GLES30.glUseProgram(mProgramObject);
+        mGL.glUseProgram(mProgramObject);
+
+        // Bind the vertex and index buffers
+        mBuffers.bind(mVertices);
+        mBuffers.bind(mIndices);
 
         // Load the vertex position
-        mVertices.position(0);
-        GLES30.glVertexAttribPointer(0, 4, GLES30.GL_FLOAT,
+        mGL.glVertexAttribPointer(0, 4, GLES30.GL_FLOAT,
                 false,
-                6 * 4, mVertices);
+                6 * 4, 0);
         // Load the texture coordinate
-        mVertices.position(4);
-        GLES30.glVertexAttribPointer(1, 2, GLES30.GL_FLOAT,
+        mGL.glVertexAttribPointer(1, 2, GLES30.GL_FLOAT,
                 false,
                 6 * 4,
-                mVertices);
+                4 * 4);
 
-        GLES30.glEnableVertexAttribArray(0);
-        GLES30.glEnableVertexAttribArray(1);
+        mGL.glEnableVertexAttribArray(0);
+        mGL.glEnableVertexAttribArray(1);
 
         // Bind the texture
-        GLES30.glActiveTexture(GLES30.GL_TEXTURE0);
-        GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, mTextureId);
+        mGL.glActiveTexture(GLES30.GL_TEXTURE0);
+        mGL.glBindTexture(GLES30.GL_TEXTURE_2D, mTextureId);
 
         // Set the sampler texture unit to 0
-        GLES30.glUniform1i(mSamplerLoc, 0);
+        mGL.glUniform1i(mSamplerLoc, 0);
 
         // Draw quad with nearest sampling
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_NEAREST);
-        GLES30.glUniform1f(mOffsetLoc, -0.6f);
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices);
+        mSamplers.bind(0, mNearestSampler);
+        mGL.glUniform1f(mOffsetLoc, -0.6f);
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, 0);
 
         // Draw quad with trilinear filtering
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_LINEAR_MIPMAP_LINEAR);
-        GLES30.glUniform1f(mOffsetLoc, 0.6f);
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices);
+        mSamplers.bind(0, mTrilinearSampler);
+        mGL.glUniform1f(mOffsetLoc, 0.6f);
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, 0);
     }
 
     ///
@@ -0,0 +1,118 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// MipMap2DRendererTest
+//
+//    Per-frame GL call budget of MipMap2DRenderer, measured with an ESGLRecorder. The
+//    whole mip chain is uploaded in onSurfaceCreated and both quads switch between
+//    sampler objects created once.
+//
+
+package com.openglesbook.mipmap2d;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.openglesbook.common.ESGLRecorder;
+import com.openglesbook.common.ESShader;
+
+public class MipMap2DRendererTest {
+    // glViewport, glClear, glUseProgram, 2 glBindBuffer, 2 glVertexAttribPointer,
+    // 2 glEnableVertexAttribArray, glActiveTexture, glBindTexture, glUniform1i,
+    // per quad: glBindSampler, glUniform1f, glDrawElements
+    private static final int FRAME_BUDGET = 18;
+
+    // RGB8 levels from 256x256 down to 1x1
+    private static final int MIP_CHAIN_BYTES =
+            3 * (65536 + 16384 + 4096 + 1024 + 256 + 64 + 16 + 4 + 1);
+
+    // 4 vertices of position (4 floats) and texture coordinate (2 floats), 6 short indices
+    private static final int QUAD_BYTES = 4 * 6 * 4 + 6 * 2;
+
+    private ESGLRecorder mRecorder;
+    private MipMap2DRenderer mRenderer;
+
+    @Before
+    public void setUp() {
+        // Unit tests run from the module directory
+        ESShader.enableDevMode(new File("assets"));
+        mRecorder = new ESGLRecorder();
+        mRenderer = new MipMap2DRenderer(null, mRecorder);
+        mRenderer.onSurfaceCreated(null, null);
+        mRenderer.onSurfaceChanged(null, 320, 240);
+    }
+
+    @After
+    public void tearDown() {
+        ESShader.disableDevMode();
+    }
+
+    @Test
+    public void surfaceCreatedUploadsTheMipChainOnce() {
+        assertEquals(1, mRecorder.getCallCount("glGenTextures"));
+        assertEquals(9, mRecorder.getCallCount("glTexImage2D"));
+        assertEquals(MIP_CHAIN_BYTES, mRecorder.getTextureUploadBytes());
+        assertEquals(2, mRecorder.getCallCount("glGenSamplers"));
+    }
+
+    @Test
+    public void firstFrameUploadsTheQuadOnce() {
+        mRecorder.beginFrame();
+        mRenderer.onDrawFrame(null);
+        assertEquals(FRAME_BUDGET + 4, mRecorder.getFrameCallCount());
+        assertEquals(2, mRecorder.getFrameCallCount("glBufferData"));
+        assertEquals(QUAD_BYTES, mRecorder.getFrameUploadBytes());
+    }
+
+    @Test
+    public void steadyFramesStayWithinBudget() {
+        mRecorder.beginFrame();
+        mRenderer.onDrawFrame(null);
+        for (int frame = 0; frame < 10; frame++) {
+            mRecorder.beginFrame();
+            mRenderer.onDrawFrame(null);
+            assertEquals(summary(), FRAME_BUDGET, mRecorder.getFrameCallCount());
+            assertEquals(0, mRecorder.getFrameCallCount("glGenSamplers"));
+            assertEquals(0, mRecorder.getFrameUploadBytes());
+        }
+    }
+
+    private String summary() {
+        return "frame calls:\n" + mRecorder.summary();
+    }
+}
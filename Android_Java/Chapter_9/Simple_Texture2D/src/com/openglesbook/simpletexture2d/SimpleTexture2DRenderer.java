@@ -47,6 +47,8 @@ import java.nio.ShortBuffer;
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShader;
 
 import android.content.Context;
@@ -55,6 +57,8 @@ import android.opengl.GLSurfaceView;
 
 public class SimpleTexture2DRenderer implements GLSurfaceView.Renderer {
     private Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
 
     // Handle to a program object
     private int mProgramObject;
@@ -95,7 +99,12 @@ public class SimpleTexture2DRenderer implements GLSurfaceView.Renderer {
     // Constructor
     //
     public SimpleTexture2DRenderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public SimpleTexture2DRenderer(Context context, ESGL gl) {
         mContext = context;
+        mGL = gl;
 
         mVertices = ByteBuffer.allocateDirect(mVerticesData.length * 4)
                 .order(ByteOrder.nativeOrder()).asFloatBuffer();
@@ -124,20 +133,20 @@ public class SimpleTexture2DRenderer implements GLSurfaceView.Renderer {
         pixelBuffer.put(pixels).position(0);
 
         // Use tightly packed data
-        GLES30.glPixelStorei(GLES30.GL_UNPACK_ALIGNMENT, 1);
+        mGL.glPixelStorei(GLES30.GL_UNPACK_ALIGNMENT, 1);
 
         //  Generate a texture object
-        GLES30.glGenTextures(1, textureId, 0);
+        mGL.glGenTextures(1, textureId, 0);
 
         // Bind the texture object
-        GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, textureId[0]);
+        mGL.glBindTexture(GLES30.GL_TEXTURE_2D, textureId[0]);
 
         //  Load the texture
-        GLES30.glTexImage2D(GLES30.GL_TEXTURE_2D, 0, GLES30.GL_RGB, 2, 2, 0, GLES30.GL_RGB, GLES30.GL_UNSIGNED_BYTE, pixelBuffer);
+        mGL.glTexImage2D(GLES30.GL_TEXTURE_2D, 0, GLES30.GL_RGB, 2, 2, 0, GLES30.GL_RGB, GLES30.GL_UNSIGNED_BYTE, pixelBuffer);
 
         // Set the filtering mode
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_NEAREST);
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_NEAREST);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_NEAREST);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_NEAREST);
 
         return textureId[0];
     }
@@ -147,17 +156,17 @@ public class SimpleTexture2DRenderer implements GLSurfaceView.Renderer {
     //
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
         // Load the shaders and get a linked program object
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
 
         // Get the sampler location
-        mSamplerLoc = GLES30.glGetUniformLocation(mProgramObject, "s_texture");
+        mSamplerLoc = mGL.glGetUniformLocation(mProgramObject, "s_texture");
 
         // Load the texture  加载纹理
         mTextureId = createSimpleTexture2D();
 
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
     }
 
     // /
@@ -165,40 +174,40 @@ public class SimpleTexture2DRenderer implements GLSurfaceView.Renderer {
     //
     public void onDrawFrame(GL10 glUnused) {
         // Set the viewport
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
         // Use the program object
-        GLES30.glUseProgram(mProgramObject);
+        mGL.glUseProgram(mProgramObject);
 
         // Load the vertex position
         mVertices.position(0);
-        GLES30.glVertexAttribPointer(0, 3, GLES30.GL_FLOAT,
+        mGL.glVertexAttribPointer(0, 3, GLES30.GL_FLOAT,
                 false,
                 5 * 4, mVertices);
         // Load the texture coordinate
         mVertices.position(3);
-        GLES30.glVertexAttribPointer(1, 2, GLES30.GL_FLOAT,
+        mGL.glVertexAttribPointer(1, 2, GLES30.GL_FLOAT,
                 false,
                 5 * 4,
                 mVertices);
 
-        GLES30.glEnableVertexAttribArray(0);
-        GLES30.glEnableVertexAttribArray(1);
+        mGL.glEnableVertexAttribArray(0);
+        mGL.glEnableVertexAttribArray(1);
 
         // Bind the texture
         // 激活当前纹理单元，以便后续的glBindTexture调用将纹理绑定到当前活动单元
-        GLES30.glActiveTexture(GLES30.GL_TEXTURE0);
+        mGL.glActiveTexture(GLES30.GL_TEXTURE0);
         // 纹理绑定到纹理单元0
-        GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, mTextureId);
+        mGL.glBindTexture(GLES30.GL_TEXTURE_2D, mTextureId);
 
         // Set the sampler texture unit to 0
         // 采样器设置为纹理单元0
-        GLES30.glUniform1i(mSamplerLoc, 0);
+        mGL.glUniform1i(mSamplerLoc, 0);
 
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices);
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices);
     }
 
     ///
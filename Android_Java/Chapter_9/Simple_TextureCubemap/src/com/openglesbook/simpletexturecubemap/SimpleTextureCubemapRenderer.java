@@ -37,6 +37,8 @@ import java.nio.ByteBuffer;
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShader;
 import com.openglesbook.common.ESShapes;
 
@@ -46,6 +48,8 @@ import android.opengl.GLSurfaceView;
 
 public class SimpleTextureCubemapRenderer implements GLSurfaceView.Renderer {
     private Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
     // Handle to a program object
     private int mProgramObject;
 
@@ -66,7 +70,12 @@ public class SimpleTextureCubemapRenderer implements GLSurfaceView.Renderer {
     // Constructor
     //
     public SimpleTextureCubemapRenderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public SimpleTextureCubemapRenderer(Context context, ESGL gl) {
         mContext = context;
+        mGL = gl;
     }
 
     ///
@@ -91,44 +100,44 @@ public class SimpleTextureCubemapRenderer implements GLSurfaceView.Renderer {
         ByteBuffer cubePixels = ByteBuffer.allocateDirect(3);
 
         // Generate a texture object
-        GLES30.glGenTextures(1, textureIdArray, 0);
+        mGL.glGenTextures(1, textureIdArray, 0);
 
         // Bind the texture object
-        GLES30.glBindTexture(GLES30.GL_TEXTURE_CUBE_MAP, textureIdArray[0]);
+        mGL.glBindTexture(GLES30.GL_TEXTURE_CUBE_MAP, textureIdArray[0]);
 
         // Load the cube face - Positive X
         cubePixels.put(cubePixels0).position(0);
-        GLES30.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_POSITIVE_X, 0, GLES30.GL_RGB, 1, 1, 0,
+        mGL.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_POSITIVE_X, 0, GLES30.GL_RGB, 1, 1, 0,
                 GLES30.GL_RGB, GLES30.GL_UNSIGNED_BYTE, cubePixels);
         // Load the cube face - Negative X
         cubePixels.put(cubePixels1).position(0);
-        GLES30.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_NEGATIVE_X, 0, GLES30.GL_RGB, 1, 1, 0,
+        mGL.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_NEGATIVE_X, 0, GLES30.GL_RGB, 1, 1, 0,
                 GLES30.GL_RGB, GLES30.GL_UNSIGNED_BYTE, cubePixels);
 
 
         // Load the cube face - Positive Y
         cubePixels.put(cubePixels2).position(0);
-        GLES30.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_POSITIVE_Y, 0, GLES30.GL_RGB, 1, 1, 0,
+        mGL.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_POSITIVE_Y, 0, GLES30.GL_RGB, 1, 1, 0,
                 GLES30.GL_RGB, GLES30.GL_UNSIGNED_BYTE, cubePixels);
         // Load the cube face - Negative Y
         cubePixels.put(cubePixels3).position(0);
-        GLES30.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_NEGATIVE_Y, 0, GLES30.GL_RGB, 1, 1, 0,
+        mGL.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_NEGATIVE_Y, 0, GLES30.GL_RGB, 1, 1, 0,
                 GLES30.GL_RGB, GLES30.GL_UNSIGNED_BYTE, cubePixels);
 
 
         // Load the cube face - Positive Z
         cubePixels.put(cubePixels4).position(0);
-        GLES30.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_POSITIVE_Z, 0, GLES30.GL_RGB, 1, 1, 0,
+        mGL.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_POSITIVE_Z, 0, GLES30.GL_RGB, 1, 1, 0,
                 GLES30.GL_RGB, GLES30.GL_UNSIGNED_BYTE, cubePixels);
         // Load the cube face - Negative Z
         cubePixels.put(cubePixels5).position(0);
-        GLES30.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_NEGATIVE_Z, 0, GLES30.GL_RGB, 1, 1, 0,
+        mGL.glTexImage2D(GLES30.GL_TEXTURE_CUBE_MAP_NEGATIVE_Z, 0, GLES30.GL_RGB, 1, 1, 0,
                 GLES30.GL_RGB, GLES30.GL_UNSIGNED_BYTE, cubePixels);
 
 
         // Set the filtering mode
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_CUBE_MAP, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_NEAREST);
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_CUBE_MAP, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_NEAREST);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_CUBE_MAP, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_NEAREST);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_CUBE_MAP, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_NEAREST);
 
         return textureIdArray[0];
     }
@@ -138,12 +147,12 @@ public class SimpleTextureCubemapRenderer implements GLSurfaceView.Renderer {
     //
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
         // Load the shaders and get a linked program object
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
 
         // Get the sampler location
-        mSamplerLoc = GLES30.glGetUniformLocation(mProgramObject, "s_texture");
+        mSamplerLoc = mGL.glGetUniformLocation(mProgramObject, "s_texture");
 
         // Load the texture
         mTextureId = createSimpleTextureCubemap();
@@ -151,7 +160,7 @@ public class SimpleTextureCubemapRenderer implements GLSurfaceView.Renderer {
         // Generate the vertex data
         mSphere.genSphere(20, 0.75f);
 
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
     }
 
     ///
@@ -159,36 +168,36 @@ public class SimpleTextureCubemapRenderer implements GLSurfaceView.Renderer {
     //
     public void onDrawFrame(GL10 glUnused) {
         // Set the viewport
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
-        GLES30.glCullFace(GLES30.GL_BACK);
-        GLES30.glEnable(GLES30.GL_CULL_FACE);
+        mGL.glCullFace(GLES30.GL_BACK);
+        mGL.glEnable(GLES30.GL_CULL_FACE);
 
         // Use the program object
-        GLES30.glUseProgram(mProgramObject);
+        mGL.glUseProgram(mProgramObject);
 
         // Load the vertex position
-        GLES30.glVertexAttribPointer(0, 3, GLES30.GL_FLOAT,
+        mGL.glVertexAttribPointer(0, 3, GLES30.GL_FLOAT,
                 false, 0, mSphere.getVertices());
         // Load the texture coordinate
 
-        GLES30.glVertexAttribPointer(1, 3, GLES30.GL_FLOAT,
+        mGL.glVertexAttribPointer(1, 3, GLES30.GL_FLOAT,
                 false, 0, mSphere.getNormals());
 
-        GLES30.glEnableVertexAttribArray(0);
-        GLES30.glEnableVertexAttribArray(1);
+        mGL.glEnableVertexAttribArray(0);
+        mGL.glEnableVertexAttribArray(1);
 
         // Bind the texture
-        GLES30.glActiveTexture(GLES30.GL_TEXTURE0);
-        GLES30.glBindTexture(GLES30.GL_TEXTURE_CUBE_MAP, mTextureId);
+        mGL.glActiveTexture(GLES30.GL_TEXTURE0);
+        mGL.glBindTexture(GLES30.GL_TEXTURE_CUBE_MAP, mTextureId);
 
         // Set the sampler texture unit to 0
-        GLES30.glUniform1i(mSamplerLoc, 0);
+        mGL.glUniform1i(mSamplerLoc, 0);
 
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, mSphere.getNumIndices(), GLES30.GL_UNSIGNED_SHORT, mSphere.getIndices());
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, mSphere.getNumIndices(), GLES30.GL_UNSIGNED_SHORT, mSphere.getIndices());
     }
 
     ///
@@ -46,6 +46,9 @@ import java.nio.ShortBuffer;
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
+import com.openglesbook.common.ESSamplerCache;
+import com.openglesbook.common.ESGL;
+import com.openglesbook.common.ESGLES30;
 import com.openglesbook.common.ESShader;
 
 import android.content.Context;
@@ -54,6 +57,8 @@ import android.opengl.GLSurfaceView;
 
 public class TextureWrapRenderer implements GLSurfaceView.Renderer {
     private Context mContext;
+    // GL entry points; an ESGLRecorder counts the calls of a frame without a GPU
+    private final ESGL mGL;
 
     // Handle to a program object
     private int mProgramObject;
@@ -67,6 +72,12 @@ public class TextureWrapRenderer implements GLSurfaceView.Renderer {
     // Texture handle
     private int mTextureId;
 
+    // Sampler objects, one per wrap mode
+    private ESSamplerCache mSamplers;
+    private int mRepeatSampler;
+    private int mClampSampler;
+    private int mMirroredSampler;
+
     // Additional member variables
     private int mWidth;
     private int mHeight;
@@ -97,7 +108,12 @@ public class TextureWrapRenderer implements GLSurfaceView.Renderer {
     // Constructor
     //
     public TextureWrapRenderer(Context context) {
+        this(context, ESGLES30.INSTANCE);
+    }
+
+    public TextureWrapRenderer(Context context, ESGL gl) {
         mContext = context;
+        mGL = gl;
         mVertices = ByteBuffer.allocateDirect(mVerticesData.length * 4)
                 .order(ByteOrder.nativeOrder()).asFloatBuffer();
         mVertices.put(mVerticesData).position(0);
@@ -151,18 +167,18 @@ public class TextureWrapRenderer implements GLSurfaceView.Renderer {
         pixels = genCheckImage(width, height, 64);
 
         // Generate a texture object
-        GLES30.glGenTextures(1, textureId, 0);
+        mGL.glGenTextures(1, textureId, 0);
 
         // Bind the texture object
-        GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, textureId[0]);
+        mGL.glBindTexture(GLES30.GL_TEXTURE_2D, textureId[0]);
 
         // Load mipmap level 0
-        GLES30.glTexImage2D(GLES30.GL_TEXTURE_2D, 0, GLES30.GL_RGB, width, height,
+        mGL.glTexImage2D(GLES30.GL_TEXTURE_2D, 0, GLES30.GL_RGB, width, height,
                 0, GLES30.GL_RGB, GLES30.GL_UNSIGNED_BYTE, pixels);
 
         // Set the filtering mode
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_LINEAR);
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_LINEAR);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_LINEAR);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_LINEAR);
 
         return textureId[0];
     }
@@ -173,20 +189,29 @@ public class TextureWrapRenderer implements GLSurfaceView.Renderer {
     //
     public void onSurfaceCreated(GL10 glUnused, EGLConfig config) {
         // Load the shaders and get a linked program object
-        mProgramObject = ESShader.loadProgramFromAsset(mContext,
+        mProgramObject = ESShader.loadProgramFromAsset(mGL, mContext,
                 "shaders/vertexShader.vert",
                 "shaders/fragmentShader.frag");
 
         // Get the sampler location
-        mSamplerLoc = GLES30.glGetUniformLocation(mProgramObject, "s_texture");
+        mSamplerLoc = mGL.glGetUniformLocation(mProgramObject, "s_texture");
 
         // Get the offset location
-        mOffsetLoc = GLES30.glGetUniformLocation(mProgramObject, "u_offset");
+        mOffsetLoc = mGL.glGetUniformLocation(mProgramObject, "u_offset");
 
         // Load the texture
         mTextureId = createTexture2D();
 
-        GLES30.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
+        // Create the samplers once, the draws only switch between them
+        mSamplers = new ESSamplerCache(mGL);
+        mRepeatSampler = mSamplers.get(GLES30.GL_LINEAR, GLES30.GL_LINEAR,
+                GLES30.GL_REPEAT, GLES30.GL_REPEAT);
+        mClampSampler = mSamplers.get(GLES30.GL_LINEAR, GLES30.GL_LINEAR,
+                GLES30.GL_CLAMP_TO_EDGE, GLES30.GL_CLAMP_TO_EDGE);
+        mMirroredSampler = mSamplers.get(GLES30.GL_LINEAR, GLES30.GL_LINEAR,
+                GLES30.GL_MIRRORED_REPEAT, GLES30.GL_MIRRORED_REPEAT);
+
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 0.0f);
     }
 
     ///
@@ -194,58 +219,56 @@ public class TextureWrapRenderer implements GLSurfaceView.Renderer {
     //
     public void onDrawFrame(GL10 glUnused) {
         // Set the viewport
-        GLES30.glViewport(0, 0, mWidth, mHeight);
+        mGL.glViewport(0, 0, mWidth, mHeight);
 
         // Clear the color buffer
-        GLES30.glClear(GLES30.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES30.GL_COLOR_BUFFER_BIT);
 
         // Use the program object
-        GLES30.glUseProgram(mProgramObject);
+        mGL.glUseProgram(mProgramObject);
 
         // Load the vertex position
         mVertices.position(0);
-        GLES30.glVertexAttribPointer(0, 4, GLES30.GL_FLOAT,
+        mGL.glVertexAttribPointer(0, 4, GLES30.GL_FLOAT,
                 false,
                 6 * 4, mVertices);
         // Load the texture coordinate
         mVertices.position(4);
-        GLES30.glVertexAttribPointer(1, 2, GLES30.GL_FLOAT,
+        mGL.glVertexAttribPointer(1, 2, GLES30.GL_FLOAT,
                 false,
                 6 * 4,
                 mVertices);
 
-        GLES30.glEnableVertexAttribArray(0);
-        GLES30.glEnableVertexAttribArray(1);
+        mGL.glEnableVertexAttribArray(0);
+        mGL.glEnableVertexAttribArray(1);
 
         // Bind the texture
-        GLES30.glActiveTexture(GLES30.GL_TEXTURE0);
-        GLES30.glBindTexture(GLES30.GL_TEXTURE_2D, mTextureId);
+        mGL.glActiveTexture(GLES30.GL_TEXTURE0);
+        mGL.glBindTexture(GLES30.GL_TEXTURE_2D, mTextureId);
 
         // Set the sampler texture unit to 0
-        GLES30.glUniform1i(mSamplerLoc, 0);
+        mGL.glUniform1i(mSamplerLoc, 0);
 
         // 第9章 纹理  第9.18节 纹理坐标包装
+        // 包装模式保存在采样器对象中，绘制时只需用glBindSampler切换采样器，不再每帧调用glTexParameteri
 
         // Draw left quad with repeat wrap mode
         // GL_REPEAT模式渲染。在这种模式下，纹理只是在[0,1]区间之外重复，造成倾斜的图案
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_S, GLES30.GL_REPEAT);
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_T, GLES30.GL_REPEAT);
-        GLES30.glUniform1f(mOffsetLoc, -0.7f);
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices);
+        mSamplers.bind(0, mRepeatSampler);
+        mGL.glUniform1f(mOffsetLoc, -0.7f);
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices);
 
         // Draw middle quad with clamp to edge wrap mode
         // GL_CLAMP_TO_EDGE模式渲染。当纹理坐标超出[0,1]的范围时，纹理坐标限定于来自纹理边缘的样本。
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_S, GLES30.GL_CLAMP_TO_EDGE);
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_T, GLES30.GL_CLAMP_TO_EDGE);
-        GLES30.glUniform1f(mOffsetLoc, 0.0f);
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices);
+        mSamplers.bind(0, mClampSampler);
+        mGL.glUniform1f(mOffsetLoc, 0.0f);
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices);
 
         // Draw right quad with mirrored repeat
         // GL_MIRRORED_REPEAT模式渲染，在纹理坐标超出[0,1]的范围时，图像被镜像并重复
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_S, GLES30.GL_MIRRORED_REPEAT);
-        GLES30.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_T, GLES30.GL_MIRRORED_REPEAT);
-        GLES30.glUniform1f(mOffsetLoc, 0.7f);
-        GLES30.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices);
+        mSamplers.bind(0, mMirroredSampler);
+        mGL.glUniform1f(mOffsetLoc, 0.7f);
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, 6, GLES30.GL_UNSIGNED_SHORT, mIndices);
     }
 
     ///
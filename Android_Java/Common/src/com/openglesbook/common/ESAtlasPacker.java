@@ -0,0 +1,390 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESAtlasPacker
+//
+//    Packs many small images into a few large atlas pages with the MaxRects algorithm,
+//    and remaps texture coordinates into the packed sub-rectangles. Plain Java.
+//
+
+package com.openglesbook.common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Every image is surrounded by a gutter of copies of its edge pixels, so linear filtering at
+ * its border samples its own colors, and followed by padding. With an alignment of 2^n the
+ * rectangles start and end on multiples of 2^n, so mip levels 0..n never mix two images.
+ * <pre>
+ *    ESAtlasPacker packer = new ESAtlasPacker(1024, 1024, 0, 2, 4);
+ *    int smoke = packer.add(128, 128);
+ *    packer.pack();
+ *    ESAtlasPacker.Region r = packer.getRegion(smoke);
+ *    ESAtlasPacker.copyImage(pixels, 128, 128, pages[r.page], 1024, r.x, r.y, 2);
+ *    packer.remapTexCoords(smoke, vertices, 3, 5, 4);
+ * </pre>
+ */
+public class ESAtlasPacker {
+    /**
+     * Where an image was placed; x, y, width and height exclude the gutter
+     */
+    public static class Region {
+        public final int page;
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+        // Texture coordinates of the image edges in the page
+        public final float u0;
+        public final float v0;
+        public final float u1;
+        public final float v1;
+
+        Region(int page, int x, int y, int width, int height, int pageWidth, int pageHeight) {
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            u0 = (float) x / pageWidth;
+            v0 = (float) y / pageHeight;
+            u1 = (float) (x + width) / pageWidth;
+            v1 = (float) (y + height) / pageHeight;
+        }
+    }
+
+    private static class Rect {
+        int x;
+        int y;
+        int width;
+        int height;
+
+        Rect(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        boolean contains(Rect r) {
+            return r.x >= x && r.y >= y && r.x + r.width <= x + width && r.y + r.height <= y + height;
+        }
+    }
+
+    private final int mPageWidth;
+    private final int mPageHeight;
+    private final int mPadding;
+    private final int mGutter;
+    private final int mAlignment;
+    private final ArrayList<int[]> mSizes = new ArrayList<int[]>();
+    // Free rectangles of each page, maximal and possibly overlapping
+    private final ArrayList<ArrayList<Rect>> mFree = new ArrayList<ArrayList<Rect>>();
+    private final ArrayList<Long> mUsedArea = new ArrayList<Long>();
+    private Region[] mRegions;
+
+    /**
+     * @param pageWidth   Page size in pixels, a multiple of alignment
+     * @param pageHeight
+     * @param padding     Empty pixels after the gutter of each image
+     * @param gutter      Pixels of edge extrusion on every side of each image
+     * @param alignment   Power of two the packed rectangles are aligned to, 1 for none
+     */
+    public ESAtlasPacker(int pageWidth, int pageHeight, int padding, int gutter, int alignment) {
+        if (alignment <= 0 || (alignment & (alignment - 1)) != 0) {
+            throw new IllegalArgumentException("Alignment must be a power of two: " + alignment);
+        }
+        if (pageWidth % alignment != 0 || pageHeight % alignment != 0) {
+            throw new IllegalArgumentException("Page size must be a multiple of the alignment");
+        }
+        mPageWidth = pageWidth;
+        mPageHeight = pageHeight;
+        mPadding = padding;
+        mGutter = gutter;
+        mAlignment = alignment;
+    }
+
+    /**
+     * brief Add an image to pack
+     * @return  Index of the image, for getRegion() and remapTexCoords()
+     */
+    public int add(int width, int height) {
+        if (mRegions != null) {
+            throw new IllegalStateException("Already packed");
+        }
+        mSizes.add(new int[] { width, height });
+        return mSizes.size() - 1;
+    }
+
+    private int packedSize(int size) {
+        int padded = size + 2 * mGutter + mPadding;
+        return (padded + mAlignment - 1) & ~(mAlignment - 1);
+    }
+
+    /**
+     * brief Place every image, largest first, opening new pages as needed
+     * @return  Number of pages
+     */
+    public int pack() {
+        if (mRegions != null) {
+            throw new IllegalStateException("Already packed");
+        }
+        ArrayList<Integer> order = new ArrayList<Integer>(mSizes.size());
+        for (int i = 0; i < mSizes.size(); i++) {
+            int w = packedSize(mSizes.get(i)[0]);
+            int h = packedSize(mSizes.get(i)[1]);
+            if (w > mPageWidth || h > mPageHeight) {
+                throw new IllegalArgumentException("Image " + i + " (" + mSizes.get(i)[0] + "x"
+                        + mSizes.get(i)[1] + ") does not fit a " + mPageWidth + "x" + mPageHeight + " page");
+            }
+            order.add(i);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                int[] sa = mSizes.get(a);
+                int[] sb = mSizes.get(b);
+                int maxA = Math.max(sa[0], sa[1]);
+                int maxB = Math.max(sb[0], sb[1]);
+                if (maxA != maxB) {
+                    return maxB - maxA;
+                }
+                return sb[0] * sb[1] - sa[0] * sa[1];
+            }
+        });
+
+        mRegions = new Region[mSizes.size()];
+        for (int index : order) {
+            int[] size = mSizes.get(index);
+            int w = packedSize(size[0]);
+            int h = packedSize(size[1]);
+            Rect placed = null;
+            int page = 0;
+            for (; page < mFree.size(); page++) {
+                placed = place(mFree.get(page), w, h);
+                if (placed != null) {
+                    break;
+                }
+            }
+            if (placed == null) {
+                ArrayList<Rect> free = new ArrayList<Rect>();
+                free.add(new Rect(0, 0, mPageWidth, mPageHeight));
+                mFree.add(free);
+                mUsedArea.add(0L);
+                placed = place(free, w, h);
+            }
+            mUsedArea.set(page, mUsedArea.get(page) + (long) size[0] * size[1]);
+            mRegions[index] = new Region(page, placed.x + mGutter, placed.y + mGutter, size[0], size[1],
+                    mPageWidth, mPageHeight);
+        }
+        return mFree.size();
+    }
+
+    // Best short side fit: the free rectangle leaving the smallest margin on one side
+    private static Rect place(ArrayList<Rect> free, int width, int height) {
+        Rect best = null;
+        int bestShort = Integer.MAX_VALUE;
+        int bestLong = Integer.MAX_VALUE;
+        for (Rect r : free) {
+            if (r.width < width || r.height < height) {
+                continue;
+            }
+            int dw = r.width - width;
+            int dh = r.height - height;
+            int shortSide = Math.min(dw, dh);
+            int longSide = Math.max(dw, dh);
+            if (shortSide < bestShort || (shortSide == bestShort && longSide < bestLong)) {
+                best = r;
+                bestShort = shortSide;
+                bestLong = longSide;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        Rect placed = new Rect(best.x, best.y, width, height);
+        split(free, placed);
+        return placed;
+    }
+
+    private static void split(ArrayList<Rect> free, Rect used) {
+        int count = free.size();
+        for (int i = 0; i < count; i++) {
+            Rect r = free.get(i);
+            if (used.x >= r.x + r.width || used.x + used.width <= r.x
+                    || used.y >= r.y + r.height || used.y + used.height <= r.y) {
+                continue;
+            }
+            // Up to four maximal rectangles around the used area
+            if (used.x > r.x) {
+                free.add(new Rect(r.x, r.y, used.x - r.x, r.height));
+            }
+            if (used.x + used.width < r.x + r.width) {
+                free.add(new Rect(used.x + used.width, r.y, r.x + r.width - used.x - used.width, r.height));
+            }
+            if (used.y > r.y) {
+                free.add(new Rect(r.x, r.y, r.width, used.y - r.y));
+            }
+            if (used.y + used.height < r.y + r.height) {
+                free.add(new Rect(r.x, used.y + used.height, r.width, r.y + r.height - used.y - used.height));
+            }
+            free.set(i, null);
+        }
+
+        // The old rectangles contain no other, so only the new ones need checking
+        for (int i = count; i < free.size(); i++) {
+            Rect r = free.get(i);
+            for (int j = 0; j < free.size(); j++) {
+                Rect other = free.get(j);
+                if (j != i && other != null && other.contains(r)) {
+                    free.set(i, null);
+                    break;
+                }
+            }
+        }
+        for (int i = count; i < free.size(); i++) {
+            Rect r = free.get(i);
+            if (r == null) {
+                continue;
+            }
+            for (int j = 0; j < count; j++) {
+                Rect old = free.get(j);
+                if (old != null && r.contains(old)) {
+                    free.set(j, null);
+                }
+            }
+        }
+
+        int n = 0;
+        for (int i = 0; i < free.size(); i++) {
+            if (free.get(i) != null) {
+                free.set(n++, free.get(i));
+            }
+        }
+        while (free.size() > n) {
+            free.remove(free.size() - 1);
+        }
+    }
+
+    public int getPageCount() {
+        return mFree.size();
+    }
+
+    public int getPageWidth() {
+        return mPageWidth;
+    }
+
+    public int getPageHeight() {
+        return mPageHeight;
+    }
+
+    public Region getRegion(int index) {
+        return mRegions[index];
+    }
+
+    /**
+     * @return  Fraction of a page covered by images, gutters and padding excluded
+     */
+    public float getOccupancy(int page) {
+        return (float) mUsedArea.get(page) / ((long) mPageWidth * mPageHeight);
+    }
+
+    /**
+     * brief Sub-rectangle table of all images, in the order they were added
+     * @return  Five values per image: page, u0, v0, u1, v1
+     */
+    public float[] getRegionTable() {
+        float[] table = new float[mRegions.length * 5];
+        for (int i = 0; i < mRegions.length; i++) {
+            Region r = mRegions[i];
+            table[i * 5] = r.page;
+            table[i * 5 + 1] = r.u0;
+            table[i * 5 + 2] = r.v0;
+            table[i * 5 + 3] = r.u1;
+            table[i * 5 + 4] = r.v1;
+        }
+        return table;
+    }
+
+    /**
+     * brief Map texture coordinates in [0, 1] over an image to its region of the page
+     * @param index   Image index
+     * @param data    Vertex data holding (s, t) pairs
+     * @param offset  Index of the first s
+     * @param stride  Floats from one vertex to the next
+     * @param count   Number of vertices
+     */
+    public void remapTexCoords(int index, float[] data, int offset, int stride, int count) {
+        Region r = mRegions[index];
+        float du = r.u1 - r.u0;
+        float dv = r.v1 - r.v0;
+        for (int i = 0, p = offset; i < count; i++, p += stride) {
+            data[p] = r.u0 + data[p] * du;
+            data[p + 1] = r.v0 + data[p + 1] * dv;
+        }
+    }
+
+    /**
+     * brief Copy an RGBA8 image into a page and fill its gutter with copies of its edges
+     * @param image        Tightly packed RGBA8 pixels, from position 0
+     * @param page         RGBA8 page pixels, from position 0
+     * @param pageWidth    Page width in pixels
+     * @param x            Region of the image (Region.x, Region.y)
+     * @param y
+     * @param gutter       Gutter the packer was created with
+     */
+    public static void copyImage(ByteBuffer image, int width, int height, ByteBuffer page, int pageWidth,
+                                 int x, int y, int gutter) {
+        for (int row = -gutter; row < height + gutter; row++) {
+            int srcRow = Math.max(0, Math.min(height - 1, row));
+            int dst = ((y + row) * pageWidth + x - gutter) * 4;
+            int src = srcRow * width * 4;
+            // Byte by byte like the interior: getInt/putInt swap the bytes when the buffers'
+            // byte orders differ
+            for (int i = 0; i < gutter * 4; i++) {
+                page.put(dst + i, image.get(src + (i & 3)));
+            }
+            dst += gutter * 4;
+            for (int i = 0; i < width * 4; i++) {
+                page.put(dst + i, image.get(src + i));
+            }
+            int last = src + (width - 1) * 4;
+            dst += width * 4;
+            for (int i = 0; i < gutter * 4; i++) {
+                page.put(dst + i, image.get(last + (i & 3)));
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESBufferAllocator
+//
+//    Offset allocator for sub-allocating a large GL buffer. Pure bookkeeping, it never
+//    touches GL; ESBufferArena pairs it with the buffer objects.
+//
+
+package com.openglesbook.common;
+
+/**
+ * Free ranges are kept sorted by offset in two int arrays. allocate() takes the best
+ * fitting range, free() merges the range with its free neighbours, so the free list never
+ * holds two adjacent ranges. Sizes are rounded up to the alignment, which keeps every
+ * offset aligned.
+ */
+public class ESBufferAllocator {
+    private final int mCapacity;
+    private final int mAlignment;
+
+    private int[] mFreeOffset = new int[16];
+    private int[] mFreeSize = new int[16];
+    private int mFreeCount;
+    private int mFreeBytes;
+    private int mAllocationCount;
+
+    /**
+     * brief Create an allocator with everything free
+     * @param capacity   Bytes managed
+     * @param alignment  Alignment of every offset, a power of two
+     */
+    public ESBufferAllocator(int capacity, int alignment) {
+        if (alignment <= 0 || (alignment & (alignment - 1)) != 0) {
+            throw new IllegalArgumentException("alignment must be a power of two: " + alignment);
+        }
+        mCapacity = capacity & -alignment;
+        mAlignment = alignment;
+        if (mCapacity > 0) {
+            mFreeOffset[0] = 0;
+            mFreeSize[0] = mCapacity;
+            mFreeCount = 1;
+        }
+        mFreeBytes = mCapacity;
+    }
+
+    private int align(int size) {
+        return (size + mAlignment - 1) & -mAlignment;
+    }
+
+    /**
+     * brief Allocate a range
+     * @param size  Bytes needed, rounded up to the alignment
+     * @return  Offset of the range, or -1 if no free range is large enough
+     */
+    public int allocate(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive: " + size);
+        }
+        size = align(size);
+        int best = -1;
+        for (int i = 0; i < mFreeCount; i++) {
+            int free = mFreeSize[i];
+            if (free >= size && (best < 0 || free < mFreeSize[best])) {
+                best = i;
+                if (free == size) {
+                    break;
+                }
+            }
+        }
+        if (best < 0) {
+            return -1;
+        }
+        int offset = mFreeOffset[best];
+        if (mFreeSize[best] == size) {
+            removeFree(best);
+        } else {
+            mFreeOffset[best] += size;
+            mFreeSize[best] -= size;
+        }
+        mFreeBytes -= size;
+        mAllocationCount++;
+        return offset;
+    }
+
+    /**
+     * brief Release a range returned by allocate
+     * @param offset  Offset returned by allocate
+     * @param size    Size passed to allocate
+     */
+    public void free(int offset, int size) {
+        size = align(size);
+        if (offset < 0 || (offset & (mAlignment - 1)) != 0 || offset + size > mCapacity) {
+            throw new IllegalArgumentException("range " + offset + "+" + size + " was not allocated here");
+        }
+        // First free range after the released one
+        int lo = 0, hi = mFreeCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (mFreeOffset[mid] < offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int next = lo;
+        int prev = next - 1;
+        if ((prev >= 0 && mFreeOffset[prev] + mFreeSize[prev] > offset)
+                || (next < mFreeCount && offset + size > mFreeOffset[next])) {
+            throw new IllegalArgumentException("range " + offset + "+" + size + " is already free");
+        }
+
+        boolean mergePrev = prev >= 0 && mFreeOffset[prev] + mFreeSize[prev] == offset;
+        boolean mergeNext = next < mFreeCount && offset + size == mFreeOffset[next];
+        if (mergePrev && mergeNext) {
+            mFreeSize[prev] += size + mFreeSize[next];
+            removeFree(next);
+        } else if (mergePrev) {
+            mFreeSize[prev] += size;
+        } else if (mergeNext) {
+            mFreeOffset[next] = offset;
+            mFreeSize[next] += size;
+        } else {
+            insertFree(next, offset, size);
+        }
+        mFreeBytes += size;
+        mAllocationCount--;
+    }
+
+    private void removeFree(int index) {
+        System.arraycopy(mFreeOffset, index + 1, mFreeOffset, index, mFreeCount - index - 1);
+        System.arraycopy(mFreeSize, index + 1, mFreeSize, index, mFreeCount - index - 1);
+        mFreeCount--;
+    }
+
+    private void insertFree(int index, int offset, int size) {
+        if (mFreeCount == mFreeOffset.length) {
+            int[] offsets = new int[mFreeCount * 2];
+            int[] sizes = new int[mFreeCount * 2];
+            System.arraycopy(mFreeOffset, 0, offsets, 0, mFreeCount);
+            System.arraycopy(mFreeSize, 0, sizes, 0, mFreeCount);
+            mFreeOffset = offsets;
+            mFreeSize = sizes;
+        }
+        System.arraycopy(mFreeOffset, index, mFreeOffset, index + 1, mFreeCount - index);
+        System.arraycopy(mFreeSize, index, mFreeSize, index + 1, mFreeCount - index);
+        mFreeOffset[index] = offset;
+        mFreeSize[index] = size;
+        mFreeCount++;
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public int getAlignment() {
+        return mAlignment;
+    }
+
+    public int getFreeBytes() {
+        return mFreeBytes;
+    }
+
+    public int getUsedBytes() {
+        return mCapacity - mFreeBytes;
+    }
+
+    public int getAllocationCount() {
+        return mAllocationCount;
+    }
+
+    public int getFreeBlockCount() {
+        return mFreeCount;
+    }
+
+    public int getLargestFreeBlock() {
+        int largest = 0;
+        for (int i = 0; i < mFreeCount; i++) {
+            largest = Math.max(largest, mFreeSize[i]);
+        }
+        return largest;
+    }
+
+    /**
+     * brief External fragmentation of the free space
+     * @return  0 when all free bytes form one range, approaching 1 as they split into small ranges
+     */
+    public float getFragmentation() {
+        if (mFreeBytes == 0) {
+            return 0.0f;
+        }
+        return 1.0f - (float) getLargestFreeBlock() / mFreeBytes;
+    }
+}
@@ -0,0 +1,238 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESBufferArena
+//
+//    Pool of large GL buffers of one target and usage, sub-allocated with ESBufferAllocator,
+//    so meshes share a few buffer objects instead of owning one each.
+//
+
+package com.openglesbook.common;
+
+import java.nio.Buffer;
+import java.util.ArrayList;
+
+import android.opengl.GLES30;
+
+/**
+ * Buffers are created and written through the GL_COPY_WRITE_BUFFER binding, whatever
+ * their target. Binding them to their own target would change GL_ARRAY_BUFFER, or for
+ * index data the element buffer of whatever vertex array object is bound, so the arena
+ * can allocate and upload at any point of a frame without disturbing the draw state.
+ */
+public class ESBufferArena {
+    /**
+     * A sub-allocation: draw from buffer at offset, at most size bytes
+     */
+    public static class Allocation {
+        public final int buffer;
+        public final int offset;
+        public final int size;
+        final Block block;
+        boolean freed;
+
+        Allocation(Block block, int offset, int size) {
+            this.block = block;
+            this.buffer = block.bufferId;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    static class Block {
+        final int bufferId;
+        final ESBufferAllocator allocator;
+
+        Block(int bufferId, ESBufferAllocator allocator) {
+            this.bufferId = bufferId;
+            this.allocator = allocator;
+        }
+    }
+
+    private final ESGL mGL;
+    private final ESGLState mState;
+    private final int mTarget;
+    private final int mUsage;
+    private final int mBlockSize;
+    private final int mAlignment;
+    private final ArrayList<Block> mBlocks = new ArrayList<Block>();
+    private final int[] mIdScratch = new int[1];
+
+    /**
+     * brief Create an empty arena; buffers are created on demand, with a current context
+     * @param target     GL_ARRAY_BUFFER or GL_ELEMENT_ARRAY_BUFFER
+     * @param usage      GL_STATIC_DRAW, GL_DYNAMIC_DRAW, ...
+     * @param blockSize  Size of each GL buffer; larger requests get a buffer of their own size
+     * @param alignment  Alignment of every offset, a power of two (4 covers float and int data)
+     */
+    public ESBufferArena(int target, int usage, int blockSize, int alignment) {
+        this(ESGLES30.INSTANCE, null, target, usage, blockSize, alignment);
+    }
+
+    /**
+     * brief Like ESBufferArena(int, int, int, int), with the GL calls issued through an ESGL
+     * @param gl     GL entry points, e.g. an ESGLRecorder
+     * @param state  State cache the copy write binding goes through so it stays in sync; may be null
+     */
+    public ESBufferArena(ESGL gl, ESGLState state, int target, int usage, int blockSize, int alignment) {
+        mGL = gl;
+        mState = state;
+        mTarget = target;
+        mUsage = usage;
+        mBlockSize = blockSize;
+        mAlignment = alignment;
+    }
+
+    /**
+     * brief Reserve space, adding a GL buffer when no existing one has room
+     * @param size  Bytes needed
+     * @return  The allocation
+     */
+    public Allocation allocate(int size) {
+        for (int i = 0; i < mBlocks.size(); i++) {
+            Block block = mBlocks.get(i);
+            int offset = block.allocator.allocate(size);
+            if (offset >= 0) {
+                return new Allocation(block, offset, size);
+            }
+        }
+        int capacity = Math.max(mBlockSize, (size + mAlignment - 1) & -mAlignment);
+        mGL.glGenBuffers(1, mIdScratch, 0);
+        bindCopyWriteBuffer(mIdScratch[0]);
+        mGL.glBufferData(GLES30.GL_COPY_WRITE_BUFFER, capacity, null, mUsage);
+        Block block = new Block(mIdScratch[0], new ESBufferAllocator(capacity, mAlignment));
+        mBlocks.add(block);
+        return new Allocation(block, block.allocator.allocate(size), size);
+    }
+
+    /**
+     * brief Reserve space and fill it
+     * @param data  Bytes from position() on, size bytes are copied
+     * @param size  Bytes to copy
+     * @return  The allocation
+     */
+    public Allocation allocate(Buffer data, int size) {
+        Allocation allocation = allocate(size);
+        upload(allocation, 0, data, size);
+        return allocation;
+    }
+
+    /**
+     * brief Write into an allocation; leaves the buffer bound to GL_COPY_WRITE_BUFFER
+     * @param allocation  Destination
+     * @param offset      Byte offset inside the allocation
+     * @param data        Source, from position() on
+     * @param size        Bytes to copy
+     */
+    public void upload(Allocation allocation, int offset, Buffer data, int size) {
+        if (allocation.freed || offset < 0 || offset + size > allocation.size) {
+            throw new IllegalArgumentException("write outside of the allocation");
+        }
+        bindCopyWriteBuffer(allocation.buffer);
+        mGL.glBufferSubData(GLES30.GL_COPY_WRITE_BUFFER, allocation.offset + offset, size, data);
+    }
+
+    private void bindCopyWriteBuffer(int buffer) {
+        if (mState != null) {
+            mState.bindBuffer(GLES30.GL_COPY_WRITE_BUFFER, buffer);
+        } else {
+            mGL.glBindBuffer(GLES30.GL_COPY_WRITE_BUFFER, buffer);
+        }
+    }
+
+    /**
+     * brief Return an allocation to its buffer; the GL buffer itself stays alive
+     */
+    public void free(Allocation allocation) {
+        if (allocation.freed) {
+            throw new IllegalArgumentException("allocation freed twice");
+        }
+        allocation.freed = true;
+        allocation.block.allocator.free(allocation.offset, allocation.size);
+    }
+
+    /**
+     * brief Target the allocations are drawn from
+     */
+    public int getTarget() {
+        return mTarget;
+    }
+
+    public int getBufferCount() {
+        return mBlocks.size();
+    }
+
+    public long getCapacity() {
+        long total = 0;
+        for (int i = 0; i < mBlocks.size(); i++) {
+            total += mBlocks.get(i).allocator.getCapacity();
+        }
+        return total;
+    }
+
+    public long getUsedBytes() {
+        long total = 0;
+        for (int i = 0; i < mBlocks.size(); i++) {
+            total += mBlocks.get(i).allocator.getUsedBytes();
+        }
+        return total;
+    }
+
+    /**
+     * @return  Fragmentation of the free space over all buffers, weighted by free bytes
+     */
+    public float getFragmentation() {
+        long free = 0;
+        float weighted = 0.0f;
+        for (int i = 0; i < mBlocks.size(); i++) {
+            ESBufferAllocator allocator = mBlocks.get(i).allocator;
+            free += allocator.getFreeBytes();
+            weighted += allocator.getFragmentation() * allocator.getFreeBytes();
+        }
+        return free > 0 ? weighted / free : 0.0f;
+    }
+
+    /**
+     * brief Delete every GL buffer; outstanding allocations become invalid
+     */
+    public void delete() {
+        for (int i = 0; i < mBlocks.size(); i++) {
+            mIdScratch[0] = mBlocks.get(i).bufferId;
+            mGL.glDeleteBuffers(1, mIdScratch, 0);
+            if (mState != null) {
+                mState.bufferDeleted(mIdScratch[0]);
+            }
+        }
+        mBlocks.clear();
+    }
+}
@@ -0,0 +1,184 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESBufferCache
+//
+//    Buffer objects for ESVertexSource data, keyed by source identity and version: each
+//    source is uploaded once, and again only after its contents changed.
+//
+
+package com.openglesbook.common;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import android.opengl.GLES30;
+
+public class ESBufferCache {
+    private static class Entry {
+        final int buffer;
+        int version;
+
+        Entry(int buffer, int version) {
+            this.buffer = buffer;
+            this.version = version;
+        }
+    }
+
+    private final IdentityHashMap<ESVertexSource, Entry> mEntries =
+            new IdentityHashMap<ESVertexSource, Entry>();
+    private final ESGL mGL;
+    private final ESGLState mState;
+    private final int[] mIdScratch = new int[1];
+    private int mUploads;
+    private long mUploadedBytes;
+
+    public ESBufferCache() {
+        this(null);
+    }
+
+    /**
+     * brief Create a cache that binds through a state cache
+     * @param state  State cache of the context, so its buffer bindings stay in sync; may be null
+     */
+    public ESBufferCache(ESGLState state) {
+        this(ESGLES30.INSTANCE, state);
+    }
+
+    /**
+     * brief Create a cache that issues its GL calls through an ESGL, e.g. an ESGLRecorder
+     * @param gl     GL entry points
+     * @param state  State cache of the context; may be null
+     */
+    public ESBufferCache(ESGL gl, ESGLState state) {
+        mGL = gl;
+        mState = state;
+    }
+
+    /**
+     * brief Buffer object holding a source, uploading it first if it is new or has changed.
+     * The buffer is left bound to the source's target.
+     * @param source  Vertex or index data
+     * @return  Buffer object name
+     */
+    public int bind(ESVertexSource source) {
+        Entry e = mEntries.get(source);
+        if (e == null) {
+            mGL.glGenBuffers(1, mIdScratch, 0);
+            e = new Entry(mIdScratch[0], source.getVersion());
+            mEntries.put(source, e);
+            bindBuffer(source.getTarget(), e.buffer);
+            upload(source, GLES30.GL_STATIC_DRAW);
+        } else if (e.version != source.getVersion()) {
+            e.version = source.getVersion();
+            bindBuffer(source.getTarget(), e.buffer);
+            // Sources that change once are likely to change again
+            upload(source, GLES30.GL_DYNAMIC_DRAW);
+        } else {
+            bindBuffer(source.getTarget(), e.buffer);
+        }
+        return e.buffer;
+    }
+
+    /**
+     * brief Same as bind(), then restores the target's binding to 0; for building VAOs
+     * @return  Buffer object name
+     */
+    public int get(ESVertexSource source) {
+        int buffer = bind(source);
+        bindBuffer(source.getTarget(), 0);
+        return buffer;
+    }
+
+    private void bindBuffer(int target, int buffer) {
+        if (mState != null) {
+            mState.bindBuffer(target, buffer);
+        } else {
+            mGL.glBindBuffer(target, buffer);
+        }
+    }
+
+    private void upload(ESVertexSource source, int usage) {
+        mGL.glBufferData(source.getTarget(), source.getSize(), source.getData(), usage);
+        mUploads++;
+        mUploadedBytes += source.getSize();
+    }
+
+    /**
+     * brief Delete the buffer object of a source that is no longer drawn
+     */
+    public void release(ESVertexSource source) {
+        Entry e = mEntries.remove(source);
+        if (e != null) {
+            mIdScratch[0] = e.buffer;
+            mGL.glDeleteBuffers(1, mIdScratch, 0);
+            if (mState != null) {
+                mState.bufferDeleted(e.buffer);
+            }
+        }
+    }
+
+    /**
+     * brief Forget every buffer without deleting it; for a new context, where the old names are gone
+     */
+    public void reset() {
+        mEntries.clear();
+    }
+
+    /**
+     * brief Delete every buffer object
+     */
+    public void delete() {
+        for (Map.Entry<ESVertexSource, Entry> entry : mEntries.entrySet()) {
+            mIdScratch[0] = entry.getValue().buffer;
+            mGL.glDeleteBuffers(1, mIdScratch, 0);
+            if (mState != null) {
+                mState.bufferDeleted(entry.getValue().buffer);
+            }
+        }
+        mEntries.clear();
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    // glBufferData calls issued, and the bytes they uploaded
+    public int getUploadCount() {
+        return mUploads;
+    }
+
+    public long getUploadedBytes() {
+        return mUploadedBytes;
+    }
+}
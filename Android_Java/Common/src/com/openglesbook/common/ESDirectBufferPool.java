@@ -0,0 +1,134 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESDirectBufferPool
+//
+//    Thread safe pool of direct, native order ByteBuffers, so that pixel data passed
+//    between threads does not allocate a new direct buffer every time.
+//
+
+package com.openglesbook.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+public class ESDirectBufferPool {
+    // Capacities are powers of two from 2^MIN_SHIFT up; larger requests are not pooled
+    private static final int MIN_SHIFT = 10;
+    private static final int MAX_SHIFT = 26;
+
+    private final ArrayList<ArrayList<ByteBuffer>> mFree = new ArrayList<ArrayList<ByteBuffer>>();
+    private final long mMaxPooledBytes;
+    private long mPooledBytes;
+    private int mAllocations;
+
+    /**
+     * @param maxPooledBytes  Capacity kept for reuse; buffers released beyond it are dropped
+     */
+    public ESDirectBufferPool(long maxPooledBytes) {
+        mMaxPooledBytes = maxPooledBytes;
+        for (int i = MIN_SHIFT; i <= MAX_SHIFT; i++) {
+            mFree.add(new ArrayList<ByteBuffer>());
+        }
+    }
+
+    private static int shiftFor(int size) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1) - 1);
+        return Math.max(shift, MIN_SHIFT);
+    }
+
+    /**
+     * brief Get a buffer of at least a size
+     * @param size  Bytes needed
+     * @return  Buffer with position 0 and limit size
+     */
+    public ByteBuffer acquire(int size) {
+        int shift = shiftFor(size);
+        ByteBuffer buffer = null;
+        if (shift <= MAX_SHIFT) {
+            synchronized (this) {
+                ArrayList<ByteBuffer> free = mFree.get(shift - MIN_SHIFT);
+                if (!free.isEmpty()) {
+                    buffer = free.remove(free.size() - 1);
+                    mPooledBytes -= buffer.capacity();
+                } else {
+                    mAllocations++;
+                }
+            }
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(1 << shift).order(ByteOrder.nativeOrder());
+            }
+        } else {
+            synchronized (this) {
+                mAllocations++;
+            }
+            buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * brief Return a buffer obtained from acquire(); it must not be used afterwards
+     */
+    public synchronized void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        int shift = shiftFor(capacity);
+        if (capacity != 1 << shift || shift > MAX_SHIFT || mPooledBytes + capacity > mMaxPooledBytes) {
+            return;
+        }
+        mFree.get(shift - MIN_SHIFT).add(buffer);
+        mPooledBytes += capacity;
+    }
+
+    /**
+     * brief Drop every pooled buffer
+     */
+    public synchronized void clear() {
+        for (ArrayList<ByteBuffer> free : mFree) {
+            free.clear();
+        }
+        mPooledBytes = 0;
+    }
+
+    public synchronized long getPooledBytes() {
+        return mPooledBytes;
+    }
+
+    // Direct buffers allocated because none could be reused
+    public synchronized int getAllocationCount() {
+        return mAllocations;
+    }
+}
@@ -0,0 +1,234 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESFrameProfiler
+//
+//    CPU timings of the phases of a frame, recorded with nanosecond scopes into one
+//    ESHistogram per phase, with a periodic percentile summary to logcat or a file.
+//
+
+package com.openglesbook.common;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Locale;
+
+import android.util.Log;
+
+/**
+ * Typical use from a renderer:
+ * <pre>
+ *    public void onDrawFrame(GL10 glUnused) {
+ *        mProfiler.beginFrame();
+ *        mProfiler.begin(ESFrameProfiler.UPDATE);
+ *        update();
+ *        mProfiler.end(ESFrameProfiler.UPDATE);
+ *        ...
+ *        mProfiler.endFrame();
+ *    }
+ * </pre>
+ * A scope may be entered several times per frame; its times are added up and recorded
+ * once at endFrame(). The GL scopes measure how long the driver takes to accept the
+ * calls, not GPU time.
+ * Recording does not allocate; only the summary, written every report interval, does.
+ */
+public class ESFrameProfiler {
+    private static final String TAG = "ESFrameProfiler";
+
+    // Scopes timed by the renderer with begin() and end()
+    public static final int UPDATE = 0;
+    public static final int STATE = 1;
+    public static final int UPLOAD = 2;
+    public static final int DRAW = 3;
+    // Recorded by beginFrame() and endFrame(): the CPU time of onDrawFrame, and the
+    // time from one beginFrame() to the next, which is the frame time seen by the user
+    public static final int FRAME = 4;
+    public static final int INTERVAL = 5;
+
+    public static final int SCOPE_COUNT = 6;
+
+    private static final String[] SCOPE_NAMES = {
+            "update", "state", "upload", "draw", "frame", "interval"
+    };
+
+    public static final long DEFAULT_REPORT_INTERVAL_NANOS = 5000000000L;
+
+    private final String mName;
+    private final ESHistogram[] mHistograms = new ESHistogram[SCOPE_COUNT];
+    private final long[] mStart = new long[SCOPE_COUNT];
+    // Time spent in each scope during the current frame, -1 if not entered
+    private final long[] mFrameTotal = new long[SCOPE_COUNT];
+    private long mLastFrameStart;
+    private long mLastReport;
+    private long mReportInterval = DEFAULT_REPORT_INTERVAL_NANOS;
+    private boolean mLogcat = true;
+    private File mReportFile;
+
+    /**
+     * @param name  Name of the renderer, printed in every summary
+     */
+    public ESFrameProfiler(String name) {
+        mName = name;
+        for (int i = 0; i < SCOPE_COUNT; i++) {
+            mHistograms[i] = new ESHistogram();
+            mFrameTotal[i] = -1;
+        }
+    }
+
+    /**
+     * brief Set how often the summary is written
+     * @param nanos  Report interval in nanoseconds, 0 to only report on demand
+     */
+    public void setReportInterval(long nanos) {
+        mReportInterval = nanos;
+    }
+
+    /**
+     * brief Choose where the periodic summary goes
+     * @param logcat  true to write it to logcat at Log.INFO
+     * @param file    File the summary is appended to; may be null
+     */
+    public void setReportTargets(boolean logcat, File file) {
+        mLogcat = logcat;
+        mReportFile = file;
+    }
+
+    public static String getScopeName(int scope) {
+        return SCOPE_NAMES[scope];
+    }
+
+    public ESHistogram getHistogram(int scope) {
+        return mHistograms[scope];
+    }
+
+    public void begin(int scope) {
+        mStart[scope] = System.nanoTime();
+    }
+
+    public void end(int scope) {
+        long elapsed = System.nanoTime() - mStart[scope];
+        mFrameTotal[scope] = mFrameTotal[scope] < 0 ? elapsed : mFrameTotal[scope] + elapsed;
+    }
+
+    /**
+     * brief Start a frame; call first thing in onDrawFrame()
+     */
+    public void beginFrame() {
+        long now = System.nanoTime();
+        if (mLastFrameStart != 0) {
+            mHistograms[INTERVAL].record(now - mLastFrameStart);
+        } else {
+            mLastReport = now;
+        }
+        mLastFrameStart = now;
+        mStart[FRAME] = now;
+    }
+
+    /**
+     * brief End a frame; call last thing in onDrawFrame(). Writes and resets the
+     * summary once the report interval has passed.
+     */
+    public void endFrame() {
+        long now = System.nanoTime();
+        mHistograms[FRAME].record(now - mStart[FRAME]);
+        for (int i = 0; i < FRAME; i++) {
+            if (mFrameTotal[i] >= 0) {
+                mHistograms[i].record(mFrameTotal[i]);
+                mFrameTotal[i] = -1;
+            }
+        }
+        if (mReportInterval > 0 && now - mLastReport >= mReportInterval) {
+            mLastReport = now;
+            report();
+        }
+    }
+
+    /**
+     * brief Write the summary to the report targets and start a new measurement window
+     */
+    public void report() {
+        String summary = summary();
+        if (mLogcat) {
+            Log.i(TAG, summary);
+        }
+        if (mReportFile != null) {
+            FileWriter writer = null;
+            try {
+                writer = new FileWriter(mReportFile, true);
+                writer.write(summary);
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot write " + mReportFile + ": " + e.getMessage());
+            } finally {
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (IOException e) {
+                        // Nothing left to do
+                    }
+                }
+            }
+        }
+        reset();
+    }
+
+    /**
+     * brief Discard everything recorded; the next beginFrame() starts a new interval
+     */
+    public void reset() {
+        for (int i = 0; i < SCOPE_COUNT; i++) {
+            mHistograms[i].reset();
+        }
+    }
+
+    /**
+     * brief Percentiles of every scope recorded since the last report, in milliseconds
+     * @return  A header line, then one line per scope with samples
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(mName).append(": ").append(mHistograms[INTERVAL].getCount()).append(" frames\n");
+        sb.append(String.format(Locale.US, "%-9s %7s %8s %8s %8s %8s %8s\n",
+                "scope", "count", "mean", "p50", "p95", "p99", "max"));
+        for (int i = 0; i < SCOPE_COUNT; i++) {
+            ESHistogram h = mHistograms[i];
+            if (h.getCount() == 0) {
+                continue;
+            }
+            sb.append(String.format(Locale.US, "%-9s %7d %8.3f %8.3f %8.3f %8.3f %8.3f\n",
+                    SCOPE_NAMES[i], h.getCount(), h.getMean() / 1e6, h.getPercentile(0.50) / 1e6,
+                    h.getPercentile(0.95) / 1e6, h.getPercentile(0.99) / 1e6, h.getMax() / 1e6));
+        }
+        return sb.toString();
+    }
+}
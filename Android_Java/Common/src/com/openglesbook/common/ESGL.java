@@ -0,0 +1,192 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESGL
+//
+//    The OpenGL ES 3.0 entry points used by the Common module and the samples, as an
+//    interface, so GL work can be counted or run without a GPU.
+//
+
+package com.openglesbook.common;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Signatures match android.opengl.GLES30. ESGLES30 forwards to the real entry points,
+ * ESGLRecorder records the calls without a context. The state setters come from
+ * ESGLState.Backend, so any ESGL can back a state cache.
+ */
+public interface ESGL extends ESGLState.Backend {
+    void glAttachShader(int program, int shader);
+
+    void glBindBufferBase(int target, int index, int buffer);
+
+    void glBindFramebuffer(int target, int framebuffer);
+
+    void glBindRenderbuffer(int target, int renderbuffer);
+
+    void glBindSampler(int unit, int sampler);
+
+    void glBlitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1, int dstY1, int mask, int filter);
+
+    void glBufferData(int target, int size, Buffer data, int usage);
+
+    void glBufferSubData(int target, int offset, int size, Buffer data);
+
+    int glCheckFramebufferStatus(int target);
+
+    void glClear(int mask);
+
+    void glClearColor(float red, float green, float blue, float alpha);
+
+    int glClientWaitSync(long sync, int flags, long timeout);
+
+    void glCompileShader(int shader);
+
+    void glCompressedTexImage2D(int target, int level, int internalformat, int width, int height, int border, int imageSize, Buffer data);
+
+    void glCompressedTexImage3D(int target, int level, int internalformat, int width, int height, int depth, int border, int imageSize, Buffer data);
+
+    int glCreateProgram();
+
+    int glCreateShader(int type);
+
+    void glDeleteBuffers(int n, int[] buffers, int offset);
+
+    void glDeleteFramebuffers(int n, int[] framebuffers, int offset);
+
+    void glDeleteProgram(int program);
+
+    void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset);
+
+    void glDeleteSamplers(int count, int[] samplers, int offset);
+
+    void glDeleteShader(int shader);
+
+    void glDeleteSync(long sync);
+
+    void glDeleteTextures(int n, int[] textures, int offset);
+
+    void glDeleteVertexArrays(int n, int[] arrays, int offset);
+
+    void glDrawArrays(int mode, int first, int count);
+
+    void glDrawArraysInstanced(int mode, int first, int count, int instanceCount);
+
+    void glDrawElements(int mode, int count, int type, Buffer indices);
+
+    void glDrawElements(int mode, int count, int type, int offset);
+
+    void glDrawElementsInstanced(int mode, int count, int type, int indicesOffset, int instanceCount);
+
+    long glFenceSync(int condition, int flags);
+
+    void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer);
+
+    void glGenBuffers(int n, int[] buffers, int offset);
+
+    void glGenFramebuffers(int n, int[] framebuffers, int offset);
+
+    void glGenRenderbuffers(int n, int[] renderbuffers, int offset);
+
+    void glGenSamplers(int count, int[] samplers, int offset);
+
+    void glGenTextures(int n, int[] textures, int offset);
+
+    void glGenVertexArrays(int n, int[] arrays, int offset);
+
+    int glGetError();
+
+    String glGetProgramInfoLog(int program);
+
+    void glGetProgramiv(int program, int pname, int[] params, int offset);
+
+    String glGetShaderInfoLog(int shader);
+
+    void glGetShaderiv(int shader, int pname, int[] params, int offset);
+
+    int glGetUniformBlockIndex(int program, String uniformBlockName);
+
+    int glGetUniformLocation(int program, String name);
+
+    void glInvalidateFramebuffer(int target, int numAttachments, int[] attachments, int offset);
+
+    void glLinkProgram(int program);
+
+    Buffer glMapBufferRange(int target, int offset, int length, int access);
+
+    void glPixelStorei(int pname, int param);
+
+    void glRenderbufferStorage(int target, int internalformat, int width, int height);
+
+    void glSamplerParameterf(int sampler, int pname, float param);
+
+    void glSamplerParameteri(int sampler, int pname, int param);
+
+    void glShaderSource(int shader, String string);
+
+    void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels);
+
+    void glTexImage3D(int target, int level, int internalformat, int width, int height, int depth, int border, int format, int type, Buffer pixels);
+
+    void glTexParameteri(int target, int pname, int param);
+
+    void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels);
+
+    void glUniform1f(int location, float x);
+
+    void glUniform1i(int location, int x);
+
+    void glUniform3f(int location, float x, float y, float z);
+
+    void glUniform4f(int location, float x, float y, float z, float w);
+
+    void glUniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding);
+
+    void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    void glUniformMatrix4fv(int location, int count, boolean transpose, FloatBuffer value);
+
+    boolean glUnmapBuffer(int target);
+
+    void glVertexAttrib4f(int index, float x, float y, float z, float w);
+
+    void glVertexAttribDivisor(int index, int divisor);
+
+    void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr);
+
+    void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset);
+
+    void glViewport(int x, int y, int width, int height);
+}
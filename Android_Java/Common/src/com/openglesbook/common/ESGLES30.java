@@ -0,0 +1,388 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESGLES30
+//
+//    ESGL implementation that forwards every call to android.opengl.GLES30.
+//
+
+package com.openglesbook.common;
+
+import java.nio.Buffer;
+import java.nio.FloatBuffer;
+
+import android.opengl.GLES30;
+
+public class ESGLES30 implements ESGL {
+    // Stateless, one instance serves every context
+    public static final ESGLES30 INSTANCE = new ESGLES30();
+
+    private ESGLES30() {
+    }
+
+    public void glActiveTexture(int texture) {
+        GLES30.glActiveTexture(texture);
+    }
+
+    public void glAttachShader(int program, int shader) {
+        GLES30.glAttachShader(program, shader);
+    }
+
+    public void glBindBuffer(int target, int buffer) {
+        GLES30.glBindBuffer(target, buffer);
+    }
+
+    public void glBindBufferBase(int target, int index, int buffer) {
+        GLES30.glBindBufferBase(target, index, buffer);
+    }
+
+    public void glBindFramebuffer(int target, int framebuffer) {
+        GLES30.glBindFramebuffer(target, framebuffer);
+    }
+
+    public void glBindRenderbuffer(int target, int renderbuffer) {
+        GLES30.glBindRenderbuffer(target, renderbuffer);
+    }
+
+    public void glBindSampler(int unit, int sampler) {
+        GLES30.glBindSampler(unit, sampler);
+    }
+
+    public void glBindTexture(int target, int texture) {
+        GLES30.glBindTexture(target, texture);
+    }
+
+    public void glBindVertexArray(int array) {
+        GLES30.glBindVertexArray(array);
+    }
+
+    public void glBlendFunc(int sfactor, int dfactor) {
+        GLES30.glBlendFunc(sfactor, dfactor);
+    }
+
+    public void glBlitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1, int dstY1, int mask, int filter) {
+        GLES30.glBlitFramebuffer(srcX0, srcY0, srcX1, srcY1, dstX0, dstY0, dstX1, dstY1, mask, filter);
+    }
+
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        GLES30.glBufferData(target, size, data, usage);
+    }
+
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        GLES30.glBufferSubData(target, offset, size, data);
+    }
+
+    public int glCheckFramebufferStatus(int target) {
+        return GLES30.glCheckFramebufferStatus(target);
+    }
+
+    public void glClear(int mask) {
+        GLES30.glClear(mask);
+    }
+
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        GLES30.glClearColor(red, green, blue, alpha);
+    }
+
+    public int glClientWaitSync(long sync, int flags, long timeout) {
+        return GLES30.glClientWaitSync(sync, flags, timeout);
+    }
+
+    public void glCompileShader(int shader) {
+        GLES30.glCompileShader(shader);
+    }
+
+    public void glCompressedTexImage2D(int target, int level, int internalformat, int width, int height, int border, int imageSize, Buffer data) {
+        GLES30.glCompressedTexImage2D(target, level, internalformat, width, height, border, imageSize, data);
+    }
+
+    public void glCompressedTexImage3D(int target, int level, int internalformat, int width, int height, int depth, int border, int imageSize, Buffer data) {
+        GLES30.glCompressedTexImage3D(target, level, internalformat, width, height, depth, border, imageSize, data);
+    }
+
+    public int glCreateProgram() {
+        return GLES30.glCreateProgram();
+    }
+
+    public int glCreateShader(int type) {
+        return GLES30.glCreateShader(type);
+    }
+
+    public void glCullFace(int mode) {
+        GLES30.glCullFace(mode);
+    }
+
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        GLES30.glDeleteBuffers(n, buffers, offset);
+    }
+
+    public void glDeleteFramebuffers(int n, int[] framebuffers, int offset) {
+        GLES30.glDeleteFramebuffers(n, framebuffers, offset);
+    }
+
+    public void glDeleteProgram(int program) {
+        GLES30.glDeleteProgram(program);
+    }
+
+    public void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset) {
+        GLES30.glDeleteRenderbuffers(n, renderbuffers, offset);
+    }
+
+    public void glDeleteSamplers(int count, int[] samplers, int offset) {
+        GLES30.glDeleteSamplers(count, samplers, offset);
+    }
+
+    public void glDeleteShader(int shader) {
+        GLES30.glDeleteShader(shader);
+    }
+
+    public void glDeleteSync(long sync) {
+        GLES30.glDeleteSync(sync);
+    }
+
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        GLES30.glDeleteTextures(n, textures, offset);
+    }
+
+    public void glDeleteVertexArrays(int n, int[] arrays, int offset) {
+        GLES30.glDeleteVertexArrays(n, arrays, offset);
+    }
+
+    public void glDepthFunc(int func) {
+        GLES30.glDepthFunc(func);
+    }
+
+    public void glDepthMask(boolean flag) {
+        GLES30.glDepthMask(flag);
+    }
+
+    public void glDisable(int cap) {
+        GLES30.glDisable(cap);
+    }
+
+    public void glDisableVertexAttribArray(int index) {
+        GLES30.glDisableVertexAttribArray(index);
+    }
+
+    public void glDrawArrays(int mode, int first, int count) {
+        GLES30.glDrawArrays(mode, first, count);
+    }
+
+    public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+        GLES30.glDrawArraysInstanced(mode, first, count, instanceCount);
+    }
+
+    public void glDrawElements(int mode, int count, int type, Buffer indices) {
+        GLES30.glDrawElements(mode, count, type, indices);
+    }
+
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        GLES30.glDrawElements(mode, count, type, offset);
+    }
+
+    public void glDrawElementsInstanced(int mode, int count, int type, int indicesOffset, int instanceCount) {
+        GLES30.glDrawElementsInstanced(mode, count, type, indicesOffset, instanceCount);
+    }
+
+    public void glEnable(int cap) {
+        GLES30.glEnable(cap);
+    }
+
+    public void glEnableVertexAttribArray(int index) {
+        GLES30.glEnableVertexAttribArray(index);
+    }
+
+    public long glFenceSync(int condition, int flags) {
+        return GLES30.glFenceSync(condition, flags);
+    }
+
+    public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer) {
+        GLES30.glFramebufferRenderbuffer(target, attachment, renderbuffertarget, renderbuffer);
+    }
+
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        GLES30.glGenBuffers(n, buffers, offset);
+    }
+
+    public void glGenFramebuffers(int n, int[] framebuffers, int offset) {
+        GLES30.glGenFramebuffers(n, framebuffers, offset);
+    }
+
+    public void glGenRenderbuffers(int n, int[] renderbuffers, int offset) {
+        GLES30.glGenRenderbuffers(n, renderbuffers, offset);
+    }
+
+    public void glGenSamplers(int count, int[] samplers, int offset) {
+        GLES30.glGenSamplers(count, samplers, offset);
+    }
+
+    public void glGenTextures(int n, int[] textures, int offset) {
+        GLES30.glGenTextures(n, textures, offset);
+    }
+
+    public void glGenVertexArrays(int n, int[] arrays, int offset) {
+        GLES30.glGenVertexArrays(n, arrays, offset);
+    }
+
+    public int glGetError() {
+        return GLES30.glGetError();
+    }
+
+    public String glGetProgramInfoLog(int program) {
+        return GLES30.glGetProgramInfoLog(program);
+    }
+
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        GLES30.glGetProgramiv(program, pname, params, offset);
+    }
+
+    public String glGetShaderInfoLog(int shader) {
+        return GLES30.glGetShaderInfoLog(shader);
+    }
+
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        GLES30.glGetShaderiv(shader, pname, params, offset);
+    }
+
+    public int glGetUniformBlockIndex(int program, String uniformBlockName) {
+        return GLES30.glGetUniformBlockIndex(program, uniformBlockName);
+    }
+
+    public int glGetUniformLocation(int program, String name) {
+        return GLES30.glGetUniformLocation(program, name);
+    }
+
+    public void glInvalidateFramebuffer(int target, int numAttachments, int[] attachments, int offset) {
+        GLES30.glInvalidateFramebuffer(target, numAttachments, attachments, offset);
+    }
+
+    public void glLinkProgram(int program) {
+        GLES30.glLinkProgram(program);
+    }
+
+    public Buffer glMapBufferRange(int target, int offset, int length, int access) {
+        return GLES30.glMapBufferRange(target, offset, length, access);
+    }
+
+    public void glPixelStorei(int pname, int param) {
+        GLES30.glPixelStorei(pname, param);
+    }
+
+    public void glRenderbufferStorage(int target, int internalformat, int width, int height) {
+        GLES30.glRenderbufferStorage(target, internalformat, width, height);
+    }
+
+    public void glSamplerParameterf(int sampler, int pname, float param) {
+        GLES30.glSamplerParameterf(sampler, pname, param);
+    }
+
+    public void glSamplerParameteri(int sampler, int pname, int param) {
+        GLES30.glSamplerParameteri(sampler, pname, param);
+    }
+
+    public void glShaderSource(int shader, String string) {
+        GLES30.glShaderSource(shader, string);
+    }
+
+    public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels) {
+        GLES30.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+    }
+
+    public void glTexImage3D(int target, int level, int internalformat, int width, int height, int depth, int border, int format, int type, Buffer pixels) {
+        GLES30.glTexImage3D(target, level, internalformat, width, height, depth, border, format, type, pixels);
+    }
+
+    public void glTexParameteri(int target, int pname, int param) {
+        GLES30.glTexParameteri(target, pname, param);
+    }
+
+    public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels) {
+        GLES30.glTexSubImage2D(target, level, xoffset, yoffset, width, height, format, type, pixels);
+    }
+
+    public void glUniform1f(int location, float x) {
+        GLES30.glUniform1f(location, x);
+    }
+
+    public void glUniform1i(int location, int x) {
+        GLES30.glUniform1i(location, x);
+    }
+
+    public void glUniform3f(int location, float x, float y, float z) {
+        GLES30.glUniform3f(location, x, y, z);
+    }
+
+    public void glUniform4f(int location, float x, float y, float z, float w) {
+        GLES30.glUniform4f(location, x, y, z, w);
+    }
+
+    public void glUniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding) {
+        GLES30.glUniformBlockBinding(program, uniformBlockIndex, uniformBlockBinding);
+    }
+
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        GLES30.glUniformMatrix4fv(location, count, transpose, value, offset);
+    }
+
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, FloatBuffer value) {
+        GLES30.glUniformMatrix4fv(location, count, transpose, value);
+    }
+
+    public boolean glUnmapBuffer(int target) {
+        return GLES30.glUnmapBuffer(target);
+    }
+
+    public void glUseProgram(int program) {
+        GLES30.glUseProgram(program);
+    }
+
+    public void glVertexAttrib4f(int index, float x, float y, float z, float w) {
+        GLES30.glVertexAttrib4f(index, x, y, z, w);
+    }
+
+    public void glVertexAttribDivisor(int index, int divisor) {
+        GLES30.glVertexAttribDivisor(index, divisor);
+    }
+
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr) {
+        GLES30.glVertexAttribPointer(index, size, type, normalized, stride, ptr);
+    }
+
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+        GLES30.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+    }
+
+    public void glViewport(int x, int y, int width, int height) {
+        GLES30.glViewport(x, y, width, height);
+    }
+}
@@ -0,0 +1,873 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESGLRecorder
+//
+//    ESGL implementation that needs no GL context. It counts every call per entry point,
+//    optionally logs the arguments, and totals the bytes uploaded to buffers and textures,
+//    so the GL work of a renderer can be measured on a plain JVM.
+//
+
+package com.openglesbook.common;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import android.opengl.GLES30;
+
+/**
+ * Object names are handed out from one counter, compiles and links always succeed and
+ * uniform locations are numbered per program in order of first lookup. Counts are kept
+ * both in total and since the last beginFrame(), so per-frame call budgets can be checked:
+ * <pre>
+ *    recorder.beginFrame();
+ *    renderer.onDrawFrame(null);
+ *    if (recorder.getFrameCallCount() > BUDGET) ...
+ * </pre>
+ */
+public class ESGLRecorder implements ESGL {
+    // Per entry point: [0] total calls, [1] calls since beginFrame()
+    private final HashMap<String, int[]> mCounts = new HashMap<String, int[]>();
+    private final HashMap<String, Integer> mLocations = new HashMap<String, Integer>();
+    private int mCallCount;
+    private int mFrameCallCount;
+    private long mBufferUploadBytes;
+    private long mTextureUploadBytes;
+    private long mFrameUploadBytes;
+    private int mLastName;
+
+    private boolean mLogging;
+    private int mMaxLogEntries;
+    private final ArrayList<String> mLog = new ArrayList<String>();
+
+    /**
+     * brief Turn the argument log on or off; it is off by default
+     * @param logging     true to log every call with its arguments
+     * @param maxEntries  Entries kept; later calls are counted but not logged
+     */
+    public void setLogging(boolean logging, int maxEntries) {
+        mLogging = logging;
+        mMaxLogEntries = maxEntries;
+    }
+
+    /**
+     * brief Start a new frame: zero the per-frame counts and upload total
+     */
+    public void beginFrame() {
+        for (int[] c : mCounts.values()) {
+            c[1] = 0;
+        }
+        mFrameCallCount = 0;
+        mFrameUploadBytes = 0;
+    }
+
+    /**
+     * brief Forget everything recorded, including the log and the handed out names
+     */
+    public void reset() {
+        mCounts.clear();
+        mLocations.clear();
+        mLog.clear();
+        mCallCount = 0;
+        mFrameCallCount = 0;
+        mBufferUploadBytes = 0;
+        mTextureUploadBytes = 0;
+        mFrameUploadBytes = 0;
+        mLastName = 0;
+    }
+
+    public int getCallCount() {
+        return mCallCount;
+    }
+
+    public int getCallCount(String entryPoint) {
+        int[] c = mCounts.get(entryPoint);
+        return c != null ? c[0] : 0;
+    }
+
+    public int getFrameCallCount() {
+        return mFrameCallCount;
+    }
+
+    public int getFrameCallCount(String entryPoint) {
+        int[] c = mCounts.get(entryPoint);
+        return c != null ? c[1] : 0;
+    }
+
+    /**
+     * @return  Every entry point called at least once, sorted by name
+     */
+    public List<String> getEntryPoints() {
+        ArrayList<String> names = new ArrayList<String>(mCounts.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    // Bytes passed to glBufferData, glBufferSubData and written through glMapBufferRange
+    public long getBufferUploadBytes() {
+        return mBufferUploadBytes;
+    }
+
+    // Bytes passed to glTexImage2D/3D, glTexSubImage2D and glCompressedTexImage2D/3D
+    public long getTextureUploadBytes() {
+        return mTextureUploadBytes;
+    }
+
+    // Buffer and texture bytes since beginFrame()
+    public long getFrameUploadBytes() {
+        return mFrameUploadBytes;
+    }
+
+    public List<String> getLog() {
+        return Collections.unmodifiableList(mLog);
+    }
+
+    /**
+     * brief Counts of every entry point, one "name total frame" line each
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (String name : getEntryPoints()) {
+            int[] c = mCounts.get(name);
+            sb.append(name).append(' ').append(c[0]).append(' ').append(c[1]).append('\n');
+        }
+        sb.append("uploads ").append(mBufferUploadBytes).append(" buffer bytes, ")
+          .append(mTextureUploadBytes).append(" texture bytes\n");
+        return sb.toString();
+    }
+
+    private void count(String entryPoint) {
+        int[] c = mCounts.get(entryPoint);
+        if (c == null) {
+            c = new int[2];
+            mCounts.put(entryPoint, c);
+        }
+        c[0]++;
+        c[1]++;
+        mCallCount++;
+        mFrameCallCount++;
+    }
+
+    private void log(String call) {
+        if (mLog.size() < mMaxLogEntries) {
+            mLog.add(call);
+        }
+    }
+
+    private void generate(int n, int[] names, int offset) {
+        for (int i = 0; i < n; i++) {
+            names[offset + i] = ++mLastName;
+        }
+    }
+
+    private int lookup(int program, String name) {
+        String key = program + ":" + name;
+        Integer location = mLocations.get(key);
+        if (location == null) {
+            int next = 0;
+            String prefix = program + ":";
+            for (String k : mLocations.keySet()) {
+                if (k.startsWith(prefix)) {
+                    next++;
+                }
+            }
+            location = next;
+            mLocations.put(key, location);
+        }
+        return location;
+    }
+
+    private static long byteCount(Buffer data) {
+        if (data == null) {
+            return 0;
+        }
+        int elements = data.remaining();
+        if (data instanceof ByteBuffer) {
+            return elements;
+        } else if (data instanceof ShortBuffer) {
+            return elements * 2L;
+        } else if (data instanceof FloatBuffer || data instanceof IntBuffer) {
+            return elements * 4L;
+        }
+        return elements;
+    }
+
+    private static String describe(Buffer data) {
+        return data == null ? "null" : data.getClass().getSimpleName() + "[" + data.remaining() + "]";
+    }
+
+    private static String describe(int[] data) {
+        return data == null ? "null" : "int[" + data.length + "]";
+    }
+
+    private static String describe(float[] data) {
+        return data == null ? "null" : "float[" + data.length + "]";
+    }
+
+    public void glActiveTexture(int texture) {
+        count("glActiveTexture");
+        if (mLogging) {
+            log("glActiveTexture(" + texture + ")");
+        }
+    }
+
+    public void glAttachShader(int program, int shader) {
+        count("glAttachShader");
+        if (mLogging) {
+            log("glAttachShader(" + program + ", " + shader + ")");
+        }
+    }
+
+    public void glBindBuffer(int target, int buffer) {
+        count("glBindBuffer");
+        if (mLogging) {
+            log("glBindBuffer(" + target + ", " + buffer + ")");
+        }
+    }
+
+    public void glBindBufferBase(int target, int index, int buffer) {
+        count("glBindBufferBase");
+        if (mLogging) {
+            log("glBindBufferBase(" + target + ", " + index + ", " + buffer + ")");
+        }
+    }
+
+    public void glBindFramebuffer(int target, int framebuffer) {
+        count("glBindFramebuffer");
+        if (mLogging) {
+            log("glBindFramebuffer(" + target + ", " + framebuffer + ")");
+        }
+    }
+
+    public void glBindRenderbuffer(int target, int renderbuffer) {
+        count("glBindRenderbuffer");
+        if (mLogging) {
+            log("glBindRenderbuffer(" + target + ", " + renderbuffer + ")");
+        }
+    }
+
+    public void glBindSampler(int unit, int sampler) {
+        count("glBindSampler");
+        if (mLogging) {
+            log("glBindSampler(" + unit + ", " + sampler + ")");
+        }
+    }
+
+    public void glBindTexture(int target, int texture) {
+        count("glBindTexture");
+        if (mLogging) {
+            log("glBindTexture(" + target + ", " + texture + ")");
+        }
+    }
+
+    public void glBindVertexArray(int array) {
+        count("glBindVertexArray");
+        if (mLogging) {
+            log("glBindVertexArray(" + array + ")");
+        }
+    }
+
+    public void glBlendFunc(int sfactor, int dfactor) {
+        count("glBlendFunc");
+        if (mLogging) {
+            log("glBlendFunc(" + sfactor + ", " + dfactor + ")");
+        }
+    }
+
+    public void glBlitFramebuffer(int srcX0, int srcY0, int srcX1, int srcY1, int dstX0, int dstY0, int dstX1, int dstY1, int mask, int filter) {
+        count("glBlitFramebuffer");
+        if (mLogging) {
+            log("glBlitFramebuffer(" + srcX0 + ", " + srcY0 + ", " + srcX1 + ", " + srcY1 + ", " + dstX0 + ", " + dstY0 + ", " + dstX1 + ", " + dstY1 + ", " + mask + ", " + filter + ")");
+        }
+    }
+
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        count("glBufferData");
+        if (mLogging) {
+            log("glBufferData(" + target + ", " + size + ", " + describe(data) + ", " + usage + ")");
+        }
+        mBufferUploadBytes += data != null ? size : 0;
+        mFrameUploadBytes += data != null ? size : 0;
+    }
+
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        count("glBufferSubData");
+        if (mLogging) {
+            log("glBufferSubData(" + target + ", " + offset + ", " + size + ", " + describe(data) + ")");
+        }
+        mBufferUploadBytes += size;
+        mFrameUploadBytes += size;
+    }
+
+    public int glCheckFramebufferStatus(int target) {
+        count("glCheckFramebufferStatus");
+        if (mLogging) {
+            log("glCheckFramebufferStatus(" + target + ")");
+        }
+        return GLES30.GL_FRAMEBUFFER_COMPLETE;
+    }
+
+    public void glClear(int mask) {
+        count("glClear");
+        if (mLogging) {
+            log("glClear(" + mask + ")");
+        }
+    }
+
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        count("glClearColor");
+        if (mLogging) {
+            log("glClearColor(" + red + ", " + green + ", " + blue + ", " + alpha + ")");
+        }
+    }
+
+    public int glClientWaitSync(long sync, int flags, long timeout) {
+        count("glClientWaitSync");
+        if (mLogging) {
+            log("glClientWaitSync(" + sync + ", " + flags + ", " + timeout + ")");
+        }
+        return GLES30.GL_ALREADY_SIGNALED;
+    }
+
+    public void glCompileShader(int shader) {
+        count("glCompileShader");
+        if (mLogging) {
+            log("glCompileShader(" + shader + ")");
+        }
+    }
+
+    public void glCompressedTexImage2D(int target, int level, int internalformat, int width, int height, int border, int imageSize, Buffer data) {
+        count("glCompressedTexImage2D");
+        if (mLogging) {
+            log("glCompressedTexImage2D(" + target + ", " + level + ", " + internalformat + ", " + width + ", " + height + ", " + border + ", " + imageSize + ", " + describe(data) + ")");
+        }
+        mTextureUploadBytes += imageSize;
+        mFrameUploadBytes += imageSize;
+    }
+
+    public void glCompressedTexImage3D(int target, int level, int internalformat, int width, int height, int depth, int border, int imageSize, Buffer data) {
+        count("glCompressedTexImage3D");
+        if (mLogging) {
+            log("glCompressedTexImage3D(" + target + ", " + level + ", " + internalformat + ", " + width + ", " + height + ", " + depth + ", " + border + ", " + imageSize + ", " + describe(data) + ")");
+        }
+        mTextureUploadBytes += imageSize;
+        mFrameUploadBytes += imageSize;
+    }
+
+    public int glCreateProgram() {
+        count("glCreateProgram");
+        if (mLogging) {
+            log("glCreateProgram()");
+        }
+        return ++mLastName;
+    }
+
+    public int glCreateShader(int type) {
+        count("glCreateShader");
+        if (mLogging) {
+            log("glCreateShader(" + type + ")");
+        }
+        return ++mLastName;
+    }
+
+    public void glCullFace(int mode) {
+        count("glCullFace");
+        if (mLogging) {
+            log("glCullFace(" + mode + ")");
+        }
+    }
+
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        count("glDeleteBuffers");
+        if (mLogging) {
+            log("glDeleteBuffers(" + n + ", " + describe(buffers) + ", " + offset + ")");
+        }
+    }
+
+    public void glDeleteFramebuffers(int n, int[] framebuffers, int offset) {
+        count("glDeleteFramebuffers");
+        if (mLogging) {
+            log("glDeleteFramebuffers(" + n + ", " + describe(framebuffers) + ", " + offset + ")");
+        }
+    }
+
+    public void glDeleteProgram(int program) {
+        count("glDeleteProgram");
+        if (mLogging) {
+            log("glDeleteProgram(" + program + ")");
+        }
+    }
+
+    public void glDeleteRenderbuffers(int n, int[] renderbuffers, int offset) {
+        count("glDeleteRenderbuffers");
+        if (mLogging) {
+            log("glDeleteRenderbuffers(" + n + ", " + describe(renderbuffers) + ", " + offset + ")");
+        }
+    }
+
+    public void glDeleteSamplers(int count, int[] samplers, int offset) {
+        count("glDeleteSamplers");
+        if (mLogging) {
+            log("glDeleteSamplers(" + count + ", " + describe(samplers) + ", " + offset + ")");
+        }
+    }
+
+    public void glDeleteShader(int shader) {
+        count("glDeleteShader");
+        if (mLogging) {
+            log("glDeleteShader(" + shader + ")");
+        }
+    }
+
+    public void glDeleteSync(long sync) {
+        count("glDeleteSync");
+        if (mLogging) {
+            log("glDeleteSync(" + sync + ")");
+        }
+    }
+
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        count("glDeleteTextures");
+        if (mLogging) {
+            log("glDeleteTextures(" + n + ", " + describe(textures) + ", " + offset + ")");
+        }
+    }
+
+    public void glDeleteVertexArrays(int n, int[] arrays, int offset) {
+        count("glDeleteVertexArrays");
+        if (mLogging) {
+            log("glDeleteVertexArrays(" + n + ", " + describe(arrays) + ", " + offset + ")");
+        }
+    }
+
+    public void glDepthFunc(int func) {
+        count("glDepthFunc");
+        if (mLogging) {
+            log("glDepthFunc(" + func + ")");
+        }
+    }
+
+    public void glDepthMask(boolean flag) {
+        count("glDepthMask");
+        if (mLogging) {
+            log("glDepthMask(" + flag + ")");
+        }
+    }
+
+    public void glDisable(int cap) {
+        count("glDisable");
+        if (mLogging) {
+            log("glDisable(" + cap + ")");
+        }
+    }
+
+    public void glDisableVertexAttribArray(int index) {
+        count("glDisableVertexAttribArray");
+        if (mLogging) {
+            log("glDisableVertexAttribArray(" + index + ")");
+        }
+    }
+
+    public void glDrawArrays(int mode, int first, int count) {
+        count("glDrawArrays");
+        if (mLogging) {
+            log("glDrawArrays(" + mode + ", " + first + ", " + count + ")");
+        }
+    }
+
+    public void glDrawArraysInstanced(int mode, int first, int count, int instanceCount) {
+        count("glDrawArraysInstanced");
+        if (mLogging) {
+            log("glDrawArraysInstanced(" + mode + ", " + first + ", " + count + ", " + instanceCount + ")");
+        }
+    }
+
+    public void glDrawElements(int mode, int count, int type, Buffer indices) {
+        count("glDrawElements");
+        if (mLogging) {
+            log("glDrawElements(" + mode + ", " + count + ", " + type + ", " + describe(indices) + ")");
+        }
+    }
+
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        count("glDrawElements");
+        if (mLogging) {
+            log("glDrawElements(" + mode + ", " + count + ", " + type + ", " + offset + ")");
+        }
+    }
+
+    public void glDrawElementsInstanced(int mode, int count, int type, int indicesOffset, int instanceCount) {
+        count("glDrawElementsInstanced");
+        if (mLogging) {
+            log("glDrawElementsInstanced(" + mode + ", " + count + ", " + type + ", " + indicesOffset + ", " + instanceCount + ")");
+        }
+    }
+
+    public void glEnable(int cap) {
+        count("glEnable");
+        if (mLogging) {
+            log("glEnable(" + cap + ")");
+        }
+    }
+
+    public void glEnableVertexAttribArray(int index) {
+        count("glEnableVertexAttribArray");
+        if (mLogging) {
+            log("glEnableVertexAttribArray(" + index + ")");
+        }
+    }
+
+    public long glFenceSync(int condition, int flags) {
+        count("glFenceSync");
+        if (mLogging) {
+            log("glFenceSync(" + condition + ", " + flags + ")");
+        }
+        return ++mLastName;
+    }
+
+    public void glFramebufferRenderbuffer(int target, int attachment, int renderbuffertarget, int renderbuffer) {
+        count("glFramebufferRenderbuffer");
+        if (mLogging) {
+            log("glFramebufferRenderbuffer(" + target + ", " + attachment + ", " + renderbuffertarget + ", " + renderbuffer + ")");
+        }
+    }
+
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        count("glGenBuffers");
+        if (mLogging) {
+            log("glGenBuffers(" + n + ", " + describe(buffers) + ", " + offset + ")");
+        }
+        generate(n, buffers, offset);
+    }
+
+    public void glGenFramebuffers(int n, int[] framebuffers, int offset) {
+        count("glGenFramebuffers");
+        if (mLogging) {
+            log("glGenFramebuffers(" + n + ", " + describe(framebuffers) + ", " + offset + ")");
+        }
+        generate(n, framebuffers, offset);
+    }
+
+    public void glGenRenderbuffers(int n, int[] renderbuffers, int offset) {
+        count("glGenRenderbuffers");
+        if (mLogging) {
+            log("glGenRenderbuffers(" + n + ", " + describe(renderbuffers) + ", " + offset + ")");
+        }
+        generate(n, renderbuffers, offset);
+    }
+
+    public void glGenSamplers(int count, int[] samplers, int offset) {
+        count("glGenSamplers");
+        if (mLogging) {
+            log("glGenSamplers(" + count + ", " + describe(samplers) + ", " + offset + ")");
+        }
+        generate(count, samplers, offset);
+    }
+
+    public void glGenTextures(int n, int[] textures, int offset) {
+        count("glGenTextures");
+        if (mLogging) {
+            log("glGenTextures(" + n + ", " + describe(textures) + ", " + offset + ")");
+        }
+        generate(n, textures, offset);
+    }
+
+    public void glGenVertexArrays(int n, int[] arrays, int offset) {
+        count("glGenVertexArrays");
+        if (mLogging) {
+            log("glGenVertexArrays(" + n + ", " + describe(arrays) + ", " + offset + ")");
+        }
+        generate(n, arrays, offset);
+    }
+
+    public int glGetError() {
+        count("glGetError");
+        if (mLogging) {
+            log("glGetError()");
+        }
+        return GLES30.GL_NO_ERROR;
+    }
+
+    public String glGetProgramInfoLog(int program) {
+        count("glGetProgramInfoLog");
+        if (mLogging) {
+            log("glGetProgramInfoLog(" + program + ")");
+        }
+        return "";
+    }
+
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        count("glGetProgramiv");
+        if (mLogging) {
+            log("glGetProgramiv(" + program + ", " + pname + ", " + describe(params) + ", " + offset + ")");
+        }
+        params[offset] = pname == GLES30.GL_LINK_STATUS ? GLES30.GL_TRUE : 0;
+    }
+
+    public String glGetShaderInfoLog(int shader) {
+        count("glGetShaderInfoLog");
+        if (mLogging) {
+            log("glGetShaderInfoLog(" + shader + ")");
+        }
+        return "";
+    }
+
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        count("glGetShaderiv");
+        if (mLogging) {
+            log("glGetShaderiv(" + shader + ", " + pname + ", " + describe(params) + ", " + offset + ")");
+        }
+        params[offset] = pname == GLES30.GL_COMPILE_STATUS ? GLES30.GL_TRUE : 0;
+    }
+
+    public int glGetUniformBlockIndex(int program, String uniformBlockName) {
+        count("glGetUniformBlockIndex");
+        if (mLogging) {
+            log("glGetUniformBlockIndex(" + program + ", " + "\"" + uniformBlockName + "\"" + ")");
+        }
+        return lookup(program, uniformBlockName);
+    }
+
+    public int glGetUniformLocation(int program, String name) {
+        count("glGetUniformLocation");
+        if (mLogging) {
+            log("glGetUniformLocation(" + program + ", " + "\"" + name + "\"" + ")");
+        }
+        return lookup(program, name);
+    }
+
+    public void glInvalidateFramebuffer(int target, int numAttachments, int[] attachments, int offset) {
+        count("glInvalidateFramebuffer");
+        if (mLogging) {
+            log("glInvalidateFramebuffer(" + target + ", " + numAttachments + ", " + describe(attachments) + ", " + offset + ")");
+        }
+    }
+
+    public void glLinkProgram(int program) {
+        count("glLinkProgram");
+        if (mLogging) {
+            log("glLinkProgram(" + program + ")");
+        }
+    }
+
+    public Buffer glMapBufferRange(int target, int offset, int length, int access) {
+        count("glMapBufferRange");
+        if (mLogging) {
+            log("glMapBufferRange(" + target + ", " + offset + ", " + length + ", " + access + ")");
+        }
+        if ((access & GLES30.GL_MAP_WRITE_BIT) != 0) {
+            mBufferUploadBytes += length;
+            mFrameUploadBytes += length;
+        }
+        return ByteBuffer.allocateDirect(length).order(ByteOrder.nativeOrder());
+    }
+
+    public void glPixelStorei(int pname, int param) {
+        count("glPixelStorei");
+        if (mLogging) {
+            log("glPixelStorei(" + pname + ", " + param + ")");
+        }
+    }
+
+    public void glRenderbufferStorage(int target, int internalformat, int width, int height) {
+        count("glRenderbufferStorage");
+        if (mLogging) {
+            log("glRenderbufferStorage(" + target + ", " + internalformat + ", " + width + ", " + height + ")");
+        }
+    }
+
+    public void glSamplerParameterf(int sampler, int pname, float param) {
+        count("glSamplerParameterf");
+        if (mLogging) {
+            log("glSamplerParameterf(" + sampler + ", " + pname + ", " + param + ")");
+        }
+    }
+
+    public void glSamplerParameteri(int sampler, int pname, int param) {
+        count("glSamplerParameteri");
+        if (mLogging) {
+            log("glSamplerParameteri(" + sampler + ", " + pname + ", " + param + ")");
+        }
+    }
+
+    public void glShaderSource(int shader, String string) {
+        count("glShaderSource");
+        if (mLogging) {
+            log("glShaderSource(" + shader + ", " + "\"" + string + "\"" + ")");
+        }
+    }
+
+    public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border, int format, int type, Buffer pixels) {
+        count("glTexImage2D");
+        if (mLogging) {
+            log("glTexImage2D(" + target + ", " + level + ", " + internalformat + ", " + width + ", " + height + ", " + border + ", " + format + ", " + type + ", " + describe(pixels) + ")");
+        }
+        long bytes = byteCount(pixels);
+        mTextureUploadBytes += bytes;
+        mFrameUploadBytes += bytes;
+    }
+
+    public void glTexImage3D(int target, int level, int internalformat, int width, int height, int depth, int border, int format, int type, Buffer pixels) {
+        count("glTexImage3D");
+        if (mLogging) {
+            log("glTexImage3D(" + target + ", " + level + ", " + internalformat + ", " + width + ", " + height + ", " + depth + ", " + border + ", " + format + ", " + type + ", " + describe(pixels) + ")");
+        }
+        long bytes = byteCount(pixels);
+        mTextureUploadBytes += bytes;
+        mFrameUploadBytes += bytes;
+    }
+
+    public void glTexParameteri(int target, int pname, int param) {
+        count("glTexParameteri");
+        if (mLogging) {
+            log("glTexParameteri(" + target + ", " + pname + ", " + param + ")");
+        }
+    }
+
+    public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height, int format, int type, Buffer pixels) {
+        count("glTexSubImage2D");
+        if (mLogging) {
+            log("glTexSubImage2D(" + target + ", " + level + ", " + xoffset + ", " + yoffset + ", " + width + ", " + height + ", " + format + ", " + type + ", " + describe(pixels) + ")");
+        }
+        long bytes = byteCount(pixels);
+        mTextureUploadBytes += bytes;
+        mFrameUploadBytes += bytes;
+    }
+
+    public void glUniform1f(int location, float x) {
+        count("glUniform1f");
+        if (mLogging) {
+            log("glUniform1f(" + location + ", " + x + ")");
+        }
+    }
+
+    public void glUniform1i(int location, int x) {
+        count("glUniform1i");
+        if (mLogging) {
+            log("glUniform1i(" + location + ", " + x + ")");
+        }
+    }
+
+    public void glUniform3f(int location, float x, float y, float z) {
+        count("glUniform3f");
+        if (mLogging) {
+            log("glUniform3f(" + location + ", " + x + ", " + y + ", " + z + ")");
+        }
+    }
+
+    public void glUniform4f(int location, float x, float y, float z, float w) {
+        count("glUniform4f");
+        if (mLogging) {
+            log("glUniform4f(" + location + ", " + x + ", " + y + ", " + z + ", " + w + ")");
+        }
+    }
+
+    public void glUniformBlockBinding(int program, int uniformBlockIndex, int uniformBlockBinding) {
+        count("glUniformBlockBinding");
+        if (mLogging) {
+            log("glUniformBlockBinding(" + program + ", " + uniformBlockIndex + ", " + uniformBlockBinding + ")");
+        }
+    }
+
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        count("glUniformMatrix4fv");
+        if (mLogging) {
+            log("glUniformMatrix4fv(" + location + ", " + count + ", " + transpose + ", " + describe(value) + ", " + offset + ")");
+        }
+    }
+
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, FloatBuffer value) {
+        count("glUniformMatrix4fv");
+        if (mLogging) {
+            log("glUniformMatrix4fv(" + location + ", " + count + ", " + transpose + ", " + describe(value) + ")");
+        }
+    }
+
+    public boolean glUnmapBuffer(int target) {
+        count("glUnmapBuffer");
+        if (mLogging) {
+            log("glUnmapBuffer(" + target + ")");
+        }
+        return true;
+    }
+
+    public void glUseProgram(int program) {
+        count("glUseProgram");
+        if (mLogging) {
+            log("glUseProgram(" + program + ")");
+        }
+    }
+
+    public void glVertexAttrib4f(int index, float x, float y, float z, float w) {
+        count("glVertexAttrib4f");
+        if (mLogging) {
+            log("glVertexAttrib4f(" + index + ", " + x + ", " + y + ", " + z + ", " + w + ")");
+        }
+    }
+
+    public void glVertexAttribDivisor(int index, int divisor) {
+        count("glVertexAttribDivisor");
+        if (mLogging) {
+            log("glVertexAttribDivisor(" + index + ", " + divisor + ")");
+        }
+    }
+
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer ptr) {
+        count("glVertexAttribPointer");
+        if (mLogging) {
+            log("glVertexAttribPointer(" + index + ", " + size + ", " + type + ", " + normalized + ", " + stride + ", " + describe(ptr) + ")");
+        }
+    }
+
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+        count("glVertexAttribPointer");
+        if (mLogging) {
+            log("glVertexAttribPointer(" + index + ", " + size + ", " + type + ", " + normalized + ", " + stride + ", " + offset + ")");
+        }
+    }
+
+    public void glViewport(int x, int y, int width, int height) {
+        count("glViewport");
+        if (mLogging) {
+            log("glViewport(" + x + ", " + y + ", " + width + ", " + height + ")");
+        }
+    }
+}
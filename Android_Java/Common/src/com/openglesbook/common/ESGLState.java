@@ -0,0 +1,404 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESGLState
+//
+//    Shadow of the GL state the samples change every frame. Only calls that change
+//    something are forwarded to GL.
+//
+
+package com.openglesbook.common;
+
+import android.opengl.GLES30;
+
+/**
+ * Tracks the current program, the texture bindings of every texture unit, buffer bindings,
+ * the vertex array object, the enabled vertex attribute arrays, blend, cull and depth state.
+ * A call that would set a value GL already has is dropped and counted as elided.
+ * <p>
+ * The shadow starts out unknown, so the first call of each kind always reaches GL. Call
+ * invalidate() whenever GL state is changed behind the cache's back, and at least in
+ * onSurfaceCreated, as a new EGL context starts with default state.
+ * <p>
+ * Element array buffer binding and vertex attribute array enables belong to the bound
+ * vertex array object; they are forgotten when a different VAO is bound.
+ */
+public class ESGLState {
+    /**
+     * The GL entry points the cache forwards to
+     */
+    public interface Backend {
+        void glUseProgram(int program);
+
+        void glActiveTexture(int texture);
+
+        void glBindTexture(int target, int texture);
+
+        void glBindBuffer(int target, int buffer);
+
+        void glBindVertexArray(int array);
+
+        void glEnableVertexAttribArray(int index);
+
+        void glDisableVertexAttribArray(int index);
+
+        void glEnable(int cap);
+
+        void glDisable(int cap);
+
+        void glBlendFunc(int sfactor, int dfactor);
+
+        void glCullFace(int mode);
+
+        void glDepthFunc(int func);
+
+        void glDepthMask(boolean flag);
+    }
+
+    /**
+     * Forwards to android.opengl.GLES30
+     */
+    public static final Backend GLES30_BACKEND = ESGLES30.INSTANCE;
+
+    // Texture units and vertex attributes tracked; ES 3.0 guarantees at least 32 and 16
+    public static final int MAX_TEXTURE_UNITS = 32;
+    public static final int MAX_VERTEX_ATTRIBS = 16;
+
+    private static final int UNKNOWN = -1;
+
+    private static final int[] TEXTURE_TARGETS = {
+            GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_CUBE_MAP, GLES30.GL_TEXTURE_3D, GLES30.GL_TEXTURE_2D_ARRAY
+    };
+
+    private static final int[] BUFFER_TARGETS = {
+            GLES30.GL_ARRAY_BUFFER, GLES30.GL_ELEMENT_ARRAY_BUFFER, GLES30.GL_UNIFORM_BUFFER,
+            GLES30.GL_PIXEL_PACK_BUFFER, GLES30.GL_PIXEL_UNPACK_BUFFER, GLES30.GL_COPY_READ_BUFFER,
+            GLES30.GL_COPY_WRITE_BUFFER, GLES30.GL_TRANSFORM_FEEDBACK_BUFFER
+    };
+    private static final int ELEMENT_ARRAY_BUFFER_SLOT = 1;
+
+    private static final int[] CAPABILITIES = {
+            GLES30.GL_BLEND, GLES30.GL_CULL_FACE, GLES30.GL_DEPTH_TEST, GLES30.GL_SCISSOR_TEST,
+            GLES30.GL_STENCIL_TEST, GLES30.GL_POLYGON_OFFSET_FILL, GLES30.GL_DITHER, GLES30.GL_RASTERIZER_DISCARD
+    };
+
+    private final Backend mBackend;
+
+    private int mProgram;
+    private int mActiveTexture;
+    private final int[] mTextures = new int[MAX_TEXTURE_UNITS * TEXTURE_TARGETS.length];
+    private final int[] mBuffers = new int[BUFFER_TARGETS.length];
+    private int mVertexArray;
+    private final int[] mAttribArrays = new int[MAX_VERTEX_ATTRIBS];
+    private final int[] mCapabilities = new int[CAPABILITIES.length];
+    private int mBlendSrc;
+    private int mBlendDst;
+    private int mCullFace;
+    private int mDepthFunc;
+    private int mDepthMask;
+
+    private int mIssuedCalls;
+    private int mElidedCalls;
+    private int mLastFrameIssuedCalls;
+    private int mLastFrameElidedCalls;
+
+    public ESGLState() {
+        this(GLES30_BACKEND);
+    }
+
+    public ESGLState(Backend backend) {
+        mBackend = backend;
+        invalidate();
+    }
+
+    /**
+     * brief Forget everything, the next call of each kind is forwarded to GL
+     */
+    public void invalidate() {
+        mProgram = UNKNOWN;
+        mActiveTexture = UNKNOWN;
+        fill(mTextures);
+        fill(mBuffers);
+        mVertexArray = UNKNOWN;
+        fill(mAttribArrays);
+        fill(mCapabilities);
+        mBlendSrc = UNKNOWN;
+        mBlendDst = UNKNOWN;
+        mCullFace = UNKNOWN;
+        mDepthFunc = UNKNOWN;
+        mDepthMask = UNKNOWN;
+    }
+
+    /**
+     * brief Start a new frame: the per-frame counters move to the getLastFrame* getters
+     */
+    public void beginFrame() {
+        mLastFrameIssuedCalls = mIssuedCalls;
+        mLastFrameElidedCalls = mElidedCalls;
+        mIssuedCalls = 0;
+        mElidedCalls = 0;
+    }
+
+    public int getIssuedCalls() {
+        return mIssuedCalls;
+    }
+
+    public int getElidedCalls() {
+        return mElidedCalls;
+    }
+
+    public int getLastFrameIssuedCalls() {
+        return mLastFrameIssuedCalls;
+    }
+
+    public int getLastFrameElidedCalls() {
+        return mLastFrameElidedCalls;
+    }
+
+    public void useProgram(int program) {
+        if (changed(mProgram, program)) {
+            mProgram = program;
+            mBackend.glUseProgram(program);
+        }
+    }
+
+    /**
+     * brief Select the texture unit bindTexture applies to
+     * @param texture  GL_TEXTURE0 + unit
+     */
+    public void activeTexture(int texture) {
+        if (changed(mActiveTexture, texture)) {
+            mActiveTexture = texture;
+            mBackend.glActiveTexture(texture);
+        }
+    }
+
+    public void bindTexture(int target, int texture) {
+        int unit = mActiveTexture == UNKNOWN ? UNKNOWN : mActiveTexture - GLES30.GL_TEXTURE0;
+        int slot = indexOf(TEXTURE_TARGETS, target);
+        if (unit < 0 || unit >= MAX_TEXTURE_UNITS || slot < 0) {
+            // Untracked unit or target
+            mIssuedCalls++;
+            mBackend.glBindTexture(target, texture);
+            return;
+        }
+        int i = unit * TEXTURE_TARGETS.length + slot;
+        if (changed(mTextures[i], texture)) {
+            mTextures[i] = texture;
+            mBackend.glBindTexture(target, texture);
+        }
+    }
+
+    /**
+     * brief Bind a texture to a unit, selecting the unit first if needed
+     * @param unit     Texture unit index (not GL_TEXTURE0 based)
+     * @param target   Texture target
+     * @param texture  Texture object
+     */
+    public void bindTexture(int unit, int target, int texture) {
+        int slot = indexOf(TEXTURE_TARGETS, target);
+        if (slot >= 0 && unit >= 0 && unit < MAX_TEXTURE_UNITS
+                && mTextures[unit * TEXTURE_TARGETS.length + slot] == texture) {
+            mElidedCalls++;
+            return;
+        }
+        activeTexture(GLES30.GL_TEXTURE0 + unit);
+        bindTexture(target, texture);
+    }
+
+    public void bindBuffer(int target, int buffer) {
+        int slot = indexOf(BUFFER_TARGETS, target);
+        if (slot < 0) {
+            mIssuedCalls++;
+            mBackend.glBindBuffer(target, buffer);
+            return;
+        }
+        if (changed(mBuffers[slot], buffer)) {
+            mBuffers[slot] = buffer;
+            mBackend.glBindBuffer(target, buffer);
+        }
+    }
+
+    public void bindVertexArray(int array) {
+        if (changed(mVertexArray, array)) {
+            mVertexArray = array;
+            mBackend.glBindVertexArray(array);
+            // The element array binding and attribute enables come with the VAO
+            mBuffers[ELEMENT_ARRAY_BUFFER_SLOT] = UNKNOWN;
+            fill(mAttribArrays);
+        }
+    }
+
+    public void enableVertexAttribArray(int index) {
+        if (index < 0 || index >= MAX_VERTEX_ATTRIBS) {
+            mIssuedCalls++;
+            mBackend.glEnableVertexAttribArray(index);
+        } else if (changed(mAttribArrays[index], 1)) {
+            mAttribArrays[index] = 1;
+            mBackend.glEnableVertexAttribArray(index);
+        }
+    }
+
+    public void disableVertexAttribArray(int index) {
+        if (index < 0 || index >= MAX_VERTEX_ATTRIBS) {
+            mIssuedCalls++;
+            mBackend.glDisableVertexAttribArray(index);
+        } else if (changed(mAttribArrays[index], 0)) {
+            mAttribArrays[index] = 0;
+            mBackend.glDisableVertexAttribArray(index);
+        }
+    }
+
+    public void enable(int cap) {
+        setEnabled(cap, true);
+    }
+
+    public void disable(int cap) {
+        setEnabled(cap, false);
+    }
+
+    public void setEnabled(int cap, boolean enabled) {
+        int slot = indexOf(CAPABILITIES, cap);
+        int value = enabled ? 1 : 0;
+        if (slot >= 0 && !changed(mCapabilities[slot], value)) {
+            return;
+        }
+        if (slot >= 0) {
+            mCapabilities[slot] = value;
+        } else {
+            mIssuedCalls++;
+        }
+        if (enabled) {
+            mBackend.glEnable(cap);
+        } else {
+            mBackend.glDisable(cap);
+        }
+    }
+
+    public void blendFunc(int sfactor, int dfactor) {
+        if (mBlendSrc == sfactor && mBlendDst == dfactor) {
+            mElidedCalls++;
+            return;
+        }
+        mIssuedCalls++;
+        mBlendSrc = sfactor;
+        mBlendDst = dfactor;
+        mBackend.glBlendFunc(sfactor, dfactor);
+    }
+
+    public void cullFace(int mode) {
+        if (changed(mCullFace, mode)) {
+            mCullFace = mode;
+            mBackend.glCullFace(mode);
+        }
+    }
+
+    public void depthFunc(int func) {
+        if (changed(mDepthFunc, func)) {
+            mDepthFunc = func;
+            mBackend.glDepthFunc(func);
+        }
+    }
+
+    public void depthMask(boolean flag) {
+        if (changed(mDepthMask, flag ? 1 : 0)) {
+            mDepthMask = flag ? 1 : 0;
+            mBackend.glDepthMask(flag);
+        }
+    }
+
+    /**
+     * brief Tell the cache a texture was deleted; GL unbinds it from every unit
+     */
+    public void textureDeleted(int texture) {
+        for (int i = 0; i < mTextures.length; i++) {
+            if (mTextures[i] == texture) {
+                mTextures[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * brief Tell the cache a buffer was deleted; GL unbinds it from every target
+     */
+    public void bufferDeleted(int buffer) {
+        for (int i = 0; i < mBuffers.length; i++) {
+            if (mBuffers[i] == buffer) {
+                mBuffers[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * brief Tell the cache a vertex array object was deleted; GL binds 0 if it was current
+     */
+    public void vertexArrayDeleted(int array) {
+        if (mVertexArray == array) {
+            mVertexArray = 0;
+            mBuffers[ELEMENT_ARRAY_BUFFER_SLOT] = UNKNOWN;
+            fill(mAttribArrays);
+        }
+    }
+
+    public int getProgram() {
+        return mProgram;
+    }
+
+    public int getVertexArray() {
+        return mVertexArray;
+    }
+
+    private boolean changed(int current, int value) {
+        if (current == value) {
+            mElidedCalls++;
+            return false;
+        }
+        mIssuedCalls++;
+        return true;
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void fill(int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = UNKNOWN;
+        }
+    }
+}
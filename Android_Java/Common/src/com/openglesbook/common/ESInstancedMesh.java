@@ -0,0 +1,230 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESInstancedMesh
+//
+//    Draws many copies of an ESShapes mesh with one glDrawElementsInstanced, taking a
+//    model matrix and a color per instance from an instance buffer.
+//
+
+package com.openglesbook.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import android.opengl.GLES30;
+
+/**
+ * Instance layout, INSTANCE_FLOATS floats per instance:
+ * <pre>
+ *    0..15   model matrix, column major; bound to matrixLocation .. matrixLocation + 3,
+ *            one vec4 column per location
+ *    16..19  rgba color, bound to colorLocation
+ * </pre>
+ * The instance data lives in a float array the caller writes directly (or through
+ * setInstance), so filling thousands of instances per frame allocates nothing.
+ * upload() orphans the buffer before writing, so the driver does not have to wait for
+ * the previous frame's draw to finish reading it.
+ */
+public class ESInstancedMesh {
+    public static final int MATRIX_FLOATS = 16;
+    public static final int COLOR_FLOATS = 4;
+    public static final int INSTANCE_FLOATS = MATRIX_FLOATS + COLOR_FLOATS;
+    private static final int INSTANCE_STRIDE = INSTANCE_FLOATS * 4;
+
+    private final ESGL mGL;
+    private final int mMaxInstances;
+    private final float[] mInstanceData;
+    private final FloatBuffer mInstanceBuffer;
+    private int mInstanceCount;
+
+    // [0] positions, [1] normals, [2] indices, [3] instances
+    private final int[] mBufferIds = new int[4];
+    private final int[] mVaoId = new int[1];
+    private int mNumIndices;
+
+    /**
+     * brief Create the CPU side instance storage; call create() with a current context
+     * @param maxInstances  Largest number of instances drawn at once
+     */
+    public ESInstancedMesh(int maxInstances) {
+        this(ESGLES30.INSTANCE, maxInstances);
+    }
+
+    /**
+     * brief Like ESInstancedMesh(int), with the GL calls issued through an ESGL, e.g. an ESGLRecorder
+     */
+    public ESInstancedMesh(ESGL gl, int maxInstances) {
+        mGL = gl;
+        mMaxInstances = maxInstances;
+        mInstanceData = new float[maxInstances * INSTANCE_FLOATS];
+        mInstanceBuffer = ByteBuffer.allocateDirect(mInstanceData.length * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * brief Upload the shape and build the vertex array object
+     * @param shape           Mesh generated with genCube or genSphere
+     * @param positionLocation  Attribute location of the vec3 position
+     * @param normalLocation    Attribute location of the vec3 normal, -1 if unused
+     * @param matrixLocation    First of the four consecutive locations of the mat4 model matrix
+     * @param colorLocation     Attribute location of the vec4 color, -1 if unused
+     */
+    public void create(ESShapes shape, int positionLocation, int normalLocation,
+                       int matrixLocation, int colorLocation) {
+        FloatBuffer vertices = shape.getVertices();
+        mNumIndices = shape.getNumIndices();
+
+        mGL.glGenBuffers(4, mBufferIds, 0);
+        mGL.glGenVertexArrays(1, mVaoId, 0);
+        mGL.glBindVertexArray(mVaoId[0]);
+
+        vertices.position(0);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mBufferIds[0]);
+        mGL.glBufferData(GLES30.GL_ARRAY_BUFFER, vertices.capacity() * 4, vertices,
+                GLES30.GL_STATIC_DRAW);
+        mGL.glEnableVertexAttribArray(positionLocation);
+        mGL.glVertexAttribPointer(positionLocation, 3, GLES30.GL_FLOAT, false, 0, 0);
+
+        if (normalLocation >= 0) {
+            FloatBuffer normals = shape.getNormals();
+            normals.position(0);
+            mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mBufferIds[1]);
+            mGL.glBufferData(GLES30.GL_ARRAY_BUFFER, normals.capacity() * 4, normals,
+                    GLES30.GL_STATIC_DRAW);
+            mGL.glEnableVertexAttribArray(normalLocation);
+            mGL.glVertexAttribPointer(normalLocation, 3, GLES30.GL_FLOAT, false, 0, 0);
+        }
+
+        shape.getIndices().position(0);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mBufferIds[2]);
+        mGL.glBufferData(GLES30.GL_ELEMENT_ARRAY_BUFFER, mNumIndices * 2, shape.getIndices(),
+                GLES30.GL_STATIC_DRAW);
+
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mBufferIds[3]);
+        mGL.glBufferData(GLES30.GL_ARRAY_BUFFER, mInstanceData.length * 4, null,
+                GLES30.GL_STREAM_DRAW);
+        for (int column = 0; column < 4; column++) {
+            int location = matrixLocation + column;
+            mGL.glEnableVertexAttribArray(location);
+            mGL.glVertexAttribPointer(location, 4, GLES30.GL_FLOAT, false, INSTANCE_STRIDE,
+                    column * 4 * 4);
+            mGL.glVertexAttribDivisor(location, 1);
+        }
+        if (colorLocation >= 0) {
+            mGL.glEnableVertexAttribArray(colorLocation);
+            mGL.glVertexAttribPointer(colorLocation, COLOR_FLOATS, GLES30.GL_FLOAT, false,
+                    INSTANCE_STRIDE, MATRIX_FLOATS * 4);
+            mGL.glVertexAttribDivisor(colorLocation, 1);
+        }
+
+        mGL.glBindVertexArray(0);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * @return  The instance array, INSTANCE_FLOATS floats per instance, written by the caller
+     */
+    public float[] getInstanceData() {
+        return mInstanceData;
+    }
+
+    public int getMaxInstances() {
+        return mMaxInstances;
+    }
+
+    /**
+     * brief Fill one instance
+     * @param instance      Instance index
+     * @param matrix        Source of the 16 matrix floats
+     * @param matrixOffset  Offset of the matrix in the source array
+     */
+    public void setInstance(int instance, float[] matrix, int matrixOffset,
+                            float r, float g, float b, float a) {
+        int base = instance * INSTANCE_FLOATS;
+        System.arraycopy(matrix, matrixOffset, mInstanceData, base, MATRIX_FLOATS);
+        mInstanceData[base + MATRIX_FLOATS] = r;
+        mInstanceData[base + MATRIX_FLOATS + 1] = g;
+        mInstanceData[base + MATRIX_FLOATS + 2] = b;
+        mInstanceData[base + MATRIX_FLOATS + 3] = a;
+    }
+
+    /**
+     * brief Copy the first count instances to the GPU
+     * @param count  Instances to draw, at most getMaxInstances()
+     */
+    public void upload(int count) {
+        if (count < 0 || count > mMaxInstances) {
+            throw new IllegalArgumentException("instance count " + count + " out of range");
+        }
+        mInstanceCount = count;
+        mInstanceBuffer.position(0);
+        mInstanceBuffer.put(mInstanceData, 0, count * INSTANCE_FLOATS);
+        mInstanceBuffer.position(0);
+
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mBufferIds[3]);
+        mGL.glBufferData(GLES30.GL_ARRAY_BUFFER, mInstanceData.length * 4, null,
+                GLES30.GL_STREAM_DRAW);
+        mGL.glBufferSubData(GLES30.GL_ARRAY_BUFFER, 0, count * INSTANCE_STRIDE, mInstanceBuffer);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * brief Draw the uploaded instances; the program must be in use
+     */
+    public void draw() {
+        if (mInstanceCount == 0) {
+            return;
+        }
+        mGL.glBindVertexArray(mVaoId[0]);
+        mGL.glDrawElementsInstanced(GLES30.GL_TRIANGLES, mNumIndices, GLES30.GL_UNSIGNED_SHORT, 0,
+                mInstanceCount);
+        mGL.glBindVertexArray(0);
+    }
+
+    public int getInstanceCount() {
+        return mInstanceCount;
+    }
+
+    /**
+     * brief Delete the buffers and the vertex array object
+     */
+    public void delete() {
+        mGL.glDeleteVertexArrays(1, mVaoId, 0);
+        mGL.glDeleteBuffers(4, mBufferIds, 0);
+        mVaoId[0] = 0;
+        mInstanceCount = 0;
+    }
+}
@@ -0,0 +1,253 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESKtxFile
+//
+//    Parser of KTX 1.1 texture files. The images are returned as slices of the buffer
+//    holding the file, typically memory-mapped, so nothing is copied. Plain Java.
+//
+
+package com.openglesbook.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class ESKtxFile {
+    private static final byte[] IDENTIFIER = {
+            (byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n', 0x1A, '\n'
+    };
+    private static final int ENDIANNESS = 0x04030201;
+    private static final int HEADER_SIZE = 64;
+
+    private final ByteBuffer mData;
+    private int mGlType;
+    private int mGlFormat;
+    private int mInternalFormat;
+    private int mBaseInternalFormat;
+    private int mWidth;
+    private int mHeight;
+    private int mDepth;
+    private int mArrayElements;
+    private int mFaces;
+    private int mLevels;
+    // Per level: offset of each image (element * faces + face) in mData, and the size of one image
+    private int[][] mImageOffsets;
+    private int[] mImageSizes;
+    private long mDataSize;
+
+    private ESKtxFile(ByteBuffer data) {
+        mData = data;
+    }
+
+    /**
+     * brief Parse the header and locate every image
+     * @param data  The whole file, from position 0; not copied, and must not change afterwards
+     * @return  The parsed file
+     * @throws IllegalArgumentException if the data is not a valid KTX 1.1 file
+     */
+    public static ESKtxFile parse(ByteBuffer data) {
+        if (data.limit() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Not a KTX file: " + data.limit() + " bytes");
+        }
+        for (int i = 0; i < IDENTIFIER.length; i++) {
+            if (data.get(i) != IDENTIFIER[i]) {
+                throw new IllegalArgumentException("Not a KTX file: bad identifier");
+            }
+        }
+        ByteBuffer header = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int endianness = header.getInt(12);
+        if (endianness != ENDIANNESS) {
+            header.order(ByteOrder.BIG_ENDIAN);
+            if (header.getInt(12) != ENDIANNESS) {
+                throw new IllegalArgumentException("Not a KTX file: bad endianness 0x" + Integer.toHexString(endianness));
+            }
+        }
+
+        ESKtxFile ktx = new ESKtxFile(header);
+        ktx.mGlType = header.getInt(16);
+        ktx.mGlFormat = header.getInt(24);
+        ktx.mInternalFormat = header.getInt(28);
+        ktx.mBaseInternalFormat = header.getInt(32);
+        ktx.mWidth = header.getInt(36);
+        ktx.mHeight = header.getInt(40);
+        ktx.mDepth = header.getInt(44);
+        ktx.mArrayElements = header.getInt(48);
+        ktx.mFaces = header.getInt(52);
+        // 0 asks the loader to generate the mip chain from level 0
+        ktx.mLevels = Math.max(1, header.getInt(56));
+        int keyValueBytes = header.getInt(60);
+
+        if (ktx.mWidth <= 0 || ktx.mHeight < 0 || ktx.mDepth < 0 || ktx.mArrayElements < 0) {
+            throw new IllegalArgumentException("Bad KTX size " + ktx.mWidth + "x" + ktx.mHeight + "x" + ktx.mDepth);
+        }
+        if (ktx.mFaces != 1 && ktx.mFaces != 6) {
+            throw new IllegalArgumentException("Bad KTX face count " + ktx.mFaces);
+        }
+        if (ktx.mLevels > 32) {
+            throw new IllegalArgumentException("Bad KTX level count " + ktx.mLevels);
+        }
+
+        int images = Math.max(1, ktx.mArrayElements) * ktx.mFaces;
+        // A cubemap that is not an array gives the size of one face, everything else the whole level
+        boolean sizePerFace = ktx.mFaces == 6 && ktx.mArrayElements == 0;
+        ktx.mImageOffsets = new int[ktx.mLevels][images];
+        ktx.mImageSizes = new int[ktx.mLevels];
+        long offset = HEADER_SIZE + (keyValueBytes & 0xffffffffL);
+        for (int level = 0; level < ktx.mLevels; level++) {
+            if (offset + 4 > header.limit()) {
+                throw new IllegalArgumentException("Truncated KTX file at level " + level);
+            }
+            long imageSize = header.getInt((int) offset) & 0xffffffffL;
+            offset += 4;
+            long size = sizePerFace ? imageSize : imageSize / images;
+            if (!sizePerFace && size * images != imageSize) {
+                throw new IllegalArgumentException("KTX level " + level + " size " + imageSize
+                        + " is not a multiple of " + images + " images");
+            }
+            for (int i = 0; i < images; i++) {
+                if (offset + size > header.limit()) {
+                    throw new IllegalArgumentException("Truncated KTX file at level " + level);
+                }
+                ktx.mImageOffsets[level][i] = (int) offset;
+                offset += size;
+                if (sizePerFace) {
+                    offset = (offset + 3) & ~3L;
+                }
+            }
+            ktx.mImageSizes[level] = (int) size;
+            ktx.mDataSize += size * images;
+            offset = (offset + 3) & ~3L;
+        }
+        return ktx;
+    }
+
+    // glType and glFormat are 0 for compressed formats
+    public boolean isCompressed() {
+        return mGlType == 0;
+    }
+
+    public int getGlType() {
+        return mGlType;
+    }
+
+    public int getGlFormat() {
+        return mGlFormat;
+    }
+
+    public int getInternalFormat() {
+        return mInternalFormat;
+    }
+
+    public int getBaseInternalFormat() {
+        return mBaseInternalFormat;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    // 0 for a 1D texture
+    public int getHeight() {
+        return mHeight;
+    }
+
+    // 0 unless it is a 3D texture
+    public int getDepth() {
+        return mDepth;
+    }
+
+    // 0 unless it is an array texture
+    public int getArrayElements() {
+        return mArrayElements;
+    }
+
+    public int getFaces() {
+        return mFaces;
+    }
+
+    public int getLevels() {
+        return mLevels;
+    }
+
+    public int getLevelWidth(int level) {
+        return Math.max(1, mWidth >> level);
+    }
+
+    public int getLevelHeight(int level) {
+        return Math.max(1, mHeight >> level);
+    }
+
+    /**
+     * @return  Offset of an image from the start of the file
+     */
+    public int getImageOffset(int level, int element, int face) {
+        return mImageOffsets[level][element * mFaces + face];
+    }
+
+    /**
+     * @return  Bytes of one image (one face of one array element) of a level
+     */
+    public int getImageSize(int level) {
+        return mImageSizes[level];
+    }
+
+    // Bytes of all images, without headers and padding
+    public long getDataSize() {
+        return mDataSize;
+    }
+
+    /**
+     * brief One image of a level, as a slice of the file data
+     * @param element  Array element, 0 if not an array
+     * @param face     Cubemap face in the order +X, -X, +Y, -Y, +Z, -Z, 0 if not a cubemap
+     */
+    public ByteBuffer getImage(int level, int element, int face) {
+        return slice(getImageOffset(level, element, face), mImageSizes[level]);
+    }
+
+    /**
+     * brief All images of a level, which follow each other unless the file is a cubemap
+     * that is not an array, as a slice of the file data
+     */
+    public ByteBuffer getLevel(int level) {
+        int[] offsets = mImageOffsets[level];
+        return slice(offsets[0], mImageSizes[level] * offsets.length);
+    }
+
+    private ByteBuffer slice(int offset, int size) {
+        ByteBuffer slice = mData.duplicate();
+        slice.limit(offset + size);
+        slice.position(offset);
+        return slice.slice().order(mData.order());
+    }
+}
@@ -0,0 +1,238 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESKtxLoader
+//
+//    Maps KTX files into memory and uploads every mip level of 2D, cubemap and
+//    array textures straight from the mapped file.
+//
+
+package com.openglesbook.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.opengl.GLES30;
+import android.util.Log;
+
+public class ESKtxLoader {
+    private static final String TAG = "ESKtxLoader";
+
+    /**
+     * brief Map an asset into memory
+     *
+     * Only assets stored uncompressed in the APK (aaptOptions noCompress 'ktx') can be
+     * mapped; a compressed one is read into a direct buffer instead.
+     * @param assets    Assets to load from
+     * @param fileName  Asset name of the KTX file
+     * @return  The file contents, read-only
+     */
+    public static ByteBuffer mapAsset(AssetManager assets, String fileName) throws IOException {
+        AssetFileDescriptor fd;
+        try {
+            fd = assets.openFd(fileName);
+        } catch (FileNotFoundException e) {
+            Log.w(TAG, fileName + " is compressed in the APK, reading it instead of mapping it");
+            return read(assets.open(fileName));
+        }
+        FileInputStream is = fd.createInputStream();
+        try {
+            // The mapping stays valid after the channel is closed
+            return is.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getLength());
+        } finally {
+            is.close();
+            fd.close();
+        }
+    }
+
+    /**
+     * brief Map a file into memory
+     * @return  The file contents, read-only
+     */
+    public static ByteBuffer mapFile(File file) throws IOException {
+        FileInputStream is = new FileInputStream(file);
+        try {
+            FileChannel channel = is.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            is.close();
+        }
+    }
+
+    private static ByteBuffer read(InputStream is) throws IOException {
+        try {
+            byte[] chunk = new byte[16384];
+            ByteBuffer data = ByteBuffer.allocateDirect(Math.max(is.available(), chunk.length));
+            int n;
+            while ((n = is.read(chunk)) > 0) {
+                if (data.remaining() < n) {
+                    ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(data.capacity() * 2, data.position() + n));
+                    data.flip();
+                    larger.put(data);
+                    data = larger;
+                }
+                data.put(chunk, 0, n);
+            }
+            data.flip();
+            return data.order(ByteOrder.nativeOrder());
+        } finally {
+            is.close();
+        }
+    }
+
+    /**
+     * brief Load a texture from a KTX asset; on the GL thread
+     * @return  The texture name, or 0 on error
+     */
+    public static int loadTexture(AssetManager assets, String fileName) {
+        try {
+            return loadTexture(ESKtxFile.parse(mapAsset(assets, fileName)), null);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot read " + fileName + ": " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Cannot load " + fileName + ": " + e.getMessage());
+        }
+        return 0;
+    }
+
+    /**
+     * brief Create a texture and upload every level of a KTX file into it; on the GL thread
+     * @param ktx    The parsed file
+     * @param state  State cache of the context, so its bindings stay in sync; may be null
+     * @return  The texture name, bound to getTarget(ktx)
+     * @throws IllegalArgumentException if OpenGL ES 3.0 has no such texture type
+     */
+    public static int loadTexture(ESKtxFile ktx, ESGLState state) {
+        return loadTexture(ESGLES30.INSTANCE, ktx, state);
+    }
+
+    /**
+     * brief Like loadTexture(ESKtxFile, ESGLState), with the GL calls issued through an ESGL
+     */
+    public static int loadTexture(ESGL gl, ESKtxFile ktx, ESGLState state) {
+        int target = getTarget(ktx);
+        int[] id = new int[1];
+        gl.glGenTextures(1, id, 0);
+        if (state != null) {
+            state.bindTexture(target, id[0]);
+        } else {
+            gl.glBindTexture(target, id[0]);
+        }
+        upload(gl, ktx);
+        setFilters(gl, ktx);
+        return id[0];
+    }
+
+    /**
+     * brief Texture target of a KTX file
+     * @throws IllegalArgumentException for 1D, 3D and cubemap array textures
+     */
+    public static int getTarget(ESKtxFile ktx) {
+        if (ktx.getHeight() == 0 || ktx.getDepth() > 0) {
+            throw new IllegalArgumentException("1D and 3D KTX textures are not supported");
+        }
+        if (ktx.getArrayElements() > 0) {
+            if (ktx.getFaces() > 1) {
+                throw new IllegalArgumentException("Cubemap arrays need OpenGL ES 3.2");
+            }
+            return GLES30.GL_TEXTURE_2D_ARRAY;
+        }
+        return ktx.getFaces() > 1 ? GLES30.GL_TEXTURE_CUBE_MAP : GLES30.GL_TEXTURE_2D;
+    }
+
+    /**
+     * brief Upload every level of a KTX file into the texture bound to getTarget(ktx)
+     */
+    public static void upload(ESKtxFile ktx) {
+        upload(ESGLES30.INSTANCE, ktx);
+    }
+
+    public static void upload(ESGL gl, ESKtxFile ktx) {
+        int target = getTarget(ktx);
+        // Rows of uncompressed images are padded to 4 bytes in KTX, which is the default
+        // alignment, but set it in case the application changed it
+        gl.glPixelStorei(GLES30.GL_UNPACK_ALIGNMENT, 4);
+        for (int level = 0; level < ktx.getLevels(); level++) {
+            int width = ktx.getLevelWidth(level);
+            int height = ktx.getLevelHeight(level);
+            if (target == GLES30.GL_TEXTURE_2D_ARRAY) {
+                ByteBuffer data = ktx.getLevel(level);
+                int layers = ktx.getArrayElements();
+                if (ktx.isCompressed()) {
+                    gl.glCompressedTexImage3D(target, level, ktx.getInternalFormat(), width, height, layers,
+                            0, data.remaining(), data);
+                } else {
+                    gl.glTexImage3D(target, level, ktx.getInternalFormat(), width, height, layers,
+                            0, ktx.getGlFormat(), ktx.getGlType(), data);
+                }
+                continue;
+            }
+            for (int face = 0; face < ktx.getFaces(); face++) {
+                int faceTarget = target == GLES30.GL_TEXTURE_CUBE_MAP
+                        ? GLES30.GL_TEXTURE_CUBE_MAP_POSITIVE_X + face : target;
+                ByteBuffer data = ktx.getImage(level, 0, face);
+                if (ktx.isCompressed()) {
+                    gl.glCompressedTexImage2D(faceTarget, level, ktx.getInternalFormat(), width, height,
+                            0, data.remaining(), data);
+                } else {
+                    gl.glTexImage2D(faceTarget, level, ktx.getInternalFormat(), width, height,
+                            0, ktx.getGlFormat(), ktx.getGlType(), data);
+                }
+            }
+        }
+    }
+
+    /**
+     * brief Set linear filtering, trilinear if the file has mip levels, on the texture bound
+     * to getTarget(ktx); a partial chain is made complete by limiting the maximum level
+     */
+    public static void setFilters(ESKtxFile ktx) {
+        setFilters(ESGLES30.INSTANCE, ktx);
+    }
+
+    public static void setFilters(ESGL gl, ESKtxFile ktx) {
+        int target = getTarget(ktx);
+        gl.glTexParameteri(target, GLES30.GL_TEXTURE_MAX_LEVEL, ktx.getLevels() - 1);
+        gl.glTexParameteri(target, GLES30.GL_TEXTURE_MIN_FILTER,
+                ktx.getLevels() > 1 ? GLES30.GL_LINEAR_MIPMAP_LINEAR : GLES30.GL_LINEAR);
+        gl.glTexParameteri(target, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_LINEAR);
+    }
+}
@@ -0,0 +1,624 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESMipChain
+//
+//    Full mip chain of an 8 bit RGB or RGBA image, every level stored in one preallocated
+//    array. Each level is filtered from the previous one, with an exact integer box or,
+//    for sRGB images and higher order kernels, in linear floating point; rows are split
+//    across threads.
+//
+
+package com.openglesbook.common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.opengl.GLES30;
+
+/**
+ * Dimensions halve per level, rounding down, down to 1x1. An odd dimension is filtered with
+ * three weighted taps per texel, so every source texel contributes equally to the level below
+ * and non-power-of-two images do not shift or drop their last row or column.
+ *
+ * Averaging sRGB values darkens the lower levels, so setSrgb() filters the color channels in
+ * linear intensity instead; alpha is always linear.
+ */
+public class ESMipChain {
+    // Levels with fewer texels than this are not worth splitting across threads
+    private static final int MIN_PARALLEL_TEXELS = 16384;
+
+    private static ThreadPoolExecutor sExecutor;
+
+    /**
+     * Separable downsampling kernels, with radius in texels of the smaller level
+     */
+    public enum Filter {
+        // Area average; cheapest and never rings, but softer and more aliased than the others
+        BOX(0.5f),
+        // Sinc windowed by a Kaiser window of alpha 4; less ringing than Lanczos
+        KAISER(3.0f),
+        // Lanczos with 3 lobes; sharpest of the three, may ring at hard edges
+        LANCZOS(3.0f);
+
+        final float radius;
+
+        Filter(float radius) {
+            this.radius = radius;
+        }
+
+        float evaluate(double x) {
+            double t = Math.abs(x);
+            if (t >= radius) {
+                return 0.0f;
+            }
+            switch (this) {
+                case KAISER:
+                    double w = t / radius;
+                    return (float) (sinc(t) * bessel0(4.0 * Math.sqrt(1.0 - w * w)) / bessel0(4.0));
+                case LANCZOS:
+                    return (float) (sinc(t) * sinc(t / radius));
+                default:
+                    return 1.0f;
+            }
+        }
+
+        private static double sinc(double x) {
+            if (x < 1e-6) {
+                return 1.0;
+            }
+            return Math.sin(Math.PI * x) / (Math.PI * x);
+        }
+
+        // Modified Bessel function of the first kind, order 0
+        private static double bessel0(double x) {
+            double sum = 1.0;
+            double term = 1.0;
+            for (int k = 1; k < 32; k++) {
+                term *= (x / (2 * k)) * (x / (2 * k));
+                sum += term;
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * Precomputed taps of one axis: destination texel x reads source texels
+     * index[x * taps + k], clamped to the edge, with weight weights[x * taps + k]
+     */
+    private static class Taps {
+        final int taps;
+        final int[] index;
+        final float[] weights;
+
+        Taps(Filter filter, int srcSize, int dstSize) {
+            double scale = (double) srcSize / dstSize;
+            boolean box = filter == Filter.BOX || srcSize == dstSize;
+            double support = box ? 0.5 * scale : filter.radius * scale;
+            // Source texels overlapping the box, or with their centers strictly within the support
+            double reach = box ? 0.0 : 0.5;
+            int[] first = new int[dstSize];
+            int count = 1;
+            for (int x = 0; x < dstSize; x++) {
+                double center = (x + 0.5) * scale;
+                first[x] = (int) Math.floor(center - support - reach) + (box ? 0 : 1);
+                int last = (int) Math.ceil(center + support - reach) - 1;
+                count = Math.max(count, last - first[x] + 1);
+            }
+            taps = count;
+            index = new int[dstSize * taps];
+            weights = new float[dstSize * taps];
+            for (int x = 0; x < dstSize; x++) {
+                double center = (x + 0.5) * scale;
+                double sum = 0.0;
+                for (int k = 0; k < taps; k++) {
+                    int j = first[x] + k;
+                    double w;
+                    if (box) {
+                        // Overlap of the source texel with the destination texel
+                        w = Math.max(0.0, Math.min(j + 1, center + support) - Math.max(j, center - support));
+                    } else {
+                        w = filter.evaluate((j + 0.5 - center) / scale);
+                    }
+                    index[x * taps + k] = Math.min(Math.max(j, 0), srcSize - 1);
+                    weights[x * taps + k] = (float) w;
+                    sum += w;
+                }
+                for (int k = 0; k < taps; k++) {
+                    weights[x * taps + k] /= sum;
+                }
+            }
+        }
+    }
+
+    private final int mComponents;
+    private final int mLevels;
+    private final int[] mWidths;
+    private final int[] mHeights;
+    private final int[] mOffsets;
+    private final byte[] mData;
+    private Filter mFilter = Filter.BOX;
+    private boolean mSrgb;
+
+    /**
+     * @param width       Width of level 0
+     * @param height      Height of level 0
+     * @param components  3 for RGB, 4 for RGBA
+     */
+    public ESMipChain(int width, int height, int components) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Bad size " + width + "x" + height);
+        }
+        if (components != 3 && components != 4) {
+            throw new IllegalArgumentException("Only RGB and RGBA are supported, not " + components + " components");
+        }
+        mComponents = components;
+        mLevels = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+        mWidths = new int[mLevels];
+        mHeights = new int[mLevels];
+        mOffsets = new int[mLevels + 1];
+        long size = 0;
+        for (int level = 0; level < mLevels; level++) {
+            mWidths[level] = Math.max(1, width >> level);
+            mHeights[level] = Math.max(1, height >> level);
+            mOffsets[level] = (int) size;
+            size += (long) mWidths[level] * mHeights[level] * components;
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Mip chain of " + width + "x" + height + " is too large");
+            }
+        }
+        mOffsets[mLevels] = (int) size;
+        mData = new byte[(int) size];
+    }
+
+    public int getComponents() {
+        return mComponents;
+    }
+
+    public int getLevels() {
+        return mLevels;
+    }
+
+    public int getLevelWidth(int level) {
+        return mWidths[level];
+    }
+
+    public int getLevelHeight(int level) {
+        return mHeights[level];
+    }
+
+    // Offset of a level in getData()
+    public int getLevelOffset(int level) {
+        return mOffsets[level];
+    }
+
+    public int getLevelSize(int level) {
+        return mOffsets[level + 1] - mOffsets[level];
+    }
+
+    /**
+     * @return  The array holding every level, tightly packed one after the other
+     */
+    public byte[] getData() {
+        return mData;
+    }
+
+    /**
+     * brief One level as a buffer over the shared array, without copying
+     */
+    public ByteBuffer getLevel(int level) {
+        return ByteBuffer.wrap(mData, mOffsets[level], getLevelSize(level)).slice();
+    }
+
+    /**
+     * brief Copy the level 0 image
+     * @param pixels  Rows of width * components bytes, top to bottom
+     * @param offset  Offset of the first row in pixels
+     */
+    public void setBaseLevel(byte[] pixels, int offset) {
+        System.arraycopy(pixels, offset, mData, 0, getLevelSize(0));
+    }
+
+    /**
+     * brief Set the downsampling kernel; BOX by default
+     */
+    public void setFilter(Filter filter) {
+        mFilter = filter;
+    }
+
+    public Filter getFilter() {
+        return mFilter;
+    }
+
+    /**
+     * brief Set whether the color channels hold sRGB values, to filter them in linear intensity;
+     * false by default
+     */
+    public void setSrgb(boolean srgb) {
+        mSrgb = srgb;
+    }
+
+    public boolean isSrgb() {
+        return mSrgb;
+    }
+
+    /**
+     * brief Generate levels 1 and up from level 0; may be called again after level 0 changed
+     */
+    public void generate() {
+        if (mFilter == Filter.BOX && !mSrgb) {
+            for (int level = 1; level < mLevels; level++) {
+                final int target = level;
+                forRows(level, new RowTask() {
+                    public void run(int first, int last) {
+                        filterRows(target, first, last);
+                    }
+                });
+            }
+            return;
+        }
+
+        // Level 1 is filtered straight from the level 0 bytes. Every later level reads the one
+        // above it as 16-bit linear intensity, kept by odd and even levels in two arrays that
+        // together take 5/8 of the bytes of level 0, and only until generate() returns
+        final char[] odd = mLevels > 2 ? new char[getLevelSize(1)] : null;
+        final char[] even = mLevels > 3 ? new char[getLevelSize(2)] : null;
+        for (int level = 1; level < mLevels; level++) {
+            final int target = level;
+            final Taps xTaps = new Taps(mFilter, mWidths[level - 1], mWidths[level]);
+            final Taps yTaps = new Taps(mFilter, mHeights[level - 1], mHeights[level]);
+            final char[] src = level == 1 ? null : (level & 1) == 0 ? odd : even;
+            final char[] dst = level == mLevels - 1 ? null : (level & 1) != 0 ? odd : even;
+            forRows(level, new RowTask() {
+                public void run(int first, int last) {
+                    filterLinear(target, xTaps, yTaps, src, dst, first, last);
+                }
+            });
+        }
+    }
+
+    private interface RowTask {
+        void run(int first, int last);
+    }
+
+    // Run a task over the rows of a level, split into bands across threads if it is large enough
+    private void forRows(final int level, final RowTask task) {
+        final int rows = mHeights[level];
+        int texels = mWidths[level] * rows;
+        int bands = 1;
+        if (texels >= MIN_PARALLEL_TEXELS) {
+            bands = Math.min(rows, Math.min(Runtime.getRuntime().availableProcessors(), texels / MIN_PARALLEL_TEXELS));
+        }
+        if (bands <= 1) {
+            task.run(0, rows);
+            return;
+        }
+
+        // Fork all bands but the first, which runs on this thread while the others proceed
+        List<Future<?>> forked = new ArrayList<Future<?>>(bands - 1);
+        ThreadPoolExecutor executor = executor();
+        for (int band = 1; band < bands; band++) {
+            final int first = (int) ((long) rows * band / bands);
+            final int last = (int) ((long) rows * (band + 1) / bands);
+            forked.add(executor.submit(new Runnable() {
+                public void run() {
+                    task.run(first, last);
+                }
+            }));
+        }
+        task.run(0, rows / bands);
+        for (Future<?> future : forked) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while generating mip level " + level);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Cannot generate mip level " + level, e.getCause());
+            }
+        }
+    }
+
+    private static synchronized ThreadPoolExecutor executor() {
+        if (sExecutor == null) {
+            int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            sExecutor = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        private final AtomicInteger mCount = new AtomicInteger();
+
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "ESMipChain-" + mCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            sExecutor.allowCoreThreadTimeOut(true);
+        }
+        return sExecutor;
+    }
+
+    // Filter rows [first, last) of a level from the level above it
+    private void filterRows(int level, int first, int last) {
+        int srcWidth = mWidths[level - 1];
+        int srcHeight = mHeights[level - 1];
+        if ((srcWidth & 1) == 0 && (srcHeight & 1) == 0) {
+            filterEven(level, first, last);
+        } else {
+            filterWeighted(level, first, last);
+        }
+    }
+
+    // 2x2 box when both source dimensions are even
+    private void filterEven(int level, int first, int last) {
+        byte[] data = mData;
+        int c = mComponents;
+        int dstWidth = mWidths[level];
+        int srcStride = mWidths[level - 1] * c;
+        int src = mOffsets[level - 1];
+        int dst = mOffsets[level];
+        for (int y = first; y < last; y++) {
+            int s0 = src + 2 * y * srcStride;
+            int s1 = s0 + srcStride;
+            int d = dst + y * dstWidth * c;
+            for (int x = 0; x < dstWidth; x++) {
+                for (int i = 0; i < c; i++) {
+                    int sum = (data[s0 + i] & 0xff) + (data[s0 + c + i] & 0xff)
+                            + (data[s1 + i] & 0xff) + (data[s1 + c + i] & 0xff);
+                    data[d + i] = (byte) ((sum + 2) >> 2);
+                }
+                s0 += 2 * c;
+                s1 += 2 * c;
+                d += c;
+            }
+        }
+    }
+
+    // Up to 3x3 weighted taps when a source dimension is odd
+    private void filterWeighted(int level, int first, int last) {
+        byte[] data = mData;
+        int c = mComponents;
+        int dstWidth = mWidths[level];
+        int srcWidth = mWidths[level - 1];
+        int srcStride = srcWidth * c;
+        int src = mOffsets[level - 1];
+        int dst = mOffsets[level];
+        int[] xWeights = weights(srcWidth, dstWidth);
+        int[] yWeights = weights(mHeights[level - 1], mHeights[level]);
+        // Each axis' weights sum to its source size, or 2 when even
+        long divisor = (long) axisSum(srcWidth) * axisSum(mHeights[level - 1]);
+        long round = divisor / 2;
+        int[] column = new int[3 * c];
+        for (int y = first; y < last; y++) {
+            int rowSrc = src + tapStart(y, mHeights[level - 1]) * srcStride;
+            int d = dst + y * dstWidth * c;
+            for (int x = 0; x < dstWidth; x++) {
+                int s = rowSrc + tapStart(x, srcWidth) * c;
+                // Vertical taps first, into up to three columns
+                for (int tx = 0; tx < 3; tx++) {
+                    for (int i = 0; i < c; i++) {
+                        int sum = 0;
+                        if (xWeights[3 * x + tx] != 0) {
+                            for (int ty = 0; ty < 3; ty++) {
+                                int w = yWeights[3 * y + ty];
+                                if (w != 0) {
+                                    sum += w * (data[s + ty * srcStride + tx * c + i] & 0xff);
+                                }
+                            }
+                        }
+                        column[tx * c + i] = sum;
+                    }
+                }
+                for (int i = 0; i < c; i++) {
+                    long sum = (long) xWeights[3 * x] * column[i]
+                            + (long) xWeights[3 * x + 1] * column[c + i]
+                            + (long) xWeights[3 * x + 2] * column[2 * c + i];
+                    data[d + i] = (byte) ((sum + round) / divisor);
+                }
+                d += c;
+            }
+        }
+    }
+
+    private static int axisSum(int srcSize) {
+        return srcSize == 1 ? 1 : (srcSize & 1) == 0 ? 2 : srcSize;
+    }
+
+    // First source texel of a destination texel along one axis
+    private static int tapStart(int x, int srcSize) {
+        return srcSize == 1 ? 0 : 2 * x;
+    }
+
+    // One row of a level as linear intensity: from the bytes for level 0, else from the
+    // 16-bit values kept by filterLinear
+    private void toLinear(int level, char[] linear, int y, float[] row) {
+        int c = mComponents;
+        int stride = mWidths[level] * c;
+        if (level > 0) {
+            for (int i = 0, s = y * stride; i < stride; i++, s++) {
+                row[i] = linear[s] * (1.0f / 65535.0f);
+            }
+            return;
+        }
+        byte[] data = mData;
+        int s = y * stride;
+        if (!mSrgb) {
+            for (int i = 0; i < stride; i++) {
+                row[i] = (data[s + i] & 0xff) * (1.0f / 255.0f);
+            }
+            return;
+        }
+        for (int i = 0; i < stride; i += c) {
+            row[i] = ESSrgb.toLinear(data[s + i] & 0xff);
+            row[i + 1] = ESSrgb.toLinear(data[s + i + 1] & 0xff);
+            row[i + 2] = ESSrgb.toLinear(data[s + i + 2] & 0xff);
+            if (c == 4) {
+                row[i + 3] = (data[s + i + 3] & 0xff) * (1.0f / 255.0f);
+            }
+        }
+    }
+
+    // Filter rows [first, last) of a level from the level above it in linear intensity, vertically
+    // into one row then horizontally, and store them as bytes, and as 16-bit linear values in
+    // dst unless it is null
+    private void filterLinear(int level, Taps xTaps, Taps yTaps, char[] src, char[] dst, int first, int last) {
+        int c = mComponents;
+        byte[] data = mData;
+        int srcStride = mWidths[level - 1] * c;
+        int dstWidth = mWidths[level];
+        int dstStride = dstWidth * c;
+        boolean srgb = mSrgb;
+        float[] row = new float[srcStride];
+        // Source rows converted to float, in slot row % length; the rows of one destination
+        // row are consecutive and no more than the taps, so they never share a slot, and the
+        // next destination row reuses most of them
+        float[][] ring = new float[yTaps.taps + 2][srcStride];
+        int[] held = new int[ring.length];
+        Arrays.fill(held, -1);
+        for (int y = first; y < last; y++) {
+            // The first tap sets the row, the others accumulate; each is a plain loop over floats
+            int t = y * yTaps.taps;
+            float w0 = yTaps.weights[t];
+            float[] s0 = sourceRow(level - 1, src, yTaps.index[t], ring, held);
+            for (int i = 0; i < srcStride; i++) {
+                row[i] = w0 * s0[i];
+            }
+            for (int k = 1; k < yTaps.taps; k++) {
+                float w = yTaps.weights[t + k];
+                if (w == 0.0f) {
+                    continue;
+                }
+                float[] s = sourceRow(level - 1, src, yTaps.index[t + k], ring, held);
+                for (int i = 0; i < srcStride; i++) {
+                    row[i] += w * s[i];
+                }
+            }
+
+            int d = y * dstStride;
+            int out = mOffsets[level] + d;
+            for (int x = 0; x < dstWidth; x++) {
+                t = x * xTaps.taps;
+                float r = 0.0f;
+                float g = 0.0f;
+                float b = 0.0f;
+                float a = 0.0f;
+                for (int k = 0; k < xTaps.taps; k++) {
+                    float w = xTaps.weights[t + k];
+                    int s = xTaps.index[t + k] * c;
+                    r += w * row[s];
+                    g += w * row[s + 1];
+                    b += w * row[s + 2];
+                    if (c == 4) {
+                        a += w * row[s + 3];
+                    }
+                }
+                store(dst, data, d, out, r, srgb);
+                store(dst, data, d + 1, out + 1, g, srgb);
+                store(dst, data, d + 2, out + 2, b, srgb);
+                if (c == 4) {
+                    store(dst, data, d + 3, out + 3, a, false);
+                }
+                d += c;
+                out += c;
+            }
+        }
+    }
+
+    private float[] sourceRow(int level, char[] linear, int y, float[][] ring, int[] held) {
+        int slot = y % ring.length;
+        if (held[slot] != y) {
+            toLinear(level, linear, y, ring[slot]);
+            held[slot] = y;
+        }
+        return ring[slot];
+    }
+
+    private static void store(char[] dst, byte[] data, int d, int out, float value, boolean srgb) {
+        // Negative lobes can overshoot; keep the next level within range too
+        value = Math.min(Math.max(value, 0.0f), 1.0f);
+        if (dst != null) {
+            dst[d] = (char) (value * 65535.0f + 0.5f);
+        }
+        data[out] = (byte) (srgb ? ESSrgb.fromLinear(value) : (int) (value * 255.0f + 0.5f));
+    }
+
+    // Three tap weights per destination texel along one axis
+    private static int[] weights(int srcSize, int dstSize) {
+        int[] weights = new int[3 * dstSize];
+        for (int x = 0; x < dstSize; x++) {
+            if (srcSize == 1) {
+                weights[3 * x] = 1;
+            } else if ((srcSize & 1) == 0) {
+                weights[3 * x] = 1;
+                weights[3 * x + 1] = 1;
+            } else {
+                // Texel x of n covers source texels [x * src / n, (x + 1) * src / n)
+                int n = dstSize;
+                weights[3 * x] = n - x;
+                weights[3 * x + 1] = n;
+                weights[3 * x + 2] = x + 1;
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * brief Upload every level into the texture bound to target; on the GL thread
+     * @param target  GL_TEXTURE_2D, or a cubemap face
+     */
+    public void upload(int target) {
+        upload(ESGLES30.INSTANCE, target);
+    }
+
+    /**
+     * brief Like upload(int), with the GL calls issued through an ESGL
+     */
+    public void upload(ESGL gl, int target) {
+        int format = mComponents == 4 ? GLES30.GL_RGBA : GLES30.GL_RGB;
+        // Rows are tightly packed, which matters for RGB rows that are not a multiple of 4 bytes
+        gl.glPixelStorei(GLES30.GL_UNPACK_ALIGNMENT, 1);
+        for (int level = 0; level < mLevels; level++) {
+            gl.glTexImage2D(target, level, format, mWidths[level], mHeights[level], 0,
+                    format, GLES30.GL_UNSIGNED_BYTE, getLevel(level));
+        }
+        gl.glPixelStorei(GLES30.GL_UNPACK_ALIGNMENT, 4);
+    }
+}
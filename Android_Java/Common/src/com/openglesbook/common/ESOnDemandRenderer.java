@@ -0,0 +1,94 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESOnDemandRenderer
+//
+//    GLSurfaceView.Renderer wrapper that lets an ESRenderScheduler choose the render mode
+//    of the view, so static scenes are drawn only when something changed.
+//
+
+package com.openglesbook.common;
+
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
+
+import android.opengl.GLSurfaceView;
+
+public class ESOnDemandRenderer implements GLSurfaceView.Renderer {
+    private final GLSurfaceView.Renderer mRenderer;
+    private final ESRenderScheduler mScheduler;
+
+    public ESOnDemandRenderer(GLSurfaceView.Renderer renderer, ESRenderScheduler scheduler) {
+        mRenderer = renderer;
+        mScheduler = scheduler;
+    }
+
+    /**
+     * brief Set a renderer on a view, drawing on demand
+     * @param view      View to render into; must not have a renderer yet
+     * @param renderer  Renderer of the scene
+     * @return  Scheduler to invalidate the scene through, or to declare animations with
+     */
+    public static ESRenderScheduler attach(final GLSurfaceView view, GLSurfaceView.Renderer renderer) {
+        ESRenderScheduler scheduler = new ESRenderScheduler(new ESRenderScheduler.Surface() {
+            public void setRenderMode(int renderMode) {
+                view.setRenderMode(renderMode);
+            }
+
+            public void requestRender() {
+                view.requestRender();
+            }
+        });
+        view.setRenderer(new ESOnDemandRenderer(renderer, scheduler));
+        scheduler.start();
+        return scheduler;
+    }
+
+    public ESRenderScheduler getScheduler() {
+        return mScheduler;
+    }
+
+    public void onSurfaceCreated(GL10 gl, EGLConfig config) {
+        mRenderer.onSurfaceCreated(gl, config);
+    }
+
+    public void onSurfaceChanged(GL10 gl, int width, int height) {
+        mScheduler.setSurfaceSize(width, height);
+        mRenderer.onSurfaceChanged(gl, width, height);
+    }
+
+    public void onDrawFrame(GL10 gl) {
+        mRenderer.onDrawFrame(gl);
+        mScheduler.frameRendered();
+    }
+}
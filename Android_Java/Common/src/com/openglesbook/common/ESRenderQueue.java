@@ -0,0 +1,327 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESRenderQueue
+//
+//    Collects the draws of a frame, sorts them by a packed 64-bit key and issues them
+//    with as few state changes as possible.
+//
+
+package com.openglesbook.common;
+
+import android.opengl.GLES30;
+
+/**
+ * Key layout, most significant bits first:
+ * <pre>
+ *    63..60  pass      (e.g. opaque before transparent)
+ *    59..48  program
+ *    47..36  texture
+ *    35..24  vertex array object
+ *    23..0   depth     (see depthKey)
+ * </pre>
+ * Draws sharing a program end up together, then draws sharing a texture within a program,
+ * and so on. The object names are only truncated into the key to order the draws; the
+ * full names are stored with every item, so a collision costs an extra bind at worst.
+ * <p>
+ * All storage is primitive arrays that only grow, and sort() is an LSD radix sort over the
+ * keys, so a queue reused from frame to frame does not allocate.
+ */
+public class ESRenderQueue {
+    public static final int PASS_BITS = 4;
+    public static final int PROGRAM_BITS = 12;
+    public static final int TEXTURE_BITS = 12;
+    public static final int VAO_BITS = 12;
+    public static final int DEPTH_BITS = 24;
+
+    private static final int DEPTH_SHIFT = 0;
+    private static final int VAO_SHIFT = DEPTH_SHIFT + DEPTH_BITS;
+    private static final int TEXTURE_SHIFT = VAO_SHIFT + VAO_BITS;
+    private static final int PROGRAM_SHIFT = TEXTURE_SHIFT + TEXTURE_BITS;
+    private static final int PASS_SHIFT = PROGRAM_SHIFT + PROGRAM_BITS;
+
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    /**
+     * Sets the per-draw uniforms of an item right before it is drawn
+     */
+    public interface DrawCallback {
+        void onDraw(int userData);
+    }
+
+    private int mSize;
+    private long[] mKeys;
+    private long[] mSortKeys;
+    private long[] mSortKeysTmp;
+    private int[] mOrder;
+    private int[] mOrderTmp;
+    private int[] mProgram;
+    private int[] mTexture;
+    private int[] mVertexArray;
+    private int[] mMode;
+    private int[] mCount;
+    private int[] mIndexType;
+    private int[] mFirst;
+    private int[] mUserData;
+    private final int[] mHistogram = new int[RADIX];
+    private boolean mSorted;
+    private final ESGL mGL;
+
+    public ESRenderQueue(int initialCapacity) {
+        this(ESGLES30.INSTANCE, initialCapacity);
+    }
+
+    /**
+     * brief Like ESRenderQueue(int), with the draws issued through an ESGL, e.g. an ESGLRecorder
+     */
+    public ESRenderQueue(ESGL gl, int initialCapacity) {
+        mGL = gl;
+        allocate(Math.max(initialCapacity, 16));
+    }
+
+    /**
+     * brief Pack a sort key
+     * @param pass     Render pass, 0 to 15, lower passes draw first
+     * @param program  Program object
+     * @param texture  Texture bound to unit 0
+     * @param vao      Vertex array object
+     * @param depth    Depth value from depthKey
+     * @return  The key
+     */
+    public static long makeKey(int pass, int program, int texture, int vao, int depth) {
+        return ((long) (pass & ((1 << PASS_BITS) - 1)) << PASS_SHIFT)
+                | ((long) (program & ((1 << PROGRAM_BITS) - 1)) << PROGRAM_SHIFT)
+                | ((long) (texture & ((1 << TEXTURE_BITS) - 1)) << TEXTURE_SHIFT)
+                | ((long) (vao & ((1 << VAO_BITS) - 1)) << VAO_SHIFT)
+                | ((long) (depth & ((1 << DEPTH_BITS) - 1)) << DEPTH_SHIFT);
+    }
+
+    /**
+     * brief Quantize a depth for the key
+     * @param depth        View depth normalized to [0, 1]
+     * @param backToFront  true to draw far items first (transparent passes)
+     * @return  24-bit depth key
+     */
+    public static int depthKey(float depth, boolean backToFront) {
+        float d = depth < 0.0f ? 0.0f : (depth > 1.0f ? 1.0f : depth);
+        int quantized = (int) (d * ((1 << DEPTH_BITS) - 1));
+        return backToFront ? ((1 << DEPTH_BITS) - 1) - quantized : quantized;
+    }
+
+    /**
+     * brief Remove all items, keeping the storage
+     */
+    public void clear() {
+        mSize = 0;
+        mSorted = false;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * brief Add an indexed draw (glDrawElements with the indices in the VAO's element buffer)
+     * @param key        Sort key from makeKey
+     * @param program    Program object
+     * @param texture    2D texture for unit 0, 0 for none
+     * @param vao        Vertex array object
+     * @param mode       Primitive mode
+     * @param count      Number of indices
+     * @param indexType  GL_UNSIGNED_SHORT or GL_UNSIGNED_INT; 0 to draw with glDrawArrays
+     * @param first      Byte offset into the element buffer, or first vertex for glDrawArrays
+     * @param userData   Passed to the DrawCallback
+     * @return  Item index
+     */
+    public int submit(long key, int program, int texture, int vao, int mode, int count, int indexType,
+                      int first, int userData) {
+        if (mSize == mKeys.length) {
+            grow();
+        }
+        int i = mSize++;
+        mKeys[i] = key;
+        mProgram[i] = program;
+        mTexture[i] = texture;
+        mVertexArray[i] = vao;
+        mMode[i] = mode;
+        mCount[i] = count;
+        mIndexType[i] = indexType;
+        mFirst[i] = first;
+        mUserData[i] = userData;
+        mSorted = false;
+        return i;
+    }
+
+    /**
+     * brief Order the items by key; items with equal keys keep their submission order
+     */
+    public void sort() {
+        int n = mSize;
+        long[] keys = mSortKeys;
+        long[] keysTmp = mSortKeysTmp;
+        int[] order = mOrder;
+        int[] orderTmp = mOrderTmp;
+
+        System.arraycopy(mKeys, 0, keys, 0, n);
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+
+        // Bits that differ between any two keys; passes over constant bytes are skipped
+        long differing = 0;
+        for (int i = 1; i < n; i++) {
+            differing |= keys[i] ^ keys[0];
+        }
+
+        for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+            if (((differing >>> shift) & (RADIX - 1)) == 0) {
+                continue;
+            }
+            int[] histogram = mHistogram;
+            for (int b = 0; b < RADIX; b++) {
+                histogram[b] = 0;
+            }
+            for (int i = 0; i < n; i++) {
+                histogram[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+            }
+            int sum = 0;
+            for (int b = 0; b < RADIX; b++) {
+                int c = histogram[b];
+                histogram[b] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int bucket = (int) (keys[i] >>> shift) & (RADIX - 1);
+                int dst = histogram[bucket]++;
+                keysTmp[dst] = keys[i];
+                orderTmp[dst] = order[i];
+            }
+            long[] swapKeys = keys;
+            keys = keysTmp;
+            keysTmp = swapKeys;
+            int[] swapOrder = order;
+            order = orderTmp;
+            orderTmp = swapOrder;
+        }
+
+        mSortKeys = keys;
+        mSortKeysTmp = keysTmp;
+        mOrder = order;
+        mOrderTmp = orderTmp;
+        mSorted = true;
+    }
+
+    /**
+     * brief Item drawn at a position of the sorted order
+     * @param position  0 to size() - 1
+     * @return  Index returned by submit
+     */
+    public int getSortedItem(int position) {
+        if (!mSorted) {
+            sort();
+        }
+        return mOrder[position];
+    }
+
+    public long getKey(int item) {
+        return mKeys[item];
+    }
+
+    /**
+     * brief Sort if needed and issue every draw; program, texture and VAO binds go through
+     * the state cache, so only real changes reach GL
+     * @param state     State cache of the GL context, on the same ESGL as the queue
+     * @param callback  Per-draw uniform setup, may be null
+     */
+    public void execute(ESGLState state, DrawCallback callback) {
+        if (!mSorted) {
+            sort();
+        }
+        for (int position = 0; position < mSize; position++) {
+            int i = mOrder[position];
+            state.useProgram(mProgram[i]);
+            if (mTexture[i] != 0) {
+                state.bindTexture(0, GLES30.GL_TEXTURE_2D, mTexture[i]);
+            }
+            state.bindVertexArray(mVertexArray[i]);
+            if (callback != null) {
+                callback.onDraw(mUserData[i]);
+            }
+            if (mIndexType[i] == 0) {
+                mGL.glDrawArrays(mMode[i], mFirst[i], mCount[i]);
+            } else {
+                mGL.glDrawElements(mMode[i], mCount[i], mIndexType[i], mFirst[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mKeys = new long[capacity];
+        mSortKeys = new long[capacity];
+        mSortKeysTmp = new long[capacity];
+        mOrder = new int[capacity];
+        mOrderTmp = new int[capacity];
+        mProgram = new int[capacity];
+        mTexture = new int[capacity];
+        mVertexArray = new int[capacity];
+        mMode = new int[capacity];
+        mCount = new int[capacity];
+        mIndexType = new int[capacity];
+        mFirst = new int[capacity];
+        mUserData = new int[capacity];
+    }
+
+    private void grow() {
+        int capacity = mKeys.length * 2;
+        long[] keys = mKeys;
+        int[] program = mProgram;
+        int[] texture = mTexture;
+        int[] vertexArray = mVertexArray;
+        int[] mode = mMode;
+        int[] count = mCount;
+        int[] indexType = mIndexType;
+        int[] first = mFirst;
+        int[] userData = mUserData;
+        allocate(capacity);
+        System.arraycopy(keys, 0, mKeys, 0, mSize);
+        System.arraycopy(program, 0, mProgram, 0, mSize);
+        System.arraycopy(texture, 0, mTexture, 0, mSize);
+        System.arraycopy(vertexArray, 0, mVertexArray, 0, mSize);
+        System.arraycopy(mode, 0, mMode, 0, mSize);
+        System.arraycopy(count, 0, mCount, 0, mSize);
+        System.arraycopy(indexType, 0, mIndexType, 0, mSize);
+        System.arraycopy(first, 0, mFirst, 0, mSize);
+        System.arraycopy(userData, 0, mUserData, 0, mSize);
+    }
+}
@@ -0,0 +1,207 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESRenderScheduler
+//
+//    Decides when a GLSurfaceView has to draw. Static scenes render only when they were
+//    invalidated or the surface changed size; scenes render continuously only while an
+//    animation is active. Plain Java, so the decisions can be tested without a device.
+//
+
+package com.openglesbook.common;
+
+/**
+ * The scheduler drives a Surface, which ESOnDemandRenderer implements for GLSurfaceView.
+ * Animations are declared either for a fixed time with animate(), or open ended with
+ * beginAnimation() and endAnimation(). Invalidations arriving before the requested frame
+ * is drawn are merged into that frame.
+ */
+public class ESRenderScheduler {
+    // Same values as GLSurfaceView.RENDERMODE_WHEN_DIRTY and RENDERMODE_CONTINUOUSLY
+    public static final int RENDERMODE_WHEN_DIRTY = 0;
+    public static final int RENDERMODE_CONTINUOUSLY = 1;
+
+    /**
+     * Receives the scheduling decisions
+     */
+    public interface Surface {
+        void setRenderMode(int renderMode);
+
+        void requestRender();
+    }
+
+    public interface Clock {
+        long nanoTime();
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private final Surface mSurface;
+    private final Clock mClock;
+    private int mRenderMode = RENDERMODE_CONTINUOUSLY;
+    private boolean mDirty;
+    private boolean mRenderRequested;
+    private int mWidth = -1;
+    private int mHeight = -1;
+    // Open ended animations running, and the end of the latest timed one
+    private int mAnimations;
+    private long mAnimateUntil;
+    private boolean mTimedAnimation;
+    private int mFrames;
+    private int mRenderRequests;
+
+    public ESRenderScheduler(Surface surface) {
+        this(surface, SYSTEM_CLOCK);
+    }
+
+    public ESRenderScheduler(Surface surface, Clock clock) {
+        mSurface = surface;
+        mClock = clock;
+    }
+
+    /**
+     * brief Switch the surface to the mode the current state needs; call once the surface
+     * can take a render mode (for GLSurfaceView, after setRenderer())
+     */
+    public synchronized void start() {
+        mRenderMode = isAnimating() ? RENDERMODE_CONTINUOUSLY : RENDERMODE_WHEN_DIRTY;
+        mSurface.setRenderMode(mRenderMode);
+    }
+
+    /**
+     * brief The scene changed; draw it once more
+     */
+    public synchronized void invalidate() {
+        mDirty = true;
+        if (mRenderMode == RENDERMODE_WHEN_DIRTY && !mRenderRequested) {
+            mRenderRequested = true;
+            mRenderRequests++;
+            mSurface.requestRender();
+        }
+    }
+
+    /**
+     * brief Record the surface size, on the rendering thread before the frame drawn for it.
+     * The surface draws after a size change by itself, so no render is requested.
+     */
+    public synchronized void setSurfaceSize(int width, int height) {
+        if (width != mWidth || height != mHeight) {
+            mWidth = width;
+            mHeight = height;
+            mDirty = true;
+            mRenderRequested = true;
+        }
+    }
+
+    /**
+     * brief Render continuously for a while, e.g. for a transition
+     * @param durationNanos  Length of the animation from now; overlapping animations extend each other
+     */
+    public synchronized void animate(long durationNanos) {
+        long until = mClock.nanoTime() + durationNanos;
+        if (!mTimedAnimation || until - mAnimateUntil > 0) {
+            mAnimateUntil = until;
+        }
+        mTimedAnimation = true;
+        updateRenderMode();
+    }
+
+    /**
+     * brief Render continuously until the matching endAnimation()
+     */
+    public synchronized void beginAnimation() {
+        mAnimations++;
+        updateRenderMode();
+    }
+
+    public synchronized void endAnimation() {
+        if (mAnimations == 0) {
+            throw new IllegalStateException("endAnimation() without beginAnimation()");
+        }
+        mAnimations--;
+        updateRenderMode();
+    }
+
+    /**
+     * brief Call after every drawn frame, on the rendering thread
+     * @return  true if the scheduler keeps rendering continuously
+     */
+    public synchronized boolean frameRendered() {
+        mFrames++;
+        mDirty = false;
+        mRenderRequested = false;
+        updateRenderMode();
+        return mRenderMode == RENDERMODE_CONTINUOUSLY;
+    }
+
+    private boolean isAnimating() {
+        if (mTimedAnimation && mClock.nanoTime() - mAnimateUntil >= 0) {
+            mTimedAnimation = false;
+        }
+        return mAnimations > 0 || mTimedAnimation;
+    }
+
+    private void updateRenderMode() {
+        int mode = isAnimating() ? RENDERMODE_CONTINUOUSLY : RENDERMODE_WHEN_DIRTY;
+        if (mode == mRenderMode) {
+            return;
+        }
+        mRenderMode = mode;
+        mSurface.setRenderMode(mode);
+        if (mode == RENDERMODE_WHEN_DIRTY) {
+            // Draw the state the animation ended in
+            invalidate();
+        }
+    }
+
+    public synchronized int getRenderMode() {
+        return mRenderMode;
+    }
+
+    public synchronized boolean isDirty() {
+        return mDirty;
+    }
+
+    // Frames drawn, and renders requested while idle
+    public synchronized int getFrameCount() {
+        return mFrames;
+    }
+
+    public synchronized int getRenderRequestCount() {
+        return mRenderRequests;
+    }
+}
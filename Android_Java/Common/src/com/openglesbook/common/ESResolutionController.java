@@ -0,0 +1,206 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESResolutionController
+//
+//    Chooses a render scale from measured frame times so that a fill rate bound scene
+//    keeps its frame time target. Plain Java, fed with one frame time per frame.
+//
+
+package com.openglesbook.common;
+
+/**
+ * The controller is asymmetric so the scale does not oscillate around the target:
+ * <ul>
+ * <li>When the smoothed frame time exceeds the target by more than the down threshold,
+ *     the scale drops right away, in proportion to the overshoot (pixel count is taken
+ *     to scale with frame time).</li>
+ * <li>The scale only rises one step after upFrames consecutive frames met the target.
+ *     If that step is too much the scale returns to where it was, and the next attempt
+ *     waits twice as long, up to MAX_UP_BACKOFF times upFrames.</li>
+ * <li>No change is made for cooldownFrames frames after a change, while the new
+ *     resolution takes effect.</li>
+ * </ul>
+ */
+public class ESResolutionController {
+    public static final float DEFAULT_MIN_SCALE = 0.5f;
+    public static final float DEFAULT_STEP = 0.05f;
+    public static final float DEFAULT_DOWN_THRESHOLD = 1.1f;
+    public static final float DEFAULT_UP_THRESHOLD = 1.02f;
+    public static final int DEFAULT_UP_FRAMES = 90;
+    public static final int DEFAULT_COOLDOWN_FRAMES = 15;
+
+    // Frames longer than this (e.g. after a pause) are not taken into account
+    private static final long MAX_FRAME_NANOS = 250000000L;
+    private static final float SMOOTHING = 0.1f;
+    private static final int MAX_UP_BACKOFF = 16;
+
+    private final long mTargetNanos;
+    private float mMinScale = DEFAULT_MIN_SCALE;
+    private float mMaxScale = 1.0f;
+    private float mStep = DEFAULT_STEP;
+    private float mDownThreshold = DEFAULT_DOWN_THRESHOLD;
+    private float mUpThreshold = DEFAULT_UP_THRESHOLD;
+    private int mUpFrames = DEFAULT_UP_FRAMES;
+    private int mCooldownFrames = DEFAULT_COOLDOWN_FRAMES;
+
+    private float mScale = 1.0f;
+    private double mSmoothedNanos;
+    private int mGoodFrames;
+    private int mCooldown;
+    private int mChanges;
+    // Scale before the last step up, the frames measured since, and the current wait multiplier
+    private float mScaleBeforeUp;
+    private int mFramesSinceUp = -1;
+    private int mUpBackoff = 1;
+
+    /**
+     * @param targetNanos  Frame time to keep, e.g. 16666667 for 60 frames per second
+     */
+    public ESResolutionController(long targetNanos) {
+        mTargetNanos = targetNanos;
+        mSmoothedNanos = targetNanos;
+    }
+
+    /**
+     * brief Set the range of the scale; the current scale is clamped to it
+     */
+    public void setScaleRange(float minScale, float maxScale) {
+        mMinScale = minScale;
+        mMaxScale = maxScale;
+        mScale = clamp(mScale);
+    }
+
+    /**
+     * brief Tune the controller, see the class description
+     * @param step            Scale increment, and the granularity of every scale
+     * @param downThreshold   Frame time over target ratio that lowers the scale
+     * @param upThreshold     Frame time over target ratio a frame must stay below to count as good
+     * @param upFrames        Good frames in a row needed to raise the scale
+     * @param cooldownFrames  Frames ignored after a change
+     */
+    public void setTuning(float step, float downThreshold, float upThreshold, int upFrames, int cooldownFrames) {
+        mStep = step;
+        mDownThreshold = downThreshold;
+        mUpThreshold = upThreshold;
+        mUpFrames = upFrames;
+        mCooldownFrames = cooldownFrames;
+    }
+
+    /**
+     * brief Feed the time of one frame
+     * @param frameNanos  Time since the previous frame
+     * @return  true if the scale changed
+     */
+    public boolean update(long frameNanos) {
+        if (frameNanos <= 0 || frameNanos > MAX_FRAME_NANOS) {
+            return false;
+        }
+        if (mCooldown > 0) {
+            mCooldown--;
+            return false;
+        }
+        mSmoothedNanos += (frameNanos - mSmoothedNanos) * SMOOTHING;
+        mGoodFrames = frameNanos <= mTargetNanos * mUpThreshold ? mGoodFrames + 1 : 0;
+        if (mFramesSinceUp >= 0 && ++mFramesSinceUp > mUpFrames) {
+            // The last step up held
+            mFramesSinceUp = -1;
+        }
+
+        float scale = mScale;
+        boolean up = false;
+        double ratio = mSmoothedNanos / mTargetNanos;
+        if (ratio > mDownThreshold) {
+            if (mFramesSinceUp >= 0) {
+                // The step up was too much: go back and probe less often
+                scale = mScaleBeforeUp;
+                mUpBackoff = Math.min(mUpBackoff * 2, MAX_UP_BACKOFF);
+            } else {
+                float wanted = (float) (mScale / Math.sqrt(ratio));
+                // At least one step down, rounded down to a step
+                scale = Math.min(mScale - mStep, (float) Math.floor(wanted / mStep + 1e-3) * mStep);
+                // The load changed, probing can start over
+                mUpBackoff = 1;
+            }
+            mFramesSinceUp = -1;
+        } else if (mGoodFrames >= mUpFrames * mUpBackoff) {
+            scale = mScale + mStep;
+            up = true;
+        }
+        scale = clamp(scale);
+        if (Math.abs(scale - mScale) < 1e-4f) {
+            if (up) {
+                // Already at the maximum
+                mGoodFrames = 0;
+            }
+            return false;
+        }
+        if (up) {
+            mScaleBeforeUp = mScale;
+            mFramesSinceUp = 0;
+        }
+        mScale = scale;
+        mChanges++;
+        mCooldown = mCooldownFrames;
+        mGoodFrames = 0;
+        mSmoothedNanos = mTargetNanos;
+        return true;
+    }
+
+    private float clamp(float scale) {
+        return Math.max(mMinScale, Math.min(mMaxScale, scale));
+    }
+
+    public float getScale() {
+        return mScale;
+    }
+
+    /**
+     * @return  A surface dimension at the current scale, at least 1
+     */
+    public int getScaledSize(int size) {
+        return Math.max(1, Math.round(size * mScale));
+    }
+
+    public long getTargetNanos() {
+        return mTargetNanos;
+    }
+
+    public double getSmoothedFrameNanos() {
+        return mSmoothedNanos;
+    }
+
+    public int getChangeCount() {
+        return mChanges;
+    }
+}
@@ -0,0 +1,226 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESResolutionScaler
+//
+//    Dynamic resolution: the scene is rendered into an offscreen framebuffer at the scale
+//    chosen by an ESResolutionController, then upscaled to the window with one blit.
+//
+
+package com.openglesbook.common;
+
+import android.opengl.GLES30;
+import android.util.Log;
+
+/**
+ * The framebuffer is allocated once at the full surface size; lower scales render into
+ * its lower left corner, so a scale change costs no reallocation. Use from onDrawFrame():
+ * <pre>
+ *    mScaler.begin();      // binds the framebuffer and sets the viewport
+ *    ... draw the scene ...
+ *    mScaler.end();        // blits to the window, measures the frame
+ * </pre>
+ */
+public class ESResolutionScaler {
+    private static final String TAG = "ESResolutionScaler";
+
+    private final ESGL mGL;
+    private final ESResolutionController mController;
+    private final boolean mDepth;
+    private final int[] mIdScratch = new int[1];
+    private final int[] mInvalidateDepth = { GLES30.GL_DEPTH_ATTACHMENT };
+    private int mFramebuffer;
+    private int mColorRenderbuffer;
+    private int mDepthRenderbuffer;
+    private int mWidth;
+    private int mHeight;
+    private int mScaledWidth;
+    private int mScaledHeight;
+    private long mLastFrameStart;
+    private boolean mLogChanges = true;
+
+    /**
+     * @param controller  Chooses the scale
+     * @param depth       true to give the framebuffer a depth buffer
+     */
+    public ESResolutionScaler(ESResolutionController controller, boolean depth) {
+        this(ESGLES30.INSTANCE, controller, depth);
+    }
+
+    /**
+     * @param gl          GL entry points, e.g. an ESGLRecorder
+     * @param controller  Chooses the scale
+     * @param depth       true to give the framebuffer a depth buffer
+     */
+    public ESResolutionScaler(ESGL gl, ESResolutionController controller, boolean depth) {
+        mGL = gl;
+        mController = controller;
+        mDepth = depth;
+    }
+
+    /**
+     * brief Log every scale change at Log.INFO; on by default
+     */
+    public void setLogChanges(boolean logChanges) {
+        mLogChanges = logChanges;
+    }
+
+    /**
+     * brief (Re)create the framebuffer for a surface size; call from onSurfaceChanged()
+     * @return  false if the framebuffer is incomplete, the scene is then drawn to the window
+     */
+    public boolean resize(int width, int height) {
+        delete();
+        mWidth = width;
+        mHeight = height;
+        updateScaledSize();
+        mLastFrameStart = 0;
+
+        mGL.glGenRenderbuffers(1, mIdScratch, 0);
+        mColorRenderbuffer = mIdScratch[0];
+        mGL.glBindRenderbuffer(GLES30.GL_RENDERBUFFER, mColorRenderbuffer);
+        mGL.glRenderbufferStorage(GLES30.GL_RENDERBUFFER, GLES30.GL_RGBA8, width, height);
+        if (mDepth) {
+            mGL.glGenRenderbuffers(1, mIdScratch, 0);
+            mDepthRenderbuffer = mIdScratch[0];
+            mGL.glBindRenderbuffer(GLES30.GL_RENDERBUFFER, mDepthRenderbuffer);
+            mGL.glRenderbufferStorage(GLES30.GL_RENDERBUFFER, GLES30.GL_DEPTH_COMPONENT16, width, height);
+        }
+        mGL.glBindRenderbuffer(GLES30.GL_RENDERBUFFER, 0);
+
+        mGL.glGenFramebuffers(1, mIdScratch, 0);
+        mFramebuffer = mIdScratch[0];
+        mGL.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, mFramebuffer);
+        mGL.glFramebufferRenderbuffer(GLES30.GL_FRAMEBUFFER, GLES30.GL_COLOR_ATTACHMENT0,
+                GLES30.GL_RENDERBUFFER, mColorRenderbuffer);
+        if (mDepth) {
+            mGL.glFramebufferRenderbuffer(GLES30.GL_FRAMEBUFFER, GLES30.GL_DEPTH_ATTACHMENT,
+                    GLES30.GL_RENDERBUFFER, mDepthRenderbuffer);
+        }
+        int status = mGL.glCheckFramebufferStatus(GLES30.GL_FRAMEBUFFER);
+        mGL.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, 0);
+        if (status != GLES30.GL_FRAMEBUFFER_COMPLETE) {
+            Log.e(TAG, "Framebuffer incomplete: 0x" + Integer.toHexString(status));
+            delete();
+            return false;
+        }
+        return true;
+    }
+
+    private void updateScaledSize() {
+        mScaledWidth = mController.getScaledSize(mWidth);
+        mScaledHeight = mController.getScaledSize(mHeight);
+    }
+
+    /**
+     * brief Bind the offscreen framebuffer and set the viewport to the scaled size
+     */
+    public void begin() {
+        long now = System.nanoTime();
+        if (mLastFrameStart != 0 && mController.update(now - mLastFrameStart)) {
+            updateScaledSize();
+            if (mLogChanges) {
+                Log.i(TAG, "Scale " + mController.getScale() + " (" + mScaledWidth + "x" + mScaledHeight + ")");
+            }
+        }
+        mLastFrameStart = now;
+
+        if (mFramebuffer == 0) {
+            mGL.glViewport(0, 0, mWidth, mHeight);
+            return;
+        }
+        mGL.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, mFramebuffer);
+        mGL.glViewport(0, 0, mScaledWidth, mScaledHeight);
+    }
+
+    /**
+     * brief Upscale the scene to the window; leaves the window framebuffer bound
+     */
+    public void end() {
+        if (mFramebuffer == 0) {
+            return;
+        }
+        mGL.glBindFramebuffer(GLES30.GL_DRAW_FRAMEBUFFER, 0);
+        mGL.glBlitFramebuffer(0, 0, mScaledWidth, mScaledHeight, 0, 0, mWidth, mHeight,
+                GLES30.GL_COLOR_BUFFER_BIT, GLES30.GL_LINEAR);
+        if (mDepth) {
+            // The depth buffer is not needed after the frame; spares tiled GPUs storing it
+            mGL.glInvalidateFramebuffer(GLES30.GL_READ_FRAMEBUFFER, 1, mInvalidateDepth, 0);
+        }
+        mGL.glBindFramebuffer(GLES30.GL_FRAMEBUFFER, 0);
+    }
+
+    public float getScale() {
+        return mController.getScale();
+    }
+
+    public int getScaledWidth() {
+        return mScaledWidth;
+    }
+
+    public int getScaledHeight() {
+        return mScaledHeight;
+    }
+
+    public ESResolutionController getController() {
+        return mController;
+    }
+
+    /**
+     * brief Forget the framebuffer without deleting it; for a new context, where the old names are gone
+     */
+    public void reset() {
+        mFramebuffer = 0;
+        mColorRenderbuffer = 0;
+        mDepthRenderbuffer = 0;
+    }
+
+    /**
+     * brief Delete the framebuffer and its renderbuffers
+     */
+    public void delete() {
+        if (mFramebuffer != 0) {
+            mIdScratch[0] = mFramebuffer;
+            mGL.glDeleteFramebuffers(1, mIdScratch, 0);
+        }
+        if (mColorRenderbuffer != 0) {
+            mIdScratch[0] = mColorRenderbuffer;
+            mGL.glDeleteRenderbuffers(1, mIdScratch, 0);
+        }
+        if (mDepthRenderbuffer != 0) {
+            mIdScratch[0] = mDepthRenderbuffer;
+            mGL.glDeleteRenderbuffers(1, mIdScratch, 0);
+        }
+        reset();
+    }
+}
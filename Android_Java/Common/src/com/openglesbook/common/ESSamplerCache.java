@@ -0,0 +1,200 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESSamplerCache
+//
+//    Creates each distinct sampler object once and binds samplers to texture units,
+//    instead of changing texture parameters between draws.
+//
+
+package com.openglesbook.common;
+
+import android.opengl.GLES30;
+
+/**
+ * Samplers are keyed by their complete state: min/mag filter, S/T/R wrap modes, min/max LOD
+ * and compare mode/function. get() creates a sampler the first time a state is asked for
+ * and returns the same object afterwards; look samplers up once (e.g. in onSurfaceCreated)
+ * and only bind() them per frame. A bound sampler overrides the sampling state of the
+ * texture on that unit, so glTexParameteri disappears from the draw path.
+ * <p>
+ * The cache belongs to one GL context; create a new one in onSurfaceCreated.
+ */
+public class ESSamplerCache {
+    // Default LOD range of a sampler object
+    public static final float DEFAULT_MIN_LOD = -1000.0f;
+    public static final float DEFAULT_MAX_LOD = 1000.0f;
+
+    // Integer parameters per sampler: min, mag, wrap S, T, R, compare mode, compare func
+    private static final int INT_PARAMS = 7;
+
+    private int mCount;
+    private int[] mSamplers = new int[8];
+    private int[] mIntParams = new int[8 * INT_PARAMS];
+    private float[] mLods = new float[8 * 2];
+
+    private final ESGL mGL;
+    private final int[] mBound = new int[ESGLState.MAX_TEXTURE_UNITS];
+    private final int[] mSamplerId = new int[1];
+
+    public ESSamplerCache() {
+        this(ESGLES30.INSTANCE);
+    }
+
+    /**
+     * brief Create a cache that issues its GL calls through an ESGL, e.g. an ESGLRecorder
+     * @param gl  GL entry points
+     */
+    public ESSamplerCache(ESGL gl) {
+        mGL = gl;
+        invalidateBindings();
+    }
+
+    /**
+     * brief Sampler with the given filters and S/T wrap modes, everything else at its default
+     * @return  Sampler object
+     */
+    public int get(int minFilter, int magFilter, int wrapS, int wrapT) {
+        return get(minFilter, magFilter, wrapS, wrapT, GLES30.GL_REPEAT, DEFAULT_MIN_LOD, DEFAULT_MAX_LOD,
+                GLES30.GL_NONE, GLES30.GL_LEQUAL);
+    }
+
+    /**
+     * brief Sampler with the given complete state, created on first use
+     * @param minFilter    GL_TEXTURE_MIN_FILTER
+     * @param magFilter    GL_TEXTURE_MAG_FILTER
+     * @param wrapS        GL_TEXTURE_WRAP_S
+     * @param wrapT        GL_TEXTURE_WRAP_T
+     * @param wrapR        GL_TEXTURE_WRAP_R
+     * @param minLod       GL_TEXTURE_MIN_LOD
+     * @param maxLod       GL_TEXTURE_MAX_LOD
+     * @param compareMode  GL_TEXTURE_COMPARE_MODE, GL_NONE or GL_COMPARE_REF_TO_TEXTURE
+     * @param compareFunc  GL_TEXTURE_COMPARE_FUNC
+     * @return  Sampler object
+     */
+    public int get(int minFilter, int magFilter, int wrapS, int wrapT, int wrapR,
+                   float minLod, float maxLod, int compareMode, int compareFunc) {
+        for (int i = 0; i < mCount; i++) {
+            int p = i * INT_PARAMS;
+            if (mIntParams[p] == minFilter && mIntParams[p + 1] == magFilter
+                    && mIntParams[p + 2] == wrapS && mIntParams[p + 3] == wrapT && mIntParams[p + 4] == wrapR
+                    && mIntParams[p + 5] == compareMode && mIntParams[p + 6] == compareFunc
+                    && Float.floatToIntBits(mLods[i * 2]) == Float.floatToIntBits(minLod)
+                    && Float.floatToIntBits(mLods[i * 2 + 1]) == Float.floatToIntBits(maxLod)) {
+                return mSamplers[i];
+            }
+        }
+
+        mGL.glGenSamplers(1, mSamplerId, 0);
+        int sampler = mSamplerId[0];
+        mGL.glSamplerParameteri(sampler, GLES30.GL_TEXTURE_MIN_FILTER, minFilter);
+        mGL.glSamplerParameteri(sampler, GLES30.GL_TEXTURE_MAG_FILTER, magFilter);
+        mGL.glSamplerParameteri(sampler, GLES30.GL_TEXTURE_WRAP_S, wrapS);
+        mGL.glSamplerParameteri(sampler, GLES30.GL_TEXTURE_WRAP_T, wrapT);
+        mGL.glSamplerParameteri(sampler, GLES30.GL_TEXTURE_WRAP_R, wrapR);
+        mGL.glSamplerParameterf(sampler, GLES30.GL_TEXTURE_MIN_LOD, minLod);
+        mGL.glSamplerParameterf(sampler, GLES30.GL_TEXTURE_MAX_LOD, maxLod);
+        mGL.glSamplerParameteri(sampler, GLES30.GL_TEXTURE_COMPARE_MODE, compareMode);
+        mGL.glSamplerParameteri(sampler, GLES30.GL_TEXTURE_COMPARE_FUNC, compareFunc);
+
+        if (mCount == mSamplers.length) {
+            grow();
+        }
+        int p = mCount * INT_PARAMS;
+        mIntParams[p] = minFilter;
+        mIntParams[p + 1] = magFilter;
+        mIntParams[p + 2] = wrapS;
+        mIntParams[p + 3] = wrapT;
+        mIntParams[p + 4] = wrapR;
+        mIntParams[p + 5] = compareMode;
+        mIntParams[p + 6] = compareFunc;
+        mLods[mCount * 2] = minLod;
+        mLods[mCount * 2 + 1] = maxLod;
+        mSamplers[mCount++] = sampler;
+        return sampler;
+    }
+
+    /**
+     * brief Bind a sampler to a texture unit, skipping the call if it is already bound there
+     * @param unit     Texture unit index (not GL_TEXTURE0 based)
+     * @param sampler  Sampler object, 0 to use the texture's own parameters again
+     */
+    public void bind(int unit, int sampler) {
+        if (unit < mBound.length) {
+            if (mBound[unit] == sampler) {
+                return;
+            }
+            mBound[unit] = sampler;
+        }
+        mGL.glBindSampler(unit, sampler);
+    }
+
+    /**
+     * brief Forget which samplers are bound, e.g. after glBindSampler was called directly
+     */
+    public void invalidateBindings() {
+        for (int i = 0; i < mBound.length; i++) {
+            mBound[i] = -1;
+        }
+    }
+
+    /**
+     * brief Number of distinct sampler objects created
+     */
+    public int size() {
+        return mCount;
+    }
+
+    /**
+     * brief Delete every sampler object
+     */
+    public void delete() {
+        if (mCount > 0) {
+            mGL.glDeleteSamplers(mCount, mSamplers, 0);
+        }
+        mCount = 0;
+        invalidateBindings();
+    }
+
+    private void grow() {
+        int[] samplers = new int[mSamplers.length * 2];
+        int[] intParams = new int[mIntParams.length * 2];
+        float[] lods = new float[mLods.length * 2];
+        System.arraycopy(mSamplers, 0, samplers, 0, mCount);
+        System.arraycopy(mIntParams, 0, intParams, 0, mCount * INT_PARAMS);
+        System.arraycopy(mLods, 0, lods, 0, mCount * 2);
+        mSamplers = samplers;
+        mIntParams = intParams;
+        mLods = lods;
+    }
+}
@@ -37,36 +37,250 @@
 
 package com.openglesbook.common;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
 
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
 import android.opengl.GLES30;
 import android.util.Log;
 
 public class ESShader {
+    private static final String TAG = "ESShader";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Minimum android.util.Log priority that ESShader writes; shader sources are only dumped at Log.VERBOSE
+    private static int sLogLevel = Log.ERROR;
+
+    // Shader sources read from "assets", keyed by asset path
+    private static final HashMap<String, CachedSource> sSourceCache = new HashMap<String, CachedSource>();
+
+    // Development hot-reload, null unless enableDevMode was called
+    private static volatile ESShaderReloader sReloader;
+    private static long sLastPollTime;
+    private static final long DEV_POLL_INTERVAL_NS = 250000000L;
+
+    private static final ESShaderReloader.ProgramCompiler GL_COMPILER = new ESShaderReloader.ProgramCompiler() {
+        @Override
+        public int compile(String vertName, String fragName, String vertShaderSrc, String fragShaderSrc) {
+            return loadProgram(ESGLES30.INSTANCE, vertName + "|" + fragName, vertShaderSrc, fragShaderSrc);
+        }
+
+        @Override
+        public void delete(int programObject) {
+            ESGLES30.INSTANCE.glDeleteProgram(programObject);
+        }
+    };
+
+    private static class CachedSource {
+        final long stamp;
+        final String source;
+
+        CachedSource(long stamp, String source) {
+            this.stamp = stamp;
+            this.source = source;
+        }
+    }
+
+    /**
+     * brief Set the verbosity of ESShader logging
+     * @param level  Minimum android.util.Log priority to output (e.g. Log.VERBOSE to dump shader sources)
+     */
+    public static void setLogLevel(int level) {
+        sLogLevel = level;
+    }
+
+    /**
+     * brief Get the verbosity of ESShader logging
+     * @return  Minimum android.util.Log priority that is output
+     */
+    public static int getLogLevel() {
+        return sLogLevel;
+    }
+
+    static boolean isLoggable(int priority) {
+        return priority >= sLogLevel;
+    }
+
+    /**
+     * brief Enable development mode: shaders are read from a local directory before "assets",
+     * and programs loaded with loadProgramHandleFromAsset are rebuilt when their files change
+     * @param shaderRoot  Directory mirroring "assets", e.g. one pushed with adb to getExternalFilesDir(null)
+     */
+    public static synchronized void enableDevMode(File shaderRoot) {
+        sReloader = new ESShaderReloader(shaderRoot, GL_COMPILER);
+    }
+
+    public static synchronized void disableDevMode() {
+        sReloader = null;
+    }
+
+    public static synchronized boolean isDevMode() {
+        return sReloader != null;
+    }
+
+    /**
+     * brief In development mode, rebuild the programs whose shader files changed. Call once per frame
+     * on the GL thread; the file system is checked at most every 250 ms.
+     * @return  Number of programs swapped, 0 outside development mode
+     */
+    public static int pollDevMode() {
+        ESShaderReloader reloader;
+        synchronized (ESShader.class) {
+            reloader = sReloader;
+            long now = System.nanoTime();
+            if (reloader == null || now - sLastPollTime < DEV_POLL_INTERVAL_NS) {
+                return 0;
+            }
+            sLastPollTime = now;
+        }
+        int swapped = reloader.poll();
+        if (swapped > 0 && isLoggable(Log.INFO)) {
+            Log.i(TAG, "Reloaded " + swapped + " program(s)");
+        }
+        return swapped;
+    }
+
     /**
-     * brief Read a shader source into a String
+     * brief Drop all cached shader sources, forcing the next load to read them from "assets" again
+     */
+    public static void clearSourceCache() {
+        synchronized (sSourceCache) {
+            sSourceCache.clear();
+        }
+    }
+
+    /**
+     * brief Modification stamp of the assets, i.e. the time the APK was last written
+     * @param context  context
+     * @return  Stamp to compare cached sources against
+     */
+    private static long assetStamp(Context context) {
+        return new File(context.getApplicationInfo().sourceDir).lastModified();
+    }
+
+    /**
+     * brief Read a shader source into a String, using the cached copy if the assets have not changed
      * @param context    context
      * @param fileName  fileName Name of shader file
      * @return  A String object containing shader source, otherwise null
      */
     private static String readShader(Context context, String fileName) {
-        StringBuilder sb = new StringBuilder();
+        // The development copy wins over the asset, even one cached before dev mode was enabled
+        ESShaderReloader reloader = sReloader;
+        if (reloader != null) {
+            // Development copies are never cached, they are expected to change
+            try {
+                String source = reloader.readSource(fileName);
+                if (source != null) {
+                    return source;
+                }
+            } catch (IOException e) {
+                if (isLoggable(Log.WARN)) {
+                    Log.w(TAG, "Unable to read " + reloader.resolve(fileName) + ", using the asset", e);
+                }
+            }
+        }
+
+        long stamp = assetStamp(context);
+        synchronized (sSourceCache) {
+            CachedSource cached = sSourceCache.get(fileName);
+            if (cached != null && cached.stamp == stamp) {
+                return cached.source;
+            }
+        }
+
+        String source = readAsset(context.getAssets(), fileName);
+        if (source != null) {
+            synchronized (sSourceCache) {
+                sSourceCache.put(fileName, new CachedSource(stamp, source));
+            }
+        }
+        return source;
+    }
+
+    /**
+     * brief Read a whole asset in one go and decode it as UTF-8
+     * @param assets    AssetManager to read from
+     * @param fileName  Name of the asset
+     * @return  The decoded asset, otherwise null
+     */
+    private static String readAsset(AssetManager assets, String fileName) {
+        // Assets stored uncompressed in the APK can be mapped directly
+        AssetFileDescriptor afd = null;
         try {
-            InputStream is = context.getAssets().open(fileName);
-            BufferedReader br = new BufferedReader(new InputStreamReader(is));
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line).append("\n");
+            afd = assets.openFd(fileName);
+        } catch (IOException e) {
+            // Compressed asset, read it through a stream below
+        }
+        if (afd != null) {
+            FileInputStream fis = null;
+            try {
+                fis = afd.createInputStream();
+                MappedByteBuffer mapped = fis.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        afd.getStartOffset(), afd.getLength());
+                return UTF_8.decode(mapped).toString();
+            } catch (IOException e) {
+                // Fall back to the stream below
+            } finally {
+                closeQuietly(fis);
+                closeQuietly(afd);
             }
+        }
+
+        InputStream is = null;
+        try {
+            is = assets.open(fileName, AssetManager.ACCESS_BUFFER);
+            return readFully(is);
         } catch (IOException e) {
-            e.printStackTrace();
+            if (isLoggable(Log.ERROR)) {
+                Log.e(TAG, "Unable to read shader " + fileName, e);
+            }
+            return null;
+        } finally {
+            closeQuietly(is);
+        }
+    }
+
+    /**
+     * brief Read a stream to its end and decode it as UTF-8
+     * @param is  Stream whose available() is its remaining length, as for assets
+     * @return  The decoded contents
+     */
+    static String readFully(InputStream is) throws IOException {
+        // One byte more than available() lets the read that fills the data be followed by
+        // end of stream, without growing the array first
+        byte[] data = new byte[is.available() + 1];
+        int length = 0;
+        int read;
+        while ((read = is.read(data, length, data.length - length)) != -1) {
+            length += read;
+            if (length == data.length) {
+                // available() was short, which assets do not do
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+        }
+        return new String(data, 0, length, UTF_8);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing useful to do
+            }
         }
-        return sb.toString();
     }
 
     /**
@@ -76,22 +290,47 @@ public class ESShader {
      * @return  A new shader object on success, 0 on failure
      */
     public static int loadShader(int type, String shaderSrc) {
+        return loadShader(ESGLES30.INSTANCE, type, shaderSrc, null);
+    }
+
+    /**
+     * brief Like loadShader(int, String), with the GL calls issued through an ESGL, e.g. an ESGLRecorder
+     * @param gl     GL entry points
+     * @param type   Type of shader (GL_VERTEX_SHADER or GL_FRAGMENT_SHADER)
+     * @param shaderSrc shaderSrc Shader source string
+     * @return  A new shader object on success, 0 on failure
+     */
+    public static int loadShader(ESGL gl, int type, String shaderSrc) {
+        return loadShader(gl, type, shaderSrc, null);
+    }
+
+    /**
+     * brief Load a shader and record its compile time against a program in ESShaderStats
+     * @param gl     GL entry points
+     * @param type   Type of shader (GL_VERTEX_SHADER or GL_FRAGMENT_SHADER)
+     * @param shaderSrc shaderSrc Shader source string
+     * @param programName  Name the statistics are recorded under, null to record nothing
+     * @return  A new shader object on success, 0 on failure
+     */
+    private static int loadShader(ESGL gl, int type, String shaderSrc, String programName) {
         int shader;
         int[] compiled = new int[1];
+        boolean record = programName != null && ESShaderStats.isEnabled();
+        long startTime = record ? System.nanoTime() : 0;
         // Create the shader object
         // 调用glCreateShader将根据传入的type参数插件一个新的顶点着色器或者片段着色器
-        shader = GLES30.glCreateShader(type);
+        shader = gl.glCreateShader(type);
         if (shader == 0) {
             return 0;
         }
 
         // Load the shader source
         // glShaderSource函数把要编译的着色器对象作为第一个参数。第二参数 着色器真正的源码
-        GLES30.glShaderSource(shader, shaderSrc);
+        gl.glShaderSource(shader, shaderSrc);
 
         // Compile the shader
         // 编译着色器
-        GLES30.glCompileShader(shader);
+        gl.glCompileShader(shader);
 
         // Check the compile status
         // 检测编译时的状态，是编译错误还是编译成功
@@ -102,13 +341,24 @@ public class ESShader {
         //      GL_INFO_LOG_LENGTH
         //      GL_SHADER_SOURCE_LENGTH
         //      GL_SHADER_TYPE
-        GLES30.glGetShaderiv(shader, GLES30.GL_COMPILE_STATUS, compiled, 0);
+        gl.glGetShaderiv(shader, GLES30.GL_COMPILE_STATUS, compiled, 0);
+
+        // Compilation may be deferred until the status is queried, so the time includes the query
+        if (record) {
+            long compileTime = System.nanoTime() - startTime;
+            int[] infoLogLength = new int[1];
+            gl.glGetShaderiv(shader, GLES30.GL_INFO_LOG_LENGTH, infoLogLength, 0);
+            ESShaderStats.recordCompile(programName, compileTime, shaderSrc.length(), infoLogLength[0],
+                    compiled[0] != 0);
+        }
         // 如果着色器编译成功，结果将是GL_TRUE。如果编译失败，结果将为GL_FALSE，编译错误将写入信息日志
         if (compiled[0] == 0) {
             // 用glGetShaderInfoLog检索信息日志
-            Log.e("ESShader", GLES30.glGetShaderInfoLog(shader));
+            if (isLoggable(Log.ERROR)) {
+                Log.e(TAG, gl.glGetShaderInfoLog(shader));
+            }
             // 删除着色器对象
-            GLES30.glDeleteShader(shader);
+            gl.glDeleteShader(shader);
             return 0;
         }
         return shader;
@@ -121,51 +371,125 @@ public class ESShader {
      * @return   A new program object linked with the vertex/fragment shader pair, 0 on failure
      */
     public static int loadProgram(String vertShaderSrc, String fragShaderSrc) {
+        return loadProgram(ESGLES30.INSTANCE, vertShaderSrc, fragShaderSrc);
+    }
+
+    /**
+     * brief Like loadProgram(String, String), with the GL calls issued through an ESGL
+     * @param gl             GL entry points
+     * @param vertShaderSrc  Vertex shader source code
+     * @param fragShaderSrc  Fragment shader source code
+     * @return   A new program object linked with the vertex/fragment shader pair, 0 on failure
+     */
+    public static int loadProgram(ESGL gl, String vertShaderSrc, String fragShaderSrc) {
+        String programName = "inline:"
+                + Integer.toHexString(31 * vertShaderSrc.hashCode() + fragShaderSrc.hashCode());
+        return loadProgram(gl, programName, vertShaderSrc, fragShaderSrc);
+    }
+
+    /**
+     * brief Load a vertex and fragment shader, create a program object, link program and record
+     * compile and link times in ESShaderStats
+     * @param gl             GL entry points
+     * @param programName    Name the statistics are recorded under
+     * @param vertShaderSrc  Vertex shader source code
+     * @param fragShaderSrc  Fragment shader source code
+     * @return   A new program object linked with the vertex/fragment shader pair, 0 on failure
+     */
+    private static int loadProgram(ESGL gl, String programName, String vertShaderSrc, String fragShaderSrc) {
         int vertexShader;
         int fragmentShader;
         int programObject;
         int[] linked = new int[1];
 
         // Load the vertex/fragment shaders
-        vertexShader = loadShader(GLES30.GL_VERTEX_SHADER, vertShaderSrc);
+        vertexShader = loadShader(gl, GLES30.GL_VERTEX_SHADER, vertShaderSrc, programName);
 
         if (vertexShader == 0) {
             return 0;
         }
 
-        fragmentShader = loadShader(GLES30.GL_FRAGMENT_SHADER, fragShaderSrc);
+        fragmentShader = loadShader(gl, GLES30.GL_FRAGMENT_SHADER, fragShaderSrc, programName);
 
         if (fragmentShader == 0) {
-            GLES30.glDeleteShader(vertexShader);
+            gl.glDeleteShader(vertexShader);
             return 0;
         }
 
         // Create the program object
-        programObject = GLES30.glCreateProgram();
+        programObject = gl.glCreateProgram();
 
         if (programObject == 0) {
+            if (ESShaderStats.isEnabled()) {
+                // Close the load the two compiles were recorded against
+                ESShaderStats.recordFailedLoad(programName);
+            }
+            gl.glDeleteShader(vertexShader);
+            gl.glDeleteShader(fragmentShader);
             return 0;
         }
 
-        GLES30.glAttachShader(programObject, vertexShader);
-        GLES30.glAttachShader(programObject, fragmentShader);
+        // 在OpenGL ES3.0中，每个程序对象必须连接一个顶点着色器和一个片段着色器
+        // 把之前编译的着色器附加到程序对象上
+        // 着色器可以在任何时候连接-----在连接到程序之前不一定需要编译，甚至可以没有源代码。
+        // 唯一要求是：每个程序对象必须有且只有一个顶点着色器和一个片段着色器与之连接
+        // 除了连接着色器之外，你还可以用glDetachShader断开着色器的连接
+        gl.glAttachShader(programObject, vertexShader);
+        gl.glAttachShader(programObject, fragmentShader);
 
         // Link the program
-        GLES30.glLinkProgram(programObject);
+        // 链接操作负责生成最终的可执行的程序。
+        // 一般来说，链接阶段是生成在硬件上运行的最终硬件指令的时候
+        boolean record = ESShaderStats.isEnabled();
+        long startTime = record ? System.nanoTime() : 0;
+        gl.glLinkProgram(programObject);
+
+        // Check the link status  检测链接着色器程序是否失败
+        // pname 获取信息的参数，可以是
+        //      GL_ACTIVE_ATTRIBUTES        返回顶点着色器中活动属性的数量
+        //      GL_ACTIVE_ATTRIBUTE_MAX_LENGTH      返回最大属性名称的最大长度（以字符数表示），这一信息用于确定存储属性名字符串所需的内存量
+        //      GL_ACTIVE_UNIFORM_BLOCK     返回包含活动统一变量的程序中的统一变量块数量
+        //      GL_ACTIVE_UNIFORM_BLOCK_MAX_LENGTH        返回包含活动统一变量的程序中的统一变量块名称的最大长度
+        //      GL_ACTIVE_UNIFORMS      返回活动统一变量的数量
+        //      GL_ACTIVE_UNIFORM_MAX_LENGTH     返回最大统一变量名称的最大长度
+        //      GL_ATTACHED_SHADERS   返回连接到程序对象的着色器数量
+        //      GL_DELETE_STATUS   查询返回程序对象是否已经标记为删除
+        //      GL_LINK_STATUS      检查链接是否成功
+        //      GL_INFO_LOG_LENGTH   程序对象存储的信息日志长度
+        //      GL_LINK_STATUS          链接是否成功
+        //      GL_PROGRAM_BINARY_RETRIEVABLE_HINT  返回一个表示程序目前是否启用二进制检索提示的值
+        //      GL_TRANSFORM_FEEDBACK_BUFFER_MODE   返回GL_SEPARATE_ATTRIBS 或 GL_INTERLEAVED_ATTRIBS 表示变化反馈启用时的缓冲区模式
+        //      GL_TRANSFORM_FEEDBACK_VARYINGS     返回程序的变化反馈模式中捕捉的输出变量
+        //      GL_TRANSFORM_FEEDBACK_VARYING_MAX_LENGTH        返回程序的变化反馈模式中捕捉的输出变量名称的最大长度
+        //      GL_VALIDATE_STATUS  查询最后一个校验操作的状态
+        gl.glGetProgramiv(programObject, GLES30.GL_LINK_STATUS, linked, 0);
 
-        // Check the link status
-        GLES30.glGetProgramiv(programObject, GLES30.GL_LINK_STATUS, linked, 0);
+        if (record) {
+            long linkTime = System.nanoTime() - startTime;
+            int[] infoLogLength = new int[1];
+            gl.glGetProgramiv(programObject, GLES30.GL_INFO_LOG_LENGTH, infoLogLength, 0);
+            ESShaderStats.recordLink(programName, linkTime, infoLogLength[0], linked[0] != 0);
+        }
 
         if (linked[0] == 0) {
-            Log.e("ESShader", "Error linking program:");
-            Log.e("ESShader", GLES30.glGetProgramInfoLog(programObject));
-            GLES30.glDeleteProgram(programObject);
+            if (isLoggable(Log.ERROR)) {
+                Log.e(TAG, "Error linking program:");
+                // 获取着色器对象的信息日志
+                Log.e(TAG, gl.glGetProgramInfoLog(programObject));
+            }
+            // 删除一个程序对象
+            gl.glDeleteProgram(programObject);
+            gl.glDeleteShader(vertexShader);
+            gl.glDeleteShader(fragmentShader);
             return 0;
         }
 
         // Free up no longer needed shader resources
-        GLES30.glDeleteShader(vertexShader);
-        GLES30.glDeleteShader(fragmentShader);
+        gl.glDeleteShader(vertexShader);
+        gl.glDeleteShader(fragmentShader);
+
+        // Attach the shared uniform blocks (PerFrame, PerView, ...) the program declares
+        ESUniformBlock.bindSharedBlocks(gl, programObject);
 
         return programObject;
     }
@@ -178,94 +502,68 @@ public class ESShader {
      * @return A new program object linked with the vertex/fragment shader pair, 0 on failure
      */
     public static int loadProgramFromAsset(Context context, String vertexShaderFileName, String fragShaderFileName) {
-        int vertexShader;
-        int fragmentShader;
-        int programObject;
-        int[] linked = new int[1];
+        return loadProgramFromAsset(ESGLES30.INSTANCE, context, vertexShaderFileName, fragShaderFileName);
+    }
 
-        String vertShaderSrc = null;
-        String fragShaderSrc = null;
+    /**
+     * brief Like loadProgramFromAsset(Context, String, String), with the GL calls issued through an
+     * ESGL. In development mode the sources come from the shader root and context is not used.
+     * @param gl      GL entry points
+     * @param context context
+     * @param vertexShaderFileName  Vertex shader source file name
+     * @param fragShaderFileName    Fragment shader source file name
+     * @return A new program object linked with the vertex/fragment shader pair, 0 on failure
+     */
+    public static int loadProgramFromAsset(ESGL gl, Context context, String vertexShaderFileName,
+                                           String fragShaderFileName) {
+        String vertShaderSrc;
+        String fragShaderSrc;
 
         // Read vertex shader from assets
         vertShaderSrc = readShader(context, vertexShaderFileName);
-        System.out.println("  vertShaderSrc = " + vertShaderSrc);
         if (vertShaderSrc == null) {
             return 0;
         }
+        if (isLoggable(Log.VERBOSE)) {
+            Log.v(TAG, "vertShaderSrc = " + vertShaderSrc);
+        }
 
         // Read fragment shader from assets
         fragShaderSrc = readShader(context, fragShaderFileName);
-        System.out.println("  fragShaderSrc = " + fragShaderSrc);
         if (fragShaderSrc == null) {
             return 0;
         }
-
-        // Load the vertex shader
-        vertexShader = loadShader(GLES30.GL_VERTEX_SHADER, vertShaderSrc);
-        if (vertexShader == 0) {
-            GLES30.glDeleteShader(vertexShader);
-            return 0;
+        if (isLoggable(Log.VERBOSE)) {
+            Log.v(TAG, "fragShaderSrc = " + fragShaderSrc);
         }
 
-        // Load the fragment shader
-        fragmentShader = loadShader(GLES30.GL_FRAGMENT_SHADER, fragShaderSrc);
-        if (fragmentShader == 0) {
-            GLES30.glDeleteShader(fragmentShader);
-            return 0;
-        }
+        return loadProgram(gl, vertexShaderFileName + "|" + fragShaderFileName, vertShaderSrc, fragShaderSrc);
+    }
 
-        // Create the program object
-        programObject = GLES30.glCreateProgram();
-        if (programObject == 0) {
-            return 0;
+    /**
+     * brief Like loadProgramFromAsset, but returns a handle that is updated in place when
+     * development mode rebuilds the program
+     * @param context context
+     * @param vertexShaderFileName  Vertex shader source file name
+     * @param fragShaderFileName    Fragment shader source file name
+     * @return A handle to the program object, whose get() is 0 on failure
+     */
+    public static ESShaderReloader.Handle loadProgramHandleFromAsset(Context context, String vertexShaderFileName,
+                                                                     String fragShaderFileName) {
+        String vertShaderSrc = readShader(context, vertexShaderFileName);
+        String fragShaderSrc = readShader(context, fragShaderFileName);
+        int programObject = 0;
+        if (vertShaderSrc != null && fragShaderSrc != null) {
+            programObject = loadProgram(ESGLES30.INSTANCE, vertexShaderFileName + "|" + fragShaderFileName,
+                    vertShaderSrc, fragShaderSrc);
         }
 
-        // 在OpenGL ES3.0中，每个程序对象必须连接一个顶点着色器和一个片段着色器
-        // 把之前编译的着色器附加到程序对象上
-        // 着色器可以在任何时候连接-----在连接到程序之前不一定需要编译，甚至可以没有源代码。
-        // 唯一要求是：每个程序对象必须有且只有一个顶点着色器和一个片段着色器与之连接
-        // 除了连接着色器之外，你还可以用glDetachShader断开着色器的连接
-        GLES30.glAttachShader(programObject, vertexShader);
-        GLES30.glAttachShader(programObject, fragmentShader);
-
-        // Link the program
-        // 链接操作负责生成最终的可执行的程序。
-        // 一般来说，链接阶段是生成在硬件上运行的最终硬件指令的时候
-        GLES30.glLinkProgram(programObject);
-
-        // Check the link status  检测链接着色器程序是否失败
-        // pname 获取信息的参数，可以是
-        //      GL_ACTIVE_ATTRIBUTES        返回顶点着色器中活动属性的数量
-        //      GL_ACTIVE_ATTRIBUTE_MAX_LENGTH      返回最大属性名称的最大长度（以字符数表示），这一信息用于确定存储属性名字符串所需的内存量
-        //      GL_ACTIVE_UNIFORM_BLOCK     返回包含活动统一变量的程序中的统一变量块数量
-        //      GL_ACTIVE_UNIFORM_BLOCK_MAX_LENGTH        返回包含活动统一变量的程序中的统一变量块名称的最大长度
-        //      GL_ACTIVE_UNIFORMS      返回活动统一变量的数量
-        //      GL_ACTIVE_UNIFORM_MAX_LENGTH     返回最大统一变量名称的最大长度
-        //      GL_ATTACHED_SHADERS   返回连接到程序对象的着色器数量
-        //      GL_DELETE_STATUS   查询返回程序对象是否已经标记为删除
-        //      GL_LINK_STATUS      检查链接是否成功
-        //      GL_INFO_LOG_LENGTH   程序对象存储的信息日志长度
-        //      GL_LINK_STATUS          链接是否成功
-        //      GL_PROGRAM_BINARY_RETRIEVABLE_HINT  返回一个表示程序目前是否启用二进制检索提示的值
-        //      GL_TRANSFORM_FEEDBACK_BUFFER_MODE   返回GL_SEPARATE_ATTRIBS 或 GL_INTERLEAVED_ATTRIBS 表示变化反馈启用时的缓冲区模式
-        //      GL_TRANSFORM_FEEDBACK_VARYINGS     返回程序的变化反馈模式中捕捉的输出变量
-        //      GL_TRANSFORM_FEEDBACK_VARYING_MAX_LENGTH        返回程序的变化反馈模式中捕捉的输出变量名称的最大长度
-        //      GL_VALIDATE_STATUS  查询最后一个校验操作的状态
-        GLES30.glGetProgramiv(programObject, GLES30.GL_LINK_STATUS, linked, 0);
-
-        if (linked[0] == 0) {
-            Log.e("ESShader", "Error linking program:");
-            // 获取着色器对象的信息日志
-            Log.e("ESShader", GLES30.glGetProgramInfoLog(programObject));
-            // 删除一个程序对象
-            GLES30.glDeleteProgram(programObject);
-            return 0;
+        ESShaderReloader reloader = sReloader;
+        if (reloader == null) {
+            return new ESShaderReloader.Handle(vertexShaderFileName, fragShaderFileName,
+                    vertShaderSrc, fragShaderSrc, programObject);
         }
-
-        // Free up no longer needed shader resources
-        GLES30.glDeleteShader(vertexShader);
-        GLES30.glDeleteShader(fragmentShader);
-
-        return programObject;
+        return reloader.register(vertexShaderFileName, fragShaderFileName, vertShaderSrc, fragShaderSrc,
+                programObject);
     }
 }
@@ -0,0 +1,302 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESShaderReloader
+//
+//    Development hot-reload of shader programs from a local directory.
+//
+
+package com.openglesbook.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Watches the shader files of registered programs under a root directory (a desktop
+ * checkout, or a directory pushed to the device with adb). poll() compares the
+ * modification time and length of every file, recompiles only the programs that use a
+ * changed file and swaps the new program object into the live Handle. A program that
+ * fails to compile or link leaves the old one in place.
+ * <p>
+ * GL access goes through ProgramCompiler, so the watch and swap logic runs without a GPU.
+ * Except for the compiler, nothing here touches GL or Android classes; poll() must be
+ * called on the thread that owns the GL context.
+ */
+public class ESShaderReloader {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Stamp of a file that does not exist
+    private static final Stamp MISSING = new Stamp(0, -1);
+
+    /**
+     * Creates and deletes program objects
+     */
+    public interface ProgramCompiler {
+        /**
+         * @return  A new linked program object, 0 on failure
+         */
+        int compile(String vertName, String fragName, String vertShaderSrc, String fragShaderSrc);
+
+        void delete(int programObject);
+    }
+
+    /**
+     * Live reference to a program that may be replaced by poll()
+     */
+    public static class Handle {
+        private final String mVertName;
+        private final String mFragName;
+        private String mVertSrc;
+        private String mFragSrc;
+        private volatile int mProgramObject;
+        private volatile int mGeneration;
+
+        Handle(String vertName, String fragName, String vertSrc, String fragSrc, int programObject) {
+            mVertName = vertName;
+            mFragName = fragName;
+            mVertSrc = vertSrc;
+            mFragSrc = fragSrc;
+            mProgramObject = programObject;
+        }
+
+        /**
+         * brief Current program object, use it instead of caching the id
+         */
+        public int get() {
+            return mProgramObject;
+        }
+
+        /**
+         * brief Incremented on every swap; uniform locations must be queried again when it changes
+         */
+        public int getGeneration() {
+            return mGeneration;
+        }
+
+        public String getVertName() {
+            return mVertName;
+        }
+
+        public String getFragName() {
+            return mFragName;
+        }
+    }
+
+    /**
+     * Modification time and length of a file. Both are compared: the length catches
+     * rewrites within the file system's timestamp granularity.
+     */
+    private static final class Stamp {
+        final long lastModified;
+        final long length;
+
+        Stamp(long lastModified, long length) {
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+
+        boolean matches(Stamp other) {
+            return lastModified == other.lastModified && length == other.length;
+        }
+    }
+
+    private final File mRoot;
+    private final ProgramCompiler mCompiler;
+    private final ArrayList<Handle> mHandles = new ArrayList<Handle>();
+    private final HashMap<String, Stamp> mStamps = new HashMap<String, Stamp>();
+    private final HashSet<String> mChanged = new HashSet<String>();
+    private int mFailedReloads;
+
+    /**
+     * @param root      Directory the shader names are resolved against
+     * @param compiler  Creates and deletes program objects
+     */
+    public ESShaderReloader(File root, ProgramCompiler compiler) {
+        mRoot = root;
+        mCompiler = compiler;
+    }
+
+    public File getRoot() {
+        return mRoot;
+    }
+
+    /**
+     * brief The file a shader name maps to under the root
+     * @param name  Shader name, e.g. "shaders/vertexShader.vert"
+     * @return  The file, which may not exist
+     */
+    public File resolve(String name) {
+        return new File(mRoot, name);
+    }
+
+    /**
+     * brief Read a shader from the root directory
+     * @param name  Shader name
+     * @return  The source, or null if there is no such file
+     */
+    public String readSource(String name) throws IOException {
+        File file = resolve(name);
+        if (!file.isFile()) {
+            return null;
+        }
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            byte[] data = new byte[(int) file.length()];
+            int length = 0;
+            int read;
+            while (length < data.length && (read = fis.read(data, length, data.length - length)) != -1) {
+                length += read;
+            }
+            return new String(data, 0, length, UTF_8);
+        } finally {
+            fis.close();
+        }
+    }
+
+    /**
+     * brief Start watching the shaders of a program
+     * @param vertName       Vertex shader name
+     * @param fragName       Fragment shader name
+     * @param vertSrc        Vertex shader source the program was built from
+     * @param fragSrc        Fragment shader source the program was built from
+     * @param programObject  The program object, may be 0 if the first build failed
+     * @return  The live handle to draw with
+     */
+    public synchronized Handle register(String vertName, String fragName, String vertSrc, String fragSrc,
+                                        int programObject) {
+        Handle handle = new Handle(vertName, fragName, vertSrc, fragSrc, programObject);
+        mHandles.add(handle);
+        if (!mStamps.containsKey(vertName)) {
+            mStamps.put(vertName, stamp(vertName));
+        }
+        if (!mStamps.containsKey(fragName)) {
+            mStamps.put(fragName, stamp(fragName));
+        }
+        return handle;
+    }
+
+    /**
+     * brief Stop watching a program; its current program object is left alone
+     */
+    public synchronized void unregister(Handle handle) {
+        mHandles.remove(handle);
+    }
+
+    /**
+     * brief Recompile the programs whose shader files changed since the last poll
+     * @return  Number of programs swapped
+     */
+    public synchronized int poll() {
+        mChanged.clear();
+        for (String name : mStamps.keySet()) {
+            if (!stamp(name).matches(mStamps.get(name))) {
+                mChanged.add(name);
+            }
+        }
+        if (mChanged.isEmpty()) {
+            return 0;
+        }
+        for (String name : mChanged) {
+            mStamps.put(name, stamp(name));
+        }
+
+        int swapped = 0;
+        for (int i = 0; i < mHandles.size(); i++) {
+            Handle handle = mHandles.get(i);
+            if (mChanged.contains(handle.mVertName) || mChanged.contains(handle.mFragName)) {
+                if (reload(handle)) {
+                    swapped++;
+                } else {
+                    mFailedReloads++;
+                }
+            }
+        }
+        return swapped;
+    }
+
+    /**
+     * brief Number of reloads that kept the old program because the new one did not build
+     */
+    public synchronized int getFailedReloads() {
+        return mFailedReloads;
+    }
+
+    private boolean reload(Handle handle) {
+        String vertSrc;
+        String fragSrc;
+        try {
+            vertSrc = readSource(handle.mVertName);
+            fragSrc = readSource(handle.mFragName);
+        } catch (IOException e) {
+            return false;
+        }
+        // A stage missing from the root keeps its last good source
+        if (vertSrc == null) {
+            vertSrc = handle.mVertSrc;
+        }
+        if (fragSrc == null) {
+            fragSrc = handle.mFragSrc;
+        }
+        if (vertSrc == null || fragSrc == null) {
+            return false;
+        }
+
+        int programObject = mCompiler.compile(handle.mVertName, handle.mFragName, vertSrc, fragSrc);
+        if (programObject == 0) {
+            return false;
+        }
+
+        int oldProgramObject = handle.mProgramObject;
+        handle.mVertSrc = vertSrc;
+        handle.mFragSrc = fragSrc;
+        handle.mProgramObject = programObject;
+        handle.mGeneration++;
+        if (oldProgramObject != 0) {
+            mCompiler.delete(oldProgramObject);
+        }
+        return true;
+    }
+
+    private Stamp stamp(String name) {
+        File file = resolve(name);
+        if (!file.isFile()) {
+            return MISSING;
+        }
+        return new Stamp(file.lastModified(), file.length());
+    }
+}
@@ -0,0 +1,309 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+// ESShaderStats
+//
+//    Compile and link statistics recorded by ESShader, per program.
+//
+
+package com.openglesbook.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+public class ESShaderStats {
+    /**
+     * Number of histogram buckets. Bucket i counts times in [2^i, 2^(i+1)) microseconds,
+     * the last bucket also counts everything slower.
+     */
+    public static final int BUCKET_COUNT = 24;
+
+    // Read on the GL thread, possibly set from another
+    private static volatile boolean sEnabled = true;
+
+    private static final HashMap<String, Record> sRecords = new HashMap<String, Record>();
+
+    /**
+     * Immutable snapshot of the statistics of one program
+     */
+    public static class ProgramStats {
+        public final String name;
+        // Program loads attempted, and how many of them failed to compile or link
+        public final int loads;
+        public final int failures;
+        public final int shaderCompiles;
+        public final long compileNanosTotal;
+        public final long compileNanosMax;
+        public final long linkNanosTotal;
+        public final long linkNanosMax;
+        // Source and info log sizes of the most recent load
+        public final int sourceLength;
+        public final int infoLogLength;
+        public final int[] compileHistogram;
+        public final int[] linkHistogram;
+
+        ProgramStats(Record r) {
+            name = r.name;
+            loads = r.loads;
+            failures = r.failures;
+            shaderCompiles = r.shaderCompiles;
+            compileNanosTotal = r.compileNanosTotal;
+            compileNanosMax = r.compileNanosMax;
+            linkNanosTotal = r.linkNanosTotal;
+            linkNanosMax = r.linkNanosMax;
+            sourceLength = r.sourceLength;
+            infoLogLength = r.infoLogLength;
+            compileHistogram = r.compileHistogram.clone();
+            linkHistogram = r.linkHistogram.clone();
+        }
+    }
+
+    static class Record {
+        final String name;
+        int loads;
+        int failures;
+        int shaderCompiles;
+        long compileNanosTotal;
+        long compileNanosMax;
+        long linkNanosTotal;
+        long linkNanosMax;
+        int sourceLength;
+        int infoLogLength;
+        int pendingSourceLength;
+        int pendingInfoLogLength;
+        final int[] compileHistogram = new int[BUCKET_COUNT];
+        final int[] linkHistogram = new int[BUCKET_COUNT];
+
+        Record(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * brief Turn recording on or off; recording is on by default
+     * @param enabled  true to record compile and link statistics
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * brief Discard everything recorded so far
+     */
+    public static synchronized void reset() {
+        sRecords.clear();
+    }
+
+    /**
+     * brief Histogram bucket for a duration
+     * @param nanos  Duration in nanoseconds
+     * @return  Index into a histogram of BUCKET_COUNT buckets
+     */
+    public static int bucketFor(long nanos) {
+        long micros = nanos / 1000;
+        if (micros <= 0) {
+            return 0;
+        }
+        int bucket = 63 - Long.numberOfLeadingZeros(micros);
+        return bucket < BUCKET_COUNT ? bucket : BUCKET_COUNT - 1;
+    }
+
+    static synchronized void recordCompile(String name, long nanos, int sourceLength, int infoLogLength,
+                                           boolean success) {
+        Record r = record(name);
+        r.shaderCompiles++;
+        r.compileNanosTotal += nanos;
+        r.compileNanosMax = Math.max(r.compileNanosMax, nanos);
+        r.compileHistogram[bucketFor(nanos)]++;
+        r.pendingSourceLength += sourceLength;
+        r.pendingInfoLogLength += infoLogLength;
+        if (!success) {
+            // The program is abandoned before linking
+            finishLoad(r, false);
+        }
+    }
+
+    static synchronized void recordLink(String name, long nanos, int infoLogLength, boolean success) {
+        Record r = record(name);
+        r.linkNanosTotal += nanos;
+        r.linkNanosMax = Math.max(r.linkNanosMax, nanos);
+        r.linkHistogram[bucketFor(nanos)]++;
+        r.pendingInfoLogLength += infoLogLength;
+        finishLoad(r, success);
+    }
+
+    // The load ended before linking, e.g. glCreateProgram failed; no link time is recorded
+    static synchronized void recordFailedLoad(String name) {
+        finishLoad(record(name), false);
+    }
+
+    private static void finishLoad(Record r, boolean success) {
+        r.loads++;
+        if (!success) {
+            r.failures++;
+        }
+        r.sourceLength = r.pendingSourceLength;
+        r.infoLogLength = r.pendingInfoLogLength;
+        r.pendingSourceLength = 0;
+        r.pendingInfoLogLength = 0;
+    }
+
+    private static Record record(String name) {
+        Record r = sRecords.get(name);
+        if (r == null) {
+            r = new Record(name);
+            sRecords.put(name, r);
+        }
+        return r;
+    }
+
+    /**
+     * brief Take a consistent copy of the statistics of every program
+     * @return  One entry per program, sorted by name
+     */
+    public static synchronized List<ProgramStats> snapshot() {
+        List<ProgramStats> result = new ArrayList<ProgramStats>(sRecords.size());
+        for (Record r : sRecords.values()) {
+            result.add(new ProgramStats(r));
+        }
+        Collections.sort(result, new Comparator<ProgramStats>() {
+            @Override
+            public int compare(ProgramStats a, ProgramStats b) {
+                return a.name.compareTo(b.name);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * brief Statistics of a single program
+     * @param name  Program name: "vertexAsset|fragmentAsset" for loadProgramFromAsset,
+     *              "inline:" followed by a hash of both sources for loadProgram
+     * @return  A snapshot, or null if nothing was recorded for the program
+     */
+    public static synchronized ProgramStats get(String name) {
+        Record r = sRecords.get(name);
+        return r != null ? new ProgramStats(r) : null;
+    }
+
+    /**
+     * brief Dump all statistics as CSV, one line per program, histograms as ';' separated bucket counts
+     * @return  CSV text with a header line
+     */
+    public static String toCsv() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("name,loads,failures,shaderCompiles,compileNanosTotal,compileNanosMax,")
+          .append("linkNanosTotal,linkNanosMax,sourceLength,infoLogLength,compileHistogram,linkHistogram\n");
+        for (ProgramStats s : snapshot()) {
+            sb.append('"').append(s.name.replace("\"", "\"\"")).append('"').append(',')
+              .append(s.loads).append(',')
+              .append(s.failures).append(',')
+              .append(s.shaderCompiles).append(',')
+              .append(s.compileNanosTotal).append(',')
+              .append(s.compileNanosMax).append(',')
+              .append(s.linkNanosTotal).append(',')
+              .append(s.linkNanosMax).append(',')
+              .append(s.sourceLength).append(',')
+              .append(s.infoLogLength).append(',');
+            appendHistogram(sb, s.compileHistogram, ';');
+            sb.append(',');
+            appendHistogram(sb, s.linkHistogram, ';');
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * brief Dump all statistics as a JSON array of objects, one per program
+     * @return  JSON text
+     */
+    public static String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        boolean first = true;
+        for (ProgramStats s : snapshot()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("\n  {\"name\":");
+            appendJsonString(sb, s.name);
+            sb.append(",\"loads\":").append(s.loads)
+              .append(",\"failures\":").append(s.failures)
+              .append(",\"shaderCompiles\":").append(s.shaderCompiles)
+              .append(",\"compileNanosTotal\":").append(s.compileNanosTotal)
+              .append(",\"compileNanosMax\":").append(s.compileNanosMax)
+              .append(",\"linkNanosTotal\":").append(s.linkNanosTotal)
+              .append(",\"linkNanosMax\":").append(s.linkNanosMax)
+              .append(",\"sourceLength\":").append(s.sourceLength)
+              .append(",\"infoLogLength\":").append(s.infoLogLength)
+              .append(",\"compileHistogram\":[");
+            appendHistogram(sb, s.compileHistogram, ',');
+            sb.append("],\"linkHistogram\":[");
+            appendHistogram(sb, s.linkHistogram, ',');
+            sb.append("]}");
+        }
+        sb.append(first ? "]\n" : "\n]\n");
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, int[] histogram, char separator) {
+        for (int i = 0; i < histogram.length; i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+            sb.append(histogram[i]);
+        }
+    }
+
+    private static void appendJsonString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
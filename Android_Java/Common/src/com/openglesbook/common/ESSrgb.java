@@ -0,0 +1,110 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESSrgb
+//
+//    Conversions between 8 bit sRGB and linear intensity through lookup tables.
+//
+
+package com.openglesbook.common;
+
+public class ESSrgb {
+    // Linear intensity of every sRGB byte
+    private static final float[] TO_LINEAR = new float[256];
+    // THRESHOLDS[k] is the linear intensity halfway, in sRGB, between bytes k and k + 1;
+    // the last one is never reached
+    private static final float[] THRESHOLDS = new float[256];
+    // Result for the start of [i / COARSE_STEPS, (i + 1) / COARSE_STEPS). The steps are finer
+    // than the smallest distance between thresholds, so at most one threshold is in a step.
+    private static final int COARSE_STEPS = 1 << 14;
+    private static final byte[] COARSE = new byte[COARSE_STEPS + 1];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            TO_LINEAR[i] = (float) decode(i / 255.0);
+        }
+        for (int k = 0; k < 255; k++) {
+            // The smallest float that rounds up, so every float input rounds exactly
+            double half = (k + 0.5) / 255.0;
+            float t = (float) decode(half);
+            while (encode(t) < half) {
+                t = Math.nextUp(t);
+            }
+            while (encode(Math.nextAfter(t, 0.0)) >= half) {
+                t = Math.nextAfter(t, 0.0);
+            }
+            THRESHOLDS[k] = t;
+        }
+        THRESHOLDS[255] = Float.POSITIVE_INFINITY;
+        int b = 0;
+        for (int i = 0; i <= COARSE_STEPS; i++) {
+            while (b < 255 && THRESHOLDS[b] <= (float) i / COARSE_STEPS) {
+                b++;
+            }
+            COARSE[i] = (byte) b;
+        }
+    }
+
+    private static double decode(double s) {
+        return s <= 0.04045 ? s / 12.92 : Math.pow((s + 0.055) / 1.055, 2.4);
+    }
+
+    private static double encode(double l) {
+        return l <= 0.0031308 ? l * 12.92 : 1.055 * Math.pow(l, 1.0 / 2.4) - 0.055;
+    }
+
+    /**
+     * brief Linear intensity of an sRGB value
+     * @param value  sRGB byte, 0 to 255
+     * @return  Intensity from 0 to 1
+     */
+    public static float toLinear(int value) {
+        return TO_LINEAR[value];
+    }
+
+    /**
+     * brief sRGB byte nearest, in sRGB, to a linear intensity
+     * @param linear  Intensity from 0 to 1; clamped
+     * @return  sRGB value, 0 to 255, as round(255 * srgb(linear))
+     */
+    public static int fromLinear(float linear) {
+        if (!(linear > 0.0f)) {
+            return 0;
+        }
+        if (linear >= 1.0f) {
+            return 255;
+        }
+        int b = COARSE[(int) (linear * COARSE_STEPS)] & 0xff;
+        return THRESHOLDS[b] <= linear ? b + 1 : b;
+    }
+}
@@ -0,0 +1,448 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESStaticBatch
+//
+//    Merges static meshes that share a vertex layout into one vertex buffer and one
+//    index buffer, drawn with a single glDrawElements per material.
+//
+
+package com.openglesbook.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import android.opengl.GLES30;
+
+/**
+ * Meshes are added with a model matrix (column major, as ESTransform.get() returns it);
+ * build() transforms them to world space, groups them by material and uploads the result.
+ * Normals are transformed by the upper 3x3 of the matrix and renormalized, which is correct
+ * for rotations, translations and uniform scales.
+ * <p>
+ * Every mesh keeps its sub-range of the index buffer, so meshes can still be hidden one by
+ * one; a material then draws its visible meshes as a few contiguous runs instead of a
+ * single call.
+ */
+public class ESStaticBatch {
+    private final ESGL mGL;
+    private final int mFloatsPerVertex;
+    private final int mPositionOffset;
+    private final int mNormalOffset;
+
+    private final ArrayList<Mesh> mMeshes = new ArrayList<Mesh>();
+    // Mesh indices ordered by material, valid after build()
+    private int[] mDrawOrder;
+    private int[] mMaterials;
+    private int[] mMaterialFirst;
+    private int[] mMaterialEnd;
+
+    private int mVertexCount;
+    private int mIndexCount;
+    private int mIndexType;
+    private int mIndexSize;
+    private final int[] mBufferIds = new int[2];
+    private boolean mBuilt;
+
+    private static class Mesh {
+        final int id;
+        final int material;
+        float[] vertices;
+        int[] indices;
+        float[] matrix;
+        final int vertexCount;
+        final int indexCount;
+        int baseVertex;
+        int firstIndex;
+        boolean visible = true;
+        final float[] bounds = new float[6];
+
+        Mesh(int id, int material, float[] vertices, int vertexCount, int[] indices, float[] matrix) {
+            this.id = id;
+            this.material = material;
+            this.vertices = vertices;
+            this.vertexCount = vertexCount;
+            this.indices = indices;
+            this.indexCount = indices.length;
+            this.matrix = matrix;
+        }
+    }
+
+    /**
+     * brief Create an empty batch
+     * @param floatsPerVertex  Interleaved vertex size in floats
+     * @param positionOffset   Offset of the xyz position within a vertex, in floats
+     * @param normalOffset     Offset of the xyz normal within a vertex, in floats, -1 if there is none
+     */
+    public ESStaticBatch(int floatsPerVertex, int positionOffset, int normalOffset) {
+        this(ESGLES30.INSTANCE, floatsPerVertex, positionOffset, normalOffset);
+    }
+
+    /**
+     * brief Like ESStaticBatch(int, int, int), with the GL calls issued through an ESGL,
+     * e.g. an ESGLRecorder
+     */
+    public ESStaticBatch(ESGL gl, int floatsPerVertex, int positionOffset, int normalOffset) {
+        if (positionOffset < 0 || positionOffset + 3 > floatsPerVertex
+                || normalOffset + 3 > floatsPerVertex) {
+            throw new IllegalArgumentException("position and normal must fit in the vertex");
+        }
+        mGL = gl;
+        mFloatsPerVertex = floatsPerVertex;
+        mPositionOffset = positionOffset;
+        mNormalOffset = normalOffset;
+    }
+
+    /**
+     * brief Add a mesh with 16-bit indices
+     * @param vertices  Interleaved vertices in object space
+     * @param indices   Triangle indices, relative to this mesh
+     * @param matrix    Model matrix, 16 floats column major, null for identity
+     * @param material  Material the mesh is drawn with
+     * @return  Mesh id used by setVisible and the range getters
+     */
+    public int add(float[] vertices, short[] indices, float[] matrix, int material) {
+        int[] wide = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            wide[i] = indices[i] & 0xFFFF;
+        }
+        return add(vertices, wide, matrix, material);
+    }
+
+    /**
+     * brief Add a mesh with 32-bit indices
+     * @param vertices  Interleaved vertices in object space
+     * @param indices   Triangle indices, relative to this mesh
+     * @param matrix    Model matrix, 16 floats column major, null for identity
+     * @param material  Material the mesh is drawn with
+     * @return  Mesh id used by setVisible and the range getters
+     */
+    public int add(float[] vertices, int[] indices, float[] matrix, int material) {
+        if (mBuilt) {
+            throw new IllegalStateException("batch is already built");
+        }
+        if (vertices.length % mFloatsPerVertex != 0) {
+            throw new IllegalArgumentException("vertex array is not a whole number of vertices");
+        }
+        int vertexCount = vertices.length / mFloatsPerVertex;
+        for (int index : indices) {
+            if (index < 0 || index >= vertexCount) {
+                throw new IllegalArgumentException("index " + index + " out of range");
+            }
+        }
+        int id = mMeshes.size();
+        mMeshes.add(new Mesh(id, material, vertices, vertexCount, indices,
+                matrix != null ? matrix.clone() : null));
+        return id;
+    }
+
+    /**
+     * brief Transform, merge and upload all meshes. Needs a current GL context.
+     */
+    public void build() {
+        if (mBuilt) {
+            throw new IllegalStateException("batch is already built");
+        }
+        ArrayList<Mesh> order = new ArrayList<Mesh>(mMeshes);
+        // Stable, so meshes of a material keep the order they were added in
+        Collections.sort(order, new Comparator<Mesh>() {
+            @Override
+            public int compare(Mesh a, Mesh b) {
+                return a.material < b.material ? -1 : (a.material == b.material ? 0 : 1);
+            }
+        });
+
+        int vertexCount = 0;
+        int indexCount = 0;
+        int materialCount = 0;
+        for (int i = 0; i < order.size(); i++) {
+            Mesh m = order.get(i);
+            m.baseVertex = vertexCount;
+            m.firstIndex = indexCount;
+            vertexCount += m.vertexCount;
+            indexCount += m.indexCount;
+            if (i == 0 || m.material != order.get(i - 1).material) {
+                materialCount++;
+            }
+        }
+        mVertexCount = vertexCount;
+        mIndexCount = indexCount;
+        if (vertexCount <= 0x10000) {
+            mIndexType = GLES30.GL_UNSIGNED_SHORT;
+            mIndexSize = 2;
+        } else {
+            mIndexType = GLES30.GL_UNSIGNED_INT;
+            mIndexSize = 4;
+        }
+
+        mDrawOrder = new int[order.size()];
+        mMaterials = new int[materialCount];
+        mMaterialFirst = new int[materialCount];
+        mMaterialEnd = new int[materialCount];
+
+        FloatBuffer vertices = ByteBuffer.allocateDirect(vertexCount * mFloatsPerVertex * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        ByteBuffer indexBytes = ByteBuffer.allocateDirect(Math.max(indexCount * mIndexSize, 4))
+                .order(ByteOrder.nativeOrder());
+        ShortBuffer shortIndices = indexBytes.asShortBuffer();
+        IntBuffer intIndices = indexBytes.asIntBuffer();
+        float[] vertex = new float[mFloatsPerVertex];
+
+        int slot = -1;
+        for (int i = 0; i < order.size(); i++) {
+            Mesh m = order.get(i);
+            mDrawOrder[i] = m.id;
+            if (slot < 0 || m.material != mMaterials[slot]) {
+                slot++;
+                mMaterials[slot] = m.material;
+                mMaterialFirst[slot] = i;
+            }
+            mMaterialEnd[slot] = i + 1;
+
+            initBounds(m.bounds);
+            for (int v = 0; v < m.vertexCount; v++) {
+                System.arraycopy(m.vertices, v * mFloatsPerVertex, vertex, 0, mFloatsPerVertex);
+                transformVertex(vertex, m.matrix);
+                growBounds(m.bounds, vertex, mPositionOffset);
+                vertices.put(vertex);
+            }
+            for (int index : m.indices) {
+                if (mIndexSize == 2) {
+                    shortIndices.put((short) (index + m.baseVertex));
+                } else {
+                    intIndices.put(index + m.baseVertex);
+                }
+            }
+            // The merged buffers own the data from here on
+            m.vertices = null;
+            m.indices = null;
+            m.matrix = null;
+        }
+        vertices.position(0);
+        indexBytes.position(0);
+
+        mGL.glGenBuffers(2, mBufferIds, 0);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mBufferIds[0]);
+        mGL.glBufferData(GLES30.GL_ARRAY_BUFFER, vertexCount * mFloatsPerVertex * 4,
+                vertices, GLES30.GL_STATIC_DRAW);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mBufferIds[1]);
+        mGL.glBufferData(GLES30.GL_ELEMENT_ARRAY_BUFFER, indexCount * mIndexSize,
+                indexBytes, GLES30.GL_STATIC_DRAW);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 0);
+        mBuilt = true;
+    }
+
+    private void transformVertex(float[] v, float[] m) {
+        if (m == null) {
+            return;
+        }
+        int p = mPositionOffset;
+        float x = v[p], y = v[p + 1], z = v[p + 2];
+        v[p] = m[0] * x + m[4] * y + m[8] * z + m[12];
+        v[p + 1] = m[1] * x + m[5] * y + m[9] * z + m[13];
+        v[p + 2] = m[2] * x + m[6] * y + m[10] * z + m[14];
+
+        if (mNormalOffset >= 0) {
+            int n = mNormalOffset;
+            float nx = v[n], ny = v[n + 1], nz = v[n + 2];
+            float tx = m[0] * nx + m[4] * ny + m[8] * nz;
+            float ty = m[1] * nx + m[5] * ny + m[9] * nz;
+            float tz = m[2] * nx + m[6] * ny + m[10] * nz;
+            float length = (float) Math.sqrt(tx * tx + ty * ty + tz * tz);
+            if (length > 0.0f) {
+                tx /= length;
+                ty /= length;
+                tz /= length;
+            }
+            v[n] = tx;
+            v[n + 1] = ty;
+            v[n + 2] = tz;
+        }
+    }
+
+    private static void initBounds(float[] b) {
+        b[0] = b[1] = b[2] = Float.POSITIVE_INFINITY;
+        b[3] = b[4] = b[5] = Float.NEGATIVE_INFINITY;
+    }
+
+    private static void growBounds(float[] b, float[] v, int p) {
+        for (int i = 0; i < 3; i++) {
+            b[i] = Math.min(b[i], v[p + i]);
+            b[i + 3] = Math.max(b[i + 3], v[p + i]);
+        }
+    }
+
+    /**
+     * brief Bind the merged vertex and index buffers; set the attribute pointers after this
+     * (or once, while a VAO is bound)
+     */
+    public void bind() {
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, mBufferIds[0]);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, mBufferIds[1]);
+    }
+
+    /**
+     * brief Draw all visible meshes of a material; the buffers must be bound
+     * @param material  Material passed to add
+     * @return  Number of glDrawElements calls issued, 1 when every mesh is visible
+     */
+    public int draw(int material) {
+        int slot = findMaterial(material);
+        if (slot < 0) {
+            return 0;
+        }
+        int calls = 0;
+        int runFirst = -1;
+        int runCount = 0;
+        for (int i = mMaterialFirst[slot]; i < mMaterialEnd[slot]; i++) {
+            Mesh m = mMeshes.get(mDrawOrder[i]);
+            if (m.visible) {
+                if (runFirst < 0) {
+                    runFirst = m.firstIndex;
+                }
+                runCount += m.indexCount;
+            } else if (runFirst >= 0) {
+                drawRange(runFirst, runCount);
+                calls++;
+                runFirst = -1;
+                runCount = 0;
+            }
+        }
+        if (runFirst >= 0) {
+            drawRange(runFirst, runCount);
+            calls++;
+        }
+        return calls;
+    }
+
+    /**
+     * brief Draw every material in ascending order
+     */
+    public void drawAll() {
+        for (int slot = 0; slot < mMaterials.length; slot++) {
+            draw(mMaterials[slot]);
+        }
+    }
+
+    private void drawRange(int firstIndex, int count) {
+        mGL.glDrawElements(GLES30.GL_TRIANGLES, count, mIndexType, firstIndex * mIndexSize);
+    }
+
+    private int findMaterial(int material) {
+        for (int slot = 0; slot < mMaterials.length; slot++) {
+            if (mMaterials[slot] == material) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    public void setVisible(int mesh, boolean visible) {
+        mMeshes.get(mesh).visible = visible;
+    }
+
+    public boolean isVisible(int mesh) {
+        return mMeshes.get(mesh).visible;
+    }
+
+    /**
+     * brief World space bounds of a mesh, valid after build()
+     * @param mesh  Mesh id
+     * @param out   Receives minX, minY, minZ, maxX, maxY, maxZ
+     */
+    public void getBounds(int mesh, float[] out) {
+        System.arraycopy(mMeshes.get(mesh).bounds, 0, out, 0, 6);
+    }
+
+    // Sub-range of a mesh in the merged buffers, valid after build()
+    public int getFirstIndex(int mesh) {
+        return mMeshes.get(mesh).firstIndex;
+    }
+
+    public int getIndexCount(int mesh) {
+        return mMeshes.get(mesh).indexCount;
+    }
+
+    public int getBaseVertex(int mesh) {
+        return mMeshes.get(mesh).baseVertex;
+    }
+
+    public int getVertexCount(int mesh) {
+        return mMeshes.get(mesh).vertexCount;
+    }
+
+    public int getMeshCount() {
+        return mMeshes.size();
+    }
+
+    public int getTotalVertexCount() {
+        return mVertexCount;
+    }
+
+    public int getTotalIndexCount() {
+        return mIndexCount;
+    }
+
+    /**
+     * @return  GL_UNSIGNED_SHORT, or GL_UNSIGNED_INT when the batch has more than 65536 vertices
+     */
+    public int getIndexType() {
+        return mIndexType;
+    }
+
+    public int getVertexBuffer() {
+        return mBufferIds[0];
+    }
+
+    public int getIndexBuffer() {
+        return mBufferIds[1];
+    }
+
+    /**
+     * brief Delete the GL buffers
+     */
+    public void delete() {
+        if (mBuilt) {
+            mGL.glDeleteBuffers(2, mBufferIds, 0);
+            mBufferIds[0] = 0;
+            mBufferIds[1] = 0;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESStd140Layout
+//
+//    Computes member offsets of a uniform block declared with layout(std140).
+//
+
+package com.openglesbook.common;
+
+/**
+ * Members are added in the order they are declared in the GLSL block; every add method
+ * returns the byte offset of the member. The rules follow section 2.12.6.4 "Standard
+ * Uniform Block Layout" of the OpenGL ES 3.0 specification:
+ * <ul>
+ * <li>scalars are aligned to 4 bytes, vec2 to 8, vec3 and vec4 to 16</li>
+ * <li>array elements are aligned and strided to a multiple of 16 bytes</li>
+ * <li>a column-major matCxR is stored as an array of C column vectors of size R</li>
+ * <li>the member following an array or matrix starts on a 16 byte boundary</li>
+ * <li>a struct is aligned to 16 bytes and its size is padded to a multiple of 16</li>
+ * </ul>
+ */
+public class ESStd140Layout {
+    // Size in bytes of the base machine unit (float, int, uint, bool)
+    public static final int N = 4;
+
+    private static final int VEC4_ALIGNMENT = 4 * N;
+
+    private int mSize;
+    private int mStructDepth;
+
+    public int addFloat() {
+        return add(N, N);
+    }
+
+    public int addInt() {
+        return add(N, N);
+    }
+
+    public int addBool() {
+        return add(N, N);
+    }
+
+    public int addVec2() {
+        return add(2 * N, 2 * N);
+    }
+
+    public int addVec3() {
+        return add(3 * N, 4 * N);
+    }
+
+    public int addVec4() {
+        return add(4 * N, 4 * N);
+    }
+
+    public int addMat2() {
+        return addArray(2 * N, 2);
+    }
+
+    public int addMat3() {
+        return addArray(3 * N, 3);
+    }
+
+    public int addMat4() {
+        return addArray(4 * N, 4);
+    }
+
+    /**
+     * brief Add an array of scalars (float[], int[], bool[])
+     * @param count  Number of elements
+     * @return  Offset of element 0, elements are arrayStride(N) bytes apart
+     */
+    public int addFloatArray(int count) {
+        return addArray(N, count);
+    }
+
+    public int addVec2Array(int count) {
+        return addArray(2 * N, count);
+    }
+
+    public int addVec3Array(int count) {
+        return addArray(3 * N, count);
+    }
+
+    public int addVec4Array(int count) {
+        return addArray(4 * N, count);
+    }
+
+    /**
+     * brief Add an array of mat4
+     * @param count  Number of matrices
+     * @return  Offset of matrix 0, matrices are 64 bytes apart
+     */
+    public int addMat4Array(int count) {
+        return addArray(4 * N, 4 * count);
+    }
+
+    /**
+     * brief Start a struct member; add its members, then call endStruct(). For an array of
+     * structs, begin and end one struct per element.
+     * @return  Offset of the struct, its first member is at the same offset
+     */
+    public int beginStruct() {
+        mStructDepth++;
+        return add(0, VEC4_ALIGNMENT);
+    }
+
+    /**
+     * brief End the struct started by the last beginStruct()
+     */
+    public void endStruct() {
+        if (mStructDepth == 0) {
+            throw new IllegalStateException("endStruct() without beginStruct()");
+        }
+        mStructDepth--;
+        mSize = roundUp(mSize, VEC4_ALIGNMENT);
+    }
+
+    /**
+     * brief Stride between the elements of an array
+     * @param elementSize  Size in bytes of one scalar or vector element
+     * @return  The element size rounded up to the size of a vec4
+     */
+    public static int arrayStride(int elementSize) {
+        return roundUp(elementSize, VEC4_ALIGNMENT);
+    }
+
+    /**
+     * brief Size of the block, the value GL reports as GL_UNIFORM_BLOCK_DATA_SIZE
+     * @return  Size in bytes, rounded up to the size of a vec4
+     */
+    public int getSize() {
+        if (mStructDepth != 0) {
+            throw new IllegalStateException(mStructDepth + " struct(s) not ended");
+        }
+        return roundUp(mSize, VEC4_ALIGNMENT);
+    }
+
+    private int add(int size, int alignment) {
+        int offset = roundUp(mSize, alignment);
+        mSize = offset + size;
+        return offset;
+    }
+
+    private int addArray(int elementSize, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Array size must be positive: " + count);
+        }
+        int offset = roundUp(mSize, VEC4_ALIGNMENT);
+        mSize = offset + arrayStride(elementSize) * count;
+        return offset;
+    }
+
+    private static int roundUp(int value, int alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+}
@@ -0,0 +1,292 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESStreamBuffer
+//
+//    Ring buffer for vertex, index or uniform data that changes every frame. The buffer
+//    holds one region per frame in flight; a frame writes only its own region, through
+//    unsynchronized maps, and a fence keeps it from reusing a region the GPU still reads.
+//
+
+package com.openglesbook.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import android.opengl.GLES30;
+import android.util.Log;
+
+/**
+ * Per frame:
+ * <pre>
+ *    stream.beginFrame();                  // waits only if the GPU is FRAME_COUNT frames behind
+ *    int offset = stream.upload(vertices); // or allocate() + map() + unmap()
+ *    glVertexAttribPointer(..., offset);
+ *    glDrawArrays(...);
+ *    stream.endFrame();                    // fences the region
+ * </pre>
+ * A buffer may not be mapped while it is drawn from, so unmap() before drawing.
+ */
+public class ESStreamBuffer {
+    private static final String TAG = "ESStreamBuffer";
+
+    public static final int DEFAULT_FRAME_COUNT = 3;
+
+    // How long beginFrame waits for a fence before logging and waiting again
+    private static final long WAIT_TIMEOUT_NANOS = 100000000L;
+
+    private final ESGL mGL;
+    private final int mTarget;
+    private final int mRegionSize;
+    private final int mFrameCount;
+    private final long[] mFences;
+    private final int[] mBufferId = new int[1];
+
+    private int mRegion = -1;
+    private int mCursor;
+    private boolean mMapped;
+
+    // Statistics
+    private int mStalls;
+    private long mStallNanos;
+    private int mOverflows;
+
+    /**
+     * brief Describe the ring buffer; call create() with a current context
+     * @param target      GL_ARRAY_BUFFER, GL_ELEMENT_ARRAY_BUFFER or GL_UNIFORM_BUFFER
+     * @param regionSize  Bytes one frame may write
+     * @param frameCount  Frames in flight, usually DEFAULT_FRAME_COUNT
+     */
+    public ESStreamBuffer(int target, int regionSize, int frameCount) {
+        this(ESGLES30.INSTANCE, target, regionSize, frameCount);
+    }
+
+    /**
+     * brief Like ESStreamBuffer(int, int, int), with the GL calls issued through an ESGL,
+     * e.g. an ESGLRecorder
+     */
+    public ESStreamBuffer(ESGL gl, int target, int regionSize, int frameCount) {
+        if (regionSize <= 0 || frameCount < 1) {
+            throw new IllegalArgumentException("region size and frame count must be positive");
+        }
+        mGL = gl;
+        mTarget = target;
+        mRegionSize = regionSize;
+        mFrameCount = frameCount;
+        mFences = new long[frameCount];
+    }
+
+    /**
+     * brief Allocate the GL buffer, FRAME_COUNT regions large; also for a new context, where
+     * the fences of the old one are gone and must not be waited on or deleted
+     */
+    public void create() {
+        for (int i = 0; i < mFrameCount; i++) {
+            mFences[i] = 0;
+        }
+        mGL.glGenBuffers(1, mBufferId, 0);
+        mGL.glBindBuffer(mTarget, mBufferId[0]);
+        mGL.glBufferData(mTarget, mRegionSize * mFrameCount, null, GLES30.GL_STREAM_DRAW);
+        mGL.glBindBuffer(mTarget, 0);
+        mRegion = -1;
+        mCursor = 0;
+    }
+
+    /**
+     * brief Move to the next region, waiting for the GPU if it still reads from it
+     */
+    public void beginFrame() {
+        mRegion = (mRegion + 1) % mFrameCount;
+        mCursor = 0;
+
+        long fence = mFences[mRegion];
+        if (fence != 0) {
+            int status = mGL.glClientWaitSync(fence, 0, 0);
+            if (status == GLES30.GL_TIMEOUT_EXPIRED) {
+                long start = System.nanoTime();
+                mStalls++;
+                do {
+                    status = mGL.glClientWaitSync(fence, GLES30.GL_SYNC_FLUSH_COMMANDS_BIT,
+                            WAIT_TIMEOUT_NANOS);
+                    if (status == GLES30.GL_TIMEOUT_EXPIRED) {
+                        Log.w(TAG, "still waiting for frame region " + mRegion);
+                    }
+                } while (status == GLES30.GL_TIMEOUT_EXPIRED);
+                mStallNanos += System.nanoTime() - start;
+            }
+            if (status == GLES30.GL_WAIT_FAILED) {
+                Log.e(TAG, "glClientWaitSync failed");
+            }
+            mGL.glDeleteSync(fence);
+            mFences[mRegion] = 0;
+        }
+    }
+
+    /**
+     * brief Fence the current region; call after the last draw that reads from it
+     */
+    public void endFrame() {
+        if (mMapped) {
+            throw new IllegalStateException("buffer is still mapped");
+        }
+        if (mRegion >= 0) {
+            mFences[mRegion] = mGL.glFenceSync(GLES30.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        }
+    }
+
+    /**
+     * brief Reserve space in the current frame's region
+     * @param size       Bytes to reserve
+     * @param alignment  Required alignment of the offset, a power of two
+     * @return  Byte offset into the buffer for attribute pointers, index offsets or
+     *          glBindBufferRange, or -1 if the region is full
+     */
+    public int allocate(int size, int alignment) {
+        if (mRegion < 0) {
+            throw new IllegalStateException("beginFrame() has not been called");
+        }
+        // Align the offset in the buffer, not in the region: regions need not start on a
+        // multiple of the alignment, e.g. GL_UNIFORM_BUFFER_OFFSET_ALIGNMENT
+        int regionStart = mRegion * mRegionSize;
+        int offset = (regionStart + mCursor + alignment - 1) & -alignment;
+        if (offset + size > regionStart + mRegionSize) {
+            mOverflows++;
+            return -1;
+        }
+        mCursor = offset + size - regionStart;
+        return offset;
+    }
+
+    /**
+     * brief Map a range returned by allocate for writing; the buffer stays bound to the target
+     * @param offset  Offset returned by allocate
+     * @param size    Bytes to map
+     * @return  Native order view of the range
+     */
+    public ByteBuffer map(int offset, int size) {
+        mGL.glBindBuffer(mTarget, mBufferId[0]);
+        // Unsynchronized: the fence in beginFrame already guarantees the GPU is done with the range
+        ByteBuffer mapped = (ByteBuffer) mGL.glMapBufferRange(mTarget, offset, size,
+                GLES30.GL_MAP_WRITE_BIT | GLES30.GL_MAP_INVALIDATE_RANGE_BIT
+                        | GLES30.GL_MAP_UNSYNCHRONIZED_BIT);
+        if (mapped == null) {
+            throw new IllegalStateException("glMapBufferRange failed: " + mGL.glGetError());
+        }
+        mMapped = true;
+        return mapped.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * brief Unmap after map(); required before drawing from the buffer
+     * @return  false if the contents were lost and must be written again
+     */
+    public boolean unmap() {
+        mMapped = false;
+        mGL.glBindBuffer(mTarget, mBufferId[0]);
+        return mGL.glUnmapBuffer(mTarget);
+    }
+
+    /**
+     * brief Copy vertex data into the current region
+     * @param data  Floats from position() to limit()
+     * @return  Byte offset of the data, -1 if the region is full
+     */
+    public int upload(FloatBuffer data) {
+        int size = data.remaining() * 4;
+        int offset = allocate(size, 4);
+        if (offset >= 0) {
+            map(offset, size).asFloatBuffer().put(data.duplicate());
+            unmap();
+        }
+        return offset;
+    }
+
+    /**
+     * brief Copy index data into the current region
+     * @param data  Shorts from position() to limit()
+     * @return  Byte offset of the data, -1 if the region is full
+     */
+    public int upload(ShortBuffer data) {
+        int size = data.remaining() * 2;
+        int offset = allocate(size, 2);
+        if (offset >= 0) {
+            map(offset, size).asShortBuffer().put(data.duplicate());
+            unmap();
+        }
+        return offset;
+    }
+
+    public int getBuffer() {
+        return mBufferId[0];
+    }
+
+    public int getRegionSize() {
+        return mRegionSize;
+    }
+
+    // Bytes used in the current region
+    public int getUsed() {
+        return mCursor;
+    }
+
+    // Number of beginFrame calls that had to wait for the GPU, and the total time waited
+    public int getStalls() {
+        return mStalls;
+    }
+
+    public long getStallNanos() {
+        return mStallNanos;
+    }
+
+    // Number of allocations refused because the region was full
+    public int getOverflows() {
+        return mOverflows;
+    }
+
+    /**
+     * brief Delete the fences and the buffer
+     */
+    public void delete() {
+        for (int i = 0; i < mFrameCount; i++) {
+            if (mFences[i] != 0) {
+                mGL.glDeleteSync(mFences[i]);
+                mFences[i] = 0;
+            }
+        }
+        mGL.glDeleteBuffers(1, mBufferId, 0);
+        mBufferId[0] = 0;
+        mRegion = -1;
+    }
+}
@@ -0,0 +1,443 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESTextureLoader
+//
+//    Loads 2D textures from assets without stalling the GL thread: images are decoded on
+//    a small worker pool into pooled direct buffers, and uploaded by the GL thread a
+//    limited number of bytes per frame. KTX files are mapped and parsed on the workers
+//    instead, and their compressed levels uploaded as they are.
+//
+//    There is no pixel buffer object on the way: the Java bindings have no glTexImage2D
+//    or glTexSubImage2D taking a buffer offset, only the 3D variants do, so a 2D texture
+//    can only be sourced from client memory.
+//
+
+package com.openglesbook.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.opengl.GLES30;
+import android.util.Log;
+
+/**
+ * load() returns at once with a Texture whose id is a shared 1x1 grey placeholder; the id
+ * changes to the real texture once processUploads() has uploaded it, so renderers should
+ * read getId() every time they bind. Call processUploads() once per frame on the GL thread.
+ */
+public class ESTextureLoader {
+    private static final String TAG = "ESTextureLoader";
+
+    public static final int DEFAULT_THREADS = 2;
+    // Bytes uploaded per frame; a texture larger than this still goes alone in its own frame
+    public static final int DEFAULT_UPLOAD_BUDGET = 1 << 20;
+    private static final long MAX_POOLED_BYTES = 8 << 20;
+
+    /**
+     * Handle of a texture being loaded
+     */
+    public static class Texture {
+        private final String mFileName;
+        private int mId;
+        private boolean mReady;
+        private volatile boolean mFailed;
+        private int mWidth;
+        private int mHeight;
+
+        Texture(String fileName) {
+            mFileName = fileName;
+        }
+
+        /**
+         * @return  Texture name to bind: the placeholder until the image is uploaded
+         */
+        public int getId() {
+            return mId;
+        }
+
+        public boolean isReady() {
+            return mReady;
+        }
+
+        // The image could not be read; the placeholder stays
+        public boolean isFailed() {
+            return mFailed;
+        }
+
+        public String getFileName() {
+            return mFileName;
+        }
+
+        public int getWidth() {
+            return mWidth;
+        }
+
+        public int getHeight() {
+            return mHeight;
+        }
+    }
+
+    private static class Decoded {
+        final Texture texture;
+        // Either the pixels of a decoded image or a parsed KTX file
+        final ByteBuffer pixels;
+        final ESKtxFile ktx;
+        final int width;
+        final int height;
+        final int generation;
+
+        Decoded(Texture texture, ByteBuffer pixels, ESKtxFile ktx, int width, int height, int generation) {
+            this.texture = texture;
+            this.pixels = pixels;
+            this.ktx = ktx;
+            this.width = width;
+            this.height = height;
+            this.generation = generation;
+        }
+
+        int size() {
+            return ktx == null ? width * height * 4 : (int) ktx.getDataSize();
+        }
+    }
+
+    private final ESGL mGL;
+    private final AssetManager mAssets;
+    private final ESGLState mState;
+    private final ThreadPoolExecutor mExecutor;
+    private final ESDirectBufferPool mPool = new ESDirectBufferPool(MAX_POOLED_BYTES);
+    private final ArrayDeque<Decoded> mDecoded = new ArrayDeque<Decoded>();
+    // Loads not yet uploaded or failed
+    private final AtomicInteger mInFlight = new AtomicInteger();
+    private final int[] mIdScratch = new int[1];
+    private volatile Runnable mOnDecoded;
+    private volatile int mGeneration;
+    private int mUploadBudget = DEFAULT_UPLOAD_BUDGET;
+    private int mPlaceholder;
+    private int mUploads;
+    private long mUploadedBytes;
+
+    public ESTextureLoader(AssetManager assets) {
+        this(assets, null, DEFAULT_THREADS);
+    }
+
+    /**
+     * @param assets   Assets to load from
+     * @param state    State cache of the context, so its bindings stay in sync; may be null
+     * @param threads  Decoding threads; they exit when idle
+     */
+    public ESTextureLoader(AssetManager assets, ESGLState state, int threads) {
+        this(ESGLES30.INSTANCE, assets, state, threads);
+    }
+
+    /**
+     * @param gl       GL entry points the uploads are issued through, e.g. an ESGLRecorder
+     * @param assets   Assets to load from
+     * @param state    State cache of the context, so its bindings stay in sync; may be null
+     * @param threads  Decoding threads; they exit when idle
+     */
+    public ESTextureLoader(ESGL gl, AssetManager assets, ESGLState state, int threads) {
+        mGL = gl;
+        mAssets = assets;
+        mState = state;
+        mExecutor = new ThreadPoolExecutor(threads, threads, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, TAG + "-" + mCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.NORM_PRIORITY - 1);
+                        return thread;
+                    }
+                });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * brief Set the bytes uploaded per frame
+     */
+    public void setUploadBudget(int bytes) {
+        mUploadBudget = bytes;
+    }
+
+    /**
+     * brief Set a callback run on a decoding thread whenever an image is ready to upload,
+     * e.g. to request a render from a view that only draws on demand
+     */
+    public void setOnDecodedListener(Runnable onDecoded) {
+        mOnDecoded = onDecoded;
+    }
+
+    /**
+     * brief Start loading a texture; on the GL thread
+     * @param fileName  Asset name of the image; a ".ktx" file must hold a 2D texture
+     * @return  Handle that shows the placeholder until the texture is uploaded
+     */
+    public Texture load(final String fileName) {
+        final Texture texture = new Texture(fileName);
+        texture.mId = placeholder();
+        final int generation = mGeneration;
+        mInFlight.incrementAndGet();
+        mExecutor.execute(new Runnable() {
+            public void run() {
+                Decoded d;
+                try {
+                    d = decode(texture, generation);
+                } catch (RuntimeException e) {
+                    // Fail the load rather than leave it in flight forever
+                    Log.e(TAG, "Cannot load " + texture.mFileName, e);
+                    d = null;
+                }
+                if (d == null) {
+                    texture.mFailed = true;
+                    mInFlight.decrementAndGet();
+                    return;
+                }
+                synchronized (mDecoded) {
+                    mDecoded.add(d);
+                }
+                notifyDecoded();
+            }
+        });
+        return texture;
+    }
+
+    // On a worker; null if the image cannot be read
+    private Decoded decode(Texture texture, int generation) {
+        if (texture.mFileName.endsWith(".ktx")) {
+            return decodeKtx(texture, generation);
+        }
+        Bitmap bitmap = null;
+        InputStream is = null;
+        try {
+            is = mAssets.open(texture.mFileName);
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            bitmap = BitmapFactory.decodeStream(is, null, options);
+        } catch (IOException e) {
+            bitmap = null;
+        } finally {
+            if (is != null) {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // Nothing left to do
+                }
+            }
+        }
+        if (bitmap != null && bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            Bitmap converted = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+            bitmap.recycle();
+            bitmap = converted;
+        }
+        if (bitmap == null) {
+            Log.e(TAG, "Cannot decode " + texture.mFileName);
+            return null;
+        }
+
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        // ARGB_8888 is stored as R, G, B, A bytes, which is GL_RGBA / GL_UNSIGNED_BYTE
+        ByteBuffer pixels = mPool.acquire(width * height * 4);
+        bitmap.copyPixelsToBuffer(pixels);
+        pixels.flip();
+        bitmap.recycle();
+        return new Decoded(texture, pixels, null, width, height, generation);
+    }
+
+    private Decoded decodeKtx(Texture texture, int generation) {
+        ESKtxFile ktx;
+        try {
+            ktx = ESKtxFile.parse(ESKtxLoader.mapAsset(mAssets, texture.mFileName));
+            if (ESKtxLoader.getTarget(ktx) != GLES30.GL_TEXTURE_2D) {
+                throw new IllegalArgumentException("not a 2D texture");
+            }
+        } catch (IOException e) {
+            ktx = null;
+            Log.e(TAG, "Cannot read " + texture.mFileName + ": " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            ktx = null;
+            Log.e(TAG, "Cannot load " + texture.mFileName + ": " + e.getMessage());
+        }
+        if (ktx == null) {
+            return null;
+        }
+        return new Decoded(texture, null, ktx, ktx.getWidth(), ktx.getHeight(), generation);
+    }
+
+    private void notifyDecoded() {
+        Runnable onDecoded = mOnDecoded;
+        if (onDecoded != null) {
+            onDecoded.run();
+        }
+    }
+
+    /**
+     * brief Upload decoded images, up to the upload budget; once per frame on the GL thread
+     * @return  true if loads are still pending, so another frame should be drawn
+     */
+    public boolean processUploads() {
+        int budget = mUploadBudget;
+        boolean first = true;
+        while (true) {
+            Decoded d;
+            synchronized (mDecoded) {
+                d = mDecoded.peek();
+                if (d == null || (!first && d.size() > budget)) {
+                    break;
+                }
+                mDecoded.poll();
+            }
+            if (d.generation == mGeneration) {
+                if (d.ktx != null) {
+                    uploadKtx(d);
+                } else {
+                    upload(d);
+                }
+                budget -= d.size();
+                first = false;
+            }
+            if (d.pixels != null) {
+                mPool.release(d.pixels);
+            }
+            mInFlight.decrementAndGet();
+        }
+        return hasPendingWork();
+    }
+
+    private void upload(Decoded d) {
+        mGL.glGenTextures(1, mIdScratch, 0);
+        int id = mIdScratch[0];
+        bindTexture(id);
+        mGL.glTexImage2D(GLES30.GL_TEXTURE_2D, 0, GLES30.GL_RGBA, d.width, d.height, 0,
+                GLES30.GL_RGBA, GLES30.GL_UNSIGNED_BYTE, d.pixels);
+        setParameters();
+        uploaded(d, id);
+    }
+
+    private void uploadKtx(Decoded d) {
+        mGL.glGenTextures(1, mIdScratch, 0);
+        int id = mIdScratch[0];
+        bindTexture(id);
+        // Straight from the mapped file, the compressed levels need no conversion
+        ESKtxLoader.upload(mGL, d.ktx);
+        setParameters();
+        ESKtxLoader.setFilters(mGL, d.ktx);
+        uploaded(d, id);
+    }
+
+    private void uploaded(Decoded d, int id) {
+        Texture texture = d.texture;
+        texture.mId = id;
+        texture.mWidth = d.width;
+        texture.mHeight = d.height;
+        texture.mReady = true;
+        mUploads++;
+        mUploadedBytes += d.size();
+    }
+
+    private int placeholder() {
+        if (mPlaceholder == 0) {
+            mGL.glGenTextures(1, mIdScratch, 0);
+            mPlaceholder = mIdScratch[0];
+            ByteBuffer grey = mPool.acquire(4);
+            grey.put((byte) 128).put((byte) 128).put((byte) 128).put((byte) 255).flip();
+            bindTexture(mPlaceholder);
+            mGL.glTexImage2D(GLES30.GL_TEXTURE_2D, 0, GLES30.GL_RGBA, 1, 1, 0,
+                    GLES30.GL_RGBA, GLES30.GL_UNSIGNED_BYTE, grey);
+            setParameters();
+            mPool.release(grey);
+        }
+        return mPlaceholder;
+    }
+
+    private void setParameters() {
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MIN_FILTER, GLES30.GL_LINEAR);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAG_FILTER, GLES30.GL_LINEAR);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_S, GLES30.GL_CLAMP_TO_EDGE);
+        mGL.glTexParameteri(GLES30.GL_TEXTURE_2D, GLES30.GL_TEXTURE_WRAP_T, GLES30.GL_CLAMP_TO_EDGE);
+    }
+
+    private void bindTexture(int texture) {
+        if (mState != null) {
+            mState.bindTexture(GLES30.GL_TEXTURE_2D, texture);
+        } else {
+            mGL.glBindTexture(GLES30.GL_TEXTURE_2D, texture);
+        }
+    }
+
+    /**
+     * @return  true while loads are decoding or waiting for upload
+     */
+    public boolean hasPendingWork() {
+        return mInFlight.get() > 0;
+    }
+
+    /**
+     * @return  true if decoded images are waiting for upload, e.g. because the budget ran out
+     */
+    public boolean hasQueuedUploads() {
+        synchronized (mDecoded) {
+            return !mDecoded.isEmpty();
+        }
+    }
+
+    // Textures uploaded, and their bytes
+    public int getUploadCount() {
+        return mUploads;
+    }
+
+    public long getUploadedBytes() {
+        return mUploadedBytes;
+    }
+
+    /**
+     * brief Forget the GL objects without deleting them; for a new context, where the old
+     * names are gone. Loads still in flight are dropped, textures must be loaded again.
+     */
+    public void reset() {
+        mGeneration++;
+        mPlaceholder = 0;
+    }
+}
@@ -0,0 +1,295 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESUniformBlock
+//
+//    A std140 uniform buffer object shared by every program that declares the block.
+//
+
+package com.openglesbook.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import android.opengl.GLES30;
+
+/**
+ * The block contents are staged in a direct ByteBuffer through the set methods, which
+ * write at absolute offsets returned by ESStd140Layout and never allocate, and are sent
+ * to GL by upload() when something changed. The buffer stays bound to its binding point,
+ * so switching programs needs no uniform calls at all.
+ * <p>
+ * Programs loaded through ESShader are bound to the shared blocks automatically: every
+ * block registered with registerSharedBlock (PerFrame and PerView by default) that the
+ * program declares is attached to its fixed binding point with glUniformBlockBinding.
+ */
+public class ESUniformBlock {
+    // Fixed binding points of the shared blocks
+    public static final int PER_FRAME_BINDING = 0;
+    public static final int PER_VIEW_BINDING = 1;
+
+    public static final String PER_FRAME_BLOCK = "PerFrame";
+    public static final String PER_VIEW_BLOCK = "PerView";
+
+    // Block name / binding point pairs applied to every program ESShader links
+    private static String[] sSharedNames = {PER_FRAME_BLOCK, PER_VIEW_BLOCK};
+    private static int[] sSharedBindings = {PER_FRAME_BINDING, PER_VIEW_BINDING};
+
+    private final ESGL mGL;
+    private final String mName;
+    private final int mBinding;
+    private final int mSize;
+    private final ByteBuffer mData;
+    private final int[] mBufferId = new int[1];
+    private boolean mDirty;
+
+    /**
+     * brief Create the CPU side of a uniform block, call create() on the GL thread before use
+     * @param name     Block name as declared in GLSL
+     * @param binding  Uniform buffer binding point
+     * @param layout   Layout of the block members
+     */
+    public ESUniformBlock(String name, int binding, ESStd140Layout layout) {
+        this(ESGLES30.INSTANCE, name, binding, layout);
+    }
+
+    /**
+     * brief Like ESUniformBlock(String, int, ESStd140Layout), with the GL calls issued
+     * through an ESGL, e.g. an ESGLRecorder
+     */
+    public ESUniformBlock(ESGL gl, String name, int binding, ESStd140Layout layout) {
+        mGL = gl;
+        mName = name;
+        mBinding = binding;
+        mSize = layout.getSize();
+        mData = ByteBuffer.allocateDirect(mSize).order(ByteOrder.nativeOrder());
+        mDirty = true;
+    }
+
+    /**
+     * brief Register a block that programs are bound to when ESShader links them
+     * @param name     Block name as declared in GLSL
+     * @param binding  Uniform buffer binding point
+     */
+    public static synchronized void registerSharedBlock(String name, int binding) {
+        for (int i = 0; i < sSharedNames.length; i++) {
+            if (sSharedNames[i].equals(name)) {
+                sSharedBindings[i] = binding;
+                return;
+            }
+        }
+        String[] names = new String[sSharedNames.length + 1];
+        int[] bindings = new int[sSharedBindings.length + 1];
+        System.arraycopy(sSharedNames, 0, names, 0, sSharedNames.length);
+        System.arraycopy(sSharedBindings, 0, bindings, 0, sSharedBindings.length);
+        names[sSharedNames.length] = name;
+        bindings[sSharedBindings.length] = binding;
+        sSharedNames = names;
+        sSharedBindings = bindings;
+    }
+
+    /**
+     * brief Attach every shared block a program declares to its binding point
+     * @param programObject  A linked program object
+     */
+    public static void bindSharedBlocks(int programObject) {
+        bindSharedBlocks(ESGLES30.INSTANCE, programObject);
+    }
+
+    /**
+     * brief Like bindSharedBlocks(int), with the GL calls issued through an ESGL
+     */
+    public static synchronized void bindSharedBlocks(ESGL gl, int programObject) {
+        for (int i = 0; i < sSharedNames.length; i++) {
+            bindBlock(gl, programObject, sSharedNames[i], sSharedBindings[i]);
+        }
+    }
+
+    private static boolean bindBlock(ESGL gl, int programObject, String name, int binding) {
+        int blockIndex = gl.glGetUniformBlockIndex(programObject, name);
+        if (blockIndex == GLES30.GL_INVALID_INDEX) {
+            return false;
+        }
+        gl.glUniformBlockBinding(programObject, blockIndex, binding);
+        return true;
+    }
+
+    /**
+     * brief Create the buffer object and bind it to the binding point
+     */
+    public void create() {
+        mGL.glGenBuffers(1, mBufferId, 0);
+        mGL.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, mBufferId[0]);
+        mData.position(0);
+        mGL.glBufferData(GLES30.GL_UNIFORM_BUFFER, mSize, mData, GLES30.GL_DYNAMIC_DRAW);
+        mGL.glBindBufferBase(GLES30.GL_UNIFORM_BUFFER, mBinding, mBufferId[0]);
+        mDirty = false;
+    }
+
+    /**
+     * brief Attach this block to a program that was not linked through ESShader
+     * @param programObject  A linked program object
+     * @return  false if the program does not declare the block
+     */
+    public boolean bindProgram(int programObject) {
+        return bindBlock(mGL, programObject, mName, mBinding);
+    }
+
+    /**
+     * brief Send the staged contents to GL if they changed since the last upload
+     */
+    public void upload() {
+        if (!mDirty) {
+            return;
+        }
+        mGL.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, mBufferId[0]);
+        mData.position(0);
+        mGL.glBufferSubData(GLES30.GL_UNIFORM_BUFFER, 0, mSize, mData);
+        mDirty = false;
+    }
+
+    /**
+     * brief Delete the buffer object
+     */
+    public void delete() {
+        if (mBufferId[0] != 0) {
+            mGL.glDeleteBuffers(1, mBufferId, 0);
+            mBufferId[0] = 0;
+        }
+    }
+
+    public void setFloat(int offset, float x) {
+        mData.putFloat(offset, x);
+        mDirty = true;
+    }
+
+    public void setInt(int offset, int x) {
+        mData.putInt(offset, x);
+        mDirty = true;
+    }
+
+    public void setBool(int offset, boolean x) {
+        mData.putInt(offset, x ? 1 : 0);
+        mDirty = true;
+    }
+
+    public void setVec2(int offset, float x, float y) {
+        mData.putFloat(offset, x);
+        mData.putFloat(offset + 4, y);
+        mDirty = true;
+    }
+
+    public void setVec3(int offset, float x, float y, float z) {
+        mData.putFloat(offset, x);
+        mData.putFloat(offset + 4, y);
+        mData.putFloat(offset + 8, z);
+        mDirty = true;
+    }
+
+    public void setVec4(int offset, float x, float y, float z, float w) {
+        mData.putFloat(offset, x);
+        mData.putFloat(offset + 4, y);
+        mData.putFloat(offset + 8, z);
+        mData.putFloat(offset + 12, w);
+        mDirty = true;
+    }
+
+    /**
+     * brief Write a column-major mat3, padding every column to a vec4
+     * @param offset  Offset returned by ESStd140Layout.addMat3
+     * @param m       Matrix elements
+     * @param mOffset Index of the first element in m
+     */
+    public void setMat3(int offset, float[] m, int mOffset) {
+        for (int column = 0; column < 3; column++) {
+            for (int row = 0; row < 3; row++) {
+                mData.putFloat(offset + column * 16 + row * 4, m[mOffset + column * 3 + row]);
+            }
+        }
+        mDirty = true;
+    }
+
+    /**
+     * brief Write a column-major mat4, e.g. ESTransform.get()
+     * @param offset  Offset returned by ESStd140Layout.addMat4
+     * @param m       Matrix elements
+     * @param mOffset Index of the first element in m
+     */
+    public void setMat4(int offset, float[] m, int mOffset) {
+        for (int i = 0; i < 16; i++) {
+            mData.putFloat(offset + i * 4, m[mOffset + i]);
+        }
+        mDirty = true;
+    }
+
+    /**
+     * brief Write scalars or vectors into an array member
+     * @param offset      Offset returned by one of the ESStd140Layout array methods
+     * @param components  Components per element (1 to 4)
+     * @param values      Tightly packed element values
+     * @param count       Number of elements
+     */
+    public void setArray(int offset, int components, float[] values, int count) {
+        int stride = ESStd140Layout.arrayStride(components * ESStd140Layout.N);
+        for (int i = 0; i < count; i++) {
+            for (int c = 0; c < components; c++) {
+                mData.putFloat(offset + i * stride + c * 4, values[i * components + c]);
+            }
+        }
+        mDirty = true;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getBinding() {
+        return mBinding;
+    }
+
+    public int getSize() {
+        return mSize;
+    }
+
+    public int getBufferId() {
+        return mBufferId[0];
+    }
+
+    /**
+     * brief The staged block contents
+     * @return  Direct, native-order buffer of getSize() bytes
+     */
+    public ByteBuffer getData() {
+        return mData;
+    }
+}
@@ -0,0 +1,280 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESVertexArrayCache
+//
+//    Creates one vertex array object per distinct (vertex layout, buffers) combination and
+//    hands it back on later lookups, so a draw binds a VAO instead of re-specifying every
+//    attribute pointer.
+//
+
+package com.openglesbook.common;
+
+import java.util.ArrayList;
+
+import android.opengl.GLES30;
+
+public class ESVertexArrayCache {
+    /**
+     * Attribute layout of a VAO. Buffer slots index the vertex buffer array passed to get().
+     */
+    public static class Descriptor {
+        static final int ATTRIBUTE_INTS = 7;
+
+        int[] mAttributes = new int[ATTRIBUTE_INTS * 4];
+        int mCount;
+
+        /**
+         * brief Add an attribute
+         * @param location    Attribute location
+         * @param size        Components, 1 to 4
+         * @param type        GL_FLOAT, GL_UNSIGNED_BYTE, ...
+         * @param normalized  Normalize integer data to [0, 1] or [-1, 1]
+         * @param stride      Byte stride, 0 for tightly packed
+         * @param offset      Byte offset in the buffer
+         * @param bufferSlot  Index of the vertex buffer in the array passed to get()
+         * @return  this
+         */
+        public Descriptor attribute(int location, int size, int type, boolean normalized,
+                                    int stride, int offset, int bufferSlot) {
+            int base = mCount * ATTRIBUTE_INTS;
+            if (base + ATTRIBUTE_INTS > mAttributes.length) {
+                int[] grown = new int[mAttributes.length * 2];
+                System.arraycopy(mAttributes, 0, grown, 0, base);
+                mAttributes = grown;
+            }
+            mAttributes[base] = location;
+            mAttributes[base + 1] = size;
+            mAttributes[base + 2] = type;
+            mAttributes[base + 3] = normalized ? 1 : 0;
+            mAttributes[base + 4] = stride;
+            mAttributes[base + 5] = offset;
+            mAttributes[base + 6] = bufferSlot;
+            mCount++;
+            return this;
+        }
+
+        public int getAttributeCount() {
+            return mCount;
+        }
+
+        boolean sameAs(Descriptor other) {
+            if (other == this) {
+                return true;
+            }
+            if (other.mCount != mCount) {
+                return false;
+            }
+            for (int i = 0; i < mCount * ATTRIBUTE_INTS; i++) {
+                if (other.mAttributes[i] != mAttributes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Descriptor copy() {
+            Descriptor d = new Descriptor();
+            d.mAttributes = mAttributes.clone();
+            d.mCount = mCount;
+            return d;
+        }
+    }
+
+    private static class Entry {
+        final Descriptor descriptor;
+        final int[] vertexBuffers;
+        final int indexBuffer;
+        final int vao;
+
+        Entry(Descriptor descriptor, int[] vertexBuffers, int indexBuffer, int vao) {
+            this.descriptor = descriptor;
+            this.vertexBuffers = vertexBuffers;
+            this.indexBuffer = indexBuffer;
+            this.vao = vao;
+        }
+    }
+
+    private final ESGL mGL;
+    private final ArrayList<Entry> mEntries = new ArrayList<Entry>();
+    private final int[] mSingleBuffer = new int[1];
+    private final int[] mIdScratch = new int[1];
+    private int mHits;
+    private int mMisses;
+
+    public ESVertexArrayCache() {
+        this(ESGLES30.INSTANCE);
+    }
+
+    /**
+     * brief Create a cache that issues its GL calls through an ESGL, e.g. an ESGLRecorder
+     * @param gl  GL entry points
+     */
+    public ESVertexArrayCache(ESGL gl) {
+        mGL = gl;
+    }
+
+    /**
+     * brief Vertex array object for a layout that reads from a single vertex buffer
+     * @param descriptor    Attribute layout, every attribute in buffer slot 0
+     * @param vertexBuffer  Vertex buffer object
+     * @param indexBuffer   Element array buffer recorded in the VAO, 0 for none
+     * @return  The VAO, created on the first lookup
+     */
+    public int get(Descriptor descriptor, int vertexBuffer, int indexBuffer) {
+        mSingleBuffer[0] = vertexBuffer;
+        return get(descriptor, mSingleBuffer, indexBuffer);
+    }
+
+    /**
+     * brief Vertex array object for a layout that reads from several vertex buffers
+     * @param descriptor     Attribute layout
+     * @param vertexBuffers  Vertex buffer objects, indexed by the attribute buffer slots
+     * @param indexBuffer    Element array buffer recorded in the VAO, 0 for none
+     * @return  The VAO, created on the first lookup
+     */
+    public int get(Descriptor descriptor, int[] vertexBuffers, int indexBuffer) {
+        for (int i = 0; i < mEntries.size(); i++) {
+            Entry e = mEntries.get(i);
+            if (e.indexBuffer == indexBuffer && sameBuffers(e.vertexBuffers, vertexBuffers)
+                    && e.descriptor.sameAs(descriptor)) {
+                mHits++;
+                return e.vao;
+            }
+        }
+        mMisses++;
+        int vao = create(descriptor, vertexBuffers, indexBuffer);
+        mEntries.add(new Entry(descriptor.copy(), vertexBuffers.clone(), indexBuffer, vao));
+        return vao;
+    }
+
+    /**
+     * brief Look up the VAO and bind it
+     */
+    public int bind(Descriptor descriptor, int vertexBuffer, int indexBuffer) {
+        int vao = get(descriptor, vertexBuffer, indexBuffer);
+        mGL.glBindVertexArray(vao);
+        return vao;
+    }
+
+    public int bind(Descriptor descriptor, int[] vertexBuffers, int indexBuffer) {
+        int vao = get(descriptor, vertexBuffers, indexBuffer);
+        mGL.glBindVertexArray(vao);
+        return vao;
+    }
+
+    private static boolean sameBuffers(int[] a, int[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int create(Descriptor descriptor, int[] vertexBuffers, int indexBuffer) {
+        mGL.glGenVertexArrays(1, mIdScratch, 0);
+        int vao = mIdScratch[0];
+        mGL.glBindVertexArray(vao);
+
+        int[] a = descriptor.mAttributes;
+        for (int i = 0; i < descriptor.mCount; i++) {
+            int base = i * Descriptor.ATTRIBUTE_INTS;
+            mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, vertexBuffers[a[base + 6]]);
+            mGL.glEnableVertexAttribArray(a[base]);
+            mGL.glVertexAttribPointer(a[base], a[base + 1], a[base + 2], a[base + 3] != 0,
+                    a[base + 4], a[base + 5]);
+        }
+        // The element array binding is part of the VAO state
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, indexBuffer);
+
+        mGL.glBindVertexArray(0);
+        mGL.glBindBuffer(GLES30.GL_ARRAY_BUFFER, 0);
+        mGL.glBindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 0);
+        return vao;
+    }
+
+    /**
+     * brief Delete every VAO that reads from a buffer; call before deleting the buffer
+     * @param buffer  Vertex or index buffer object
+     */
+    public void bufferDeleted(int buffer) {
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            Entry e = mEntries.get(i);
+            boolean uses = e.indexBuffer == buffer;
+            for (int j = 0; j < e.vertexBuffers.length && !uses; j++) {
+                uses = e.vertexBuffers[j] == buffer;
+            }
+            if (uses) {
+                mIdScratch[0] = e.vao;
+                mGL.glDeleteVertexArrays(1, mIdScratch, 0);
+                mEntries.remove(i);
+            }
+        }
+    }
+
+    /**
+     * brief Forget every VAO without deleting it; for a new context, where the old names are gone
+     */
+    public void reset() {
+        mEntries.clear();
+        mHits = 0;
+        mMisses = 0;
+    }
+
+    /**
+     * brief Delete every VAO
+     */
+    public void delete() {
+        for (int i = 0; i < mEntries.size(); i++) {
+            mIdScratch[0] = mEntries.get(i).vao;
+            mGL.glDeleteVertexArrays(1, mIdScratch, 0);
+        }
+        mEntries.clear();
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    public int getHits() {
+        return mHits;
+    }
+
+    public int getMisses() {
+        return mMisses;
+    }
+}
@@ -0,0 +1,360 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESVertexLayout
+//
+//    Interleaved vertex format described by (semantic, component count, type) entries.
+//    Computes offsets and stride once, checks the format when it is built and issues the
+//    matching glVertexAttribPointer calls.
+//
+
+package com.openglesbook.common;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+
+import android.opengl.GLES30;
+
+/**
+ * Every attribute starts at a multiple of its component size and the stride is a multiple
+ * of 4 bytes. Attributes keep the order they were added in, unless the builder is asked to
+ * reorder them: attributes are then placed by decreasing component size, which leaves no
+ * padding between them.
+ * <pre>
+ *    ESVertexLayout layout = new ESVertexLayout.Builder()
+ *            .add(ESVertexLayout.POSITION, 3, GLES30.GL_FLOAT)
+ *            .add(ESVertexLayout.COLOR, 4, GLES30.GL_UNSIGNED_BYTE, true)
+ *            .build();
+ * </pre>
+ */
+public class ESVertexLayout {
+    // Semantics; unless another location is given, an attribute is bound to the location
+    // equal to its semantic, which matches the layout qualifiers of the sample shaders
+    public static final int POSITION = 0;
+    public static final int COLOR = 1;
+    public static final int NORMAL = 2;
+    public static final int TEXCOORD0 = 3;
+    public static final int TEXCOORD1 = 4;
+    public static final int TANGENT = 5;
+    public static final int SEMANTIC_COUNT = 6;
+
+    private static final String[] SEMANTIC_NAMES = {
+            "POSITION", "COLOR", "NORMAL", "TEXCOORD0", "TEXCOORD1", "TANGENT"
+    };
+
+    // Guaranteed minimum of GL_MAX_VERTEX_ATTRIBS in OpenGL ES 3.0
+    private static final int MAX_LOCATIONS = 16;
+
+    private final int[] mSemantic;
+    private final int[] mLocation;
+    private final int[] mCount;
+    private final int[] mType;
+    private final boolean[] mNormalized;
+    private final int[] mOffset;
+    private final int mStride;
+    private final int mPadding;
+
+    public static class Builder {
+        private final ArrayList<int[]> mAttributes = new ArrayList<int[]>();
+        private boolean mReorder;
+
+        /**
+         * brief Add an attribute bound to the location equal to its semantic
+         */
+        public Builder add(int semantic, int count, int type) {
+            return add(semantic, semantic, count, type, false);
+        }
+
+        public Builder add(int semantic, int count, int type, boolean normalized) {
+            return add(semantic, semantic, count, type, normalized);
+        }
+
+        /**
+         * brief Add an attribute
+         * @param semantic    POSITION, COLOR, ...
+         * @param location    Attribute location in the program
+         * @param count       Components, 1 to 4
+         * @param type        GL_FLOAT, GL_HALF_FLOAT, GL_(UNSIGNED_)BYTE, GL_(UNSIGNED_)SHORT,
+         *                    GL_(UNSIGNED_)INT, GL_FIXED or a packed 2_10_10_10 type
+         * @param normalized  Normalize integer data to [0, 1] or [-1, 1]
+         * @return  this
+         */
+        public Builder add(int semantic, int location, int count, int type, boolean normalized) {
+            mAttributes.add(new int[]{semantic, location, count, type, normalized ? 1 : 0});
+            return this;
+        }
+
+        /**
+         * brief Place attributes by decreasing component size instead of in the order added
+         */
+        public Builder reorder() {
+            mReorder = true;
+            return this;
+        }
+
+        /**
+         * brief Validate the attributes and compute the layout
+         * @throws IllegalArgumentException  for an unknown semantic or type, a bad component
+         *                                   count, or a semantic or location used twice
+         */
+        public ESVertexLayout build() {
+            return new ESVertexLayout(mAttributes, mReorder);
+        }
+    }
+
+    private ESVertexLayout(ArrayList<int[]> attributes, boolean reorder) {
+        int n = attributes.size();
+        if (n == 0) {
+            throw new IllegalArgumentException("vertex layout has no attributes");
+        }
+        int semanticsSeen = 0;
+        int locationsSeen = 0;
+        for (int i = 0; i < n; i++) {
+            int[] a = attributes.get(i);
+            int semantic = a[0], location = a[1], count = a[2], type = a[3];
+            if (semantic < 0 || semantic >= SEMANTIC_COUNT) {
+                throw new IllegalArgumentException("unknown semantic " + semantic);
+            }
+            if (location < 0 || location >= MAX_LOCATIONS) {
+                throw new IllegalArgumentException(SEMANTIC_NAMES[semantic] + ": location " + location
+                        + " out of range");
+            }
+            if (count < 1 || count > 4) {
+                throw new IllegalArgumentException(SEMANTIC_NAMES[semantic] + ": " + count + " components");
+            }
+            int size = componentSize(type);
+            if (size == 0) {
+                throw new IllegalArgumentException(SEMANTIC_NAMES[semantic] + ": unsupported type 0x"
+                        + Integer.toHexString(type));
+            }
+            if (isPacked(type) && count != 4) {
+                throw new IllegalArgumentException(SEMANTIC_NAMES[semantic]
+                        + ": packed 2_10_10_10 types need 4 components");
+            }
+            if ((semanticsSeen & (1 << semantic)) != 0) {
+                throw new IllegalArgumentException(SEMANTIC_NAMES[semantic] + " added twice");
+            }
+            if ((locationsSeen & (1 << location)) != 0) {
+                throw new IllegalArgumentException("location " + location + " used twice");
+            }
+            semanticsSeen |= 1 << semantic;
+            locationsSeen |= 1 << location;
+        }
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        if (reorder) {
+            // Stable insertion sort by decreasing component size
+            for (int i = 1; i < n; i++) {
+                int v = order[i];
+                int size = componentSize(attributes.get(v)[3]);
+                int j = i - 1;
+                while (j >= 0 && componentSize(attributes.get(order[j])[3]) < size) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = v;
+            }
+        }
+
+        mSemantic = new int[n];
+        mLocation = new int[n];
+        mCount = new int[n];
+        mType = new int[n];
+        mNormalized = new boolean[n];
+        mOffset = new int[n];
+        int offset = 0;
+        int used = 0;
+        for (int i = 0; i < n; i++) {
+            int[] a = attributes.get(order[i]);
+            int size = componentSize(a[3]);
+            offset = (offset + size - 1) / size * size;
+            mSemantic[i] = a[0];
+            mLocation[i] = a[1];
+            mCount[i] = a[2];
+            mType[i] = a[3];
+            mNormalized[i] = a[4] != 0;
+            mOffset[i] = offset;
+            int bytes = isPacked(a[3]) ? 4 : size * a[2];
+            offset += bytes;
+            used += bytes;
+        }
+        mStride = (offset + 3) & ~3;
+        mPadding = mStride - used;
+    }
+
+    private static int componentSize(int type) {
+        switch (type) {
+            case GLES30.GL_BYTE:
+            case GLES30.GL_UNSIGNED_BYTE:
+                return 1;
+            case GLES30.GL_SHORT:
+            case GLES30.GL_UNSIGNED_SHORT:
+            case GLES30.GL_HALF_FLOAT:
+                return 2;
+            case GLES30.GL_INT:
+            case GLES30.GL_UNSIGNED_INT:
+            case GLES30.GL_FIXED:
+            case GLES30.GL_FLOAT:
+            case GLES30.GL_INT_2_10_10_10_REV:
+            case GLES30.GL_UNSIGNED_INT_2_10_10_10_REV:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    private static boolean isPacked(int type) {
+        return type == GLES30.GL_INT_2_10_10_10_REV || type == GLES30.GL_UNSIGNED_INT_2_10_10_10_REV;
+    }
+
+    /**
+     * brief Enable and point every attribute at the bound GL_ARRAY_BUFFER
+     * @param baseOffset  Byte offset of the first vertex in the buffer
+     */
+    public void enable(int baseOffset) {
+        enable(ESGLES30.INSTANCE, baseOffset);
+    }
+
+    /**
+     * brief Like enable(int), with the GL calls issued through an ESGL
+     */
+    public void enable(ESGL gl, int baseOffset) {
+        for (int i = 0; i < mLocation.length; i++) {
+            gl.glEnableVertexAttribArray(mLocation[i]);
+            gl.glVertexAttribPointer(mLocation[i], mCount[i], mType[i], mNormalized[i], mStride,
+                    baseOffset + mOffset[i]);
+        }
+    }
+
+    /**
+     * brief Enable and point every attribute at a client-side array (no buffer bound)
+     * @param vertices  Interleaved vertices starting at index 0; every attribute must be float
+     */
+    public void enable(FloatBuffer vertices) {
+        enable(ESGLES30.INSTANCE, vertices);
+    }
+
+    /**
+     * brief Like enable(FloatBuffer), with the GL calls issued through an ESGL
+     */
+    public void enable(ESGL gl, FloatBuffer vertices) {
+        for (int i = 0; i < mLocation.length; i++) {
+            if (mType[i] != GLES30.GL_FLOAT) {
+                throw new IllegalStateException(SEMANTIC_NAMES[mSemantic[i]] + " is not a float attribute");
+            }
+            vertices.position(mOffset[i] / 4);
+            gl.glEnableVertexAttribArray(mLocation[i]);
+            gl.glVertexAttribPointer(mLocation[i], mCount[i], mType[i], mNormalized[i], mStride,
+                    vertices);
+        }
+        vertices.position(0);
+    }
+
+    /**
+     * brief Disable every attribute array of the layout
+     */
+    public void disable() {
+        disable(ESGLES30.INSTANCE);
+    }
+
+    public void disable(ESGL gl) {
+        for (int i = 0; i < mLocation.length; i++) {
+            gl.glDisableVertexAttribArray(mLocation[i]);
+        }
+    }
+
+    /**
+     * brief Describe the layout for ESVertexArrayCache
+     * @param descriptor  Descriptor to add the attributes to
+     * @param bufferSlot  Slot of the vertex buffer holding this layout
+     * @param baseOffset  Byte offset of the first vertex in that buffer
+     * @return  descriptor
+     */
+    public ESVertexArrayCache.Descriptor appendTo(ESVertexArrayCache.Descriptor descriptor,
+                                                  int bufferSlot, int baseOffset) {
+        for (int i = 0; i < mLocation.length; i++) {
+            descriptor.attribute(mLocation[i], mCount[i], mType[i], mNormalized[i], mStride,
+                    baseOffset + mOffset[i], bufferSlot);
+        }
+        return descriptor;
+    }
+
+    public int getStride() {
+        return mStride;
+    }
+
+    // Bytes per vertex not covered by any attribute
+    public int getPadding() {
+        return mPadding;
+    }
+
+    public int getAttributeCount() {
+        return mLocation.length;
+    }
+
+    /**
+     * @return  Byte offset of an attribute within a vertex, -1 if the layout does not have it
+     */
+    public int getOffset(int semantic) {
+        for (int i = 0; i < mSemantic.length; i++) {
+            if (mSemantic[i] == semantic) {
+                return mOffset[i];
+            }
+        }
+        return -1;
+    }
+
+    public int getLocation(int semantic) {
+        for (int i = 0; i < mSemantic.length; i++) {
+            if (mSemantic[i] == semantic) {
+                return mLocation[i];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("stride ").append(mStride);
+        for (int i = 0; i < mSemantic.length; i++) {
+            sb.append(", ").append(SEMANTIC_NAMES[mSemantic[i]])
+              .append('@').append(mOffset[i])
+              .append(" loc ").append(mLocation[i])
+              .append(' ').append(mCount[i]).append(" x 0x").append(Integer.toHexString(mType[i]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,124 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESVertexSource
+//
+//    Vertex or index data a renderer hands to ESBufferCache instead of passing client-side
+//    arrays to every draw call.
+//
+
+package com.openglesbook.common;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import android.opengl.GLES30;
+
+/**
+ * A source is treated as immutable: ESBufferCache uploads it once and binds the same buffer
+ * object from then on. If the contents do change, contentsChanged() bumps the version and
+ * the next bind uploads them again.
+ */
+public class ESVertexSource {
+    private final int mTarget;
+    private final Buffer mData;
+    private final int mSize;
+    private int mVersion;
+
+    private ESVertexSource(int target, Buffer data, int size) {
+        mTarget = target;
+        mData = data;
+        mSize = size;
+    }
+
+    /**
+     * brief Vertex data for GL_ARRAY_BUFFER
+     * @param data  Direct buffer; the whole buffer, from index 0 to capacity(), is uploaded
+     */
+    public static ESVertexSource vertices(FloatBuffer data) {
+        FloatBuffer view = data.duplicate();
+        view.position(0);
+        return new ESVertexSource(GLES30.GL_ARRAY_BUFFER, view, view.capacity() * 4);
+    }
+
+    public static ESVertexSource vertices(float[] data) {
+        FloatBuffer buffer = ByteBuffer.allocateDirect(data.length * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        buffer.put(data).position(0);
+        return vertices(buffer);
+    }
+
+    /**
+     * brief 16-bit index data for GL_ELEMENT_ARRAY_BUFFER
+     * @param data  Direct buffer; the whole buffer, from index 0 to capacity(), is uploaded
+     */
+    public static ESVertexSource indices(ShortBuffer data) {
+        ShortBuffer view = data.duplicate();
+        view.position(0);
+        return new ESVertexSource(GLES30.GL_ELEMENT_ARRAY_BUFFER, view, view.capacity() * 2);
+    }
+
+    public static ESVertexSource indices(short[] data) {
+        ShortBuffer buffer = ByteBuffer.allocateDirect(data.length * 2)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+        buffer.put(data).position(0);
+        return indices(buffer);
+    }
+
+    /**
+     * brief Record that the underlying buffer was written; the next bind uploads it again
+     */
+    public void contentsChanged() {
+        mVersion++;
+    }
+
+    public int getVersion() {
+        return mVersion;
+    }
+
+    public int getTarget() {
+        return mTarget;
+    }
+
+    // Bytes uploaded
+    public int getSize() {
+        return mSize;
+    }
+
+    Buffer getData() {
+        return mData;
+    }
+}
@@ -0,0 +1,116 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESAtlasPackerBenchmark
+//
+//    Desktop benchmark of ESAtlasPacker: page occupancy and packing time on random
+//    sprite sets, checking that no image or gutter overlaps another or leaves its page.
+//
+
+package com.openglesbook.common;
+
+import java.util.Random;
+
+public class ESAtlasPackerBenchmark {
+    private static final int PAGE_SIZE = 512;
+    private static final int SPRITES = 1000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        System.out.println(SPRITES + " sprites, " + PAGE_SIZE + "x" + PAGE_SIZE + " pages, best of " + ROUNDS);
+        // Padding, gutter, alignment, then the range of sprite sizes
+        run("no gutter", 0, 0, 1, 8, 64);
+        run("2 px gutter", 0, 2, 1, 8, 64);
+        run("2 px gutter, 4 px alignment", 0, 2, 4, 8, 64);
+        run("1 px padding, 2 px gutter, 4 px alignment", 1, 2, 4, 8, 64);
+        run("large sprites, 2 px gutter", 0, 2, 1, 32, 160);
+        run("uniform 32x32, 2 px gutter, 4 px alignment", 0, 2, 4, 32, 32);
+    }
+
+    private static void run(String name, int padding, int gutter, int alignment, int minSize, int maxSize) {
+        int[] widths = new int[SPRITES];
+        int[] heights = new int[SPRITES];
+        Random random = new Random(1234);
+        for (int i = 0; i < SPRITES; i++) {
+            widths[i] = minSize + random.nextInt(maxSize - minSize + 1);
+            heights[i] = minSize + random.nextInt(maxSize - minSize + 1);
+        }
+
+        ESAtlasPacker packer = null;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            packer = new ESAtlasPacker(PAGE_SIZE, PAGE_SIZE, padding, gutter, alignment);
+            for (int i = 0; i < SPRITES; i++) {
+                packer.add(widths[i], heights[i]);
+            }
+            packer.pack();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        check(packer, SPRITES, gutter);
+
+        // The last page holds what is left over, only the full pages say how well it packs
+        int pages = packer.getPageCount();
+        float min = 1.0f;
+        float max = 0.0f;
+        float sum = 0.0f;
+        for (int page = 0; page < pages - 1; page++) {
+            float occupancy = packer.getOccupancy(page);
+            min = Math.min(min, occupancy);
+            max = Math.max(max, occupancy);
+            sum += occupancy;
+        }
+        System.out.printf("%-45s %3d pages, full pages %.1f%% (%.1f-%.1f%%), last %.1f%%, %.1f ms%n",
+                name, pages, pages > 1 ? 100.0f * sum / (pages - 1) : 0.0f, 100.0f * min, 100.0f * max,
+                100.0f * packer.getOccupancy(pages - 1), best / 1e6);
+    }
+
+    // Every image with its gutter stays in its page and overlaps no other
+    private static void check(ESAtlasPacker packer, int count, int gutter) {
+        for (int i = 0; i < count; i++) {
+            ESAtlasPacker.Region a = packer.getRegion(i);
+            if (a.x - gutter < 0 || a.y - gutter < 0 || a.x + a.width + gutter > packer.getPageWidth()
+                    || a.y + a.height + gutter > packer.getPageHeight()) {
+                throw new IllegalStateException("Image " + i + " leaves its page");
+            }
+            for (int j = i + 1; j < count; j++) {
+                ESAtlasPacker.Region b = packer.getRegion(j);
+                if (a.page == b.page
+                        && a.x - gutter < b.x + b.width + gutter && b.x - gutter < a.x + a.width + gutter
+                        && a.y - gutter < b.y + b.height + gutter && b.y - gutter < a.y + a.height + gutter) {
+                    throw new IllegalStateException("Images " + i + " and " + j + " overlap");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESAtlasPackerTest
+//
+//    Checks ESAtlasPacker.copyImage: the image lands at its region and the gutter
+//    repeats its edge pixels, whatever the byte orders of the buffers.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+public class ESAtlasPackerTest {
+    private static final int PAGE_WIDTH = 6;
+    private static final int PAGE_HEIGHT = 4;
+
+    // 2x2 image, pixel (x, y) = R, G, B, A of 16 * (y * 2 + x) + 1..4
+    private static ByteBuffer image(ByteOrder order) {
+        ByteBuffer image = ByteBuffer.allocate(2 * 2 * 4).order(order);
+        for (int i = 0; i < image.capacity(); i++) {
+            image.put(i, (byte) (16 * (i / 4) + i % 4 + 1));
+        }
+        return image;
+    }
+
+    private static void checkCopy(ByteBuffer image, ByteBuffer page) {
+        // At (2, 1) with a 1 pixel gutter: the gutter spans x 1..4 and y 0..3
+        ESAtlasPacker.copyImage(image, 2, 2, page, PAGE_WIDTH, 2, 1, 1);
+        for (int y = 0; y < PAGE_HEIGHT; y++) {
+            for (int x = 1; x <= 4; x++) {
+                int srcX = Math.max(0, Math.min(1, x - 2));
+                int srcY = Math.max(0, Math.min(1, y - 1));
+                for (int c = 0; c < 4; c++) {
+                    assertEquals("pixel " + x + "," + y + " component " + c,
+                            image.get((srcY * 2 + srcX) * 4 + c), page.get((y * PAGE_WIDTH + x) * 4 + c));
+                }
+            }
+        }
+        // Columns outside the gutter are untouched
+        for (int y = 0; y < PAGE_HEIGHT; y++) {
+            assertEquals(0, page.getInt(y * PAGE_WIDTH * 4));
+            assertEquals(0, page.getInt((y * PAGE_WIDTH + 5) * 4));
+        }
+    }
+
+    @Test
+    public void copyImageExtrudesTheEdges() {
+        checkCopy(image(ByteOrder.BIG_ENDIAN), ByteBuffer.allocate(PAGE_WIDTH * PAGE_HEIGHT * 4));
+    }
+
+    @Test
+    public void copyImageKeepsTheBytesAcrossByteOrders() {
+        checkCopy(image(ByteOrder.BIG_ENDIAN),
+                ByteBuffer.allocateDirect(PAGE_WIDTH * PAGE_HEIGHT * 4).order(ByteOrder.LITTLE_ENDIAN));
+        checkCopy(image(ByteOrder.LITTLE_ENDIAN),
+                ByteBuffer.allocateDirect(PAGE_WIDTH * PAGE_HEIGHT * 4).order(ByteOrder.BIG_ENDIAN));
+    }
+}
@@ -0,0 +1,163 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESBufferAllocatorTest
+//
+//    Checks the best-fit selection, coalescing and reuse of ESBufferAllocator.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ESBufferAllocatorTest {
+    @Test
+    public void sizesAreRoundedUpToTheAlignment() {
+        ESBufferAllocator allocator = new ESBufferAllocator(1000, 16);
+        assertEquals(992, allocator.getCapacity());
+        assertEquals(0, allocator.allocate(1));
+        assertEquals(16, allocator.allocate(17));
+        assertEquals(48, allocator.allocate(16));
+        assertEquals(64, allocator.getUsedBytes());
+        assertEquals(3, allocator.getAllocationCount());
+    }
+
+    @Test
+    public void allocateTakesTheSmallestRangeThatFits() {
+        ESBufferAllocator allocator = new ESBufferAllocator(1024, 16);
+        int a = allocator.allocate(256);
+        int b = allocator.allocate(64);
+        int c = allocator.allocate(128);
+        int d = allocator.allocate(64);
+        allocator.allocate(512);
+        // Free ranges: a (256), c (128); b and d keep them apart
+        allocator.free(a, 256);
+        allocator.free(c, 128);
+        assertEquals(2, allocator.getFreeBlockCount());
+
+        assertEquals(c, allocator.allocate(100));
+        // The rest of c (16 bytes) is the best fit for a small range
+        assertEquals(c + 112, allocator.allocate(16));
+        assertEquals(a, allocator.allocate(200));
+        assertEquals(256, b);
+        assertEquals(448, d);
+    }
+
+    @Test
+    public void exactFitRemovesTheFreeRange() {
+        ESBufferAllocator allocator = new ESBufferAllocator(256, 16);
+        int a = allocator.allocate(64);
+        allocator.allocate(64);
+        allocator.free(a, 64);
+        assertEquals(2, allocator.getFreeBlockCount());
+        assertEquals(a, allocator.allocate(64));
+        assertEquals(1, allocator.getFreeBlockCount());
+    }
+
+    @Test
+    public void freeMergesWithBothNeighbours() {
+        ESBufferAllocator allocator = new ESBufferAllocator(256, 16);
+        int a = allocator.allocate(64);
+        int b = allocator.allocate(64);
+        int c = allocator.allocate(64);
+        int d = allocator.allocate(64);
+        assertEquals(0, allocator.getFreeBlockCount());
+
+        allocator.free(a, 64);
+        allocator.free(c, 64);
+        assertEquals(2, allocator.getFreeBlockCount());
+        // b joins a and c into one range
+        allocator.free(b, 64);
+        assertEquals(1, allocator.getFreeBlockCount());
+        assertEquals(192, allocator.getLargestFreeBlock());
+
+        allocator.free(d, 64);
+        assertEquals(1, allocator.getFreeBlockCount());
+        assertEquals(256, allocator.getLargestFreeBlock());
+        assertEquals(0.0f, allocator.getFragmentation(), 0.0f);
+        assertEquals(0, allocator.getAllocationCount());
+    }
+
+    @Test
+    public void freedRangesAreReusedAfterFragmentation() {
+        ESBufferAllocator allocator = new ESBufferAllocator(1024, 16);
+        int[] offsets = new int[16];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = allocator.allocate(64);
+        }
+        assertEquals(-1, allocator.allocate(16));
+
+        // Free every other range: 512 bytes free, none larger than 64
+        for (int i = 0; i < offsets.length; i += 2) {
+            allocator.free(offsets[i], 64);
+        }
+        assertEquals(512, allocator.getFreeBytes());
+        assertEquals(64, allocator.getLargestFreeBlock());
+        assertEquals(1.0f - 64.0f / 512.0f, allocator.getFragmentation(), 1e-6f);
+        assertEquals(-1, allocator.allocate(128));
+
+        // Every hole is filled again, in offset order
+        for (int i = 0; i < offsets.length; i += 2) {
+            assertEquals(offsets[i], allocator.allocate(64));
+        }
+        assertEquals(0, allocator.getFreeBytes());
+
+        // Freeing two neighbours makes room for the larger range
+        allocator.free(offsets[4], 64);
+        allocator.free(offsets[5], 64);
+        assertEquals(offsets[4], allocator.allocate(128));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doubleFreeIsRejected() {
+        ESBufferAllocator allocator = new ESBufferAllocator(256, 16);
+        int a = allocator.allocate(64);
+        allocator.allocate(64);
+        allocator.free(a, 64);
+        allocator.free(a, 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void misalignedFreeIsRejected() {
+        ESBufferAllocator allocator = new ESBufferAllocator(256, 16);
+        allocator.allocate(64);
+        allocator.free(8, 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void alignmentMustBeAPowerOfTwo() {
+        new ESBufferAllocator(256, 24);
+    }
+}
@@ -0,0 +1,123 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESBufferArenaTest
+//
+//    Checks through an ESGLRecorder that ESBufferArena shares GL buffers between
+//    allocations and that creating and filling them leaves the array buffer and the
+//    element buffer of the bound vertex array object alone.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import android.opengl.GLES30;
+
+public class ESBufferArenaTest {
+    // Records the target of every glBindBuffer
+    private static class BindingRecorder extends ESGLRecorder {
+        final ArrayList<Integer> mTargets = new ArrayList<Integer>();
+
+        @Override
+        public void glBindBuffer(int target, int buffer) {
+            super.glBindBuffer(target, buffer);
+            mTargets.add(target);
+        }
+    }
+
+    private BindingRecorder mGL;
+    private ESBufferArena mArena;
+
+    @Before
+    public void setUp() {
+        mGL = new BindingRecorder();
+        mArena = new ESBufferArena(mGL, null, GLES30.GL_ELEMENT_ARRAY_BUFFER, GLES30.GL_STATIC_DRAW, 1024, 4);
+    }
+
+    @Test
+    public void allocationsShareABuffer() {
+        ESBufferArena.Allocation a = mArena.allocate(100);
+        ESBufferArena.Allocation b = mArena.allocate(200);
+        assertEquals(a.buffer, b.buffer);
+        assertNotEquals(a.offset, b.offset);
+        assertEquals(1, mArena.getBufferCount());
+        assertEquals(1, mGL.getCallCount("glBufferData"));
+
+        // Too large for the first buffer: a buffer of its own size
+        ESBufferArena.Allocation c = mArena.allocate(2000);
+        assertNotEquals(a.buffer, c.buffer);
+        assertEquals(1024 + 2000, mArena.getCapacity());
+    }
+
+    @Test
+    public void allocationAndUploadLeaveTheVertexArrayBindingsAlone() {
+        ESBufferArena.Allocation a = mArena.allocate(ByteBuffer.allocateDirect(64), 64);
+        mArena.upload(a, 16, ByteBuffer.allocateDirect(16), 16);
+        mArena.allocate(4096);
+        assertEquals(4, mGL.mTargets.size());
+        for (int target : mGL.mTargets) {
+            assertEquals(GLES30.GL_COPY_WRITE_BUFFER, target);
+        }
+        assertEquals(64 + 16, mGL.getBufferUploadBytes());
+    }
+
+    @Test
+    public void stateCacheDropsRepeatedBinds() {
+        ESGLState state = new ESGLState(mGL);
+        mArena = new ESBufferArena(mGL, state, GLES30.GL_ARRAY_BUFFER, GLES30.GL_STATIC_DRAW, 1024, 4);
+        ESBufferArena.Allocation a = mArena.allocate(64);
+        mArena.upload(a, 0, ByteBuffer.allocateDirect(32), 32);
+        mArena.upload(a, 32, ByteBuffer.allocateDirect(32), 32);
+        assertEquals(1, mGL.getCallCount("glBindBuffer"));
+
+        mArena.delete();
+        assertEquals(1, mGL.getCallCount("glDeleteBuffers"));
+        // The deleted name is no longer considered bound
+        mArena.allocate(64);
+        assertEquals(2, mGL.getCallCount("glBindBuffer"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void uploadOutsideTheAllocationThrows() {
+        ESBufferArena.Allocation a = mArena.allocate(64);
+        mArena.upload(a, 60, ByteBuffer.allocateDirect(8), 8);
+    }
+}
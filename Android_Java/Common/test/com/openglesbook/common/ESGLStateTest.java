@@ -0,0 +1,186 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESGLStateTest
+//
+//    Checks through an ESGLRecorder which program, texture, buffer and vertex array
+//    binds ESGLState forwards to GL and which it drops, and that its issued and
+//    elided counters agree with the calls GL actually received.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import android.opengl.GLES30;
+
+public class ESGLStateTest {
+    private ESGLRecorder mGL;
+    private ESGLState mState;
+
+    @Before
+    public void setUp() {
+        mGL = new ESGLRecorder();
+        mState = new ESGLState(mGL);
+    }
+
+    @Test
+    public void programBindIsDroppedWhileInUse() {
+        mState.useProgram(3);
+        mState.useProgram(3);
+        mState.useProgram(4);
+        mState.useProgram(4);
+        assertEquals(2, mGL.getCallCount("glUseProgram"));
+        assertEquals(2, mState.getIssuedCalls());
+        assertEquals(2, mState.getElidedCalls());
+    }
+
+    @Test
+    public void textureBindsAreTrackedPerUnitAndTarget() {
+        mState.bindTexture(0, GLES30.GL_TEXTURE_2D, 5);
+        mState.bindTexture(0, GLES30.GL_TEXTURE_2D, 5);
+        mState.bindTexture(1, GLES30.GL_TEXTURE_2D, 5);
+        mState.bindTexture(1, GLES30.GL_TEXTURE_CUBE_MAP, 6);
+        mState.bindTexture(1, GLES30.GL_TEXTURE_2D, 5);
+        // Units 0 and 1, each selected once
+        assertEquals(2, mGL.getCallCount("glActiveTexture"));
+        assertEquals(3, mGL.getCallCount("glBindTexture"));
+        assertEquals(5, mState.getIssuedCalls());
+        assertEquals(3, mState.getElidedCalls());
+    }
+
+    @Test
+    public void textureBindOfUntrackedUnitIsForwarded() {
+        mState.bindTexture(-1, GLES30.GL_TEXTURE_2D, 5);
+        mState.bindTexture(ESGLState.MAX_TEXTURE_UNITS, GLES30.GL_TEXTURE_2D, 5);
+        mState.bindTexture(ESGLState.MAX_TEXTURE_UNITS, GLES30.GL_TEXTURE_2D, 5);
+        assertEquals(3, mGL.getCallCount("glBindTexture"));
+        // Only selecting the same unit again is dropped
+        assertEquals(2, mGL.getCallCount("glActiveTexture"));
+        assertEquals(1, mState.getElidedCalls());
+    }
+
+    @Test
+    public void deletedTextureIsBoundAgain() {
+        mState.bindTexture(0, GLES30.GL_TEXTURE_2D, 5);
+        mState.textureDeleted(5);
+        mState.bindTexture(0, GLES30.GL_TEXTURE_2D, 5);
+        assertEquals(2, mGL.getCallCount("glBindTexture"));
+    }
+
+    @Test
+    public void bufferBindsAreTrackedPerTarget() {
+        mState.bindBuffer(GLES30.GL_ARRAY_BUFFER, 7);
+        mState.bindBuffer(GLES30.GL_ARRAY_BUFFER, 7);
+        mState.bindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 7);
+        mState.bindBuffer(GLES30.GL_UNIFORM_BUFFER, 8);
+        mState.bindBuffer(GLES30.GL_UNIFORM_BUFFER, 8);
+        mState.bufferDeleted(7);
+        mState.bindBuffer(GLES30.GL_ARRAY_BUFFER, 7);
+        assertEquals(4, mGL.getCallCount("glBindBuffer"));
+        assertEquals(4, mState.getIssuedCalls());
+        assertEquals(2, mState.getElidedCalls());
+    }
+
+    @Test
+    public void vertexArrayBindForgetsItsElementBufferAndAttributes() {
+        mState.bindVertexArray(1);
+        mState.bindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 9);
+        mState.enableVertexAttribArray(0);
+        mState.bindVertexArray(1);
+        mState.bindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 9);
+        mState.enableVertexAttribArray(0);
+        assertEquals(1, mGL.getCallCount("glBindVertexArray"));
+        assertEquals(1, mGL.getCallCount("glBindBuffer"));
+        assertEquals(1, mGL.getCallCount("glEnableVertexAttribArray"));
+
+        // Another VAO has its own element buffer and enables
+        mState.bindVertexArray(2);
+        mState.bindBuffer(GLES30.GL_ELEMENT_ARRAY_BUFFER, 9);
+        mState.enableVertexAttribArray(0);
+        assertEquals(2, mGL.getCallCount("glBindVertexArray"));
+        assertEquals(2, mGL.getCallCount("glBindBuffer"));
+        assertEquals(2, mGL.getCallCount("glEnableVertexAttribArray"));
+        assertEquals(6, mState.getIssuedCalls());
+        assertEquals(3, mState.getElidedCalls());
+    }
+
+    @Test
+    public void invalidateForwardsTheNextBinds() {
+        mState.useProgram(3);
+        mState.bindTexture(0, GLES30.GL_TEXTURE_2D, 5);
+        mState.bindBuffer(GLES30.GL_ARRAY_BUFFER, 7);
+        mState.bindVertexArray(1);
+        mState.invalidate();
+        mState.useProgram(3);
+        mState.bindTexture(0, GLES30.GL_TEXTURE_2D, 5);
+        mState.bindBuffer(GLES30.GL_ARRAY_BUFFER, 7);
+        mState.bindVertexArray(1);
+        assertEquals(2, mGL.getCallCount("glUseProgram"));
+        assertEquals(2, mGL.getCallCount("glBindTexture"));
+        assertEquals(2, mGL.getCallCount("glBindBuffer"));
+        assertEquals(2, mGL.getCallCount("glBindVertexArray"));
+        assertEquals(0, mState.getElidedCalls());
+    }
+
+    @Test
+    public void beginFrameMovesTheCountersToLastFrame() {
+        mState.useProgram(3);
+        mState.useProgram(3);
+        mState.beginFrame();
+        assertEquals(1, mState.getLastFrameIssuedCalls());
+        assertEquals(1, mState.getLastFrameElidedCalls());
+        assertEquals(0, mState.getIssuedCalls());
+        assertEquals(0, mState.getElidedCalls());
+    }
+
+    @Test
+    public void issuedCountMatchesTheRecordedCalls() {
+        for (int frame = 0; frame < 3; frame++) {
+            mGL.beginFrame();
+            mState.beginFrame();
+            for (int draw = 0; draw < 4; draw++) {
+                mState.useProgram(1 + draw / 2);
+                mState.bindTexture(0, GLES30.GL_TEXTURE_2D, 10 + draw % 2);
+                mState.bindVertexArray(20);
+                mState.bindBuffer(GLES30.GL_ARRAY_BUFFER, 30);
+            }
+            assertEquals(mState.getIssuedCalls(), mGL.getFrameCallCount());
+            // A texture bind that changes something also selects the unit
+            assertEquals(20, mState.getIssuedCalls() + mState.getElidedCalls());
+        }
+    }
+}
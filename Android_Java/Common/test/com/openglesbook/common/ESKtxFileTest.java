@@ -0,0 +1,245 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESKtxFileTest
+//
+//    Checks ESKtxFile against KTX 1.1 files built in memory: both byte orders,
+//    cubemap face padding, arrays, key/value data, and files it must reject.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+public class ESKtxFileTest {
+    private static final int GL_UNSIGNED_BYTE = 0x1401;
+    private static final int GL_RGB = 0x1907;
+    private static final int GL_RGB8 = 0x8051;
+    private static final int GL_COMPRESSED_RGB8_ETC2 = 0x9274;
+
+    private static final byte[] IDENTIFIER = {
+            (byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n', 0x1A, '\n'
+    };
+
+    // Writes a GL_RGB8 file whose every byte of image i of a level is level * 16 + i + 1
+    private static ByteBuffer build(ByteOrder order, int width, int height, int arrayElements, int faces,
+                                    int levels, int keyValueBytes) {
+        ByteBuffer file = ByteBuffer.allocate(4096).order(order);
+        file.put(IDENTIFIER);
+        file.putInt(0x04030201);
+        file.putInt(GL_UNSIGNED_BYTE).putInt(1).putInt(GL_RGB).putInt(GL_RGB8).putInt(GL_RGB);
+        file.putInt(width).putInt(height).putInt(0).putInt(arrayElements).putInt(faces).putInt(levels);
+        file.putInt(keyValueBytes);
+        for (int i = 0; i < keyValueBytes; i++) {
+            file.put((byte) 0xEE);
+        }
+
+        int images = Math.max(1, arrayElements) * faces;
+        boolean sizePerFace = faces == 6 && arrayElements == 0;
+        for (int level = 0; level < Math.max(1, levels); level++) {
+            int size = Math.max(1, width >> level) * Math.max(1, height >> level) * 3;
+            file.putInt(sizePerFace ? size : size * images);
+            for (int i = 0; i < images; i++) {
+                for (int b = 0; b < size; b++) {
+                    file.put((byte) (level * 16 + i + 1));
+                }
+                if (sizePerFace) {
+                    pad(file);
+                }
+            }
+            pad(file);
+        }
+        file.flip();
+        return file;
+    }
+
+    private static void pad(ByteBuffer file) {
+        while ((file.position() & 3) != 0) {
+            file.put((byte) 0);
+        }
+    }
+
+    private static void checkImage(ESKtxFile ktx, int level, int element, int face) {
+        ByteBuffer image = ktx.getImage(level, element, face);
+        assertEquals(ktx.getImageSize(level), image.remaining());
+        byte expected = (byte) (level * 16 + element * ktx.getFaces() + face + 1);
+        for (int i = 0; i < image.remaining(); i++) {
+            assertEquals("level " + level + " element " + element + " face " + face,
+                    expected, image.get(image.position() + i));
+        }
+    }
+
+    private static void check2D(ByteOrder order) {
+        ESKtxFile ktx = ESKtxFile.parse(build(order, 4, 2, 0, 1, 3, 0));
+        assertEquals(GL_UNSIGNED_BYTE, ktx.getGlType());
+        assertEquals(GL_RGB, ktx.getGlFormat());
+        assertEquals(GL_RGB8, ktx.getInternalFormat());
+        assertEquals(GL_RGB, ktx.getBaseInternalFormat());
+        assertFalse(ktx.isCompressed());
+        assertEquals(4, ktx.getWidth());
+        assertEquals(2, ktx.getHeight());
+        assertEquals(1, ktx.getFaces());
+        assertEquals(3, ktx.getLevels());
+        assertEquals(1, ktx.getLevelWidth(2));
+        assertEquals(1, ktx.getLevelHeight(2));
+
+        assertEquals(24, ktx.getImageSize(0));
+        assertEquals(6, ktx.getImageSize(1));
+        assertEquals(3, ktx.getImageSize(2));
+        assertEquals(24 + 6 + 3, ktx.getDataSize());
+        // 64 byte header, then imageSize before every level, each level padded to 4
+        assertEquals(68, ktx.getImageOffset(0, 0, 0));
+        assertEquals(68 + 24 + 4, ktx.getImageOffset(1, 0, 0));
+        assertEquals(68 + 24 + 4 + 8 + 4, ktx.getImageOffset(2, 0, 0));
+        for (int level = 0; level < 3; level++) {
+            checkImage(ktx, level, 0, 0);
+        }
+    }
+
+    @Test
+    public void littleEndianFile() {
+        check2D(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Test
+    public void bigEndianFile() {
+        check2D(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Test
+    public void keyValueDataIsSkipped() {
+        ESKtxFile ktx = ESKtxFile.parse(build(ByteOrder.LITTLE_ENDIAN, 2, 2, 0, 1, 1, 20));
+        assertEquals(64 + 20 + 4, ktx.getImageOffset(0, 0, 0));
+        checkImage(ktx, 0, 0, 0);
+    }
+
+    @Test
+    public void zeroLevelsMeansOne() {
+        ESKtxFile ktx = ESKtxFile.parse(build(ByteOrder.LITTLE_ENDIAN, 2, 2, 0, 1, 0, 0));
+        assertEquals(1, ktx.getLevels());
+        checkImage(ktx, 0, 0, 0);
+    }
+
+    @Test
+    public void cubemapFacesArePaddedToFourBytes() {
+        // 1x1 RGB faces are 3 bytes, each followed by a padding byte
+        ESKtxFile ktx = ESKtxFile.parse(build(ByteOrder.LITTLE_ENDIAN, 1, 1, 0, 6, 1, 0));
+        assertEquals(6, ktx.getFaces());
+        assertEquals(3, ktx.getImageSize(0));
+        assertEquals(18, ktx.getDataSize());
+        for (int face = 0; face < 6; face++) {
+            assertEquals(68 + face * 4, ktx.getImageOffset(0, 0, face));
+            checkImage(ktx, 0, 0, face);
+        }
+    }
+
+    @Test
+    public void arrayImagesArePackedTightly() {
+        ESKtxFile ktx = ESKtxFile.parse(build(ByteOrder.BIG_ENDIAN, 1, 1, 3, 1, 2, 0));
+        assertEquals(3, ktx.getArrayElements());
+        assertEquals(3, ktx.getImageSize(0));
+        for (int element = 0; element < 3; element++) {
+            assertEquals(68 + element * 3, ktx.getImageOffset(0, element, 0));
+            checkImage(ktx, 0, element, 0);
+        }
+        // The level is padded from 9 to 12 bytes
+        assertEquals(68 + 12 + 4, ktx.getImageOffset(1, 0, 0));
+        ByteBuffer level = ktx.getLevel(1);
+        assertEquals(9, level.remaining());
+        assertEquals(17, level.get(level.position()));
+        assertEquals(19, level.get(level.position() + 8));
+    }
+
+    @Test
+    public void cubemapArrayFacesAreNotPadded() {
+        ESKtxFile ktx = ESKtxFile.parse(build(ByteOrder.LITTLE_ENDIAN, 1, 1, 2, 6, 1, 0));
+        assertEquals(3, ktx.getImageSize(0));
+        assertEquals(68 + 3, ktx.getImageOffset(0, 0, 1));
+        assertEquals(68 + 6 * 3, ktx.getImageOffset(0, 1, 0));
+        for (int element = 0; element < 2; element++) {
+            for (int face = 0; face < 6; face++) {
+                checkImage(ktx, 0, element, face);
+            }
+        }
+    }
+
+    @Test
+    public void compressedFormatHasNoType() {
+        ByteBuffer file = build(ByteOrder.LITTLE_ENDIAN, 4, 4, 0, 1, 1, 0);
+        file.putInt(16, 0);
+        file.putInt(24, 0);
+        file.putInt(28, GL_COMPRESSED_RGB8_ETC2);
+        assertTrue(ESKtxFile.parse(file).isCompressed());
+    }
+
+    private static void expectRejected(ByteBuffer file, String message) {
+        try {
+            ESKtxFile.parse(file);
+            fail("parsed a bad file");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    @Test
+    public void truncatedFilesAreRejected() {
+        ByteBuffer file = build(ByteOrder.LITTLE_ENDIAN, 4, 2, 0, 1, 3, 0);
+        // Inside the last image, then inside the imageSize of the last level
+        file.limit(file.limit() - 2);
+        expectRejected(file, "Truncated KTX file at level 2");
+        file.limit(68 + 24 + 4 + 8 + 2);
+        expectRejected(file, "Truncated KTX file at level 2");
+        file.limit(40);
+        expectRejected(file, "Not a KTX file");
+    }
+
+    @Test
+    public void otherFilesAreRejected() {
+        ByteBuffer png = ByteBuffer.allocate(128);
+        png.put(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' });
+        png.clear();
+        expectRejected(png, "Not a KTX file");
+
+        ByteBuffer file = build(ByteOrder.LITTLE_ENDIAN, 4, 2, 0, 1, 1, 0);
+        file.putInt(12, 0x01020305);
+        expectRejected(file, "Not a KTX file");
+    }
+}
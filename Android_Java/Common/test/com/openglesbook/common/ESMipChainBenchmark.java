@@ -0,0 +1,230 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESMipChainBenchmark
+//
+//    Desktop benchmark of ESMipChain against the genMipMap2D routine the MipMap2D
+//    sample used before, on full RGB chains of the sample's checkerboard. Also checks
+//    every level of both against a double precision box filter, then times the sRGB
+//    filters on a large RGBA image.
+//
+
+package com.openglesbook.common;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+public class ESMipChainBenchmark {
+    private static final int[] SIZES = { 256, 1024, 2048 };
+    private static final int ROUNDS = 15;
+    private static final int FILTER_SIZE = 2048;
+    private static final int FILTER_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        System.out.println(Runtime.getRuntime().availableProcessors() + " CPUs, RGB chains, best of " + ROUNDS);
+        long checksum = 0;
+        for (int size : SIZES) {
+            byte[] pixels = genCheckImage(size, size, 8);
+            long bestOld = Long.MAX_VALUE;
+            long bestNew = Long.MAX_VALUE;
+            ESMipChain chain = null;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                checksum += oldChain(pixels, size, size);
+                bestOld = Math.min(bestOld, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                chain = new ESMipChain(size, size, 3);
+                chain.setBaseLevel(pixels, 0);
+                chain.generate();
+                bestNew = Math.min(bestNew, System.nanoTime() - start);
+                checksum += chain.getData()[chain.getLevelOffset(chain.getLevels() - 1)];
+            }
+            System.out.printf("%4dx%-4d genMipMap2D %7.2f ms   ESMipChain %7.2f ms   max error %d vs %d%n",
+                    size, size, bestOld / 1e6, bestNew / 1e6,
+                    oldError(pixels, size, size), newError(chain, pixels));
+        }
+
+        // Noise, so no filter can take a shortcut on flat areas
+        byte[] pixels = new byte[FILTER_SIZE * FILTER_SIZE * 4];
+        new Random(1).nextBytes(pixels);
+        for (ESMipChain.Filter filter : ESMipChain.Filter.values()) {
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < FILTER_ROUNDS; round++) {
+                ESMipChain chain = new ESMipChain(FILTER_SIZE, FILTER_SIZE, 4);
+                chain.setFilter(filter);
+                chain.setSrgb(true);
+                chain.setBaseLevel(pixels, 0);
+                long start = System.nanoTime();
+                chain.generate();
+                best = Math.min(best, System.nanoTime() - start);
+                checksum += chain.getData()[chain.getLevelOffset(1)];
+            }
+            System.out.printf("%dx%d RGBA sRGB %-7s %7.2f ms%n", FILTER_SIZE, FILTER_SIZE, filter, best / 1e6);
+        }
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    ///
+    //  Generate an RGB8 checkerboard image, as MipMap2DRenderer does; its values stay
+    //  below 128, where the signed sums of genMipMap2D are still right
+    //
+    private static byte[] genCheckImage(int width, int height, int checkSize) {
+        byte[] pixels = new byte[width * height * 3];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                byte rColor;
+                byte bColor;
+                if ((x / checkSize) % 2 == 0) {
+                    rColor = (byte) (127 * ((y / checkSize) % 2));
+                    bColor = (byte) (127 * (1 - ((y / checkSize) % 2)));
+                } else {
+                    bColor = (byte) (127 * ((y / checkSize) % 2));
+                    rColor = (byte) (127 * (1 - ((y / checkSize) % 2)));
+                }
+                pixels[(y * width + x) * 3] = rColor;
+                pixels[(y * width + x) * 3 + 1] = 0;
+                pixels[(y * width + x) * 3 + 2] = bColor;
+            }
+        }
+        return pixels;
+    }
+
+    // The chain loop of the old createMipMappedTexture2D, without the GL calls but with
+    // the direct buffer it filled for every level
+    private static long oldChain(byte[] pixels, int width, int height) {
+        long checksum = 0;
+        byte[] prevImage = pixels;
+        while (width > 1 && height > 1) {
+            int newWidth = Math.max(1, width / 2);
+            int newHeight = Math.max(1, height / 2);
+            byte[] newImage = genMipMap2D(prevImage, width, height, newWidth, newHeight);
+            ByteBuffer pixelBuffer = ByteBuffer.allocateDirect(newWidth * newHeight * 3);
+            pixelBuffer.put(newImage).position(0);
+            checksum += pixelBuffer.get(0);
+            prevImage = newImage;
+            width = newWidth;
+            height = newHeight;
+        }
+        return checksum;
+    }
+
+    // The routine MipMap2DRenderer used before ESMipChain, unchanged
+    private static byte[] genMipMap2D(byte[] src, int srcWidth, int srcHeight, int dstWidth, int dstHeight) {
+        int x, y;
+        int texelSize = 3;
+
+        byte[] dst = new byte[texelSize * (dstWidth) * (dstHeight)];
+
+        for (y = 0; y < dstHeight; y++) {
+            for (x = 0; x < dstWidth; x++) {
+                int[] srcIndex = new int[4];
+                float r = 0.0f, g = 0.0f, b = 0.0f;
+                int sample;
+
+                // Compute the offsets for 2x2 grid of pixels in previous
+                // image to perform box filter
+                srcIndex[0] = (((y * 2) * srcWidth) + (x * 2)) * texelSize;
+                srcIndex[1] = (((y * 2) * srcWidth) + (x * 2 + 1)) * texelSize;
+                srcIndex[2] = ((((y * 2) + 1) * srcWidth) + (x * 2)) * texelSize;
+                srcIndex[3] = ((((y * 2) + 1) * srcWidth) + (x * 2 + 1)) * texelSize;
+
+                // Sum all pixels
+                for (sample = 0; sample < 4; sample++) {
+                    r += src[srcIndex[sample]];
+                    g += src[srcIndex[sample] + 1];
+                    b += src[srcIndex[sample] + 2];
+                }
+
+                // Average results
+                r /= 4.0;
+                g /= 4.0;
+                b /= 4.0;
+
+                // Store resulting pixels
+                dst[(y * (dstWidth) + x) * texelSize] = (byte) (r);
+                dst[(y * (dstWidth) + x) * texelSize + 1] = (byte) (g);
+                dst[(y * (dstWidth) + x) * texelSize + 2] = (byte) (b);
+            }
+        }
+        return dst;
+    }
+
+    // Largest difference of any level from the average of the level 0 texels it covers
+    private static int oldError(byte[] pixels, int width, int height) {
+        int error = 0;
+        byte[] level = pixels;
+        int levelWidth = width;
+        int levelHeight = height;
+        int scale = 1;
+        while (levelWidth > 1 && levelHeight > 1) {
+            level = genMipMap2D(level, levelWidth, levelHeight, levelWidth / 2, levelHeight / 2);
+            levelWidth /= 2;
+            levelHeight /= 2;
+            scale *= 2;
+            error = Math.max(error, error(level, levelWidth, levelHeight, pixels, width, scale));
+        }
+        return error;
+    }
+
+    private static int newError(ESMipChain chain, byte[] pixels) {
+        int error = 0;
+        byte[] data = chain.getData();
+        for (int level = 1; level < chain.getLevels(); level++) {
+            byte[] copy = new byte[chain.getLevelSize(level)];
+            System.arraycopy(data, chain.getLevelOffset(level), copy, 0, copy.length);
+            error = Math.max(error, error(copy, chain.getLevelWidth(level), chain.getLevelHeight(level),
+                    pixels, chain.getLevelWidth(0), 1 << level));
+        }
+        return error;
+    }
+
+    private static int error(byte[] level, int levelWidth, int levelHeight, byte[] pixels, int width, int scale) {
+        int error = 0;
+        for (int y = 0; y < levelHeight; y++) {
+            for (int x = 0; x < levelWidth; x++) {
+                for (int c = 0; c < 3; c++) {
+                    double sum = 0;
+                    for (int sy = y * scale; sy < (y + 1) * scale; sy++) {
+                        for (int sx = x * scale; sx < (x + 1) * scale; sx++) {
+                            sum += pixels[(sy * width + sx) * 3 + c] & 0xff;
+                        }
+                    }
+                    int expected = (int) Math.round(sum / scale / scale);
+                    error = Math.max(error, Math.abs((level[(y * levelWidth + x) * 3 + c] & 0xff) - expected));
+                }
+            }
+        }
+        return error;
+    }
+}
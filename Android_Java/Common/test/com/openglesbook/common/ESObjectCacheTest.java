@@ -0,0 +1,103 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESObjectCacheTest
+//
+//    Checks through an ESGLRecorder that ESSamplerCache and ESVertexArrayCache create
+//    their objects once and skip redundant binds.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import android.opengl.GLES30;
+
+public class ESObjectCacheTest {
+    @Test
+    public void samplerIsCreatedOncePerState() {
+        ESGLRecorder gl = new ESGLRecorder();
+        ESSamplerCache cache = new ESSamplerCache(gl);
+        int linear = cache.get(GLES30.GL_LINEAR, GLES30.GL_LINEAR, GLES30.GL_REPEAT, GLES30.GL_REPEAT);
+        int again = cache.get(GLES30.GL_LINEAR, GLES30.GL_LINEAR, GLES30.GL_REPEAT, GLES30.GL_REPEAT);
+        int nearest = cache.get(GLES30.GL_NEAREST, GLES30.GL_NEAREST, GLES30.GL_REPEAT, GLES30.GL_REPEAT);
+        assertEquals(linear, again);
+        assertNotEquals(linear, nearest);
+        assertEquals(2, cache.size());
+        assertEquals(2, gl.getCallCount("glGenSamplers"));
+    }
+
+    @Test
+    public void samplerBindIsSkippedWhileBound() {
+        ESGLRecorder gl = new ESGLRecorder();
+        ESSamplerCache cache = new ESSamplerCache(gl);
+        int sampler = cache.get(GLES30.GL_LINEAR, GLES30.GL_LINEAR, GLES30.GL_REPEAT, GLES30.GL_REPEAT);
+        for (int frame = 0; frame < 3; frame++) {
+            gl.beginFrame();
+            cache.bind(0, sampler);
+            cache.bind(1, sampler);
+            assertEquals(frame == 0 ? 2 : 0, gl.getFrameCallCount());
+        }
+        cache.invalidateBindings();
+        cache.bind(0, sampler);
+        assertEquals(3, gl.getCallCount("glBindSampler"));
+    }
+
+    @Test
+    public void vertexArrayIsSpecifiedOnce() {
+        ESGLRecorder gl = new ESGLRecorder();
+        ESVertexArrayCache cache = new ESVertexArrayCache(gl);
+        ESVertexArrayCache.Descriptor layout = new ESVertexArrayCache.Descriptor()
+                .attribute(0, 3, GLES30.GL_FLOAT, false, 24, 0, 0)
+                .attribute(1, 3, GLES30.GL_FLOAT, false, 24, 12, 0);
+        int vao = cache.bind(layout, 1, 2);
+        assertEquals(2, gl.getCallCount("glVertexAttribPointer"));
+
+        for (int frame = 0; frame < 3; frame++) {
+            gl.beginFrame();
+            assertEquals(vao, cache.bind(layout, 1, 2));
+            // A hit is a single glBindVertexArray
+            assertEquals(1, gl.getFrameCallCount());
+        }
+        assertEquals(1, gl.getCallCount("glGenVertexArrays"));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // Another vertex buffer needs its own VAO
+        assertNotEquals(vao, cache.bind(layout, 3, 2));
+        assertEquals(2, cache.size());
+    }
+}
@@ -0,0 +1,104 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESRenderQueueBenchmark
+//
+//    Desktop benchmark of ESRenderQueue.sort on 10k and 100k draws, against
+//    java.util.Arrays.sort of the same keys. Random keys use every radix pass; a
+//    frame of few programs and textures lets the sort skip the constant bytes.
+//
+
+package com.openglesbook.common;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class ESRenderQueueBenchmark {
+    private static final int[] SIZES = { 10000, 100000 };
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        System.out.println("best of " + ROUNDS);
+        for (int size : SIZES) {
+            run("random keys", size, 16, 4096, 4096, 4096);
+            run("8 programs, 64 textures", size, 2, 8, 64, 256);
+        }
+    }
+
+    private static void run(String name, int size, int passes, int programs, int textures, int vaos) {
+        Random random = new Random(42);
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ESRenderQueue.makeKey(random.nextInt(passes), random.nextInt(programs),
+                    random.nextInt(textures), random.nextInt(vaos), random.nextInt(1 << 24));
+        }
+
+        ESRenderQueue queue = new ESRenderQueue(size);
+        long[] copy = new long[size];
+        long bestQueue = Long.MAX_VALUE;
+        long bestArrays = Long.MAX_VALUE;
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            queue.clear();
+            for (int i = 0; i < size; i++) {
+                queue.submit(keys[i], 1, 0, 1, 0, 3, 0, 0, i);
+            }
+            long start = System.nanoTime();
+            queue.sort();
+            bestQueue = Math.min(bestQueue, System.nanoTime() - start);
+            checksum += queue.getSortedItem(size / 2);
+
+            System.arraycopy(keys, 0, copy, 0, size);
+            start = System.nanoTime();
+            Arrays.sort(copy);
+            bestArrays = Math.min(bestArrays, System.nanoTime() - start);
+            checksum += copy[size / 2];
+        }
+        check(queue, size);
+        System.out.printf("%6d draws, %-25s ESRenderQueue %7.3f ms   Arrays.sort %7.3f ms   (%d)%n",
+                size, name, bestQueue / 1e6, bestArrays / 1e6, checksum & 0xff);
+    }
+
+    // Keys ascend as unsigned values and equal keys keep their submission order
+    private static void check(ESRenderQueue queue, int size) {
+        for (int position = 1; position < size; position++) {
+            int a = queue.getSortedItem(position - 1);
+            int b = queue.getSortedItem(position);
+            long ka = queue.getKey(a) + Long.MIN_VALUE;
+            long kb = queue.getKey(b) + Long.MIN_VALUE;
+            if (ka > kb || (ka == kb && a > b)) {
+                throw new IllegalStateException("Draws " + a + " and " + b + " out of order");
+            }
+        }
+    }
+}
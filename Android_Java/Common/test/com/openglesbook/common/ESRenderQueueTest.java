@@ -0,0 +1,172 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESRenderQueueTest
+//
+//    Checks the radix sort of ESRenderQueue against an unsigned comparison, its
+//    stability for equal keys, and through an ESGLRecorder that execute() binds only
+//    what changes between sorted draws.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import android.opengl.GLES30;
+
+public class ESRenderQueueTest {
+    @Test
+    public void sortOrdersByUnsignedKey() {
+        ESRenderQueue queue = new ESRenderQueue(16);
+        Random random = new Random(7);
+        int n = 5000;
+        for (int i = 0; i < n; i++) {
+            long key = ESRenderQueue.makeKey(random.nextInt(16), random.nextInt(4096),
+                    random.nextInt(4096), random.nextInt(4096), random.nextInt(1 << 24));
+            queue.submit(key, 1, 0, 1, GLES30.GL_TRIANGLES, 3, 0, 0, i);
+        }
+        queue.sort();
+
+        boolean[] seen = new boolean[n];
+        for (int position = 0; position < n; position++) {
+            int item = queue.getSortedItem(position);
+            assertTrue(!seen[item]);
+            seen[item] = true;
+            if (position > 0) {
+                long previous = queue.getKey(queue.getSortedItem(position - 1));
+                assertTrue(compareUnsigned(previous, queue.getKey(item)) <= 0);
+            }
+        }
+    }
+
+    @Test
+    public void equalKeysKeepSubmissionOrder() {
+        ESRenderQueue queue = new ESRenderQueue(16);
+        Random random = new Random(11);
+        int n = 1000;
+        for (int i = 0; i < n; i++) {
+            // Few distinct keys, every one shared by many items
+            long key = ESRenderQueue.makeKey(random.nextInt(2), random.nextInt(3), random.nextInt(2), 1, 0);
+            queue.submit(key, 1, 0, 1, GLES30.GL_TRIANGLES, 3, 0, 0, i);
+        }
+        for (int position = 1; position < n; position++) {
+            int previous = queue.getSortedItem(position - 1);
+            int item = queue.getSortedItem(position);
+            if (queue.getKey(previous) == queue.getKey(item)) {
+                assertTrue(previous < item);
+            }
+        }
+    }
+
+    @Test
+    public void keyFieldsOrderPassProgramTextureVaoDepth() {
+        long last = ESRenderQueue.makeKey(15, 0, 0, 0, 0);
+        long first = ESRenderQueue.makeKey(0, 4095, 4095, 4095, (1 << 24) - 1);
+        assertTrue(compareUnsigned(first, last) < 0);
+        assertTrue(compareUnsigned(ESRenderQueue.makeKey(0, 1, 4095, 0, 0),
+                ESRenderQueue.makeKey(0, 2, 0, 0, 0)) < 0);
+        assertTrue(compareUnsigned(ESRenderQueue.makeKey(0, 1, 1, 4095, 0),
+                ESRenderQueue.makeKey(0, 1, 2, 0, 0)) < 0);
+
+        ESRenderQueue queue = new ESRenderQueue(16);
+        queue.submit(last, 1, 0, 1, GLES30.GL_TRIANGLES, 3, 0, 0, 0);
+        queue.submit(first, 1, 0, 1, GLES30.GL_TRIANGLES, 3, 0, 0, 1);
+        assertEquals(1, queue.getSortedItem(0));
+        assertEquals(0, queue.getSortedItem(1));
+    }
+
+    @Test
+    public void depthKeyDrawsFarFirstWhenBackToFront() {
+        assertTrue(ESRenderQueue.depthKey(0.2f, false) < ESRenderQueue.depthKey(0.8f, false));
+        assertTrue(ESRenderQueue.depthKey(0.2f, true) > ESRenderQueue.depthKey(0.8f, true));
+        assertEquals(0, ESRenderQueue.depthKey(-1.0f, false));
+        assertEquals((1 << 24) - 1, ESRenderQueue.depthKey(2.0f, false));
+    }
+
+    @Test
+    public void growKeepsEveryItem() {
+        ESRenderQueue queue = new ESRenderQueue(16);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, queue.submit(ESRenderQueue.makeKey(0, 0, 0, 0, 99 - i), i, 0, 1,
+                    GLES30.GL_TRIANGLES, 3, 0, 0, i));
+        }
+        assertEquals(100, queue.size());
+        for (int position = 0; position < 100; position++) {
+            assertEquals(99 - position, queue.getSortedItem(position));
+        }
+    }
+
+    @Test
+    public void executeBindsOnlyChanges() {
+        ESGLRecorder gl = new ESGLRecorder();
+        ESGLState state = new ESGLState(gl);
+        ESRenderQueue queue = new ESRenderQueue(gl, 16);
+        // Programs 1 and 2 interleaved; sorting groups them
+        for (int i = 0; i < 8; i++) {
+            int program = 1 + i % 2;
+            int texture = 10 + i % 4 / 2;
+            queue.submit(ESRenderQueue.makeKey(0, program, texture, 5, 0), program, texture, 5,
+                    GLES30.GL_TRIANGLES, 6, i < 4 ? GLES30.GL_UNSIGNED_SHORT : 0, 0, i);
+        }
+
+        final int[] drawn = new int[8];
+        final int[] drawCount = new int[1];
+        queue.execute(state, new ESRenderQueue.DrawCallback() {
+            public void onDraw(int userData) {
+                drawn[drawCount[0]++] = userData;
+            }
+        });
+        assertEquals(8, drawCount[0]);
+        assertEquals(2, gl.getCallCount("glUseProgram"));
+        // Two textures per program
+        assertEquals(4, gl.getCallCount("glBindTexture"));
+        assertEquals(1, gl.getCallCount("glBindVertexArray"));
+        assertEquals(4, gl.getCallCount("glDrawElements"));
+        assertEquals(4, gl.getCallCount("glDrawArrays"));
+        // Program 1 draws first, in submission order within a texture
+        assertEquals(0, drawn[0]);
+        assertEquals(4, drawn[1]);
+        assertEquals(2, drawn[2]);
+        assertEquals(6, drawn[3]);
+    }
+
+    // Long.compareUnsigned is API 26
+    private static int compareUnsigned(long a, long b) {
+        return Long.compare(a + Long.MIN_VALUE, b + Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,213 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESRenderSchedulerTest
+//
+//    Drives ESRenderScheduler with a manual clock and a surface that records the
+//    render modes and render requests it receives.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ESRenderSchedulerTest {
+    private static final long MS = 1000000L;
+
+    private static class ManualClock implements ESRenderScheduler.Clock {
+        long mNow = 1000 * MS;
+
+        public long nanoTime() {
+            return mNow;
+        }
+    }
+
+    private static class RecordingSurface implements ESRenderScheduler.Surface {
+        int mRenderMode = -1;
+        int mModeChanges;
+        int mRequests;
+
+        public void setRenderMode(int renderMode) {
+            mRenderMode = renderMode;
+            mModeChanges++;
+        }
+
+        public void requestRender() {
+            mRequests++;
+        }
+    }
+
+    private ManualClock mClock;
+    private RecordingSurface mSurface;
+    private ESRenderScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mClock = new ManualClock();
+        mSurface = new RecordingSurface();
+        mScheduler = new ESRenderScheduler(mSurface, mClock);
+        mScheduler.start();
+        mScheduler.setSurfaceSize(320, 240);
+        mScheduler.frameRendered();
+    }
+
+    @Test
+    public void idleSceneRendersOnDemand() {
+        assertEquals(ESRenderScheduler.RENDERMODE_WHEN_DIRTY, mSurface.mRenderMode);
+        assertEquals(ESRenderScheduler.RENDERMODE_WHEN_DIRTY, mScheduler.getRenderMode());
+        assertFalse(mScheduler.isDirty());
+        assertEquals(0, mSurface.mRequests);
+    }
+
+    @Test
+    public void invalidationsBeforeTheFrameAreCoalesced() {
+        mScheduler.invalidate();
+        mScheduler.invalidate();
+        mScheduler.invalidate();
+        assertEquals(1, mSurface.mRequests);
+        assertTrue(mScheduler.isDirty());
+
+        assertFalse(mScheduler.frameRendered());
+        assertFalse(mScheduler.isDirty());
+        mScheduler.invalidate();
+        assertEquals(2, mSurface.mRequests);
+        assertEquals(2, mScheduler.getRenderRequestCount());
+    }
+
+    @Test
+    public void sizeChangeDrawsWithoutARequest() {
+        mScheduler.setSurfaceSize(640, 480);
+        assertTrue(mScheduler.isDirty());
+        // The surface already draws for the new size
+        mScheduler.invalidate();
+        assertEquals(0, mSurface.mRequests);
+        mScheduler.frameRendered();
+
+        mScheduler.setSurfaceSize(640, 480);
+        assertFalse(mScheduler.isDirty());
+    }
+
+    @Test
+    public void openEndedAnimationRendersContinuously() {
+        mScheduler.beginAnimation();
+        assertEquals(ESRenderScheduler.RENDERMODE_CONTINUOUSLY, mSurface.mRenderMode);
+        mScheduler.beginAnimation();
+        // Continuous frames need no requests
+        mScheduler.invalidate();
+        assertEquals(0, mSurface.mRequests);
+        assertTrue(mScheduler.frameRendered());
+
+        mScheduler.endAnimation();
+        assertEquals(ESRenderScheduler.RENDERMODE_CONTINUOUSLY, mSurface.mRenderMode);
+        mScheduler.endAnimation();
+        assertEquals(ESRenderScheduler.RENDERMODE_WHEN_DIRTY, mSurface.mRenderMode);
+        // One more frame shows the state the animation ended in
+        assertEquals(1, mSurface.mRequests);
+        assertFalse(mScheduler.frameRendered());
+        assertEquals(3, mSurface.mModeChanges);
+    }
+
+    @Test
+    public void unmatchedEndAnimationThrows() {
+        try {
+            mScheduler.endAnimation();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void timedAnimationStopsAfterItsDuration() {
+        mScheduler.animate(100 * MS);
+        assertEquals(ESRenderScheduler.RENDERMODE_CONTINUOUSLY, mSurface.mRenderMode);
+
+        mClock.mNow += 50 * MS;
+        assertTrue(mScheduler.frameRendered());
+        mClock.mNow += 49 * MS;
+        assertTrue(mScheduler.frameRendered());
+
+        mClock.mNow += 1 * MS;
+        assertFalse(mScheduler.frameRendered());
+        assertEquals(ESRenderScheduler.RENDERMODE_WHEN_DIRTY, mSurface.mRenderMode);
+        assertEquals(1, mSurface.mRequests);
+
+        // Idle again: nothing is drawn until the next invalidation
+        mClock.mNow += 1000 * MS;
+        assertEquals(1, mSurface.mRequests);
+        assertFalse(mScheduler.frameRendered());
+        assertEquals(1, mSurface.mRequests);
+    }
+
+    @Test
+    public void overlappingAnimationsExtendEachOther() {
+        mScheduler.animate(100 * MS);
+        mClock.mNow += 50 * MS;
+        // Ends before the first one, so it changes nothing
+        mScheduler.animate(20 * MS);
+        mClock.mNow += 40 * MS;
+        assertTrue(mScheduler.frameRendered());
+        // Ends after the first one
+        mScheduler.animate(100 * MS);
+        mClock.mNow += 60 * MS;
+        assertTrue(mScheduler.frameRendered());
+        mClock.mNow += 40 * MS;
+        assertFalse(mScheduler.frameRendered());
+    }
+
+    @Test
+    public void timedAnimationDoesNotEndAnOpenEndedOne() {
+        mScheduler.beginAnimation();
+        mScheduler.animate(10 * MS);
+        mClock.mNow += 20 * MS;
+        assertTrue(mScheduler.frameRendered());
+        mScheduler.endAnimation();
+        assertEquals(ESRenderScheduler.RENDERMODE_WHEN_DIRTY, mScheduler.getRenderMode());
+    }
+
+    @Test
+    public void clockWrapAroundKeepsTheAnimation() {
+        mClock.mNow = Long.MAX_VALUE - 10 * MS;
+        mScheduler.animate(100 * MS);
+        mClock.mNow += 50 * MS;
+        assertTrue(mScheduler.frameRendered());
+        mClock.mNow += 60 * MS;
+        assertFalse(mScheduler.frameRendered());
+    }
+}
@@ -0,0 +1,215 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESResolutionControllerTest
+//
+//    Feeds ESResolutionController synthetic frame time sequences and checks when the
+//    scale steps down and up, the back-off after a failed step up, and the clamping
+//    of the scale to its range.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ESResolutionControllerTest {
+    private static final long TARGET = 16666667L;
+    private static final long FAST = TARGET * 8 / 10;
+    private static final long SLOW = TARGET * 2;
+    private static final float STEP = 0.05f;
+    private static final int UP_FRAMES = 10;
+    private static final int COOLDOWN_FRAMES = 2;
+    private static final float EPSILON = 1e-4f;
+
+    private ESResolutionController mController;
+
+    @Before
+    public void setUp() {
+        mController = new ESResolutionController(TARGET);
+        mController.setTuning(STEP, ESResolutionController.DEFAULT_DOWN_THRESHOLD,
+                ESResolutionController.DEFAULT_UP_THRESHOLD, UP_FRAMES, COOLDOWN_FRAMES);
+    }
+
+    @Test
+    public void framesOnTargetKeepTheFullScale() {
+        assertEquals(0, feed(1000, TARGET));
+        assertEquals(1.0f, mController.getScale(), EPSILON);
+    }
+
+    @Test
+    public void singleSpikeDoesNotLowerTheScale() {
+        feed(50, TARGET);
+        assertFalse(mController.update(TARGET * 18 / 10));
+        assertEquals(0, feed(50, TARGET));
+        assertEquals(1.0f, mController.getScale(), EPSILON);
+    }
+
+    @Test
+    public void slowFramesLowerTheScaleInProportion() {
+        // The smoothed time crosses 1.1 times the target on the second slow frame
+        assertFalse(mController.update(SLOW));
+        assertTrue(mController.update(SLOW));
+        // 1.19 times the target: 1 / sqrt(1.19) = 0.917, rounded down to a step
+        assertEquals(0.9f, mController.getScale(), EPSILON);
+        assertEquals(TARGET, mController.getSmoothedFrameNanos(), 1.0);
+    }
+
+    @Test
+    public void changesWaitForTheCooldown() {
+        feed(2, SLOW);
+        assertEquals(1, mController.getChangeCount());
+        for (int i = 0; i < COOLDOWN_FRAMES; i++) {
+            assertFalse(mController.update(SLOW * 4));
+        }
+        assertEquals(TARGET, mController.getSmoothedFrameNanos(), 1.0);
+    }
+
+    @Test
+    public void scaleStepsUpAfterUpFramesGoodFrames() {
+        feed(2, SLOW);
+        float lowered = mController.getScale();
+        feed(COOLDOWN_FRAMES, FAST);
+
+        assertEquals(0, feed(UP_FRAMES - 1, FAST));
+        assertTrue(mController.update(FAST));
+        assertEquals(lowered + STEP, mController.getScale(), EPSILON);
+    }
+
+    @Test
+    public void slowFrameRestartsTheGoodFrameCount() {
+        feed(2, SLOW);
+        float lowered = mController.getScale();
+        feed(COOLDOWN_FRAMES, FAST);
+
+        feed(UP_FRAMES - 1, FAST);
+        // Over the up threshold, though not slow enough to step down
+        assertFalse(mController.update(TARGET * 11 / 10));
+        assertEquals(0, feed(UP_FRAMES - 1, FAST));
+        assertEquals(lowered, mController.getScale(), EPSILON);
+        assertTrue(mController.update(FAST));
+    }
+
+    @Test
+    public void failedStepUpReturnsAndWaitsLonger() {
+        feed(2, SLOW);
+        float lowered = mController.getScale();
+        feed(COOLDOWN_FRAMES, FAST);
+        feed(UP_FRAMES, FAST);
+        assertEquals(lowered + STEP, mController.getScale(), EPSILON);
+        feed(COOLDOWN_FRAMES, FAST);
+
+        // Too slow at the higher scale: back to the previous one, not lower
+        assertEquals(1, feed(2, SLOW));
+        assertEquals(lowered, mController.getScale(), EPSILON);
+        feed(COOLDOWN_FRAMES, FAST);
+
+        // The next attempt needs twice the good frames
+        assertEquals(0, feed(2 * UP_FRAMES - 1, FAST));
+        assertTrue(mController.update(FAST));
+        assertEquals(lowered + STEP, mController.getScale(), EPSILON);
+    }
+
+    @Test
+    public void stepUpThatHoldsKeepsTheNewScale() {
+        feed(2, SLOW);
+        float lowered = mController.getScale();
+        feed(COOLDOWN_FRAMES, FAST);
+        feed(UP_FRAMES, FAST);
+        feed(COOLDOWN_FRAMES, TARGET);
+        // Neither good nor slow: the probation period passes without another step
+        assertEquals(0, feed(UP_FRAMES + 1, TARGET * 105 / 100));
+        assertEquals(lowered + STEP, mController.getScale(), EPSILON);
+
+        // A slow phase now is a new load: a proportional step down, below the old scale
+        assertEquals(1, feed(2, SLOW));
+        assertTrue(mController.getScale() < lowered - EPSILON);
+    }
+
+    @Test
+    public void scaleIsClampedToTheMinimum() {
+        for (int i = 0; i < 100; i++) {
+            mController.update(SLOW * 4);
+        }
+        assertEquals(ESResolutionController.DEFAULT_MIN_SCALE, mController.getScale(), EPSILON);
+        int changes = mController.getChangeCount();
+        assertEquals(0, feed(100, SLOW * 4));
+        assertEquals(changes, mController.getChangeCount());
+    }
+
+    @Test
+    public void scaleIsClampedToTheMaximum() {
+        assertEquals(0, feed(10 * UP_FRAMES, FAST));
+        assertEquals(1.0f, mController.getScale(), EPSILON);
+    }
+
+    @Test
+    public void scaleRangeClampsTheCurrentScale() {
+        mController.setScaleRange(0.6f, 0.8f);
+        assertEquals(0.8f, mController.getScale(), EPSILON);
+        feed(200, SLOW * 4);
+        assertEquals(0.6f, mController.getScale(), EPSILON);
+        mController.setScaleRange(0.7f, 0.8f);
+        assertEquals(0.7f, mController.getScale(), EPSILON);
+    }
+
+    @Test
+    public void pausesAreIgnored() {
+        assertFalse(mController.update(1000000000L));
+        assertFalse(mController.update(0));
+        assertFalse(mController.update(-TARGET));
+        assertEquals(TARGET, mController.getSmoothedFrameNanos(), 1.0);
+    }
+
+    @Test
+    public void scaledSizeIsAtLeastOne() {
+        mController.setScaleRange(0.5f, 0.5f);
+        assertEquals(640, mController.getScaledSize(1280));
+        assertEquals(1, mController.getScaledSize(1));
+    }
+
+    // Frame times fed, returns the number of scale changes
+    private int feed(int frames, long frameNanos) {
+        int changes = 0;
+        for (int i = 0; i < frames; i++) {
+            if (mController.update(frameNanos)) {
+                changes++;
+            }
+        }
+        return changes;
+    }
+}
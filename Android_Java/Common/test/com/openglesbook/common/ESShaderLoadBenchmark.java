@@ -0,0 +1,132 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESShaderLoadBenchmark
+//
+//    Desktop benchmark of shader source reading: ESShader.readFully against the
+//    line by line BufferedReader it replaced, over every shader of the samples.
+//    Run main() with the Android_Java directory as argument (default "..").
+//
+
+package com.openglesbook.common;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ESShaderLoadBenchmark {
+    private static final int LOADS = 5000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws IOException {
+        File root = new File(args.length > 0 ? args[0] : "..");
+        List<byte[]> shaders = new ArrayList<byte[]>();
+        collect(root, shaders);
+        if (shaders.isEmpty()) {
+            throw new IllegalArgumentException("No assets/shaders files below " + root.getAbsolutePath());
+        }
+        long bytes = 0;
+        for (int i = 0; i < LOADS; i++) {
+            bytes += shaders.get(i % shaders.size()).length;
+        }
+        System.out.println(shaders.size() + " shaders, " + LOADS + " loads, " + bytes + " bytes per round");
+
+        long checksum = 0;
+        long bestLines = Long.MAX_VALUE;
+        long bestBulk = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < LOADS; i++) {
+                checksum += readLines(new ByteArrayInputStream(shaders.get(i % shaders.size()))).length();
+            }
+            long lines = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < LOADS; i++) {
+                checksum += ESShader.readFully(new ByteArrayInputStream(shaders.get(i % shaders.size()))).length();
+            }
+            long bulk = System.nanoTime() - start;
+
+            bestLines = Math.min(bestLines, lines);
+            bestBulk = Math.min(bestBulk, bulk);
+        }
+        System.out.printf("line by line: %.2f ms, %.1f us per shader%n", bestLines / 1e6, bestLines / 1e3 / LOADS);
+        System.out.printf("bulk read:    %.2f ms, %.1f us per shader%n", bestBulk / 1e6, bestBulk / 1e3 / LOADS);
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    // The reader ESShader used before: one String per line, appended to a StringBuilder
+    private static String readLines(InputStream is) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        BufferedReader br = new BufferedReader(new InputStreamReader(is));
+        String line;
+        while ((line = br.readLine()) != null) {
+            sb.append(line).append("\n");
+        }
+        br.close();
+        return sb.toString();
+    }
+
+    private static void collect(File dir, List<byte[]> shaders) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (!file.getName().equals("build")) {
+                    collect(file, shaders);
+                }
+            } else if (file.getParentFile().getName().equals("shaders")
+                    && file.getParentFile().getParentFile().getName().equals("assets")) {
+                byte[] data = new byte[(int) file.length()];
+                FileInputStream fis = new FileInputStream(file);
+                try {
+                    int length = 0;
+                    while (length < data.length) {
+                        length += fis.read(data, length, data.length - length);
+                    }
+                } finally {
+                    fis.close();
+                }
+                shaders.add(data);
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESShaderReloaderTest
+//
+//    Drives ESShaderReloader over a temporary shader directory with a ProgramCompiler
+//    that hands out program names and fails on sources containing "error", so the
+//    watch and swap logic runs without a GPU.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ESShaderReloaderTest {
+    private static final String VERT = "shaders/vertexShader.vert";
+    private static final String FRAG = "shaders/fragmentShader.frag";
+    private static final String OTHER_FRAG = "shaders/other.frag";
+
+    // File time a rewrite is dated back to; whole seconds, so every file system keeps it
+    private static final long TIME = 1400000000000L;
+
+    private static class FakeCompiler implements ESShaderReloader.ProgramCompiler {
+        int mNextProgram = 100;
+        int mCompiles;
+        final ArrayList<Integer> mDeleted = new ArrayList<Integer>();
+
+        public int compile(String vertName, String fragName, String vertShaderSrc, String fragShaderSrc) {
+            mCompiles++;
+            if (vertShaderSrc.contains("error") || fragShaderSrc.contains("error")) {
+                return 0;
+            }
+            return mNextProgram++;
+        }
+
+        public void delete(int programObject) {
+            mDeleted.add(programObject);
+        }
+    }
+
+    private File mRoot;
+    private FakeCompiler mCompiler;
+    private ESShaderReloader mReloader;
+
+    @Before
+    public void setUp() throws IOException {
+        mRoot = File.createTempFile("shaders", "");
+        mRoot.delete();
+        new File(mRoot, "shaders").mkdirs();
+        write(VERT, "void main() {}", TIME);
+        write(FRAG, "void main() { red(); }", TIME);
+        write(OTHER_FRAG, "void main() { green(); }", TIME);
+        mCompiler = new FakeCompiler();
+        mReloader = new ESShaderReloader(mRoot, mCompiler);
+    }
+
+    @After
+    public void tearDown() {
+        deleteTree(mRoot);
+    }
+
+    @Test
+    public void unchangedFilesCompileNothing() throws IOException {
+        register(VERT, FRAG, 1);
+        assertEquals(0, mReloader.poll());
+        assertEquals(0, mReloader.poll());
+        assertEquals(0, mCompiler.mCompiles);
+    }
+
+    @Test
+    public void changedFileSwapsTheProgram() throws IOException {
+        ESShaderReloader.Handle handle = register(VERT, FRAG, 1);
+        write(FRAG, "void main() { blue(); }", TIME + 1000);
+
+        assertEquals(1, mReloader.poll());
+        assertEquals(100, handle.get());
+        assertEquals(1, handle.getGeneration());
+        assertEquals(1, mCompiler.mDeleted.size());
+        assertEquals(Integer.valueOf(1), mCompiler.mDeleted.get(0));
+        // Picked up once
+        assertEquals(0, mReloader.poll());
+    }
+
+    @Test
+    public void failedCompileKeepsTheOldProgram() throws IOException {
+        ESShaderReloader.Handle handle = register(VERT, FRAG, 1);
+        write(FRAG, "void main() { error }", TIME + 1000);
+
+        assertEquals(0, mReloader.poll());
+        assertEquals(1, handle.get());
+        assertEquals(0, handle.getGeneration());
+        assertEquals(1, mReloader.getFailedReloads());
+        assertEquals(0, mCompiler.mDeleted.size());
+
+        // Fixing the shader swaps it in
+        write(FRAG, "void main() { fixed(); }", TIME + 2000);
+        assertEquals(1, mReloader.poll());
+        assertEquals(100, handle.get());
+        assertEquals(1, mCompiler.mDeleted.size());
+    }
+
+    @Test
+    public void onlyProgramsUsingTheChangedFileAreRebuilt() throws IOException {
+        ESShaderReloader.Handle red = register(VERT, FRAG, 1);
+        ESShaderReloader.Handle green = register(VERT, OTHER_FRAG, 2);
+        write(OTHER_FRAG, "void main() { yellow(); }", TIME + 1000);
+
+        assertEquals(1, mReloader.poll());
+        assertEquals(1, mCompiler.mCompiles);
+        assertEquals(1, red.get());
+        assertEquals(100, green.get());
+
+        // A shared stage rebuilds both
+        write(VERT, "void main() { move(); }", TIME + 1000);
+        assertEquals(2, mReloader.poll());
+        assertEquals(3, mCompiler.mCompiles);
+    }
+
+    @Test
+    public void rewriteWithTheSameTimeIsSeenByItsLength() throws IOException {
+        ESShaderReloader.Handle handle = register(VERT, FRAG, 1);
+        write(FRAG, "void main() { red(); red(); }", TIME);
+        assertEquals(1, mReloader.poll());
+        assertEquals(100, handle.get());
+    }
+
+    @Test
+    public void stampsThatWouldCollideWhenCombinedAreToldApart() throws IOException {
+        // lastModified * 31 + length is the same for (TIME, n) and (TIME - 1000, n + 31000)
+        String source = "void main() { red(); }";
+        StringBuilder longer = new StringBuilder(source);
+        for (int i = 0; i < 31000; i++) {
+            longer.append(' ');
+        }
+        ESShaderReloader.Handle handle = register(VERT, FRAG, 1);
+        write(FRAG, longer.toString(), TIME - 1000);
+        assertEquals(1, mReloader.poll());
+        assertEquals(100, handle.get());
+    }
+
+    private ESShaderReloader.Handle register(String vertName, String fragName, int programObject)
+            throws IOException {
+        return mReloader.register(vertName, fragName, mReloader.readSource(vertName),
+                mReloader.readSource(fragName), programObject);
+    }
+
+    private void write(String name, String source, long lastModified) throws IOException {
+        File file = new File(mRoot, name);
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            fos.write(source.getBytes("UTF-8"));
+        } finally {
+            fos.close();
+        }
+        file.setLastModified(lastModified);
+    }
+
+    private static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+}
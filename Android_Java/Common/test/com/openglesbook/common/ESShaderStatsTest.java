@@ -0,0 +1,184 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESShaderStatsTest
+//
+//    Checks the histogram buckets of ESShaderStats, how compile and link failures
+//    are counted as loads, and the escaping of program names in the CSV and JSON
+//    dumps.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ESShaderStatsTest {
+    private static final long MICRO = 1000;
+
+    @Before
+    public void setUp() {
+        ESShaderStats.reset();
+    }
+
+    @After
+    public void tearDown() {
+        ESShaderStats.reset();
+    }
+
+    @Test
+    public void bucketEdges() {
+        // Below a microsecond, and nonsense negative times, go to the first bucket
+        assertEquals(0, ESShaderStats.bucketFor(-5));
+        assertEquals(0, ESShaderStats.bucketFor(0));
+        assertEquals(0, ESShaderStats.bucketFor(999));
+        assertEquals(0, ESShaderStats.bucketFor(1 * MICRO));
+        assertEquals(0, ESShaderStats.bucketFor(2 * MICRO - 1));
+        assertEquals(1, ESShaderStats.bucketFor(2 * MICRO));
+        assertEquals(1, ESShaderStats.bucketFor(3 * MICRO + 999));
+        assertEquals(2, ESShaderStats.bucketFor(4 * MICRO));
+        assertEquals(9, ESShaderStats.bucketFor(1023 * MICRO));
+        assertEquals(10, ESShaderStats.bucketFor(1024 * MICRO));
+    }
+
+    @Test
+    public void slowTimesGoToTheLastBucket() {
+        int last = ESShaderStats.BUCKET_COUNT - 1;
+        assertEquals(last - 1, ESShaderStats.bucketFor(((1L << last) - 1) * MICRO));
+        assertEquals(last, ESShaderStats.bucketFor((1L << last) * MICRO));
+        assertEquals(last, ESShaderStats.bucketFor(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void successfulLoad() {
+        ESShaderStats.recordCompile("p", 10 * MICRO, 100, 0, true);
+        ESShaderStats.recordCompile("p", 20 * MICRO, 50, 4, true);
+        ESShaderStats.recordLink("p", 40 * MICRO, 2, true);
+
+        ESShaderStats.ProgramStats s = ESShaderStats.get("p");
+        assertEquals(1, s.loads);
+        assertEquals(0, s.failures);
+        assertEquals(2, s.shaderCompiles);
+        assertEquals(30 * MICRO, s.compileNanosTotal);
+        assertEquals(20 * MICRO, s.compileNanosMax);
+        assertEquals(40 * MICRO, s.linkNanosMax);
+        assertEquals(150, s.sourceLength);
+        assertEquals(6, s.infoLogLength);
+        assertEquals(1, s.compileHistogram[3]);
+        assertEquals(1, s.compileHistogram[4]);
+        assertEquals(1, s.linkHistogram[5]);
+    }
+
+    @Test
+    public void failedCompileEndsTheLoadWithoutALink() {
+        ESShaderStats.recordCompile("p", 10 * MICRO, 100, 0, true);
+        ESShaderStats.recordCompile("p", 10 * MICRO, 80, 30, false);
+
+        ESShaderStats.ProgramStats s = ESShaderStats.get("p");
+        assertEquals(1, s.loads);
+        assertEquals(1, s.failures);
+        assertEquals(2, s.shaderCompiles);
+        assertEquals(0, s.linkNanosTotal);
+        assertEquals(180, s.sourceLength);
+        assertEquals(30, s.infoLogLength);
+    }
+
+    @Test
+    public void failedLinkIsOneFailedLoad() {
+        ESShaderStats.recordCompile("p", 10 * MICRO, 100, 0, true);
+        ESShaderStats.recordCompile("p", 10 * MICRO, 100, 0, true);
+        ESShaderStats.recordLink("p", 5 * MICRO, 12, false);
+
+        ESShaderStats.ProgramStats s = ESShaderStats.get("p");
+        assertEquals(1, s.loads);
+        assertEquals(1, s.failures);
+        assertEquals(12, s.infoLogLength);
+        assertEquals(1, s.linkHistogram[2]);
+    }
+
+    @Test
+    public void sizesDescribeTheMostRecentLoad() {
+        ESShaderStats.recordCompile("p", MICRO, 100, 40, false);
+        ESShaderStats.recordCompile("p", MICRO, 70, 0, true);
+        ESShaderStats.recordLink("p", MICRO, 0, true);
+        ESShaderStats.recordFailedLoad("p");
+
+        ESShaderStats.ProgramStats s = ESShaderStats.get("p");
+        assertEquals(3, s.loads);
+        assertEquals(2, s.failures);
+        // The failed load had no compiles left pending
+        assertEquals(0, s.sourceLength);
+        assertEquals(0, s.infoLogLength);
+        assertNull(ESShaderStats.get("q"));
+    }
+
+    @Test
+    public void csvQuotesNames() {
+        ESShaderStats.recordFailedLoad("a\"b,c");
+        String[] lines = ESShaderStats.toCsv().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1], lines[1].startsWith("\"a\"\"b,c\",1,1,0,"));
+        // Name, 9 counters and two histograms of BUCKET_COUNT ';' separated counts
+        assertEquals(12, lines[0].split(",").length);
+        String afterName = lines[1].substring("\"a\"\"b,c\",".length());
+        assertEquals(11, afterName.split(",").length);
+        assertEquals(ESShaderStats.BUCKET_COUNT, afterName.split(",")[9].split(";").length);
+    }
+
+    @Test
+    public void jsonEscapesNames() {
+        ESShaderStats.recordFailedLoad("q\"\\\n\u0001|x");
+        String json = ESShaderStats.toJson();
+        assertTrue(json, json.startsWith("[\n  {\"name\":\"q\\\"\\\\\\u000a\\u0001|x\",\"loads\":1,\"failures\":1,"));
+        assertTrue(json, json.endsWith("]}\n]\n"));
+    }
+
+    @Test
+    public void emptyDumps() {
+        assertEquals("[]\n", ESShaderStats.toJson());
+        assertEquals(1, ESShaderStats.toCsv().split("\n").length);
+    }
+
+    @Test
+    public void programsAreSortedByName() {
+        ESShaderStats.recordFailedLoad("b");
+        ESShaderStats.recordFailedLoad("a");
+        assertEquals("a", ESShaderStats.snapshot().get(0).name);
+        assertEquals("b", ESShaderStats.snapshot().get(1).name);
+    }
+}
@@ -0,0 +1,216 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESStaticBatchTest
+//
+//    Checks through an ESGLRecorder that ESStaticBatch groups meshes by material,
+//    rebases their indices onto the merged vertex buffer, transforms their vertices,
+//    and draws the visible meshes of a material as contiguous runs.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import android.opengl.GLES30;
+
+public class ESStaticBatchTest {
+    private static final float[] TRIANGLE = { 0, 0, 0, 1, 0, 0, 0, 1, 0 };
+    private static final float[] QUAD = { 0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0 };
+
+    // Keeps the data of every glBufferData and the ranges of every glDrawElements
+    private static class BatchRecorder extends ESGLRecorder {
+        FloatBuffer mVertices;
+        ByteBuffer mIndices;
+        final ArrayList<int[]> mDraws = new ArrayList<int[]>();
+
+        @Override
+        public void glBufferData(int target, int size, Buffer data, int usage) {
+            super.glBufferData(target, size, data, usage);
+            if (target == GLES30.GL_ARRAY_BUFFER) {
+                mVertices = ((FloatBuffer) data).duplicate();
+            } else {
+                mIndices = ((ByteBuffer) data).duplicate().order(ByteOrder.nativeOrder());
+            }
+        }
+
+        @Override
+        public void glDrawElements(int mode, int count, int type, int offset) {
+            super.glDrawElements(mode, count, type, offset);
+            mDraws.add(new int[] { count, offset });
+        }
+    }
+
+    private BatchRecorder mGL;
+    private ESStaticBatch mBatch;
+    private int mQuad;
+    private int mFirst;
+    private int mSecond;
+    private int mThird;
+
+    private static float[] translation(float x, float y, float z) {
+        return new float[] { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, x, y, z, 1 };
+    }
+
+    // The uploaded 16-bit indices, widened
+    private int[] indices() {
+        int[] out = new int[mBatch.getTotalIndexCount()];
+        mGL.mIndices.position(0);
+        for (int i = 0; i < out.length; i++) {
+            out[i] = mGL.mIndices.getShort() & 0xFFFF;
+        }
+        return out;
+    }
+
+    @Before
+    public void setUp() {
+        mGL = new BatchRecorder();
+        mBatch = new ESStaticBatch(mGL, 3, 0, -1);
+        // Added out of material order: the quad is moved in front of the first triangle
+        mFirst = mBatch.add(TRIANGLE, new short[] { 0, 1, 2 }, null, 2);
+        mQuad = mBatch.add(QUAD, new short[] { 0, 1, 2, 2, 3, 0 }, translation(10, 0, 0), 1);
+        mSecond = mBatch.add(TRIANGLE, new short[] { 0, 2, 1 }, null, 2);
+        mThird = mBatch.add(TRIANGLE, new short[] { 2, 1, 0 }, null, 2);
+        mBatch.build();
+    }
+
+    @Test
+    public void meshesAreOrderedByMaterial() {
+        assertEquals(0, mBatch.getBaseVertex(mQuad));
+        assertEquals(0, mBatch.getFirstIndex(mQuad));
+        assertEquals(4, mBatch.getBaseVertex(mFirst));
+        assertEquals(6, mBatch.getFirstIndex(mFirst));
+        assertEquals(7, mBatch.getBaseVertex(mSecond));
+        assertEquals(9, mBatch.getFirstIndex(mSecond));
+        assertEquals(10, mBatch.getBaseVertex(mThird));
+        assertEquals(12, mBatch.getFirstIndex(mThird));
+        assertEquals(13, mBatch.getTotalVertexCount());
+        assertEquals(15, mBatch.getTotalIndexCount());
+    }
+
+    @Test
+    public void indicesAreRebasedOntoTheMergedBuffer() {
+        assertEquals(GLES30.GL_UNSIGNED_SHORT, mBatch.getIndexType());
+        assertArrayEquals(new int[] { 0, 1, 2, 2, 3, 0, 4, 5, 6, 7, 9, 8, 12, 11, 10 }, indices());
+    }
+
+    @Test
+    public void verticesAreTransformedToWorldSpace() {
+        float[] vertices = new float[13 * 3];
+        mGL.mVertices.position(0);
+        mGL.mVertices.get(vertices);
+        assertArrayEquals(new float[] { 10, 0, 0, 11, 0, 0, 11, 1, 0, 10, 1, 0 },
+                Arrays.copyOfRange(vertices, 0, 12), 0.0f);
+        assertArrayEquals(TRIANGLE, Arrays.copyOfRange(vertices, 12, 21), 0.0f);
+
+        float[] bounds = new float[6];
+        mBatch.getBounds(mQuad, bounds);
+        assertArrayEquals(new float[] { 10, 0, 0, 11, 1, 0 }, bounds, 0.0f);
+    }
+
+    @Test
+    public void visibleMaterialIsOneDraw() {
+        assertEquals(1, mBatch.draw(2));
+        assertEquals(1, mGL.mDraws.size());
+        assertEquals(9, mGL.mDraws.get(0)[0]);
+        assertEquals(6 * 2, mGL.mDraws.get(0)[1]);
+    }
+
+    @Test
+    public void hiddenMeshSplitsTheRun() {
+        mBatch.setVisible(mSecond, false);
+        assertEquals(2, mBatch.draw(2));
+        assertEquals(3, mGL.mDraws.get(0)[0]);
+        assertEquals(6 * 2, mGL.mDraws.get(0)[1]);
+        assertEquals(3, mGL.mDraws.get(1)[0]);
+        assertEquals(12 * 2, mGL.mDraws.get(1)[1]);
+    }
+
+    @Test
+    public void hiddenEndsShortenTheRun() {
+        mBatch.setVisible(mFirst, false);
+        mBatch.setVisible(mThird, false);
+        assertEquals(1, mBatch.draw(2));
+        assertEquals(3, mGL.mDraws.get(0)[0]);
+        assertEquals(9 * 2, mGL.mDraws.get(0)[1]);
+    }
+
+    @Test
+    public void hiddenOrUnknownMaterialDrawsNothing() {
+        mBatch.setVisible(mQuad, false);
+        assertEquals(0, mBatch.draw(1));
+        assertEquals(0, mBatch.draw(7));
+        assertEquals(0, mGL.getCallCount("glDrawElements"));
+    }
+
+    @Test
+    public void drawAllIssuesOneDrawPerMaterial() {
+        mBatch.drawAll();
+        assertEquals(2, mGL.mDraws.size());
+        assertEquals(6, mGL.mDraws.get(0)[0]);
+        assertEquals(0, mGL.mDraws.get(0)[1]);
+    }
+
+    @Test
+    public void largeBatchUses32BitIndices() {
+        mGL = new BatchRecorder();
+        mBatch = new ESStaticBatch(mGL, 3, 0, -1);
+        int big = 0x10000 + 1;
+        mBatch.add(new float[big * 3], new int[] { 0, 1, big - 1 }, null, 0);
+        int small = mBatch.add(TRIANGLE, new int[] { 2, 1, 0 }, null, 0);
+        mBatch.build();
+
+        assertEquals(GLES30.GL_UNSIGNED_INT, mBatch.getIndexType());
+        assertEquals(big, mBatch.getBaseVertex(small));
+        int[] indices = new int[6];
+        mGL.mIndices.position(0);
+        mGL.mIndices.asIntBuffer().get(indices);
+        assertArrayEquals(new int[] { 0, 1, big - 1, big + 2, big + 1, big }, indices);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outOfRangeIndexIsRejected() {
+        new ESStaticBatch(mGL, 3, 0, -1).add(TRIANGLE, new short[] { 0, 1, 3 }, null, 0);
+    }
+}
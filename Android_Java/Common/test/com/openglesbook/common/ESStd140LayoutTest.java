@@ -0,0 +1,222 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESStd140LayoutTest
+//
+//    Checks ESStd140Layout and ESUniformBlock against the std140 rules of the
+//    OpenGL ES 3.0 specification, section 2.12.6.4.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class ESStd140LayoutTest {
+    @Test
+    public void scalarsAndVec2PackTightly() {
+        ESStd140Layout layout = new ESStd140Layout();
+        assertEquals(0, layout.addFloat());
+        assertEquals(4, layout.addInt());
+        assertEquals(8, layout.addVec2());
+        assertEquals(16, layout.addBool());
+        assertEquals(32, layout.getSize());
+    }
+
+    @Test
+    public void vec3IsAlignedLikeVec4ButScalarFillsItsLastComponent() {
+        ESStd140Layout layout = new ESStd140Layout();
+        assertEquals(0, layout.addFloat());
+        assertEquals(16, layout.addVec3());
+        assertEquals(28, layout.addFloat());
+        assertEquals(32, layout.addVec3());
+        assertEquals(48, layout.addVec2());
+        assertEquals(64, layout.getSize());
+    }
+
+    @Test
+    public void arrayElementsAreStridedToVec4() {
+        assertEquals(16, ESStd140Layout.arrayStride(4));
+        assertEquals(16, ESStd140Layout.arrayStride(12));
+        assertEquals(32, ESStd140Layout.arrayStride(20));
+
+        ESStd140Layout layout = new ESStd140Layout();
+        assertEquals(0, layout.addFloat());
+        assertEquals(16, layout.addFloatArray(3));
+        // The member after an array starts on a vec4 boundary even if it is a scalar
+        assertEquals(64, layout.addFloat());
+        assertEquals(80, layout.addVec2Array(2));
+        assertEquals(112, layout.addVec3Array(1));
+        assertEquals(128, layout.addVec4Array(2));
+        assertEquals(160, layout.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyArrayIsRejected() {
+        new ESStd140Layout().addVec4Array(0);
+    }
+
+    @Test
+    public void matricesAreArraysOfColumns() {
+        ESStd140Layout layout = new ESStd140Layout();
+        assertEquals(0, layout.addFloat());
+        assertEquals(16, layout.addMat4());
+        assertEquals(80, layout.addFloat());
+        // mat3 columns are vec3 padded to 16 bytes, mat2 columns vec2 padded to 16 bytes
+        assertEquals(96, layout.addMat3());
+        assertEquals(144, layout.addMat2());
+        assertEquals(176, layout.addFloat());
+        assertEquals(192, layout.addMat4Array(2));
+        assertEquals(320, layout.addVec2());
+        assertEquals(336, layout.getSize());
+    }
+
+    @Test
+    public void structIsAlignedAndPaddedToVec4() {
+        ESStd140Layout layout = new ESStd140Layout();
+        assertEquals(0, layout.addFloat());
+        assertEquals(16, layout.beginStruct());
+        assertEquals(16, layout.addFloat());
+        layout.endStruct();
+        // A struct holding one float still takes a whole vec4
+        assertEquals(32, layout.addFloat());
+        assertEquals(48, layout.getSize());
+    }
+
+    @Test
+    public void nestedStructs() {
+        ESStd140Layout layout = new ESStd140Layout();
+        assertEquals(0, layout.beginStruct());
+        assertEquals(0, layout.addVec2());
+        assertEquals(16, layout.beginStruct());
+        assertEquals(16, layout.addVec3());
+        layout.endStruct();
+        assertEquals(32, layout.addFloat());
+        layout.endStruct();
+        assertEquals(48, layout.addFloat());
+        assertEquals(64, layout.getSize());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unbalancedEndStructIsRejected() {
+        new ESStd140Layout().endStruct();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void sizeOfOpenStructIsRejected() {
+        ESStd140Layout layout = new ESStd140Layout();
+        layout.beginStruct();
+        layout.getSize();
+    }
+
+    // The example block of the ARB_uniform_buffer_object extension, which defines std140:
+    //
+    //    layout(std140) uniform Example {
+    //        float a; vec2 b; vec3 c;
+    //        struct { int d; bvec2 e; } f;
+    //        float g; float h[2]; mat2x3 i;
+    //        struct { uvec3 j; vec2 k; float l[2]; vec2 m; mat3 n[2]; } o[2];
+    //    };
+    @Test
+    public void specificationExample() {
+        ESStd140Layout layout = new ESStd140Layout();
+        assertEquals(0, layout.addFloat());
+        assertEquals(8, layout.addVec2());
+        assertEquals(16, layout.addVec3());
+        assertEquals(32, layout.beginStruct());
+        assertEquals(32, layout.addInt());
+        assertEquals(40, layout.addVec2());
+        layout.endStruct();
+        assertEquals(48, layout.addFloat());
+        assertEquals(64, layout.addFloatArray(2));
+        // mat2x3 is stored as 2 vec3 columns
+        assertEquals(96, layout.addVec3Array(2));
+
+        int[] expected = {128, 144, 160, 192, 208, 304, 320, 336, 368, 384};
+        for (int element = 0; element < 2; element++) {
+            int[] offsets = new int[5];
+            assertEquals(expected[element * 5], layout.beginStruct());
+            offsets[0] = layout.addVec3();
+            offsets[1] = layout.addVec2();
+            offsets[2] = layout.addFloatArray(2);
+            offsets[3] = layout.addVec2();
+            // mat3 n[2] is stored as 6 vec3 columns
+            offsets[4] = layout.addVec3Array(6);
+            layout.endStruct();
+            for (int i = 0; i < 5; i++) {
+                assertEquals("o[" + element + "] member " + i, expected[element * 5 + i], offsets[i]);
+            }
+        }
+        assertEquals(480, layout.getSize());
+    }
+
+    @Test
+    public void writerPadsVec3ArraysAndMatrixColumns() {
+        ESStd140Layout layout = new ESStd140Layout();
+        int vec3 = layout.addVec3();
+        int scalar = layout.addFloat();
+        int mat3 = layout.addMat3();
+        int array = layout.addVec3Array(2);
+        int mat4 = layout.addMat4();
+        ESUniformBlock block = new ESUniformBlock("Test", 0, layout);
+        assertEquals(layout.getSize(), block.getSize());
+
+        block.setVec3(vec3, 1.0f, 2.0f, 3.0f);
+        block.setFloat(scalar, 4.0f);
+        block.setMat3(mat3, new float[] {10, 11, 12, 20, 21, 22, 30, 31, 32}, 0);
+        block.setArray(array, 3, new float[] {40, 41, 42, 50, 51, 52}, 2);
+        float[] m = new float[17];
+        for (int i = 0; i < 16; i++) {
+            m[i + 1] = 100 + i;
+        }
+        block.setMat4(mat4, m, 1);
+
+        ByteBuffer data = block.getData();
+        // Writing the vec3 leaves the scalar packed after it untouched
+        assertFloats(data, vec3, 1, 2, 3, 4);
+        assertFloats(data, mat3, 10, 11, 12, 0, 20, 21, 22, 0, 30, 31, 32, 0);
+        assertFloats(data, array, 40, 41, 42, 0, 50, 51, 52, 0);
+        for (int i = 0; i < 16; i++) {
+            assertEquals(100 + i, data.getFloat(mat4 + i * 4), 0.0f);
+        }
+    }
+
+    private static void assertFloats(ByteBuffer data, int offset, float... expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("float " + i + " at offset " + offset, expected[i], data.getFloat(offset + i * 4), 0.0f);
+        }
+    }
+}
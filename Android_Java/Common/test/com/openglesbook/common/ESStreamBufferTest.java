@@ -0,0 +1,209 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// ESStreamBufferTest
+//
+//    Checks through an ESGLRecorder how ESStreamBuffer rotates its per-frame regions,
+//    aligns allocations, and fences, waits for and deletes the sync objects of the
+//    regions, including across a context loss.
+//
+
+package com.openglesbook.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import android.opengl.GLES30;
+
+public class ESStreamBufferTest {
+    private static final int REGION_SIZE = 100;
+    private static final int FRAMES = 3;
+
+    // Reports the first wait of every fence as timed out
+    private static class SlowGpuRecorder extends ESGLRecorder {
+        @Override
+        public int glClientWaitSync(long sync, int flags, long timeout) {
+            super.glClientWaitSync(sync, flags, timeout);
+            return timeout == 0 ? GLES30.GL_TIMEOUT_EXPIRED : GLES30.GL_CONDITION_SATISFIED;
+        }
+    }
+
+    private ESGLRecorder mGL;
+    private ESStreamBuffer mStream;
+
+    @Before
+    public void setUp() {
+        mGL = new ESGLRecorder();
+        mStream = new ESStreamBuffer(mGL, GLES30.GL_ARRAY_BUFFER, REGION_SIZE, FRAMES);
+        mStream.create();
+    }
+
+    @Test
+    public void createAllocatesEveryRegion() {
+        assertEquals(1, mGL.getCallCount("glGenBuffers"));
+        assertEquals(1, mGL.getCallCount("glBufferData"));
+        assertTrue(mStream.getBuffer() != 0);
+    }
+
+    @Test
+    public void framesRotateThroughTheRegions() {
+        for (int frame = 0; frame < 2 * FRAMES; frame++) {
+            mStream.beginFrame();
+            assertEquals(frame % FRAMES * REGION_SIZE, mStream.allocate(16, 4));
+            mStream.endFrame();
+        }
+    }
+
+    @Test
+    public void allocationsAreAlignedInTheBuffer() {
+        mStream.beginFrame();
+        assertEquals(0, mStream.allocate(3, 1));
+        assertEquals(16, mStream.allocate(4, 16));
+        assertEquals(20, mStream.getUsed());
+        mStream.endFrame();
+
+        // The second region starts at 100, which is not a multiple of 16
+        mStream.beginFrame();
+        assertEquals(112, mStream.allocate(8, 16));
+        assertEquals(20, mStream.getUsed());
+    }
+
+    @Test
+    public void fullRegionRefusesTheAllocation() {
+        mStream.beginFrame();
+        assertEquals(0, mStream.allocate(REGION_SIZE - 8, 4));
+        assertEquals(-1, mStream.allocate(16, 4));
+        assertEquals(1, mStream.getOverflows());
+        // What fits still fits
+        assertEquals(REGION_SIZE - 8, mStream.allocate(8, 4));
+    }
+
+    @Test
+    public void regionIsFencedAndWaitedForOnReuse() {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            mStream.beginFrame();
+            mStream.endFrame();
+        }
+        assertEquals(FRAMES, mGL.getCallCount("glFenceSync"));
+        // No region was reused yet
+        assertEquals(0, mGL.getCallCount("glClientWaitSync"));
+
+        mGL.beginFrame();
+        mStream.beginFrame();
+        assertEquals(1, mGL.getFrameCallCount("glClientWaitSync"));
+        assertEquals(1, mGL.getFrameCallCount("glDeleteSync"));
+        assertEquals(0, mStream.getStalls());
+    }
+
+    @Test
+    public void busyRegionCountsAStall() {
+        mGL = new SlowGpuRecorder();
+        mStream = new ESStreamBuffer(mGL, GLES30.GL_ARRAY_BUFFER, REGION_SIZE, FRAMES);
+        mStream.create();
+        for (int frame = 0; frame < FRAMES + 1; frame++) {
+            mStream.beginFrame();
+            mStream.endFrame();
+        }
+        assertEquals(1, mStream.getStalls());
+        // The poll, then one wait that flushes
+        assertEquals(2, mGL.getCallCount("glClientWaitSync"));
+        assertEquals(1, mGL.getCallCount("glDeleteSync"));
+    }
+
+    @Test
+    public void newContextForgetsTheOldFences() {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            mStream.beginFrame();
+            mStream.endFrame();
+        }
+        // The context was lost: its syncs are gone with it
+        mStream.create();
+        for (int frame = 0; frame < FRAMES; frame++) {
+            mStream.beginFrame();
+            mStream.endFrame();
+        }
+        assertEquals(0, mGL.getCallCount("glClientWaitSync"));
+        assertEquals(0, mGL.getCallCount("glDeleteSync"));
+        assertEquals(0, mStream.allocate(16, 4) % REGION_SIZE);
+    }
+
+    @Test
+    public void uploadWritesThroughAnUnsynchronizedMap() {
+        FloatBuffer data = ByteBuffer.allocateDirect(6 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        data.put(new float[] { 1, 2, 3, 4, 5, 6 }).position(0);
+        mStream.beginFrame();
+        mGL.beginFrame();
+        assertEquals(0, mStream.upload(data));
+        assertEquals(24, mStream.upload(data));
+        assertEquals(2, mGL.getFrameCallCount("glMapBufferRange"));
+        assertEquals(2, mGL.getFrameCallCount("glUnmapBuffer"));
+        assertEquals(2 * 6 * 4, mGL.getFrameUploadBytes());
+        // The source is left untouched
+        assertEquals(0, data.position());
+        mStream.endFrame();
+    }
+
+    @Test
+    public void endFrameWhileMappedThrows() {
+        mStream.beginFrame();
+        mStream.map(mStream.allocate(16, 4), 16);
+        try {
+            mStream.endFrame();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        mStream.unmap();
+        mStream.endFrame();
+    }
+
+    @Test
+    public void deleteReleasesThePendingFences() {
+        mStream.beginFrame();
+        mStream.endFrame();
+        mStream.beginFrame();
+        mStream.endFrame();
+        mStream.delete();
+        assertEquals(2, mGL.getCallCount("glDeleteSync"));
+        assertEquals(1, mGL.getCallCount("glDeleteBuffers"));
+        assertEquals(0, mStream.getBuffer());
+    }
+}
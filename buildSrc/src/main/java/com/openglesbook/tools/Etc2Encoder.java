@@ -0,0 +1,616 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// Etc2Encoder
+//
+//    ETC2 RGB8 and RGBA8 (ETC2 + EAC alpha) block compression of 8-bit images, spread
+//    over several threads, and the matching decoder used to measure the quality.
+//
+
+package com.openglesbook.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Color blocks are encoded in the ETC1 compatible individual and differential modes, in
+ * both sub-block orientations, and in the ETC2 planar mode for smooth gradients; the mode
+ * with the smallest squared error is kept. The T and H modes are not searched. Images are
+ * ARGB ints as returned by BufferedImage.getRGB(), sizes need not be multiples of 4.
+ */
+public class Etc2Encoder {
+    public static final int GL_COMPRESSED_RGB8_ETC2 = 0x9274;
+    public static final int GL_COMPRESSED_RGBA8_ETC2_EAC = 0x9278;
+
+    private static final int[][] ETC_MODIFIERS = {
+            {2, 8}, {5, 17}, {9, 29}, {13, 42}, {18, 60}, {24, 80}, {33, 106}, {47, 183}
+    };
+
+    private static final int[][] EAC_MODIFIERS = {
+            {-3, -6, -9, -15, 2, 5, 8, 14},
+            {-3, -7, -10, -13, 2, 6, 9, 12},
+            {-2, -5, -8, -13, 1, 4, 7, 12},
+            {-2, -4, -6, -13, 1, 3, 5, 12},
+            {-3, -6, -8, -12, 2, 5, 7, 11},
+            {-3, -7, -9, -11, 2, 6, 8, 10},
+            {-4, -7, -8, -11, 3, 6, 7, 10},
+            {-3, -5, -8, -11, 2, 4, 7, 10},
+            {-2, -6, -8, -10, 1, 5, 7, 9},
+            {-2, -5, -8, -10, 1, 4, 7, 9},
+            {-2, -4, -8, -10, 1, 3, 7, 9},
+            {-2, -5, -7, -10, 1, 4, 6, 9},
+            {-3, -4, -7, -10, 2, 3, 6, 9},
+            {-1, -2, -3, -10, 0, 1, 2, 9},
+            {-4, -6, -8, -9, 3, 5, 7, 8},
+            {-3, -5, -7, -9, 2, 4, 6, 8}
+    };
+
+    private final int mThreads;
+
+    /**
+     * @param threads  Encoding threads, e.g. Runtime.getRuntime().availableProcessors()
+     */
+    public Etc2Encoder(int threads) {
+        mThreads = Math.max(1, threads);
+    }
+
+    /**
+     * Compressed size of an image
+     * @param alpha  true for RGBA8, false for RGB8
+     */
+    public static int compressedSize(int width, int height, boolean alpha) {
+        return ((width + 3) / 4) * ((height + 3) / 4) * (alpha ? 16 : 8);
+    }
+
+    /**
+     * Compress an image, rows of blocks are shared out among the threads
+     * @param argb    width * height pixels, row by row from the top
+     * @param alpha   true for GL_COMPRESSED_RGBA8_ETC2_EAC, false for GL_COMPRESSED_RGB8_ETC2
+     * @return  The blocks in the layout glCompressedTexImage2D expects
+     */
+    public byte[] encode(final int[] argb, final int width, final int height, final boolean alpha) {
+        final int blocksX = (width + 3) / 4;
+        final int blocksY = (height + 3) / 4;
+        final byte[] out = new byte[compressedSize(width, height, alpha)];
+        ExecutorService executor = Executors.newFixedThreadPool(mThreads);
+        try {
+            List<Future<?>> rows = new ArrayList<Future<?>>(blocksY);
+            for (int by = 0; by < blocksY; by++) {
+                final int blockY = by;
+                rows.add(executor.submit(new Runnable() {
+                    public void run() {
+                        encodeRow(argb, width, height, alpha, blockY, blocksX, out);
+                    }
+                }));
+            }
+            for (Future<?> row : rows) {
+                row.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Encoding failed", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        return out;
+    }
+
+    private static void encodeRow(int[] argb, int width, int height, boolean alpha, int blockY, int blocksX,
+                                  byte[] out) {
+        int[] r = new int[16];
+        int[] g = new int[16];
+        int[] b = new int[16];
+        int[] a = new int[16];
+        int blockBytes = alpha ? 16 : 8;
+        for (int blockX = 0; blockX < blocksX; blockX++) {
+            for (int p = 0; p < 16; p++) {
+                // Edge blocks repeat the last row and column
+                int x = Math.min(blockX * 4 + (p & 3), width - 1);
+                int y = Math.min(blockY * 4 + (p >> 2), height - 1);
+                int c = argb[y * width + x];
+                a[p] = c >>> 24;
+                r[p] = (c >> 16) & 0xff;
+                g[p] = (c >> 8) & 0xff;
+                b[p] = c & 0xff;
+            }
+            int offset = (blockY * blocksX + blockX) * blockBytes;
+            if (alpha) {
+                putLong(out, offset, encodeAlphaBlock(a));
+                offset += 8;
+            }
+            putLong(out, offset, encodeColorBlock(r, g, b));
+        }
+    }
+
+    private static void putLong(byte[] out, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            out[offset + i] = (byte) (value >>> (56 - 8 * i));
+        }
+    }
+
+    private static long getLong(byte[] in, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (in[offset + i] & 0xff);
+        }
+        return value;
+    }
+
+    // Bit of the pixel at (x, y) in the index fields; ETC numbers the pixels column by column
+    private static int pixelBit(int p) {
+        return (p & 3) * 4 + (p >> 2);
+    }
+
+    private static int clamp255(int v) {
+        return v < 0 ? 0 : (v > 255 ? 255 : v);
+    }
+
+    /// ETC2 color blocks
+
+    private static class SubBlockFit {
+        long error = Long.MAX_VALUE;
+        // Quantized base color
+        final int[] color = new int[3];
+        int table;
+        final int[] selectors = new int[16];
+    }
+
+    /**
+     * Compress one 4x4 block of colors
+     * @param r  16 values per channel, row by row
+     */
+    public static long encodeColorBlock(int[] r, int[] g, int[] b) {
+        long bestBits = encodePlanar(r, g, b);
+        long bestError = colorError(bestBits, r, g, b);
+
+        boolean[] first = new boolean[16];
+        for (int flip = 0; flip < 2; flip++) {
+            for (int p = 0; p < 16; p++) {
+                first[p] = flip == 0 ? (p & 3) < 2 : (p >> 2) < 2;
+            }
+            // Individual mode, two 4-bit colors
+            SubBlockFit fit0 = fitSubBlock(r, g, b, first, true, 4, null);
+            SubBlockFit fit1 = fitSubBlock(r, g, b, first, false, 4, null);
+            if (fit0.error + fit1.error < bestError) {
+                bestError = fit0.error + fit1.error;
+                bestBits = packEtc1(fit0, fit1, first, flip, false);
+            }
+            // Differential mode, a 5-bit color and a 3-bit signed offset from it
+            fit0 = fitSubBlock(r, g, b, first, true, 5, null);
+            fit1 = fitSubBlock(r, g, b, first, false, 5, fit0.color);
+            if (fit1.error != Long.MAX_VALUE && fit0.error + fit1.error < bestError) {
+                bestError = fit0.error + fit1.error;
+                bestBits = packEtc1(fit0, fit1, first, flip, true);
+            }
+        }
+        return bestBits;
+    }
+
+    // Base color and table of one half of the block. The modifiers move all channels alike, so
+    // the quantized average is tried together with one step brighter and darker.
+    private static SubBlockFit fitSubBlock(int[] r, int[] g, int[] b, boolean[] first, boolean which,
+                                           int bits, int[] differentialBase) {
+        int max = (1 << bits) - 1;
+        int[] sum = new int[3];
+        for (int p = 0; p < 16; p++) {
+            if (first[p] == which) {
+                sum[0] += r[p];
+                sum[1] += g[p];
+                sum[2] += b[p];
+            }
+        }
+        int[] center = new int[3];
+        for (int c = 0; c < 3; c++) {
+            center[c] = Math.round(sum[c] / 8.0f * max / 255.0f);
+        }
+
+        SubBlockFit best = new SubBlockFit();
+        int[] q = new int[3];
+        int[] selectors = new int[16];
+        for (int d = -1; d <= 1; d++) {
+            boolean valid = true;
+            for (int c = 0; c < 3; c++) {
+                q[c] = center[c] + d;
+                if (q[c] < 0 || q[c] > max) {
+                    valid = false;
+                } else if (differentialBase != null) {
+                    int delta = q[c] - differentialBase[c];
+                    valid &= delta >= -4 && delta <= 3;
+                }
+            }
+            if (!valid) {
+                continue;
+            }
+            int baseR = expand(q[0], bits);
+            int baseG = expand(q[1], bits);
+            int baseB = expand(q[2], bits);
+            for (int t = 0; t < 8; t++) {
+                long error = 0;
+                for (int p = 0; p < 16 && error < best.error; p++) {
+                    if (first[p] != which) {
+                        continue;
+                    }
+                    long pixelBest = Long.MAX_VALUE;
+                    for (int s = 0; s < 4; s++) {
+                        int m = modifier(t, s);
+                        int dr = clamp255(baseR + m) - r[p];
+                        int dg = clamp255(baseG + m) - g[p];
+                        int db = clamp255(baseB + m) - b[p];
+                        long e = dr * dr + dg * dg + db * db;
+                        if (e < pixelBest) {
+                            pixelBest = e;
+                            selectors[p] = s;
+                        }
+                    }
+                    error += pixelBest;
+                }
+                if (error < best.error) {
+                    best.error = error;
+                    System.arraycopy(q, 0, best.color, 0, 3);
+                    best.table = t;
+                    System.arraycopy(selectors, 0, best.selectors, 0, 16);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static int expand(int value, int bits) {
+        return bits == 4 ? (value << 4) | value : (value << 3) | (value >> 2);
+    }
+
+    // Selectors 0..3 stand for +a, +b, -a, -b of the table
+    private static int modifier(int table, int selector) {
+        int m = ETC_MODIFIERS[table][selector & 1];
+        return selector < 2 ? m : -m;
+    }
+
+    private static long packEtc1(SubBlockFit fit0, SubBlockFit fit1, boolean[] first, int flip,
+                                 boolean differential) {
+        long bits = 0;
+        if (differential) {
+            bits |= (long) fit0.color[0] << 59 | (long) ((fit1.color[0] - fit0.color[0]) & 7) << 56;
+            bits |= (long) fit0.color[1] << 51 | (long) ((fit1.color[1] - fit0.color[1]) & 7) << 48;
+            bits |= (long) fit0.color[2] << 43 | (long) ((fit1.color[2] - fit0.color[2]) & 7) << 40;
+            bits |= 1L << 33;
+        } else {
+            bits |= (long) fit0.color[0] << 60 | (long) fit1.color[0] << 56;
+            bits |= (long) fit0.color[1] << 52 | (long) fit1.color[1] << 48;
+            bits |= (long) fit0.color[2] << 44 | (long) fit1.color[2] << 40;
+        }
+        bits |= (long) fit0.table << 37 | (long) fit1.table << 34 | (long) flip << 32;
+        for (int p = 0; p < 16; p++) {
+            int s = first[p] ? fit0.selectors[p] : fit1.selectors[p];
+            int k = pixelBit(p);
+            // Index bits: MSB set for negative modifiers, LSB set for the large one
+            bits |= (long) (s >> 1) << (16 + k) | (long) (s & 1) << k;
+        }
+        return bits;
+    }
+
+    // Planar mode: least squares fit of a plane through the block, per channel
+    private static long encodePlanar(int[] r, int[] g, int[] b) {
+        int[] ro = new int[3];
+        int[] go = new int[3];
+        int[] bo = new int[3];
+        fitPlane(r, 6, ro);
+        fitPlane(g, 7, go);
+        fitPlane(b, 6, bo);
+
+        long bits = 0;
+        bits |= (long) ro[0] << 57;
+        bits |= (long) (go[0] >> 6) << 56 | (long) (go[0] & 63) << 49;
+        bits |= (long) (bo[0] >> 5) << 48 | (long) ((bo[0] >> 3) & 3) << 43 | (long) (bo[0] & 7) << 39;
+        bits |= (long) (ro[1] >> 1) << 34 | (long) (ro[1] & 1) << 32;
+        bits |= (long) go[1] << 25 | (long) bo[1] << 19;
+        bits |= (long) ro[2] << 13 | (long) go[2] << 6 | bo[2];
+        bits |= 1L << 33;
+
+        // Free bits: R and G read as differential must not overflow, B must
+        if (((bits >>> 59) & 0xf) + signed3(bits >>> 56) < 0) {
+            bits |= 1L << 63;
+        }
+        if (((bits >>> 51) & 0xf) + signed3(bits >>> 48) < 0) {
+            bits |= 1L << 55;
+        }
+        if (((bits >>> 43) & 3) + ((bits >>> 40) & 3) < 4) {
+            bits |= 1L << 42;
+        } else {
+            bits |= 7L << 45;
+        }
+        return bits;
+    }
+
+    private static int signed3(long bits) {
+        int v = (int) (bits & 7);
+        return v >= 4 ? v - 8 : v;
+    }
+
+    // Origin, horizontal and vertical corner values of the plane through a channel
+    private static void fitPlane(int[] c, int bits, int[] out) {
+        float mean = 0;
+        float sx = 0;
+        float sy = 0;
+        for (int p = 0; p < 16; p++) {
+            mean += c[p];
+            sx += ((p & 3) - 1.5f) * c[p];
+            sy += ((p >> 2) - 1.5f) * c[p];
+        }
+        mean /= 16;
+        // Sum of (x - 1.5)^2 over the block is 20
+        float dx = sx / 20;
+        float dy = sy / 20;
+        float o = mean - 1.5f * dx - 1.5f * dy;
+        float[] values = { o, o + 4 * dx, o + 4 * dy };
+
+        // Quantize, then try the neighbors of each corner value
+        int max = (1 << bits) - 1;
+        for (int i = 0; i < 3; i++) {
+            out[i] = Math.max(0, Math.min(max, Math.round(values[i] * max / 255.0f)));
+        }
+        long bestError = planeError(c, bits, out);
+        int[] candidate = new int[3];
+        for (int d = 0; d < 27; d++) {
+            boolean valid = true;
+            for (int i = 0; i < 3; i++) {
+                candidate[i] = out[i] + (i == 0 ? d % 3 : (i == 1 ? d / 3 % 3 : d / 9)) - 1;
+                valid &= candidate[i] >= 0 && candidate[i] <= max;
+            }
+            if (valid) {
+                long error = planeError(c, bits, candidate);
+                if (error < bestError) {
+                    bestError = error;
+                    System.arraycopy(candidate, 0, out, 0, 3);
+                }
+            }
+        }
+    }
+
+    private static long planeError(int[] c, int bits, int[] q) {
+        int o = expandPlanar(q[0], bits);
+        int h = expandPlanar(q[1], bits);
+        int v = expandPlanar(q[2], bits);
+        long error = 0;
+        for (int p = 0; p < 16; p++) {
+            int d = planarValue(o, h, v, p & 3, p >> 2) - c[p];
+            error += d * d;
+        }
+        return error;
+    }
+
+    private static int expandPlanar(int value, int bits) {
+        return bits == 6 ? (value << 2) | (value >> 4) : (value << 1) | (value >> 6);
+    }
+
+    private static int planarValue(int o, int h, int v, int x, int y) {
+        return clamp255((x * (h - o) + y * (v - o) + 4 * o + 2) >> 2);
+    }
+
+    private static long colorError(long bits, int[] r, int[] g, int[] b) {
+        int[] decoded = new int[16];
+        decodeColorBlock(bits, decoded);
+        long error = 0;
+        for (int p = 0; p < 16; p++) {
+            int dr = ((decoded[p] >> 16) & 0xff) - r[p];
+            int dg = ((decoded[p] >> 8) & 0xff) - g[p];
+            int db = (decoded[p] & 0xff) - b[p];
+            error += dr * dr + dg * dg + db * db;
+        }
+        return error;
+    }
+
+    /**
+     * Decode one color block, as written by encodeColorBlock()
+     * @param out  16 RGB colors (alpha 0xff), row by row
+     */
+    public static void decodeColorBlock(long bits, int[] out) {
+        boolean differential = ((bits >>> 33) & 1) != 0;
+        if (differential) {
+            int r = (int) ((bits >>> 59) & 31) + signed3(bits >>> 56);
+            int g = (int) ((bits >>> 51) & 31) + signed3(bits >>> 48);
+            int b = (int) ((bits >>> 43) & 31) + signed3(bits >>> 40);
+            if (r < 0 || r > 31 || g < 0 || g > 31) {
+                throw new UnsupportedOperationException("T and H mode blocks are not decoded");
+            }
+            if (b < 0 || b > 31) {
+                decodePlanar(bits, out);
+                return;
+            }
+        }
+        int[][] base = new int[2][3];
+        for (int c = 0; c < 3; c++) {
+            int shift = 59 - 8 * c;
+            if (differential) {
+                int c0 = (int) ((bits >>> shift) & 31);
+                int c1 = c0 + signed3(bits >>> (shift - 3));
+                base[0][c] = expand(c0, 5);
+                base[1][c] = expand(c1, 5);
+            } else {
+                base[0][c] = expand((int) ((bits >>> (shift + 1)) & 15), 4);
+                base[1][c] = expand((int) ((bits >>> (shift - 3)) & 15), 4);
+            }
+        }
+        int[] table = { (int) ((bits >>> 37) & 7), (int) ((bits >>> 34) & 7) };
+        boolean flip = ((bits >>> 32) & 1) != 0;
+        for (int p = 0; p < 16; p++) {
+            int x = p & 3;
+            int y = p >> 2;
+            int sub = flip ? (y < 2 ? 0 : 1) : (x < 2 ? 0 : 1);
+            int k = pixelBit(p);
+            int s = (int) (((bits >>> (16 + k)) & 1) << 1 | ((bits >>> k) & 1));
+            int m = modifier(table[sub], s);
+            out[p] = 0xff000000 | clamp255(base[sub][0] + m) << 16 | clamp255(base[sub][1] + m) << 8
+                    | clamp255(base[sub][2] + m);
+        }
+    }
+
+    private static void decodePlanar(long bits, int[] out) {
+        int ro = (int) ((bits >>> 57) & 63);
+        int go = (int) (((bits >>> 56) & 1) << 6 | ((bits >>> 49) & 63));
+        int bo = (int) (((bits >>> 48) & 1) << 5 | ((bits >>> 43) & 3) << 3 | ((bits >>> 39) & 7));
+        int rh = (int) (((bits >>> 34) & 31) << 1 | ((bits >>> 32) & 1));
+        int gh = (int) ((bits >>> 25) & 127);
+        int bh = (int) ((bits >>> 19) & 63);
+        int rv = (int) ((bits >>> 13) & 63);
+        int gv = (int) ((bits >>> 6) & 127);
+        int bv = (int) (bits & 63);
+        for (int p = 0; p < 16; p++) {
+            int x = p & 3;
+            int y = p >> 2;
+            out[p] = 0xff000000
+                    | planarValue(expandPlanar(ro, 6), expandPlanar(rh, 6), expandPlanar(rv, 6), x, y) << 16
+                    | planarValue(expandPlanar(go, 7), expandPlanar(gh, 7), expandPlanar(gv, 7), x, y) << 8
+                    | planarValue(expandPlanar(bo, 6), expandPlanar(bh, 6), expandPlanar(bv, 6), x, y);
+        }
+    }
+
+    /// EAC alpha blocks
+
+    /**
+     * Compress the alpha of one 4x4 block
+     * @param a  16 alpha values, row by row
+     */
+    public static long encodeAlphaBlock(int[] a) {
+        int min = 255;
+        int max = 0;
+        for (int p = 0; p < 16; p++) {
+            min = Math.min(min, a[p]);
+            max = Math.max(max, a[p]);
+        }
+        long bestError = Long.MAX_VALUE;
+        long bestBits = 0;
+        for (int t = 0; t < 16 && bestError > 0; t++) {
+            int[] mods = EAC_MODIFIERS[t];
+            // Multipliers around the one whose reach matches the range of the block
+            int fit = Math.round((float) (max - min) / (mods[7] - mods[3]));
+            for (int mult = Math.max(1, fit - 1); mult <= Math.min(15, fit + 1) && bestError > 0; mult++) {
+                // Center the reachable range of the table on the range of the block
+                int center = Math.round((min + max) / 2.0f - (mods[3] + mods[7]) * mult / 2.0f);
+                for (int base = center - 1; base <= center + 1; base++) {
+                    if (base < 0 || base > 255) {
+                        continue;
+                    }
+                    long error = 0;
+                    long indices = 0;
+                    for (int p = 0; p < 16 && error < bestError; p++) {
+                        int pixelBest = Integer.MAX_VALUE;
+                        int index = 0;
+                        for (int i = 0; i < 8; i++) {
+                            int d = clamp255(base + mods[i] * mult) - a[p];
+                            if (d * d < pixelBest) {
+                                pixelBest = d * d;
+                                index = i;
+                            }
+                        }
+                        error += pixelBest;
+                        indices |= (long) index << (45 - 3 * pixelBit(p));
+                    }
+                    if (error < bestError) {
+                        bestError = error;
+                        bestBits = (long) base << 56 | (long) mult << 52 | (long) t << 48 | indices;
+                    }
+                }
+            }
+        }
+        return bestBits;
+    }
+
+    /**
+     * Decode one alpha block
+     * @param out  16 alpha values, row by row
+     */
+    public static void decodeAlphaBlock(long bits, int[] out) {
+        int base = (int) (bits >>> 56);
+        int mult = (int) ((bits >>> 52) & 15);
+        int[] mods = EAC_MODIFIERS[(int) ((bits >>> 48) & 15)];
+        for (int p = 0; p < 16; p++) {
+            int index = (int) ((bits >>> (45 - 3 * pixelBit(p))) & 7);
+            out[p] = clamp255(base + mods[index] * mult);
+        }
+    }
+
+    /**
+     * Decode an image compressed by encode()
+     * @return  width * height ARGB pixels; alpha is 0xff for RGB8
+     */
+    public static int[] decode(byte[] data, int width, int height, boolean alpha) {
+        int blocksX = (width + 3) / 4;
+        int blocksY = (height + 3) / 4;
+        int blockBytes = alpha ? 16 : 8;
+        int[] argb = new int[width * height];
+        int[] color = new int[16];
+        int[] a = new int[16];
+        for (int by = 0; by < blocksY; by++) {
+            for (int bx = 0; bx < blocksX; bx++) {
+                int offset = (by * blocksX + bx) * blockBytes;
+                if (alpha) {
+                    decodeAlphaBlock(getLong(data, offset), a);
+                    offset += 8;
+                }
+                decodeColorBlock(getLong(data, offset), color);
+                for (int p = 0; p < 16; p++) {
+                    int x = bx * 4 + (p & 3);
+                    int y = by * 4 + (p >> 2);
+                    if (x < width && y < height) {
+                        argb[y * width + x] = alpha ? (color[p] & 0xffffff) | a[p] << 24 : color[p];
+                    }
+                }
+            }
+        }
+        return argb;
+    }
+
+    /**
+     * Peak signal to noise ratio between two images, in dB
+     * @param alpha  true to include the alpha channel
+     * @return  PSNR over the compared channels, infinity if identical
+     */
+    public static double psnr(int[] expected, int[] actual, boolean alpha) {
+        long sum = 0;
+        int channels = alpha ? 4 : 3;
+        for (int i = 0; i < expected.length; i++) {
+            for (int c = 0; c < channels; c++) {
+                int d = ((expected[i] >>> (8 * c)) & 0xff) - ((actual[i] >>> (8 * c)) & 0xff);
+                sum += d * d;
+            }
+        }
+        double mse = (double) sum / ((long) expected.length * channels);
+        return mse == 0 ? Double.POSITIVE_INFINITY : 10 * Math.log10(255.0 * 255.0 / mse);
+    }
+}
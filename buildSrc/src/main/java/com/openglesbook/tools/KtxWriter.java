@@ -0,0 +1,118 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// KtxWriter
+//
+//    Writes textures in the KTX 1.1 container format, little endian, for compressed
+//    internal formats.
+//
+
+package com.openglesbook.tools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class KtxWriter {
+    private static final byte[] IDENTIFIER = {
+            (byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n', 0x1A, '\n'
+    };
+    private static final int ENDIANNESS = 0x04030201;
+
+    public static final int GL_RGB = 0x1907;
+    public static final int GL_RGBA = 0x1908;
+
+    /**
+     * Write a texture
+     * @param out                 Destination, not closed
+     * @param internalFormat      Compressed format, e.g. Etc2Encoder.GL_COMPRESSED_RGB8_ETC2
+     * @param baseInternalFormat  GL_RGB or GL_RGBA
+     * @param width               Size of level 0
+     * @param height
+     * @param arrayElements       0 for a texture that is not an array
+     * @param faces               6 for a cubemap, otherwise 1
+     * @param images              images[level][element * faces + face], the data of each image
+     */
+    public static void write(OutputStream out, int internalFormat, int baseInternalFormat, int width, int height,
+                             int arrayElements, int faces, byte[][][] images) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(IDENTIFIER);
+        header.putInt(ENDIANNESS);
+        // glType, glTypeSize and glFormat are 0, 1 and 0 for compressed formats
+        header.putInt(0);
+        header.putInt(1);
+        header.putInt(0);
+        header.putInt(internalFormat);
+        header.putInt(baseInternalFormat);
+        header.putInt(width);
+        header.putInt(height);
+        header.putInt(0);
+        header.putInt(arrayElements);
+        header.putInt(faces);
+        header.putInt(images.length);
+        // No key/value data
+        header.putInt(0);
+        out.write(header.array());
+
+        ByteBuffer size = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] padding = new byte[3];
+        for (byte[][] level : images) {
+            // A cubemap that is not an array stores the size of one face, and pads every face
+            boolean cube = faces == 6 && arrayElements == 0;
+            int imageSize = 0;
+            if (cube) {
+                imageSize = level[0].length;
+            } else {
+                for (byte[] image : level) {
+                    imageSize += image.length;
+                }
+            }
+            size.clear();
+            size.putInt(imageSize);
+            out.write(size.array());
+            int levelSize = 0;
+            for (byte[] image : level) {
+                out.write(image);
+                levelSize += image.length;
+                if (cube) {
+                    out.write(padding, 0, (4 - image.length % 4) % 4);
+                }
+            }
+            // The level is padded to 4 bytes; padded faces already are
+            if (!cube) {
+                out.write(padding, 0, (4 - levelSize % 4) % 4);
+            }
+        }
+    }
+}
@@ -0,0 +1,340 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+// ShaderAnalyzer
+//
+//    Static precision and cost analysis of the GLSL ES 3.00 shaders shipped in assets/shaders.
+//    Used by the analyzeShaders task of the root build script.
+//
+
+package com.openglesbook.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ShaderAnalyzer {
+    private static final Pattern PRECISION_STATEMENT =
+            Pattern.compile("\\bprecision\\s+(lowp|mediump|highp)\\s+(\\w+)\\s*;");
+    private static final Pattern PRECISION_QUALIFIER = Pattern.compile("\\b(lowp|mediump|highp)\\b");
+    private static final Pattern TEXTURE_CALL = Pattern.compile("\\b(texture\\w*|texelFetch\\w*)\\s*\\(");
+    private static final Pattern LOOP = Pattern.compile("\\b(for|while|do)\\b");
+    private static final Pattern DECLARATION = Pattern.compile(
+            "\\b(float|int|uint|bool|[biu]?vec[234]|mat[234](?:x[234])?|sampler\\w+)\\s+(\\w+)");
+    private static final Pattern INTERFACE_DECLARATION = Pattern.compile(
+            "(?:layout\\s*\\([^)]*\\)\\s*)?\\b(in|out)\\s+(?:(?:flat|smooth|centroid|lowp|mediump|highp)\\s+)*"
+                    + "(float|int|uint|[biu]?vec[234]|mat[234](?:x[234])?)\\s+(\\w+)\\s*(?:\\[\\s*(\\d+)\\s*\\])?\\s*;");
+    private static final Pattern TOKEN = Pattern.compile("[A-Za-z_]\\w*|\\d+\\.?\\d*(?:[eE][-+]?\\d+)?|\\S");
+
+    // Estimated ALU cost of the built-in functions, everything else costs 1
+    private static final Map<String, Integer> FUNCTION_COST = new HashMap<String, Integer>();
+
+    static {
+        String[] costs = {
+                "normalize", "3", "length", "2", "distance", "3", "dot", "1", "cross", "2",
+                "pow", "3", "exp", "2", "exp2", "2", "log", "2", "log2", "2",
+                "sqrt", "1", "inversesqrt", "1", "sin", "2", "cos", "2", "tan", "3",
+                "asin", "4", "acos", "4", "atan", "4", "mix", "2", "clamp", "2",
+                "smoothstep", "4", "reflect", "3", "refract", "6", "faceforward", "2",
+                "inverse", "20", "transpose", "1", "determinant", "8",
+        };
+        for (int i = 0; i < costs.length; i += 2) {
+            FUNCTION_COST.put(costs[i], Integer.valueOf(costs[i + 1]));
+        }
+    }
+
+    private static final Set<String> CONSTRUCTORS = new HashSet<String>();
+
+    static {
+        String[] types = {"float", "int", "uint", "bool", "vec2", "vec3", "vec4", "ivec2", "ivec3", "ivec4",
+                "uvec2", "uvec3", "uvec4", "bvec2", "bvec3", "bvec4", "mat2", "mat3", "mat4",
+                "if", "for", "while", "return", "main"};
+        for (String type : types) {
+            CONSTRUCTORS.add(type);
+        }
+    }
+
+    public static class Report {
+        public final String path;
+        public final boolean fragment;
+        // Default float precision, null if the shader relies on the language default
+        public String defaultFloatPrecision;
+        public int lowp;
+        public int mediump;
+        public int highp;
+        public int textureFetches;
+        public int dependentReads;
+        public int loops;
+        public int varyings;
+        public int varyingComponents;
+        public int instructions;
+        public final List<String> warnings = new ArrayList<String>();
+
+        Report(String path, boolean fragment) {
+            this.path = path;
+            this.fragment = fragment;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(path).append(": ").append(fragment ? "fragment" : "vertex")
+              .append(" precision=").append(defaultFloatPrecision != null ? defaultFloatPrecision : "default")
+              .append(" lowp=").append(lowp)
+              .append(" mediump=").append(mediump)
+              .append(" highp=").append(highp)
+              .append(" textureFetches=").append(textureFetches)
+              .append(" dependentReads=").append(dependentReads)
+              .append(" loops=").append(loops)
+              .append(" varyings=").append(varyings)
+              .append('(').append(varyingComponents).append(" components)")
+              .append(" instructions=").append(instructions);
+            for (String warning : warnings) {
+                sb.append("\n    warning: ").append(warning);
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Analyze every .vert and .frag file below a directory
+     */
+    public static List<Report> analyzeTree(File root, File baseDir) throws IOException {
+        List<Report> reports = new ArrayList<Report>();
+        collect(root, baseDir, reports);
+        return reports;
+    }
+
+    private static void collect(File dir, File baseDir, List<Report> reports) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        java.util.Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                if (!name.equals("build") && !name.startsWith(".")) {
+                    collect(file, baseDir, reports);
+                }
+            } else if ((name.endsWith(".vert") || name.endsWith(".frag"))
+                    && file.getParentFile().getName().equals("shaders")
+                    && file.getParentFile().getParentFile().getName().equals("assets")) {
+                String source = new String(Files.readAllBytes(file.toPath()), Charset.forName("UTF-8"));
+                String path = baseDir.toURI().relativize(file.toURI()).getPath();
+                reports.add(analyze(path, name.endsWith(".frag"), source));
+            }
+        }
+    }
+
+    /**
+     * Analyze one shader
+     * @param path      Name used in the report
+     * @param fragment  true for a fragment shader, false for a vertex shader
+     * @param source    GLSL source
+     */
+    public static Report analyze(String path, boolean fragment, String source) {
+        Report report = new Report(path, fragment);
+        String code = stripComments(source);
+
+        // Precision
+        Matcher m = PRECISION_STATEMENT.matcher(code);
+        while (m.find()) {
+            if (m.group(2).equals("float")) {
+                report.defaultFloatPrecision = m.group(1);
+            }
+        }
+        String withoutStatements = PRECISION_STATEMENT.matcher(code).replaceAll("");
+        m = PRECISION_QUALIFIER.matcher(withoutStatements);
+        while (m.find()) {
+            String qualifier = m.group(1);
+            if (qualifier.equals("lowp")) {
+                report.lowp++;
+            } else if (qualifier.equals("mediump")) {
+                report.mediump++;
+            } else {
+                report.highp++;
+            }
+        }
+        if (fragment) {
+            if (report.defaultFloatPrecision == null) {
+                report.warnings.add("no default float precision, required in fragment shaders");
+            } else if (report.defaultFloatPrecision.equals("highp")) {
+                report.warnings.add("highp default float precision in fragment shader");
+            }
+            if (report.highp > 0) {
+                report.warnings.add(report.highp + " highp qualifier(s) in fragment shader");
+            }
+        }
+
+        // Interface
+        Set<String> inputs = new HashSet<String>();
+        m = INTERFACE_DECLARATION.matcher(code);
+        while (m.find()) {
+            boolean in = m.group(1).equals("in");
+            int count = m.group(4) != null ? Integer.parseInt(m.group(4)) : 1;
+            if (in) {
+                inputs.add(m.group(3));
+            }
+            // Varyings are the vertex outputs and fragment inputs
+            if (in == fragment) {
+                report.varyings += count;
+                report.varyingComponents += components(m.group(2)) * count;
+            }
+        }
+
+        // Symbol types, for matrix multiplies
+        Map<String, String> types = new HashMap<String, String>();
+        m = DECLARATION.matcher(code);
+        while (m.find()) {
+            types.put(m.group(2), m.group(1));
+        }
+
+        m = LOOP.matcher(code);
+        while (m.find()) {
+            report.loops++;
+        }
+        if (report.loops > 0) {
+            report.warnings.add(report.loops + " loop(s)");
+        }
+
+        // Texture fetches; a read is dependent unless its coordinate is an unmodified shader input
+        m = TEXTURE_CALL.matcher(code);
+        while (m.find()) {
+            report.textureFetches++;
+            List<String> args = arguments(code, m.end());
+            if (args.size() >= 2 && !isDirectCoordinate(args.get(1), inputs)) {
+                report.dependentReads++;
+            }
+        }
+        if (fragment && report.dependentReads > 0) {
+            report.warnings.add(report.dependentReads + " dependent texture read(s)");
+        }
+
+        report.instructions = estimateInstructions(code, types);
+        return report;
+    }
+
+    private static boolean isDirectCoordinate(String argument, Set<String> inputs) {
+        String name = argument.trim();
+        int dot = name.indexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return inputs.contains(name) || name.equals("gl_PointCoord") || name.equals("gl_FragCoord");
+    }
+
+    /**
+     * ALU operations plus texture fetches in all function bodies. Vector operations count once,
+     * a multiply by a matCxR counts C times.
+     */
+    private static int estimateInstructions(String code, Map<String, String> types) {
+        int instructions = 0;
+        int depth = 0;
+        List<String> tokens = new ArrayList<String>();
+        Matcher m = TOKEN.matcher(code);
+        while (m.find()) {
+            tokens.add(m.group());
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.equals("{")) {
+                depth++;
+            } else if (token.equals("}")) {
+                depth--;
+            }
+            if (depth == 0) {
+                continue;
+            }
+            if (token.equals("*")) {
+                int columns = Math.max(matrixColumns(types, i > 0 ? tokens.get(i - 1) : ""),
+                        matrixColumns(types, i + 1 < tokens.size() ? tokens.get(i + 1) : ""));
+                instructions += Math.max(columns, 1);
+            } else if (token.equals("+") || token.equals("-") || token.equals("/")) {
+                // Skip unary minus and the second character of ++, +=, ...
+                String previous = i > 0 ? tokens.get(i - 1) : "";
+                if (!previous.equals("(") && !previous.equals("=") && !previous.equals(",")
+                        && !previous.equals(token)) {
+                    instructions++;
+                }
+            } else if (i + 1 < tokens.size() && tokens.get(i + 1).equals("(")
+                    && Character.isJavaIdentifierStart(token.charAt(0)) && !CONSTRUCTORS.contains(token)) {
+                Integer cost = FUNCTION_COST.get(token);
+                instructions += cost != null ? cost : 1;
+            }
+        }
+        return instructions;
+    }
+
+    private static int matrixColumns(Map<String, String> types, String token) {
+        String type = types.containsKey(token) ? types.get(token) : token;
+        if (type.startsWith("mat")) {
+            return type.charAt(3) - '0';
+        }
+        return 0;
+    }
+
+    private static int components(String type) {
+        char last = type.charAt(type.length() - 1);
+        if (type.startsWith("mat")) {
+            // matCxR, or matN
+            int columns = type.charAt(3) - '0';
+            return columns * (last - '0');
+        }
+        return Character.isDigit(last) ? last - '0' : 1;
+    }
+
+    private static List<String> arguments(String code, int start) {
+        List<String> args = new ArrayList<String>();
+        int depth = 0;
+        int argStart = start;
+        for (int i = start; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (depth == 0) {
+                    args.add(code.substring(argStart, i));
+                    break;
+                }
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                args.add(code.substring(argStart, i));
+                argStart = i + 1;
+            }
+        }
+        return args;
+    }
+
+    private static String stripComments(String source) {
+        return source.replaceAll("(?s)/\\*.*?\\*/", " ").replaceAll("//[^\\n]*", "");
+    }
+}
@@ -0,0 +1,237 @@
+// The MIT License (MIT)
+//
+// Copyright (c) 2013 Dan Ginsburg, Budirijanto Purnomo
+//
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included in
+// all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+// THE SOFTWARE.
+
+//
+// Book:      OpenGL(R) ES 3.0 Programming Guide, 2nd Edition
+// Authors:   Dan Ginsburg, Budirijanto Purnomo, Dave Shreiner, Aaftab Munshi
+// ISBN-10:   0-321-93388-5
+// ISBN-13:   978-0-321-93388-1
+// Publisher: Addison-Wesley Professional
+// URLs:      http://www.opengles-book.com
+//            http://my.safaribooksonline.com/book/animation-and-3d/9780133440133
+//
+
+
+// TextureCompressor
+//
+//    Converts the PNG sources in textures-src to ETC2 compressed KTX files with a full
+//    mip chain, and reports the quality and speed of the compression.
+//    Used by the compressTextures task of the root build script.
+//
+
+package com.openglesbook.tools;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.imageio.ImageIO;
+
+public class TextureCompressor {
+    // Directory of the PNG sources in each module; the KTX files are packaged as assets
+    public static final String SOURCE_DIR = "textures-src";
+
+    public static class Report {
+        public final String path;
+        public int width;
+        public int height;
+        public int levels;
+        public boolean alpha;
+        public long uncompressedBytes;
+        public long compressedBytes;
+        // Quality of level 0 over the color channels, and over the alpha channel for RGBA8
+        public double psnr;
+        public double alphaPsnr;
+        public long encodeNanos;
+
+        Report(String path) {
+            this.path = path;
+        }
+
+        // Encoded pixels of all levels per second, in millions
+        public double megapixelsPerSecond() {
+            return encodeNanos > 0 ? (uncompressedBytes / 4.0) / (encodeNanos / 1e9) / 1e6 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %dx%d %s levels=%d %d -> %d bytes psnr=%.2f dB%s %.2f Mpixel/s",
+                    path, width, height, alpha ? "RGBA8_ETC2_EAC" : "RGB8_ETC2", levels,
+                    uncompressedBytes, compressedBytes, psnr,
+                    alpha ? String.format(Locale.US, " alphaPsnr=%.2f dB", alphaPsnr) : "",
+                    megapixelsPerSecond());
+        }
+    }
+
+    /**
+     * Compress every .png file in a textures-src directory below a directory
+     * @param root       Directory to search
+     * @param baseDir    Report paths are relative to this directory
+     * @param outputDir  Each image is written to the same path relative to root below this
+     *                   directory, with the extension .ktx
+     * @param threads    Encoding threads
+     */
+    public static List<Report> compressTree(File root, File baseDir, File outputDir, int threads)
+            throws IOException {
+        List<Report> reports = new ArrayList<Report>();
+        collect(root, root, baseDir, outputDir, new Etc2Encoder(threads), reports);
+        return reports;
+    }
+
+    private static void collect(File dir, File root, File baseDir, File outputDir, Etc2Encoder encoder,
+                                List<Report> reports) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        java.util.Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                if (!name.equals("build") && !name.startsWith(".")) {
+                    collect(file, root, baseDir, outputDir, encoder, reports);
+                }
+            } else if (name.endsWith(".png") && file.getPath().contains(File.separator + SOURCE_DIR + File.separator)) {
+                String relative = root.toURI().relativize(file.toURI()).getPath();
+                File ktx = new File(outputDir, relative.substring(0, relative.length() - 4) + ".ktx");
+                String path = baseDir.toURI().relativize(file.toURI()).getPath();
+                reports.add(compress(file, path, ktx, encoder));
+            }
+        }
+    }
+
+    /**
+     * Compress one image with all its mip levels
+     * @param png      Source image; ETC2 RGBA8 is used if it has an alpha channel, else RGB8
+     * @param path     Name used in the report
+     * @param ktx      Destination
+     * @param encoder  Encoder to use
+     */
+    public static Report compress(File png, String path, File ktx, Etc2Encoder encoder) throws IOException {
+        BufferedImage image = ImageIO.read(png);
+        if (image == null) {
+            throw new IOException("Cannot read " + png);
+        }
+        Report report = new Report(path);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        report.width = width;
+        report.height = height;
+        report.alpha = image.getColorModel().hasAlpha();
+
+        List<byte[][]> levels = new ArrayList<byte[][]>();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        int w = width;
+        int h = height;
+        while (true) {
+            long start = System.nanoTime();
+            byte[] data = encoder.encode(pixels, w, h, report.alpha);
+            report.encodeNanos += System.nanoTime() - start;
+            report.uncompressedBytes += (long) w * h * 4;
+            report.compressedBytes += data.length;
+            if (levels.isEmpty()) {
+                int[] decoded = Etc2Encoder.decode(data, w, h, report.alpha);
+                report.psnr = Etc2Encoder.psnr(rgbOnly(pixels), rgbOnly(decoded), false);
+                if (report.alpha) {
+                    report.alphaPsnr = Etc2Encoder.psnr(alphaOnly(pixels), alphaOnly(decoded), false);
+                }
+            }
+            levels.add(new byte[][] { data });
+            if (w == 1 && h == 1) {
+                break;
+            }
+            pixels = downsample(pixels, w, h);
+            w = Math.max(1, w / 2);
+            h = Math.max(1, h / 2);
+        }
+        report.levels = levels.size();
+
+        ktx.getParentFile().mkdirs();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(ktx));
+        try {
+            int format = report.alpha ? Etc2Encoder.GL_COMPRESSED_RGBA8_ETC2_EAC : Etc2Encoder.GL_COMPRESSED_RGB8_ETC2;
+            KtxWriter.write(out, format, report.alpha ? KtxWriter.GL_RGBA : KtxWriter.GL_RGB, width, height, 0, 1,
+                    levels.toArray(new byte[levels.size()][][]));
+        } finally {
+            out.close();
+        }
+        return report;
+    }
+
+    /**
+     * 2x2 box filter to the next mip level; an odd last row or column is folded into its neighbor
+     */
+    static int[] downsample(int[] argb, int width, int height) {
+        int w = Math.max(1, width / 2);
+        int h = Math.max(1, height / 2);
+        int[] out = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            int y0 = Math.min(2 * y, height - 1);
+            int y1 = y == h - 1 ? height - 1 : Math.min(2 * y + 1, height - 1);
+            for (int x = 0; x < w; x++) {
+                int x0 = Math.min(2 * x, width - 1);
+                int x1 = x == w - 1 ? width - 1 : Math.min(2 * x + 1, width - 1);
+                int[] sum = new int[4];
+                int count = 0;
+                for (int sy = y0; sy <= y1; sy++) {
+                    for (int sx = x0; sx <= x1; sx++) {
+                        int c = argb[sy * width + sx];
+                        for (int i = 0; i < 4; i++) {
+                            sum[i] += (c >>> (8 * i)) & 0xff;
+                        }
+                        count++;
+                    }
+                }
+                int c = 0;
+                for (int i = 0; i < 4; i++) {
+                    c |= ((sum[i] + count / 2) / count) << (8 * i);
+                }
+                out[y * w + x] = c;
+            }
+        }
+        return out;
+    }
+
+    private static int[] rgbOnly(int[] argb) {
+        int[] out = new int[argb.length];
+        for (int i = 0; i < argb.length; i++) {
+            out[i] = argb[i] & 0xffffff;
+        }
+        return out;
+    }
+
+    private static int[] alphaOnly(int[] argb) {
+        int[] out = new int[argb.length];
+        for (int i = 0; i < argb.length; i++) {
+            // In all three color channels, so psnr() averages over alpha alone
+            int a = argb[i] >>> 24;
+            out[i] = a << 16 | a << 8 | a;
+        }
+        return out;
+    }
+}